@@ -5,6 +5,7 @@ import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.LastBlockRepository;
 import io.mywish.binance.blockchain.services.BinanceNetwork;
 import io.mywish.binance.blockchain.services.BinanceScanner;
+import io.mywish.scanner.services.LastBlockBatchPersister;
 import io.mywish.scanner.services.LastBlockDbPersister;
 import io.mywish.scanner.services.LastBlockFilePersister;
 import io.mywish.scanner.services.LastBlockPersister;
@@ -49,14 +50,23 @@ public class BinanceBCModule {
             final @Qualifier(NetworkType.BINANCE_MAINNET_VALUE) BinanceNetwork network,
             final @Qualifier("binanceMainnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.binance.polling-interval-ms}") Long pollingInterval,
-            final @Value("${etherscanner.binance.commit-chain-length}") Integer commitmentChainLength
+            final @Value("${etherscanner.binance.commit-chain-length}") Integer commitmentChainLength,
+            final @Value("${etherscanner.binance.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.binance.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.binance.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.binance.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.binance.reorg-tracking-depth:0}") Integer reorgTrackingDepth
     ) {
-        return new BinanceScanner(
+        BinanceScanner scanner = new BinanceScanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        return scanner;
     }
 
 //    @ConditionalOnBean(name = NetworkType.BINANCE_TESTNET_VALUE)
@@ -81,9 +91,15 @@ public class BinanceBCModule {
         @Bean
         public LastBlockPersister binanceMainnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.binance.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.binance.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.binance.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.binance.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.BINANCE_MAINNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.BINANCE_MAINNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
 //        @Bean
@@ -101,9 +117,15 @@ public class BinanceBCModule {
         @Bean
         public LastBlockPersister binanceMainnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.binance.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.binance.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.binance.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.binance.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.BINANCE_MAINNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.BINANCE_MAINNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
 //        @Bean
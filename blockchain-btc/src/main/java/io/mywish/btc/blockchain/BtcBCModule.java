@@ -3,11 +3,14 @@ package io.mywish.btc.blockchain;
 import com.neemre.btcdcli4j.core.client.BtcdClientImpl;
 import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.LastBlockRepository;
+import io.mywish.btc.blockchain.helper.UtxoIndex;
 import io.mywish.btc.blockchain.services.BtcNetwork;
 import io.mywish.btc.blockchain.services.BtcScanner;
+import io.mywish.scanner.services.LastBlockBatchPersister;
 import io.mywish.scanner.services.LastBlockDbPersister;
 import io.mywish.scanner.services.LastBlockFilePersister;
 import io.mywish.scanner.services.LastBlockPersister;
+import io.mywish.scanner.services.PendingTransactionService;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.bitcoinj.params.MainNetParams;
 import org.bitcoinj.params.TestNet3Params;
@@ -19,7 +22,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Paths;
 
 @ComponentScan
 @Configuration
@@ -36,7 +41,11 @@ public class BtcBCModule {
     @Bean(name = NetworkType.BTC_MAINNET_VALUE)
     public BtcNetwork btcNetMain(
             final CloseableHttpClient closeableHttpClient,
-            final @Value("${etherscanner.bitcoin.rpc-url.mainnet}") URI rpc
+            final @Value("${etherscanner.bitcoin.rpc-url.mainnet}") URI rpc,
+            final @Value("${etherscanner.bitcoin.mempool-fetch-limit:0}") Integer mempoolFetchLimit,
+            final @Value("${etherscanner.bitcoin.zmq-url.mainnet:#{null}}") URI zmq,
+            final @Value("${etherscanner.bitcoin.zmq-silence-timeout-ms:1200000}") Integer zmqSilenceTimeout,
+            final @Value("${etherscanner.bitcoin.zmq-raw-blocks:true}") Boolean zmqRawBlocks
     ) throws Exception {
         String user = null, password = null;
         if (rpc.getUserInfo() != null) {
@@ -46,7 +55,7 @@ public class BtcBCModule {
                 password = credentials[1];
             }
         }
-        return new BtcNetwork(
+        BtcNetwork network = new BtcNetwork(
                 NetworkType.BTC_MAINNET,
                 new BtcdClientImpl(
                         closeableHttpClient,
@@ -58,13 +67,24 @@ public class BtcBCModule {
                 ),
                 treatTestnetAsMainnet ? new TestNet3Params() : new MainNetParams()
         );
+        if (mempoolFetchLimit > 0) {
+            network.setMempoolTracking(mempoolFetchLimit);
+        }
+        if (zmq != null) {
+            network.setNotifications(zmq, zmqSilenceTimeout, zmqRawBlocks);
+        }
+        return network;
     }
 
     @ConditionalOnProperty("etherscanner.bitcoin.rpc-url.testnet")
     @Bean(name = NetworkType.BTC_TESTNET_3_VALUE)
     public BtcNetwork btcNetTest(
             final CloseableHttpClient closeableHttpClient,
-            final @Value("${etherscanner.bitcoin.rpc-url.testnet}") URI rpc
+            final @Value("${etherscanner.bitcoin.rpc-url.testnet}") URI rpc,
+            final @Value("${etherscanner.bitcoin.mempool-fetch-limit:0}") Integer mempoolFetchLimit,
+            final @Value("${etherscanner.bitcoin.zmq-url.testnet:#{null}}") URI zmq,
+            final @Value("${etherscanner.bitcoin.zmq-silence-timeout-ms:1200000}") Integer zmqSilenceTimeout,
+            final @Value("${etherscanner.bitcoin.zmq-raw-blocks:true}") Boolean zmqRawBlocks
     ) throws Exception {
         String user = null, password = null;
         if (rpc.getUserInfo() != null) {
@@ -74,7 +94,7 @@ public class BtcBCModule {
                 password = credentials[1];
             }
         }
-        return new BtcNetwork(
+        BtcNetwork network = new BtcNetwork(
                 NetworkType.BTC_TESTNET_3,
                 new BtcdClientImpl(
                         closeableHttpClient,
@@ -85,6 +105,25 @@ public class BtcBCModule {
                         password
                 ),
                 new TestNet3Params());
+        if (mempoolFetchLimit > 0) {
+            network.setMempoolTracking(mempoolFetchLimit);
+        }
+        if (zmq != null) {
+            network.setNotifications(zmq, zmqSilenceTimeout, zmqRawBlocks);
+        }
+        return network;
+    }
+
+    @ConditionalOnBean(name = NetworkType.BTC_MAINNET_VALUE)
+    @Bean
+    public PendingTransactionService btcMainnetPendingTransactionService() {
+        return new PendingTransactionService(NetworkType.BTC_MAINNET);
+    }
+
+    @ConditionalOnBean(name = NetworkType.BTC_TESTNET_3_VALUE)
+    @Bean
+    public PendingTransactionService btcTestnetPendingTransactionService() {
+        return new PendingTransactionService(NetworkType.BTC_TESTNET_3);
     }
 
     @Configuration
@@ -93,17 +132,29 @@ public class BtcBCModule {
         @Bean
         public LastBlockPersister btcMainnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.bitcoin.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.bitcoin.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.bitcoin.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.bitcoin.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.BTC_MAINNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.BTC_MAINNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister btcTestnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.bitcoin.last-block.testnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.bitcoin.last-block.testnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.bitcoin.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.bitcoin.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.BTC_TESTNET_3, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.BTC_TESTNET_3, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -113,17 +164,29 @@ public class BtcBCModule {
         @Bean
         public LastBlockPersister btcMainnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.bitcoin.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.bitcoin.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.bitcoin.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.bitcoin.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.BTC_MAINNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.BTC_MAINNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister btcTestnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.bitcoin.last-block.testnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.bitcoin.last-block.testnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.bitcoin.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.bitcoin.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.BTC_TESTNET_3, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.BTC_TESTNET_3, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -133,14 +196,32 @@ public class BtcBCModule {
             final @Qualifier(NetworkType.BTC_MAINNET_VALUE) BtcNetwork network,
             final @Qualifier("btcMainnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.bitcoin.polling-interval-ms}") Long pollingInterval,
-            final @Value("${etherscanner.bitcoin.commit-chain-length}") Integer commitmentChainLength
-    ) {
-        return new BtcScanner(
+            final @Value("${etherscanner.bitcoin.commit-chain-length}") Integer commitmentChainLength,
+            final @Value("${etherscanner.bitcoin.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.bitcoin.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.bitcoin.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.bitcoin.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.bitcoin.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.bitcoin.utxo-index.dir:#{null}}") String utxoIndexDir,
+            final @Value("${etherscanner.bitcoin.utxo-index.checkpoint.mainnet:#{null}}") String utxoIndexCheckpoint,
+            final @Value("${etherscanner.bitcoin.utxo-index.capacity:1048576}") Long utxoIndexCapacity,
+            final @Value("${etherscanner.bitcoin.utxo-index.keep-blocks:100}") Integer utxoIndexKeepBlocks
+    ) throws IOException {
+        BtcScanner scanner = new BtcScanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        if (utxoIndexDir != null) {
+            UtxoIndex utxoIndex = utxoIndex(NetworkType.BTC_MAINNET, utxoIndexDir, utxoIndexCheckpoint, utxoIndexCapacity, utxoIndexKeepBlocks);
+            scanner.setUtxoIndex(utxoIndex);
+            network.setUtxoIndex(utxoIndex);
+        }
+        return scanner;
     }
 
     @ConditionalOnBean(name = NetworkType.BTC_TESTNET_3_VALUE)
@@ -149,13 +230,41 @@ public class BtcBCModule {
             final @Qualifier(NetworkType.BTC_TESTNET_3_VALUE) BtcNetwork network,
             final @Qualifier("btcTestnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.bitcoin.polling-interval-ms}") Long pollingInterval,
-            final @Value("${etherscanner.bitcoin.commit-chain-length}") Integer commitmentChainLength
-    ) {
-        return new BtcScanner(
+            final @Value("${etherscanner.bitcoin.commit-chain-length}") Integer commitmentChainLength,
+            final @Value("${etherscanner.bitcoin.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.bitcoin.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.bitcoin.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.bitcoin.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.bitcoin.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.bitcoin.utxo-index.dir:#{null}}") String utxoIndexDir,
+            final @Value("${etherscanner.bitcoin.utxo-index.checkpoint.testnet:#{null}}") String utxoIndexCheckpoint,
+            final @Value("${etherscanner.bitcoin.utxo-index.capacity:1048576}") Long utxoIndexCapacity,
+            final @Value("${etherscanner.bitcoin.utxo-index.keep-blocks:100}") Integer utxoIndexKeepBlocks
+    ) throws IOException {
+        BtcScanner scanner = new BtcScanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        if (utxoIndexDir != null) {
+            UtxoIndex utxoIndex = utxoIndex(NetworkType.BTC_TESTNET_3, utxoIndexDir, utxoIndexCheckpoint, utxoIndexCapacity, utxoIndexKeepBlocks);
+            scanner.setUtxoIndex(utxoIndex);
+            network.setUtxoIndex(utxoIndex);
+        }
+        return scanner;
+    }
+
+    private static UtxoIndex utxoIndex(NetworkType networkType, String dir, String checkpoint, long capacity, int keepBlocks) throws IOException {
+        return new UtxoIndex(
+                networkType.name(),
+                Paths.get(dir, networkType.name() + ".utxo"),
+                checkpoint == null ? null : Paths.get(checkpoint),
+                capacity,
+                keepBlocks
+        );
     }
 }
@@ -0,0 +1,262 @@
+package io.mywish.btc.blockchain.helper;
+
+import com.neemre.btcdcli4j.core.client.BtcdClient;
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperOutput;
+import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.scanner.services.WatchedAddressFilter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pending transactions of the bitcoin-like node by diffing the mempool.
+ * On each fetch the txids of getrawmempool are compared with the previous ones and only the new transactions
+ * are requested by getrawtransaction and decoded by {@link RawBlockDecoder}. Their inputs are resolved by
+ * {@link UtxoIndex} if it is set, transactions which touch none of the watched addresses are skipped.
+ * At most fetchLimit transactions are requested per fetch, the rest stay new for the next one.
+ * When the node pushes rawtx notifications ({@link #setPushing(boolean)}), the pushed transactions are taken instead
+ * and the mempool is diffed only after {@link #resync()}: on new blocks and when some notifications are lost.
+ * The node pushes the transactions of the connected block as well, so on the diff the pushed transactions
+ * which are not in the mempool any more are dropped, and the pushed coinbase transactions are never taken.
+ */
+@Slf4j
+public class MempoolTracker {
+    private final NetworkType type;
+    private final BtcdClient client;
+    private final RawBlockDecoder decoder;
+    private final Executor executor;
+    @Getter
+    private final int fetchLimit;
+    private volatile WatchedAddressFilter filter;
+    private volatile UtxoIndex utxoIndex;
+    private final BlockingQueue<UtxoTransaction> pushed;
+    private volatile boolean pushing;
+    private volatile boolean resync;
+
+    private Set<String> known = new HashSet<>();
+    @Getter
+    private volatile int mempoolSize;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public MempoolTracker(NetworkType type, BtcdClient client, RawBlockDecoder decoder, Executor executor, int fetchLimit) {
+        this.type = type;
+        this.client = client;
+        this.decoder = decoder;
+        this.executor = executor;
+        this.fetchLimit = fetchLimit;
+        this.pushed = new ArrayBlockingQueue<>(fetchLimit);
+    }
+
+    /**
+     * @param filter null means all transactions are kept.
+     */
+    public void setFilter(WatchedAddressFilter filter) {
+        this.filter = filter;
+    }
+
+    public void setUtxoIndex(UtxoIndex utxoIndex) {
+        this.utxoIndex = utxoIndex;
+    }
+
+    /**
+     * @param pushing true while rawtx notifications are received, the mempool is diffed on each fetch otherwise.
+     */
+    public void setPushing(boolean pushing) {
+        this.pushing = pushing;
+        resync = true;
+    }
+
+    /**
+     * Diff the mempool on the next fetch: transactions could be missed, or the mined ones should be forgotten.
+     */
+    public void resync() {
+        resync = true;
+    }
+
+    /**
+     * Takes the transaction pushed by the node, the pushed transactions are processed on the next fetch.
+     * If too many transactions are waiting, the transaction is dropped and the mempool is diffed instead.
+     */
+    public void offer(byte[] raw) {
+        UtxoTransaction transaction;
+        try {
+            transaction = decoder.decodeTransaction(raw);
+        }
+        catch (RuntimeException e) {
+            log.debug("{}: impossible to decode pushed transaction.", type, e);
+            failed.incrementAndGet();
+            return;
+        }
+        if (transaction.getSpentHashPrefixes().length == 0) {
+            // coinbase of the connected block
+            return;
+        }
+        if (!pushed.offer(transaction)) {
+            dropped.incrementAndGet();
+            resync = true;
+        }
+    }
+
+    /**
+     * Returns the watched transactions which appeared in the mempool since the previous call.
+     */
+    public synchronized List<WrapperTransaction> fetch() throws Exception {
+        List<WrapperTransaction> decoded = new ArrayList<>();
+        // taken before the mempool is requested, so the ones missing in it are mined or evicted
+        Map<String, UtxoTransaction> taken = new LinkedHashMap<>();
+        for (UtxoTransaction transaction = pushed.poll(); transaction != null; transaction = pushed.poll()) {
+            taken.put(transaction.getHash(), transaction);
+        }
+        if (!pushing || resync) {
+            resync = false;
+            try {
+                diff(decoded, taken);
+            }
+            catch (Exception e) {
+                resync = true;
+                throw e;
+            }
+        }
+        else {
+            for (UtxoTransaction transaction : taken.values()) {
+                if (known.add(transaction.getHash())) {
+                    decoded.add(transaction);
+                }
+            }
+        }
+
+        UtxoIndex index = utxoIndex;
+        if (index != null) {
+            index.resolve(decoded);
+        }
+        List<WrapperTransaction> result = new ArrayList<>();
+        for (WrapperTransaction transaction : decoded) {
+            received.incrementAndGet();
+            if (isWatched(transaction)) {
+                result.add(transaction);
+            }
+            else {
+                skipped.incrementAndGet();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param taken pushed transactions, only the ones which are still in the mempool are taken.
+     */
+    private void diff(List<WrapperTransaction> decoded, Map<String, UtxoTransaction> taken) throws Exception {
+        List<String> txids = client.getRawMemPool();
+        Set<String> current = new HashSet<>(txids.size() * 4 / 3 + 1);
+        List<String> added = new ArrayList<>();
+        for (String txid : txids) {
+            if (known.contains(txid)) {
+                current.add(txid);
+            }
+            else if (taken.containsKey(txid)) {
+                current.add(txid);
+                decoded.add(taken.get(txid));
+            }
+            else if (added.size() < fetchLimit) {
+                current.add(txid);
+                added.add(txid);
+            }
+            else {
+                deferred.incrementAndGet();
+            }
+        }
+        mempoolSize = txids.size();
+        if (txids.size() > current.size()) {
+            resync = true;
+            log.info("{}: {} new mempool transactions are deferred, {} are requested at once.",
+                    type, txids.size() - current.size(), fetchLimit);
+        }
+
+        List<CompletableFuture<String>> futures = new ArrayList<>(added.size());
+        for (String txid : added) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return client.getRawTransaction(txid);
+                }
+                catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        for (int i = 0; i < added.size(); i++) {
+            String txid = added.get(i);
+            try {
+                decoded.add(decoder.decodeTransaction(futures.get(i).join()));
+            }
+            catch (Exception e) {
+                // the transaction may be mined or evicted already, otherwise it is requested again
+                log.debug("{}: impossible to get mempool transaction {}.", type, txid, e);
+                failed.incrementAndGet();
+                current.remove(txid);
+                resync = true;
+            }
+        }
+        known = current;
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getDeferred() {
+        return deferred.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public boolean isPushing() {
+        return pushing;
+    }
+
+    private boolean isWatched(WrapperTransaction transaction) {
+        WatchedAddressFilter filter = this.filter;
+        if (filter == null) {
+            return true;
+        }
+        for (WrapperOutput output : transaction.getOutputs()) {
+            if (filter.isWatched(type, output.getAddress())) {
+                return true;
+            }
+        }
+        for (String input : transaction.getInputs()) {
+            if (filter.isWatched(type, input)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
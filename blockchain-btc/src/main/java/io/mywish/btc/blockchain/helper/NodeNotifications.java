@@ -0,0 +1,141 @@
+package io.mywish.btc.blockchain.helper;
+
+import io.lastwill.eventscan.model.NetworkType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Block and mempool notifications of the bitcoind-like node (-zmqpubhashblock, -zmqpubrawblock, -zmqpubrawtx).
+ * Block notification wakes up the scanner, the pushed raw block is kept to be decoded without getblock request.
+ * Pushed transactions go to {@link MempoolTracker}. The scanner still polls the node, so it does not depend
+ * on the notifications.
+ */
+@Slf4j
+public class NodeNotifications implements Closeable {
+    public final static String HASH_BLOCK = "hashblock";
+    public final static String RAW_BLOCK = "rawblock";
+    public final static String RAW_TX = "rawtx";
+    private final static int CACHED_BLOCKS = 4;
+    private final static long RECONNECT_DELAY = 5000;
+
+    private final NetworkType type;
+    private final MempoolTracker mempoolTracker;
+    private final ZmqNotifier notifier;
+    private final Map<String, byte[]> rawBlocks = new LinkedHashMap<String, byte[]>(CACHED_BLOCKS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+    private volatile Runnable blockListener;
+    private boolean started;
+
+    /**
+     * @param silenceTimeout reconnect when nothing is received for so long, ms.
+     * @param rawBlocks      subscribe to rawblock instead of hashblock.
+     * @param mempoolTracker null if pending transactions are not needed.
+     */
+    public NodeNotifications(NetworkType type, URI endpoint, int silenceTimeout, boolean rawBlocks, MempoolTracker mempoolTracker) {
+        this.type = type;
+        this.mempoolTracker = mempoolTracker;
+        List<String> topics = new ArrayList<>();
+        topics.add(rawBlocks ? RAW_BLOCK : HASH_BLOCK);
+        if (mempoolTracker != null) {
+            topics.add(RAW_TX);
+        }
+        this.notifier = new ZmqNotifier(type.name(), endpoint, topics, silenceTimeout, RECONNECT_DELAY, new ZmqNotifier.Listener() {
+            @Override
+            public void onMessage(String topic, byte[] body) {
+                NodeNotifications.this.onMessage(topic, body);
+            }
+
+            @Override
+            public void onMissed() {
+                if (mempoolTracker != null) {
+                    mempoolTracker.setPushing(true);
+                }
+                notifyBlockListener();
+            }
+
+            @Override
+            public void onDisconnected() {
+                if (mempoolTracker != null) {
+                    mempoolTracker.setPushing(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts receiving the notifications, the listener is called on each new block.
+     */
+    public synchronized void subscribe(Runnable blockListener) {
+        this.blockListener = blockListener;
+        if (!started) {
+            started = true;
+            notifier.start();
+        }
+    }
+
+    public boolean isConnected() {
+        return notifier.isConnected();
+    }
+
+    /**
+     * Returns the pushed raw block, null if it was not received or is evicted already.
+     */
+    public byte[] getRawBlock(String hash) {
+        synchronized (rawBlocks) {
+            return rawBlocks.get(hash);
+        }
+    }
+
+    @Override
+    public void close() {
+        blockListener = null;
+        notifier.close();
+    }
+
+    private void onMessage(String topic, byte[] body) {
+        switch (topic) {
+            case RAW_TX:
+                mempoolTracker.offer(body);
+                break;
+            case RAW_BLOCK:
+                String hash = RawBlockDecoder.blockHash(body);
+                log.debug("{}: block {} is pushed.", type, hash);
+                synchronized (rawBlocks) {
+                    rawBlocks.put(hash, body);
+                }
+                onBlock();
+                break;
+            case HASH_BLOCK:
+                log.debug("{}: block {} is notified.", type, RawBlockDecoder.toHex(body));
+                onBlock();
+                break;
+            default:
+                log.debug("{}: unexpected {} notification is skipped.", type, topic);
+        }
+    }
+
+    private void onBlock() {
+        if (mempoolTracker != null) {
+            // mined transactions are forgotten by the mempool diff
+            mempoolTracker.resync();
+        }
+        notifyBlockListener();
+    }
+
+    private void notifyBlockListener() {
+        Runnable listener = blockListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+}
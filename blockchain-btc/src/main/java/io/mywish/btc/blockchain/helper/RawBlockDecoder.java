@@ -0,0 +1,423 @@
+package io.mywish.btc.blockchain.helper;
+
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperOutput;
+import io.mywish.blockchain.WrapperTransaction;
+import org.bitcoinj.core.Base58;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Utils;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes raw blocks of bitcoin-like networks (BTC, DUC) straight into wrappers.
+ * The serialized block is read once: transaction hashes are digested over the ranges of the buffer,
+ * output scripts are classified by the standard templates and addresses are encoded from the script bytes,
+ * so no bitcoinj blocks, transactions or scripts are built.
+ * Only outputs paying to base58 addresses (P2PKH, P2SH, P2PK) are kept.
+ * Transactions are {@link UtxoTransaction} with outpoints spent by the inputs, addresses of the inputs
+ * are resolved later by {@link UtxoIndex} when the blocks are processed in order.
+ * The decoder is stateless and thread safe.
+ */
+public class RawBlockDecoder {
+    public enum ScriptType {
+        P2PKH,
+        P2SH,
+        P2PK,
+        P2WPKH,
+        P2WSH,
+        /**
+         * Witness program of other version or size, e.g. taproot.
+         */
+        WITNESS,
+        OTHER
+    }
+
+    private final static int HEADER_SIZE = 80;
+    private final static int OUTPOINT_SIZE = 36;
+    // version, inputs count, outputs count, lock time
+    private final static int MIN_TRANSACTION_SIZE = 10;
+    // outpoint, script length, sequence
+    private final static int MIN_INPUT_SIZE = 41;
+    // value, script length
+    private final static int MIN_OUTPUT_SIZE = 9;
+    // version byte and hash160
+    final static int ADDRESS_HASH_SIZE = 21;
+
+    private final static int OP_0 = 0x00;
+    private final static int OP_1 = 0x51;
+    private final static int OP_16 = 0x60;
+    private final static int OP_DUP = 0x76;
+    private final static int OP_EQUAL = 0x87;
+    private final static int OP_EQUALVERIFY = 0x88;
+    private final static int OP_HASH160 = 0xa9;
+    private final static int OP_CHECKSIG = 0xac;
+
+    private final static char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final byte addressHeader;
+    private final byte p2shHeader;
+
+    public RawBlockDecoder(NetworkParameters parameters) {
+        this.addressHeader = (byte) parameters.getAddressHeader();
+        this.p2shHeader = (byte) parameters.getP2SHHeader();
+    }
+
+    /**
+     * @param hex    block as returned by getblock with verbosity 0.
+     * @param height block height, the raw block does not contain it.
+     */
+    public WrapperBlock decode(String hex, Long height) {
+        return decode(parseHex(hex), height);
+    }
+
+    public WrapperBlock decode(byte[] data, Long height) {
+        Cursor cursor = new Cursor(data);
+        cursor.require(HEADER_SIZE);
+        String hash = reversedHex(cursor.doubleSha256(0, HEADER_SIZE));
+        String parentHash = reversedHex(data, 4, 32);
+        Instant timestamp = Instant.ofEpochSecond(cursor.uint32(68));
+        cursor.skip(HEADER_SIZE);
+
+        int count = cursor.count(MIN_TRANSACTION_SIZE, "Transactions");
+        List<WrapperTransaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(readTransaction(cursor));
+        }
+        return new WrapperBlock(hash, parentHash, height, timestamp, transactions);
+    }
+
+    /**
+     * @param hex transaction as returned by getrawtransaction without verbose flag.
+     */
+    public UtxoTransaction decodeTransaction(String hex) {
+        return decodeTransaction(parseHex(hex));
+    }
+
+    public UtxoTransaction decodeTransaction(byte[] data) {
+        return readTransaction(new Cursor(data));
+    }
+
+    /**
+     * Returns the hash of the raw block as shown by the node, without decoding the transactions.
+     */
+    public static String blockHash(byte[] data) {
+        if (data.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Block is shorter than the header: " + data.length + " bytes.");
+        }
+        MessageDigest sha256 = newSha256();
+        sha256.update(data, 0, HEADER_SIZE);
+        return reversedHex(sha256.digest(sha256.digest()));
+    }
+
+    public static ScriptType classify(byte[] data, int offset, int length) {
+        int first = length > 0 ? data[offset] & 0xff : -1;
+        if (length == 25
+                && first == OP_DUP
+                && (data[offset + 1] & 0xff) == OP_HASH160
+                && data[offset + 2] == 20
+                && (data[offset + 23] & 0xff) == OP_EQUALVERIFY
+                && (data[offset + 24] & 0xff) == OP_CHECKSIG) {
+            return ScriptType.P2PKH;
+        }
+        if (length == 23
+                && first == OP_HASH160
+                && data[offset + 1] == 20
+                && (data[offset + 22] & 0xff) == OP_EQUAL) {
+            return ScriptType.P2SH;
+        }
+        if ((length == 35 && first == 33 || length == 67 && first == 65)
+                && (data[offset + length - 1] & 0xff) == OP_CHECKSIG) {
+            return ScriptType.P2PK;
+        }
+        if (length >= 4 && length <= 42
+                && (first == OP_0 || first >= OP_1 && first <= OP_16)
+                && data[offset + 1] == length - 2) {
+            if (first == OP_0 && length == 22) {
+                return ScriptType.P2WPKH;
+            }
+            if (first == OP_0 && length == 34) {
+                return ScriptType.P2WSH;
+            }
+            return ScriptType.WITNESS;
+        }
+        return ScriptType.OTHER;
+    }
+
+    private UtxoTransaction readTransaction(Cursor cursor) {
+        int start = cursor.position;
+        cursor.skip(4);
+        cursor.require(2);
+        boolean segwit = cursor.data[cursor.position] == 0 && cursor.data[cursor.position + 1] == 1;
+        if (segwit) {
+            cursor.skip(2);
+        }
+        int bodyStart = cursor.position;
+
+        int inCount = cursor.count(MIN_INPUT_SIZE, "Inputs");
+        long[] spentHashPrefixes = new long[inCount];
+        int[] spentIndexes = new int[inCount];
+        int spentCount = 0;
+        for (int i = 0; i < inCount; i++) {
+            cursor.require(OUTPOINT_SIZE);
+            long hashPrefix = cursor.int64(cursor.position);
+            int index = (int) cursor.uint32(cursor.position + 32);
+            // coinbase input has no outpoint
+            if (hashPrefix != 0 || index != -1) {
+                spentHashPrefixes[spentCount] = hashPrefix;
+                spentIndexes[spentCount] = index;
+                spentCount++;
+            }
+            cursor.skip(OUTPOINT_SIZE);
+            cursor.skip(cursor.length("Input script"));
+            cursor.skip(4);
+        }
+
+        int outCount = cursor.count(MIN_OUTPUT_SIZE, "Outputs");
+        int[] outputPositions = new int[outCount];
+        for (int i = 0; i < outCount; i++) {
+            outputPositions[i] = cursor.position;
+            cursor.skip(8);
+            cursor.skip(cursor.length("Output script"));
+        }
+        int bodyEnd = cursor.position;
+
+        if (segwit) {
+            for (int i = 0; i < inCount; i++) {
+                int items = cursor.count(1, "Witnesses");
+                for (int j = 0; j < items; j++) {
+                    cursor.skip(cursor.length("Witness"));
+                }
+            }
+        }
+        int lockTimePosition = cursor.position;
+        cursor.skip(4);
+        int end = cursor.position;
+
+        // txid does not cover marker, flag and witnesses
+        byte[] hashBytes = segwit
+                ? cursor.doubleSha256(start, 4, bodyStart, bodyEnd - bodyStart, lockTimePosition, 4)
+                : cursor.doubleSha256(start, end - start);
+        String hash = reversedHex(hashBytes);
+
+        List<WrapperOutput> outputs = new ArrayList<>(outCount);
+        byte[] addressHashes = new byte[outCount * ADDRESS_HASH_SIZE];
+        for (int i = 0; i < outCount; i++) {
+            WrapperOutput output = readOutput(cursor, hash, i, outputPositions[i], addressHashes, outputs.size() * ADDRESS_HASH_SIZE);
+            if (output != null) {
+                outputs.add(output);
+            }
+        }
+        cursor.position = end;
+        return new UtxoTransaction(
+                hash,
+                outputs,
+                Cursor.int64(hashBytes, 0),
+                Arrays.copyOf(spentHashPrefixes, spentCount),
+                Arrays.copyOf(spentIndexes, spentCount),
+                Arrays.copyOf(addressHashes, outputs.size() * ADDRESS_HASH_SIZE)
+        );
+    }
+
+    /**
+     * @param addressHashes receives version byte and hash160 of the address at the offset.
+     */
+    private WrapperOutput readOutput(Cursor cursor, String transactionHash, int index, int position, byte[] addressHashes, int addressOffset) {
+        byte[] data = cursor.data;
+        long value = cursor.int64(position);
+        cursor.position = position + 8;
+        int length = cursor.length("Output script");
+        int offset = cursor.position;
+
+        switch (classify(data, offset, length)) {
+            case P2PKH:
+                addressHashes[addressOffset] = addressHeader;
+                System.arraycopy(data, offset + 3, addressHashes, addressOffset + 1, 20);
+                break;
+            case P2SH:
+                addressHashes[addressOffset] = p2shHeader;
+                System.arraycopy(data, offset + 2, addressHashes, addressOffset + 1, 20);
+                break;
+            case P2PK:
+                byte[] pubKeyHash = Utils.sha256hash160(Arrays.copyOfRange(data, offset + 1, offset + length - 1));
+                addressHashes[addressOffset] = addressHeader;
+                System.arraycopy(pubKeyHash, 0, addressHashes, addressOffset + 1, 20);
+                break;
+            default:
+                return null;
+        }
+        return new WrapperOutput(
+                transactionHash,
+                index,
+                toBase58(cursor.sha256, addressHashes, addressOffset),
+                BigInteger.valueOf(value),
+                Arrays.copyOfRange(data, offset, offset + length)
+        );
+    }
+
+    public static byte[] parseHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Hex string has odd length " + hex.length() + ".");
+        }
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Wrong hex character at " + i * 2 + ".");
+            }
+            result[i] = (byte) (high << 4 | low);
+        }
+        return result;
+    }
+
+    public static String toHex(byte[] data) {
+        char[] chars = new char[data.length * 2];
+        for (int i = 0; i < data.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(data[i] & 0xff) >>> 4];
+            chars[i * 2 + 1] = HEX_DIGITS[data[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Encodes the address from version byte and hash160 at the offset.
+     */
+    static String toBase58(MessageDigest sha256, byte[] addressHash, int offset) {
+        byte[] address = new byte[ADDRESS_HASH_SIZE + 4];
+        System.arraycopy(addressHash, offset, address, 0, ADDRESS_HASH_SIZE);
+        sha256.update(address, 0, ADDRESS_HASH_SIZE);
+        byte[] checksum = sha256.digest(sha256.digest());
+        System.arraycopy(checksum, 0, address, ADDRESS_HASH_SIZE, 4);
+        return Base58.encode(address);
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String reversedHex(byte[] hash) {
+        return reversedHex(hash, 0, hash.length);
+    }
+
+    private static String reversedHex(byte[] data, int offset, int length) {
+        char[] chars = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + length - 1 - i] & 0xff;
+            chars[i * 2] = HEX_DIGITS[b >>> 4];
+            chars[i * 2 + 1] = HEX_DIGITS[b & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Position in the block being decoded with the digest reused for its hashes.
+     */
+    private static class Cursor {
+        private final byte[] data;
+        private final MessageDigest sha256;
+        private int position;
+
+        private Cursor(byte[] data) {
+            this.data = data;
+            this.sha256 = newSha256();
+        }
+
+        private void require(int size) {
+            if (size < 0 || size > data.length - position) {
+                throw new ArrayIndexOutOfBoundsException("Block is truncated: " + size + " bytes required at "
+                        + position + ", but " + (data.length - position) + " left.");
+            }
+        }
+
+        private void skip(int size) {
+            require(size);
+            position += size;
+        }
+
+        private long uint32(int offset) {
+            return uint32(data, offset);
+        }
+
+        private long int64(int offset) {
+            return int64(data, offset);
+        }
+
+        private static long uint32(byte[] data, int offset) {
+            return (data[offset] & 0xffL)
+                    | (data[offset + 1] & 0xffL) << 8
+                    | (data[offset + 2] & 0xffL) << 16
+                    | (data[offset + 3] & 0xffL) << 24;
+        }
+
+        private static long int64(byte[] data, int offset) {
+            return uint32(data, offset) | uint32(data, offset + 4) << 32;
+        }
+
+        private long varInt() {
+            require(1);
+            int b = data[position++] & 0xff;
+            if (b < 0xfd) {
+                return b;
+            }
+            if (b == 0xfd) {
+                require(2);
+                long value = (data[position] & 0xffL) | (data[position + 1] & 0xffL) << 8;
+                position += 2;
+                return value;
+            }
+            if (b == 0xfe) {
+                require(4);
+                long value = uint32(position);
+                position += 4;
+                return value;
+            }
+            require(8);
+            long value = int64(position);
+            position += 8;
+            return value;
+        }
+
+        /**
+         * Reads count of items, each of them takes at least minSize bytes.
+         */
+        private int count(int minSize, String what) {
+            long count = varInt();
+            if (count < 0 || count > (data.length - position) / minSize) {
+                throw new ArrayIndexOutOfBoundsException(what + " count is too big: " + count + " at " + position + ".");
+            }
+            return (int) count;
+        }
+
+        private int length(String what) {
+            long length = varInt();
+            if (length < 0 || length > data.length - position) {
+                throw new ArrayIndexOutOfBoundsException(what + " size is too big: " + length + " at " + position + ".");
+            }
+            return (int) length;
+        }
+
+        /**
+         * Double SHA-256 of the concatenated ranges in the internal byte order, RPC shows it reversed.
+         *
+         * @param ranges pairs of offset and length.
+         */
+        private byte[] doubleSha256(int... ranges) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                sha256.update(data, ranges[i], ranges[i + 1]);
+            }
+            return sha256.digest(sha256.digest());
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package io.mywish.btc.blockchain.helper;
+
+import io.mywish.blockchain.WrapperNetwork;
+import io.mywish.blockchain.WrapperOutput;
+import io.mywish.blockchain.WrapperTransaction;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Unspent outputs paying to addresses, used to resolve the input addresses of {@link UtxoTransaction}s.
+ * The set is kept in the memory mapped file, not in the heap: it is the hash table with linear probing
+ * from outpoint (hash prefix and index) to address hash and value.
+ * Blocks must be applied in order. Spent outputs are marked and pruned after keepBlocks blocks, so the journal
+ * of the recent blocks may roll back the blocks of the abandoned chain when the block number repeats.
+ * The table is doubled when it is filled for 3/4, spent outputs which are not in the journal are dropped then.
+ * If the file does not exist, it is copied from the checkpoint: the index file of another scanner stopped at some block.
+ * The file is forced to the disk every {@link #FLUSH_INTERVAL} blocks, so after the system crash the index may be
+ * behind the scanner, the scanner applies the missed blocks on start.
+ */
+@Slf4j
+public class UtxoIndex implements Closeable {
+    private final static int MAGIC = 0x5554584f;
+    private final static int FORMAT_VERSION = 1;
+    private final static int HEADER_SIZE = 4096;
+    private final static int MAGIC_OFFSET = 0;
+    private final static int FORMAT_OFFSET = 4;
+    private final static int CAPACITY_OFFSET = 8;
+    private final static int SIZE_OFFSET = 16;
+    private final static int HEIGHT_OFFSET = 24;
+
+    // slot: hash prefix, output index, height of the spending block or 0, used flag, address hash, value
+    private final static int SLOT_SIZE = 48;
+    private final static int PREFIX = 0;
+    private final static int INDEX = 8;
+    private final static int SPENT = 12;
+    private final static int USED = 16;
+    private final static int ADDRESS = 17;
+    private final static int VALUE = 38;
+
+    // 768 MB per mapping, a mapping must be less than 2 GB
+    private final static int SEGMENT_BITS = 24;
+    private final static long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+    private final static long MIN_CAPACITY = 1024;
+    private final static int FLUSH_INTERVAL = 100;
+
+    @Getter
+    private final String name;
+    private final Path file;
+    @Getter
+    private final int keepBlocks;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Deque<BlockJournal> journal = new ArrayDeque<>();
+    // used under the write lock
+    private final MessageDigest sha256 = RawBlockDecoder.newSha256();
+
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    @Getter
+    private volatile long capacity;
+    private long mask;
+    @Getter
+    private volatile long size;
+    @Getter
+    private volatile long lastHeight = -1;
+    private int appliedSinceFlush;
+
+    private final AtomicLong resolved = new AtomicLong();
+    private final AtomicLong unresolved = new AtomicLong();
+
+    /**
+     * @param checkpoint file to copy if the index file does not exist, may be null.
+     */
+    public UtxoIndex(String name, Path file, Path checkpoint, long initialCapacity, int keepBlocks) throws IOException {
+        this.name = name;
+        this.file = file;
+        this.keepBlocks = keepBlocks;
+        if (Files.notExists(file) && checkpoint != null) {
+            if (Files.exists(checkpoint)) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                Files.copy(checkpoint, file);
+                log.info("{}: UTXO index is copied from checkpoint {}.", name, checkpoint);
+            }
+            else {
+                log.warn("{}: UTXO index checkpoint {} does not exist.", name, checkpoint);
+            }
+        }
+        if (Files.exists(file)) {
+            load();
+            log.info("{}: UTXO index {} is loaded, {} outputs at block {}.", name, file, size, lastHeight);
+        }
+        else {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            map(file, Math.max(MIN_CAPACITY, Long.highestOneBit(initialCapacity - 1) << 1));
+            writeHeader();
+            log.info("{}: UTXO index {} is created with capacity {}.", name, file, capacity);
+        }
+    }
+
+    /**
+     * Resolves the input addresses of the block transactions, spends their outpoints and adds their outputs.
+     * If the height is not above the last applied block, the blocks from the height are rolled back first.
+     */
+    public void apply(long height, List<WrapperTransaction> transactions) {
+        lock.writeLock().lock();
+        try {
+            if (height <= lastHeight) {
+                rollback(height);
+            }
+            else if (lastHeight >= 0 && height > lastHeight + 1) {
+                log.warn("{}: UTXO index is at block {}, but block {} is applied. Outputs of the blocks in between are unknown.",
+                        name, lastHeight, height);
+            }
+            BlockJournal blockJournal = new BlockJournal((int) height);
+            for (WrapperTransaction transaction : transactions) {
+                if (!(transaction instanceof UtxoTransaction)) {
+                    continue;
+                }
+                UtxoTransaction utxoTransaction = (UtxoTransaction) transaction;
+                resolveInputs(utxoTransaction, blockJournal, sha256);
+                List<WrapperOutput> outputs = utxoTransaction.getOutputs();
+                for (int i = 0; i < outputs.size(); i++) {
+                    WrapperOutput output = outputs.get(i);
+                    if (put(utxoTransaction.getHashPrefix(), output.getIndex(), utxoTransaction.getAddressHashes(),
+                            i * RawBlockDecoder.ADDRESS_HASH_SIZE, output.getValue().longValue())) {
+                        blockJournal.created.add(utxoTransaction.getHashPrefix(), output.getIndex());
+                    }
+                }
+            }
+            journal.addLast(blockJournal);
+            prune(height);
+            lastHeight = height;
+            // the header matches the mapped table even if the process stops before the next flush
+            writeHeader();
+            if (++appliedSinceFlush >= FLUSH_INTERVAL) {
+                flush();
+                log.info("{}: UTXO index at block {} has {} outputs of {} slots, {} inputs resolved, {} unknown.",
+                        name, lastHeight, size, capacity, resolved.get(), unresolved.get());
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Resolves the input addresses without changing the index, for the blocks processed out of order.
+     * Outputs which are spent and pruned already are not resolved.
+     */
+    public void resolve(List<WrapperTransaction> transactions) {
+        MessageDigest sha256 = RawBlockDecoder.newSha256();
+        lock.readLock().lock();
+        try {
+            for (WrapperTransaction transaction : transactions) {
+                if (transaction instanceof UtxoTransaction) {
+                    resolveInputs((UtxoTransaction) transaction, null, sha256);
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the blocks which were processed by the scanner, but are not in the index: it is not flushed on each block.
+     * The blocks are not processed again, so no events are published.
+     *
+     * @param nextBlockNo the next block of the scanner.
+     */
+    public void catchUp(WrapperNetwork network, long nextBlockNo) throws Exception {
+        long fromHeight = lastHeight + 1;
+        if (fromHeight <= 0 || fromHeight >= nextBlockNo) {
+            return;
+        }
+        log.warn("{}: UTXO index is at block {}, but the next block is {}. Apply the blocks in between.",
+                name, fromHeight - 1, nextBlockNo);
+        for (long number = fromHeight; number < nextBlockNo; number++) {
+            apply(number, network.getBlock(number).getTransactions());
+        }
+        flush();
+    }
+
+    public long getResolved() {
+        return resolved.get();
+    }
+
+    public long getUnresolved() {
+        return unresolved.get();
+    }
+
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            writeHeader();
+            header.force();
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            appliedSinceFlush = 0;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        log.info("{}: UTXO index is flushed at block {}.", name, lastHeight);
+    }
+
+    /**
+     * @param journal records the spent outpoints, null if the index must not be changed.
+     */
+    private void resolveInputs(UtxoTransaction transaction, BlockJournal journal, MessageDigest sha256) {
+        List<String> inputs = transaction.getInputs();
+        long[] prefixes = transaction.getSpentHashPrefixes();
+        int[] indexes = transaction.getSpentIndexes();
+        byte[] addressHash = new byte[RawBlockDecoder.ADDRESS_HASH_SIZE];
+        for (int i = 0; i < prefixes.length; i++) {
+            long slot = find(prefixes[i], indexes[i]);
+            if (slot < 0) {
+                unresolved.incrementAndGet();
+                continue;
+            }
+            resolved.incrementAndGet();
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            if (journal != null) {
+                int spent = segment.getInt(offset + SPENT);
+                if (spent == 0 || spent >= journal.height) {
+                    segment.putInt(offset + SPENT, journal.height);
+                    journal.spent.add(prefixes[i], indexes[i]);
+                }
+            }
+            for (int j = 0; j < addressHash.length; j++) {
+                addressHash[j] = segment.get(offset + ADDRESS + j);
+            }
+            String address = RawBlockDecoder.toBase58(sha256, addressHash, 0);
+            if (!inputs.contains(address)) {
+                inputs.add(address);
+            }
+        }
+    }
+
+    private void rollback(long height) {
+        int blocks = 0;
+        while (!journal.isEmpty() && journal.peekLast().height >= height) {
+            BlockJournal undo = journal.pollLast();
+            for (int i = undo.created.size - 1; i >= 0; i--) {
+                long slot = find(undo.created.prefixes[i], undo.created.indexes[i]);
+                if (slot >= 0) {
+                    delete(slot);
+                }
+            }
+            for (int i = 0; i < undo.spent.size; i++) {
+                long slot = find(undo.spent.prefixes[i], undo.spent.indexes[i]);
+                if (slot >= 0 && segment(slot).getInt(offset(slot) + SPENT) == undo.height) {
+                    segment(slot).putInt(offset(slot) + SPENT, 0);
+                }
+            }
+            blocks++;
+        }
+        if (blocks > 0) {
+            log.info("{}: UTXO index is rolled back by {} blocks to block {}.", name, blocks, height - 1);
+        }
+    }
+
+    /**
+     * Removes outputs spent by the blocks which left the journal.
+     */
+    private void prune(long height) {
+        while (!journal.isEmpty() && journal.peekFirst().height <= height - keepBlocks) {
+            BlockJournal old = journal.pollFirst();
+            for (int i = 0; i < old.spent.size; i++) {
+                long slot = find(old.spent.prefixes[i], old.spent.indexes[i]);
+                if (slot >= 0 && segment(slot).getInt(offset(slot) + SPENT) == old.height) {
+                    delete(slot);
+                }
+            }
+        }
+    }
+
+    private long find(long prefix, int index) {
+        long slot = home(prefix, index);
+        while (true) {
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            if (segment.get(offset + USED) == 0) {
+                return -1;
+            }
+            if (segment.getLong(offset + PREFIX) == prefix && segment.getInt(offset + INDEX) == index) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return false if the outpoint is in the index already.
+     */
+    private boolean put(long prefix, int index, byte[] addressHashes, int addressOffset, long value) {
+        if ((size + 1) * 4 > capacity * 3) {
+            grow();
+        }
+        long slot = home(prefix, index);
+        while (true) {
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            if (segment.get(offset + USED) == 0) {
+                segment.putLong(offset + PREFIX, prefix);
+                segment.putInt(offset + INDEX, index);
+                segment.putInt(offset + SPENT, 0);
+                segment.put(offset + USED, (byte) 1);
+                for (int i = 0; i < RawBlockDecoder.ADDRESS_HASH_SIZE; i++) {
+                    segment.put(offset + ADDRESS + i, addressHashes[addressOffset + i]);
+                }
+                segment.putLong(offset + VALUE, value);
+                size++;
+                return true;
+            }
+            if (segment.getLong(offset + PREFIX) == prefix && segment.getInt(offset + INDEX) == index) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Deletes with backward shift, so the probe sequences stay unbroken without tombstones.
+     */
+    private void delete(long slot) {
+        long hole = slot;
+        long next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            ByteBuffer segment = segment(next);
+            int offset = offset(next);
+            if (segment.get(offset + USED) == 0) {
+                break;
+            }
+            long home = home(segment.getLong(offset + PREFIX), segment.getInt(offset + INDEX));
+            boolean reachable = hole <= next
+                    ? home > hole && home <= next
+                    : home > hole || home <= next;
+            if (!reachable) {
+                copy(segment, offset, segment(hole), offset(hole));
+                hole = next;
+            }
+        }
+        ByteBuffer segment = segment(hole);
+        int offset = offset(hole);
+        for (int i = 0; i < SLOT_SIZE; i += 8) {
+            segment.putLong(offset + i, 0);
+        }
+        size--;
+    }
+
+    /**
+     * Moves the outputs to the table of twice capacity in the new file, which replaces the current one.
+     */
+    private void grow() {
+        MappedByteBuffer[] oldSegments = segments;
+        long oldCapacity = capacity;
+        long pruneBelow = lastHeight - keepBlocks;
+        Path temp = file.resolveSibling(file.getFileName() + ".grow");
+        long start = System.currentTimeMillis();
+        try {
+            Files.deleteIfExists(temp);
+            map(temp, oldCapacity * 2);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(name + ": impossible to grow UTXO index.", e);
+        }
+        size = 0;
+        long dropped = 0;
+        for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            ByteBuffer oldSegment = oldSegments[(int) (oldSlot >>> SEGMENT_BITS)];
+            int oldOffset = offset(oldSlot);
+            if (oldSegment.get(oldOffset + USED) == 0) {
+                continue;
+            }
+            int spent = oldSegment.getInt(oldOffset + SPENT);
+            if (spent != 0 && spent <= pruneBelow) {
+                dropped++;
+                continue;
+            }
+            long slot = home(oldSegment.getLong(oldOffset + PREFIX), oldSegment.getInt(oldOffset + INDEX));
+            while (segment(slot).get(offset(slot) + USED) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            copy(oldSegment, oldOffset, segment(slot), offset(slot));
+            size++;
+        }
+        flush();
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(name + ": impossible to replace UTXO index file.", e);
+        }
+        log.info("{}: UTXO index grown to {} slots in {} ms, {} outputs, {} spent outputs dropped.",
+                name, capacity, System.currentTimeMillis() - start, size, dropped);
+    }
+
+    private void load() throws IOException {
+        long fileCapacity;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(buffer, 0);
+            if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(FORMAT_OFFSET) != FORMAT_VERSION) {
+                throw new IOException(file + " is not UTXO index of version " + FORMAT_VERSION + ".");
+            }
+            fileCapacity = buffer.getLong(CAPACITY_OFFSET);
+        }
+        map(file, fileCapacity);
+        size = header.getLong(SIZE_OFFSET);
+        lastHeight = header.getLong(HEIGHT_OFFSET);
+    }
+
+    /**
+     * Maps the file as the table of the capacity, the file is extended with zeros (free slots) if it is shorter.
+     */
+    private void map(Path path, long capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((capacity + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long slots = Math.min(SEGMENT_MASK + 1, capacity - ((long) i << SEGMENT_BITS));
+                segments[i] = channel.map(
+                        FileChannel.MapMode.READ_WRITE,
+                        HEADER_SIZE + ((long) i << SEGMENT_BITS) * SLOT_SIZE,
+                        slots * SLOT_SIZE
+                );
+            }
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            this.segments = segments;
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+        }
+    }
+
+    private void writeHeader() {
+        header.putInt(MAGIC_OFFSET, MAGIC);
+        header.putInt(FORMAT_OFFSET, FORMAT_VERSION);
+        header.putLong(CAPACITY_OFFSET, capacity);
+        header.putLong(SIZE_OFFSET, size);
+        header.putLong(HEIGHT_OFFSET, lastHeight);
+    }
+
+    private long home(long prefix, int index) {
+        long hash = prefix ^ index * 0x9e3779b97f4a7c15L;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash & mask;
+    }
+
+    private ByteBuffer segment(long slot) {
+        return segments[(int) (slot >>> SEGMENT_BITS)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & SEGMENT_MASK) * SLOT_SIZE;
+    }
+
+    private static void copy(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset) {
+        for (int i = 0; i < SLOT_SIZE; i += 8) {
+            to.putLong(toOffset + i, from.getLong(fromOffset + i));
+        }
+    }
+
+    /**
+     * Outpoints created and spent by the block, to roll it back or to prune its spent outputs.
+     */
+    private static class BlockJournal {
+        private final int height;
+        private final Outpoints created = new Outpoints();
+        private final Outpoints spent = new Outpoints();
+
+        private BlockJournal(int height) {
+            this.height = height;
+        }
+    }
+
+    private static class Outpoints {
+        private long[] prefixes = new long[16];
+        private int[] indexes = new int[16];
+        private int size;
+
+        private void add(long prefix, int index) {
+            if (size == prefixes.length) {
+                prefixes = Arrays.copyOf(prefixes, size * 2);
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            prefixes[size] = prefix;
+            indexes[size] = index;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package io.mywish.btc.blockchain.helper;
+
+import io.mywish.blockchain.WrapperOutput;
+import io.mywish.blockchain.WrapperTransaction;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transaction of the raw block with the data needed by {@link UtxoIndex}.
+ * Outpoints are identified by the first 8 bytes of the transaction hash in the internal byte order
+ * (little endian) and the output index. Inputs are empty until the index resolves their addresses.
+ */
+@Getter
+public class UtxoTransaction extends WrapperTransaction {
+    private final long hashPrefix;
+    private final long[] spentHashPrefixes;
+    private final int[] spentIndexes;
+    /**
+     * Version byte and hash160 of each output address, in the order of the outputs.
+     */
+    private final byte[] addressHashes;
+
+    UtxoTransaction(
+            String hash,
+            List<WrapperOutput> outputs,
+            long hashPrefix,
+            long[] spentHashPrefixes,
+            int[] spentIndexes,
+            byte[] addressHashes
+    ) {
+        super(hash, new ArrayList<>(), outputs, false);
+        this.hashPrefix = hashPrefix;
+        this.spentHashPrefixes = spentHashPrefixes;
+        this.spentIndexes = spentIndexes;
+        this.addressHashes = addressHashes;
+    }
+}
@@ -0,0 +1,153 @@
+package io.mywish.btc.blockchain.helper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives notifications of the node ZMQ publisher on the own thread and reconnects when the connection is broken
+ * or silent for longer than silence timeout.
+ * The node attaches the sequence number to each message, so lost messages are detected as well.
+ */
+@Slf4j
+public class ZmqNotifier implements Closeable {
+    public interface Listener {
+        void onMessage(String topic, byte[] body);
+
+        /**
+         * Some messages may be lost: the connection is (re)established or sequence number has the gap.
+         */
+        void onMissed();
+
+        void onDisconnected();
+    }
+
+    private final String name;
+    private final URI endpoint;
+    private final Collection<String> topics;
+    private final int silenceTimeout;
+    private final long reconnectDelay;
+    private final Listener listener;
+    private final Thread thread;
+    private final Map<String, Long> sequences = new HashMap<>();
+
+    private volatile boolean closed;
+    private volatile ZmqSubscriber subscriber;
+
+    /**
+     * @param endpoint       tcp://host:port of the node zmqpub* option.
+     * @param silenceTimeout reconnect when nothing is received for so long, ms.
+     * @param reconnectDelay pause between connection attempts, ms.
+     */
+    public ZmqNotifier(String name, URI endpoint, Collection<String> topics, int silenceTimeout, long reconnectDelay, Listener listener) {
+        if (!"tcp".equals(endpoint.getScheme()) || endpoint.getHost() == null || endpoint.getPort() < 0) {
+            throw new IllegalArgumentException("ZMQ endpoint must be tcp://host:port, but it is " + endpoint + ".");
+        }
+        this.name = name;
+        this.endpoint = endpoint;
+        this.topics = topics;
+        this.silenceTimeout = silenceTimeout;
+        this.reconnectDelay = reconnectDelay;
+        this.listener = listener;
+        this.thread = new Thread(this::run, name + "-zmq");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public boolean isConnected() {
+        return subscriber != null;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        ZmqSubscriber current = subscriber;
+        if (current != null) {
+            try {
+                current.close();
+            }
+            catch (IOException e) {
+                log.debug("{}: closing ZMQ connection failed.", name, e);
+            }
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try (ZmqSubscriber connection = new ZmqSubscriber(endpoint.getHost(), endpoint.getPort(), silenceTimeout)) {
+                for (String topic : topics) {
+                    connection.subscribe(topic);
+                }
+                subscriber = connection;
+                if (closed) {
+                    break;
+                }
+                log.info("{}: subscribed to {} of {}.", name, topics, endpoint);
+                sequences.clear();
+                listener.onMissed();
+                while (!closed) {
+                    dispatch(connection.receive());
+                }
+            }
+            catch (SocketTimeoutException e) {
+                log.warn("{}: nothing is received from {} for {} ms, reconnect.", name, endpoint, silenceTimeout);
+            }
+            catch (IOException e) {
+                if (!closed) {
+                    log.warn("{}: ZMQ connection to {} failed.", name, endpoint, e);
+                }
+            }
+            catch (RuntimeException e) {
+                log.error("{}: ZMQ notification processing failed.", name, e);
+            }
+            finally {
+                if (subscriber != null) {
+                    subscriber = null;
+                    listener.onDisconnected();
+                }
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(reconnectDelay);
+                }
+                catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+        log.info("{}: ZMQ notifications are stopped.", name);
+    }
+
+    private void dispatch(List<byte[]> frames) {
+        if (frames.size() < 2) {
+            log.debug("{}: ZMQ message without body is skipped.", name);
+            return;
+        }
+        String topic = new String(frames.get(0), StandardCharsets.US_ASCII);
+        if (frames.size() > 2 && frames.get(2).length == 4) {
+            byte[] sequence = frames.get(2);
+            long current = (sequence[0] & 0xffL)
+                    | (sequence[1] & 0xffL) << 8
+                    | (sequence[2] & 0xffL) << 16
+                    | (sequence[3] & 0xffL) << 24;
+            Long previous = sequences.put(topic, current);
+            if (previous != null && current != ((previous + 1) & 0xffffffffL)) {
+                log.warn("{}: {} messages from {} to {} are lost.", name, topic, previous + 1, current - 1);
+                listener.onMissed();
+            }
+        }
+        listener.onMessage(topic, frames.get(1));
+    }
+}
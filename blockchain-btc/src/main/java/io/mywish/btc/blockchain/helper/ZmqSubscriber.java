@@ -0,0 +1,214 @@
+package io.mywish.btc.blockchain.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SUB socket of ZMTP 3.0 with NULL security, enough to receive zmqpub* notifications of bitcoind-like nodes.
+ * Only one connection is used, no reconnection is made: {@link ZmqNotifier} creates the new subscriber instead.
+ */
+public class ZmqSubscriber implements Closeable {
+    private final static int GREETING_SIZE = 64;
+    private final static int MAJOR_VERSION = 3;
+    private final static byte[] NULL_MECHANISM = "NULL".getBytes(StandardCharsets.US_ASCII);
+    private final static String READY = "READY";
+    private final static String ERROR = "ERROR";
+    private final static String SOCKET_TYPE = "Socket-Type";
+
+    private final static int FLAG_MORE = 0x01;
+    private final static int FLAG_LONG = 0x02;
+    private final static int FLAG_COMMAND = 0x04;
+    private final static int SUBSCRIBE = 0x01;
+    /**
+     * Raw blocks are the largest messages, they are far below the limit.
+     */
+    private final static long MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Connects and makes the handshake.
+     *
+     * @param timeout socket read timeout, {@link java.net.SocketTimeoutException} is thrown by {@link #receive()}
+     *                when nothing is received for so long.
+     */
+    public ZmqSubscriber(String host, int port, int timeout) throws IOException {
+        this.socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), timeout);
+            socket.setSoTimeout(timeout);
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            handshake();
+        }
+        catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Subscribes to messages whose first frame starts with the topic.
+     */
+    public void subscribe(String topic) throws IOException {
+        byte[] name = topic.getBytes(StandardCharsets.US_ASCII);
+        byte[] body = new byte[name.length + 1];
+        body[0] = SUBSCRIBE;
+        System.arraycopy(name, 0, body, 1, name.length);
+        writeFrame(0, body);
+        out.flush();
+    }
+
+    /**
+     * Blocks till the next message and returns its frames.
+     */
+    public List<byte[]> receive() throws IOException {
+        List<byte[]> frames = new ArrayList<>(3);
+        while (true) {
+            int flags = in.readUnsignedByte();
+            byte[] body = readBody(flags);
+            if ((flags & FLAG_COMMAND) != 0) {
+                // PING and the other commands are not needed by the subscriber
+                continue;
+            }
+            frames.add(body);
+            if ((flags & FLAG_MORE) == 0) {
+                return frames;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void handshake() throws IOException {
+        byte[] greeting = new byte[GREETING_SIZE];
+        greeting[0] = (byte) 0xff;
+        greeting[9] = 0x7f;
+        greeting[10] = MAJOR_VERSION;
+        System.arraycopy(NULL_MECHANISM, 0, greeting, 12, NULL_MECHANISM.length);
+        out.write(greeting);
+        writeFrame(FLAG_COMMAND, ready());
+        out.flush();
+
+        byte[] peer = new byte[GREETING_SIZE];
+        in.readFully(peer);
+        if ((peer[0] & 0xff) != 0xff || peer[9] != 0x7f) {
+            throw new IOException("Peer is not a ZMTP socket.");
+        }
+        if (peer[10] < MAJOR_VERSION) {
+            throw new IOException("ZMTP " + peer[10] + " is not supported.");
+        }
+        for (int i = 0; i < 20; i++) {
+            byte expected = i < NULL_MECHANISM.length ? NULL_MECHANISM[i] : 0;
+            if (peer[12 + i] != expected) {
+                throw new IOException("Only NULL security mechanism is supported.");
+            }
+        }
+
+        int flags = in.readUnsignedByte();
+        if ((flags & FLAG_COMMAND) == 0) {
+            throw new IOException("Peer sent the message instead of READY.");
+        }
+        byte[] command = readBody(flags);
+        if (command.length == 0 || 1 + (command[0] & 0xff) > command.length) {
+            throw new IOException("Malformed command.");
+        }
+        String name = new String(command, 1, command[0] & 0xff, StandardCharsets.US_ASCII);
+        if (ERROR.equals(name)) {
+            int offset = 1 + name.length();
+            String reason = offset < command.length
+                    ? new String(command, offset + 1, Math.min(command[offset] & 0xff, command.length - offset - 1), StandardCharsets.US_ASCII)
+                    : "";
+            throw new IOException("Peer rejected the connection: " + reason);
+        }
+        if (!READY.equals(name)) {
+            throw new IOException("Peer sent " + name + " instead of READY.");
+        }
+        String socketType = property(command, 1 + name.length(), SOCKET_TYPE);
+        if (!"PUB".equals(socketType) && !"XPUB".equals(socketType)) {
+            throw new IOException("Peer socket type is " + socketType + ", PUB is expected.");
+        }
+    }
+
+    private static byte[] ready() {
+        byte[] name = SOCKET_TYPE.getBytes(StandardCharsets.US_ASCII);
+        byte[] value = "SUB".getBytes(StandardCharsets.US_ASCII);
+        byte[] body = new byte[1 + READY.length() + 1 + name.length + 4 + value.length];
+        int offset = 0;
+        body[offset++] = (byte) READY.length();
+        for (char c : READY.toCharArray()) {
+            body[offset++] = (byte) c;
+        }
+        body[offset++] = (byte) name.length;
+        System.arraycopy(name, 0, body, offset, name.length);
+        offset += name.length;
+        offset += 3;
+        body[offset++] = (byte) value.length;
+        System.arraycopy(value, 0, body, offset, value.length);
+        return body;
+    }
+
+    /**
+     * Returns the metadata property of the command, null if it is absent.
+     */
+    private static String property(byte[] command, int offset, String expected) throws IOException {
+        while (offset < command.length) {
+            int nameLength = command[offset++] & 0xff;
+            if (offset + nameLength + 4 > command.length) {
+                throw new IOException("Malformed command metadata.");
+            }
+            String name = new String(command, offset, nameLength, StandardCharsets.US_ASCII);
+            offset += nameLength;
+            int valueLength = (command[offset] & 0xff) << 24
+                    | (command[offset + 1] & 0xff) << 16
+                    | (command[offset + 2] & 0xff) << 8
+                    | (command[offset + 3] & 0xff);
+            offset += 4;
+            if (valueLength < 0 || offset + valueLength > command.length) {
+                throw new IOException("Malformed command metadata.");
+            }
+            if (name.equalsIgnoreCase(expected)) {
+                return new String(command, offset, valueLength, StandardCharsets.US_ASCII);
+            }
+            offset += valueLength;
+        }
+        return null;
+    }
+
+    private byte[] readBody(int flags) throws IOException {
+        long size = (flags & FLAG_LONG) != 0 ? in.readLong() : in.readUnsignedByte();
+        if (size < 0 || size > MAX_FRAME_SIZE) {
+            throw new IOException("Frame size " + size + " exceeds the limit.");
+        }
+        byte[] body = new byte[(int) size];
+        in.readFully(body);
+        return body;
+    }
+
+    private void writeFrame(int flags, byte[] body) throws IOException {
+        if (body.length > 0xff) {
+            out.writeByte(flags | FLAG_LONG);
+            out.writeLong(body.length);
+        }
+        else {
+            out.writeByte(flags);
+            out.writeByte(body.length);
+        }
+        out.write(body);
+    }
+}
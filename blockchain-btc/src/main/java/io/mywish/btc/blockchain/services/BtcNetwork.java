@@ -1,32 +1,100 @@
 package io.mywish.btc.blockchain.services;
 
 import com.neemre.btcdcli4j.core.client.BtcdClient;
-import io.mywish.btc.blockchain.helper.BtcBlockParser;
 import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.btc.blockchain.helper.MempoolTracker;
+import io.mywish.btc.blockchain.helper.NodeNotifications;
+import io.mywish.btc.blockchain.helper.RawBlockDecoder;
+import io.mywish.btc.blockchain.helper.UtxoIndex;
 import io.mywish.blockchain.WrapperBlock;
 import io.mywish.blockchain.WrapperNetwork;
 import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.blockchain.WrapperTransactionReceipt;
+import io.mywish.scanner.services.WatchedAddressFilter;
+import lombok.Getter;
 import org.bitcoinj.core.NetworkParameters;
 import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.math.BigInteger;
+import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 
 public class BtcNetwork extends WrapperNetwork {
     final private BtcdClient btcdClient;
+    private final RawBlockDecoder blockDecoder;
+    @Getter
+    private MempoolTracker mempoolTracker;
+    @Getter
+    private NodeNotifications notifications;
 
-    @Autowired
-    private WrapperBlockBtcService blockBuilder;
-
-    private final NetworkParameters networkParameters;
-
-    @Autowired
-    private BtcBlockParser btcBlockParser;
+    @Autowired(required = false)
+    private List<WatchedAddressFilter> watchedAddressFilters = Collections.emptyList();
 
     public BtcNetwork(NetworkType type, BtcdClient btcdClient, NetworkParameters networkParameters) {
         super(type);
         this.btcdClient = btcdClient;
-        this.networkParameters = networkParameters;
+        this.blockDecoder = new RawBlockDecoder(networkParameters);
+    }
+
+    /**
+     * Enables pending transactions by mempool diffing.
+     *
+     * @param fetchLimit how many new mempool transactions are requested at once.
+     */
+    public void setMempoolTracking(int fetchLimit) {
+        this.mempoolTracker = new MempoolTracker(
+                getType(),
+                btcdClient,
+                blockDecoder,
+                command -> getRpcExecutor().execute(command),
+                fetchLimit
+        );
+    }
+
+    /**
+     * Enables ZMQ notifications of the node, call after {@link #setMempoolTracking(int)} to receive rawtx as well.
+     *
+     * @param endpoint       tcp://host:port of the node zmqpub* options.
+     * @param silenceTimeout reconnect when nothing is received for so long, ms.
+     * @param rawBlocks      subscribe to rawblock instead of hashblock, so the new block is not requested.
+     */
+    public void setNotifications(URI endpoint, int silenceTimeout, boolean rawBlocks) {
+        this.notifications = new NodeNotifications(getType(), endpoint, silenceTimeout, rawBlocks, mempoolTracker);
+    }
+
+    /**
+     * Calls the listener on each new block notification, does nothing if the notifications are not enabled.
+     */
+    public void subscribeBlocks(Runnable listener) {
+        if (notifications != null) {
+            notifications.subscribe(listener);
+        }
+    }
+
+    /**
+     * Resolves input addresses of the pending transactions.
+     */
+    public void setUtxoIndex(UtxoIndex utxoIndex) {
+        if (mempoolTracker != null) {
+            mempoolTracker.setUtxoIndex(utxoIndex);
+        }
+    }
+
+    @PostConstruct
+    private void init() {
+        if (mempoolTracker != null) {
+            mempoolTracker.setFilter(WatchedAddressFilter.anyOf(watchedAddressFilters));
+        }
+    }
+
+    @PreDestroy
+    private void close() {
+        if (notifications != null) {
+            notifications.close();
+        }
     }
 
     @Override
@@ -36,22 +104,19 @@ public class BtcNetwork extends WrapperNetwork {
 
     @Override
     public WrapperBlock getBlock(String hash) throws Exception {
-        // TODO optimize
+        // raw block does not contain the height, coinbase height (BIP34) is not guaranteed for old blocks
         long height = btcdClient.getBlock(hash).getHeight();
-        return blockBuilder.build(
-                btcBlockParser.parse(
-                        networkParameters,
-                        (String) btcdClient.getBlock(hash, false)
-                ),
-                height,
-                networkParameters
-        );
+        return blockDecoder.decode((String) btcdClient.getBlock(hash, false), height);
     }
 
     @Override
     public WrapperBlock getBlock(Long number) throws Exception {
         String hash = btcdClient.getBlockHash(number.intValue());
-        return getBlock(hash);
+        byte[] pushed = notifications == null ? null : notifications.getRawBlock(hash);
+        if (pushed != null) {
+            return blockDecoder.decode(pushed, number);
+        }
+        return blockDecoder.decode((String) btcdClient.getBlock(hash, false), number);
     }
 
     @Override
@@ -66,12 +131,14 @@ public class BtcNetwork extends WrapperNetwork {
 
     @Override
     public boolean isPendingTransactionsSupported() {
-        return false;
+        return mempoolTracker != null;
     }
 
     @Override
-    public List<WrapperTransaction> fetchPendingTransactions() {
-        throw new UnsupportedOperationException("Method not supported");
-//        return Collections.emptyList();
+    public List<WrapperTransaction> fetchPendingTransactions() throws Exception {
+        if (mempoolTracker == null) {
+            return Collections.emptyList();
+        }
+        return mempoolTracker.fetch();
     }
 }
@@ -1,43 +1,92 @@
 package io.mywish.btc.blockchain.services;
 
 import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperOutput;
 import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.btc.blockchain.helper.UtxoIndex;
+import io.mywish.scanner.model.BlockAddressIndex;
 import io.mywish.scanner.model.NewBlockEvent;
+import io.mywish.scanner.services.BackfillContext;
 import io.mywish.scanner.services.LastBlockPersister;
 import io.mywish.scanner.services.ScannerPolling;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.MultiValueMap;
 
-import java.util.HashMap;
+import javax.annotation.PostConstruct;
+import java.util.List;
 
 @Slf4j
 public class BtcScanner extends ScannerPolling {
+    private UtxoIndex utxoIndex;
+
     public BtcScanner(BtcNetwork network, LastBlockPersister lastBlockPersister, Long pollingInterval, Integer commitmentChainLength) {
         super(network, lastBlockPersister, pollingInterval, commitmentChainLength);
     }
 
+    /**
+     * Enables input addresses: blocks scanned in order are applied to the index, backfilled blocks only read it.
+     */
+    public void setUtxoIndex(UtxoIndex utxoIndex) {
+        this.utxoIndex = utxoIndex;
+    }
+
+    /**
+     * Does not wait polling interval when the node notifies about new block, if the notifications are enabled.
+     */
+    @PostConstruct
+    @Override
+    protected void open() throws Exception {
+        super.open();
+        if (utxoIndex != null) {
+            utxoIndex.catchUp(network, nextBlockNo);
+        }
+        ((BtcNetwork) network).subscribeBlocks(this::onBlockNotification);
+    }
+
+    private void onBlockNotification() {
+        log.debug("{}: new block notified.", network.getType());
+        wakeUp();
+    }
+
     @Override
     protected void processBlock(WrapperBlock block) {
         log.info("{}: new block received {} ({})", network.getType(), block.getNumber(), block.getHash());
 
-        MultiValueMap<String, WrapperTransaction> addressTransactions = CollectionUtils.toMultiValueMap(new HashMap<>());
-
         if (block.getTransactions() == null) {
             log.warn("{}: block {} has not transactions.", network.getType(), block.getNumber());
             return;
         }
-        block.getTransactions()
-                .forEach(transaction -> {
-                    transaction.getOutputs().forEach(output -> {
-                        addressTransactions.add(
-                                output.getAddress(),
-                                transaction
-                        );
-                    });
-//                    eventPublisher.publish(new NewTransactionEvent(networkType, block, output));
-                });
-
-        eventPublisher.publish(new NewBlockEvent(network.getType(), block, addressTransactions));
+        List<WrapperTransaction> transactions = block.getTransactions();
+        if (utxoIndex != null) {
+            if (BackfillContext.isActive()) {
+                utxoIndex.resolve(transactions);
+            }
+            else {
+                utxoIndex.apply(block.getNumber(), transactions);
+            }
+        }
+        BlockAddressIndex.Builder addressTransactions = BlockAddressIndex.builder(
+                transactions,
+                BlockAddressIndex.AddressFormat.EXACT
+        );
+        for (int position = 0; position < transactions.size(); position++) {
+            WrapperTransaction transaction = transactions.get(position);
+            for (String input : transaction.getInputs()) {
+                addressTransactions.add(input, position);
+            }
+            for (WrapperOutput output : transaction.getOutputs()) {
+                addressTransactions.add(output.getAddress(), position);
+            }
+//            eventPublisher.publish(new NewTransactionEvent(networkType, block, output));
+        }
+
+        eventPublisher.publish(new NewBlockEvent(network.getType(), block, addressTransactions.build()));
+    }
+
+    @Override
+    protected void close() {
+        super.close();
+        if (utxoIndex != null) {
+            utxoIndex.close();
+        }
     }
 }
@@ -1,25 +1,99 @@
 package io.mywish.btc.blockchain.helper;
 
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperOutput;
+import io.mywish.blockchain.WrapperTransaction;
 import lombok.extern.slf4j.Slf4j;
 import org.bitcoinj.core.*;
-import org.springframework.stereotype.Component;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptChunk;
+import org.bitcoinj.script.ScriptOpCodes;
 
 import javax.xml.bind.DatatypeConverter;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
+/**
+ * Previous way to get wrappers from the raw block: bitcoinj block, transactions and scripts are built first.
+ * Kept as the baseline for {@link RawBlockDecoderBenchmark}.
+ */
 @Slf4j
-@Component
-public class BtcBlockParser {
+class LegacyBlockParser {
     private final static long LONG_MASK = 0xffffffffL;
     private final static long MAX_TRANSACTIONS_COUNT = 0x7fff;
     // must be less than 2^31
     private final static long MAX_SCRIPT_SIZE = 10000;
     private final static long MAX_COINBASE_SCRIPT_SIZE = 100;
 
-    public Block parse(NetworkParameters parameters, String hex) {
+    static WrapperBlock build(NetworkParameters parameters, String hex, Long height) {
+        Block block = parse(parameters, hex);
+        List<WrapperTransaction> transactions = block
+                .getTransactions()
+                .stream()
+                .map(tx -> buildTransaction(tx, parameters))
+                .collect(Collectors.toList());
+        return new WrapperBlock(
+                block.getHashAsString(),
+                block.getPrevBlockHash().toString(),
+                height,
+                Instant.ofEpochSecond(block.getTimeSeconds()),
+                transactions
+        );
+    }
+
+    private static WrapperTransaction buildTransaction(Transaction transaction, NetworkParameters parameters) {
+        List<WrapperOutput> outputs = transaction.getOutputs().stream()
+                .map(output -> buildOutput(transaction, output, parameters))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new WrapperTransaction(transaction.getHashAsString(), new ArrayList<>(), outputs, false);
+    }
+
+    private static WrapperOutput buildOutput(Transaction transaction, TransactionOutput output, NetworkParameters parameters) {
+        Script script;
+        try {
+            script = output.getScriptPubKey();
+        }
+        catch (ScriptException ex) {
+            return null;
+        }
+        if (checkChunkUnreadData(script)) {
+            return null;
+        }
+        if (!script.isSentToAddress() && !script.isPayToScriptHash() && !script.isSentToRawPubKey()) {
+            return null;
+        }
+        String address;
+        try {
+            address = script.getToAddress(parameters, true).toBase58();
+        }
+        catch (Exception e) {
+            return null;
+        }
+        return new WrapperOutput(
+                transaction.getHashAsString(),
+                output.getIndex(),
+                address,
+                BigInteger.valueOf(output.getValue().getValue()),
+                output.getScriptBytes()
+        );
+    }
+
+    private static boolean checkChunkUnreadData(Script script) {
+        List<ScriptChunk> chunks = script.getChunks();
+        if (chunks.size() != 5) {
+            return false;
+        }
+        return chunks.get(2).equalsOpCode(ScriptOpCodes.getOpCode("GREATERTHAN")) && chunks.get(2).data == null;
+    }
+
+    static Block parse(NetworkParameters parameters, String hex) {
         byte[] blockBytes = DatatypeConverter.parseHexBinary(hex);
         ByteBuffer buffer = ByteBuffer.wrap(blockBytes)
                 .order(ByteOrder.LITTLE_ENDIAN);
@@ -0,0 +1,181 @@
+package io.mywish.btc.blockchain.helper;
+
+import com.neemre.btcdcli4j.core.client.BtcdClient;
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperTransaction;
+import org.bitcoinj.params.MainNetParams;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.mywish.btc.blockchain.helper.RawBlockWriter.*;
+
+public class MempoolTrackerTest {
+    private final static String WATCHED = "112D2adLM3UKy4Z4giRbReR6gjWuvHUqB";
+
+    private final RawBlockDecoder decoder = new RawBlockDecoder(MainNetParams.get());
+    private final Map<String, String> mempool = new LinkedHashMap<>();
+    private final List<String> requested = new ArrayList<>();
+    private final AtomicInteger mempoolRequests = new AtomicInteger();
+    private final BtcdClient client = (BtcdClient) Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[]{BtcdClient.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getRawMemPool":
+                        mempoolRequests.incrementAndGet();
+                        return new ArrayList<>(mempool.keySet());
+                    case "getRawTransaction":
+                        requested.add((String) args[0]);
+                        String hex = mempool.get(args[0]);
+                        if (hex == null) {
+                            throw new IllegalStateException("No such mempool transaction.");
+                        }
+                        return hex;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+    );
+
+    @Test
+    public void diffTest() throws Exception {
+        MempoolTracker tracker = newTracker(10);
+        String watched = add(1, sequence(0, 20));
+        add(2, sequence(40, 20));
+
+        List<WrapperTransaction> first = tracker.fetch();
+        Assert.assertEquals(1, first.size());
+        Assert.assertEquals(watched, first.get(0).getHash());
+        Assert.assertEquals(2, requested.size());
+        Assert.assertEquals(1, tracker.getSkipped());
+
+        requested.clear();
+        mempool.remove(watched);
+        String next = add(3, sequence(0, 20));
+        List<WrapperTransaction> second = tracker.fetch();
+        Assert.assertEquals(1, second.size());
+        Assert.assertEquals(next, second.get(0).getHash());
+        Assert.assertEquals(Collections.singletonList(next), requested);
+
+        requested.clear();
+        Assert.assertTrue(tracker.fetch().isEmpty());
+        Assert.assertTrue(requested.isEmpty());
+        Assert.assertEquals(3, tracker.getReceived());
+    }
+
+    @Test
+    public void limitTest() throws Exception {
+        MempoolTracker tracker = newTracker(2);
+        for (int i = 0; i < 5; i++) {
+            add(i, sequence(0, 20));
+        }
+        Assert.assertEquals(2, tracker.fetch().size());
+        Assert.assertEquals(2, tracker.fetch().size());
+        Assert.assertEquals(1, tracker.fetch().size());
+        Assert.assertTrue(tracker.fetch().isEmpty());
+        Assert.assertEquals(5, requested.size());
+        Assert.assertEquals(5, tracker.getMempoolSize());
+    }
+
+    @Test
+    public void failedTest() throws Exception {
+        MempoolTracker tracker = newTracker(10);
+        String watched = add(1, sequence(0, 20));
+        String broken = "00".concat(watched.substring(2));
+        mempool.put(broken, "0100");
+
+        Assert.assertEquals(1, tracker.fetch().size());
+        Assert.assertEquals(1, tracker.getFailed());
+        requested.clear();
+        Assert.assertTrue(tracker.fetch().isEmpty());
+        Assert.assertEquals(Collections.singletonList(broken), requested);
+    }
+
+    @Test
+    public void pushTest() throws Exception {
+        MempoolTracker tracker = newTracker(10);
+        tracker.setPushing(true);
+        String first = add(1, sequence(0, 20));
+        Assert.assertEquals(1, tracker.fetch().size());
+        Assert.assertEquals(1, mempoolRequests.get());
+
+        String pushed = add(2, sequence(0, 20));
+        tracker.offer(RawBlockDecoder.parseHex(mempool.get(pushed)));
+        tracker.offer(RawBlockDecoder.parseHex(mempool.get(first)));
+        tracker.offer(RawBlockDecoder.parseHex(mempool.get(pushed)));
+        add(3, sequence(40, 20));
+        List<WrapperTransaction> fetched = tracker.fetch();
+        Assert.assertEquals(1, fetched.size());
+        Assert.assertEquals(pushed, fetched.get(0).getHash());
+        Assert.assertEquals(1, mempoolRequests.get());
+        Assert.assertEquals(Collections.singletonList(first), requested);
+
+        tracker.resync();
+        Assert.assertTrue(tracker.fetch().isEmpty());
+        Assert.assertEquals(2, mempoolRequests.get());
+        Assert.assertEquals(1, tracker.getSkipped());
+
+        for (int i = 0; i < 11; i++) {
+            tracker.offer(RawBlockDecoder.parseHex(mempool.get(pushed)));
+        }
+        Assert.assertEquals(1, tracker.getDropped());
+        Assert.assertTrue(tracker.fetch().isEmpty());
+        Assert.assertEquals(3, mempoolRequests.get());
+    }
+
+    @Test
+    public void connectedBlockTest() throws Exception {
+        MempoolTracker tracker = newTracker(10);
+        tracker.setPushing(true);
+        Assert.assertTrue(tracker.fetch().isEmpty());
+
+        String pending = add(1, sequence(0, 20));
+        String mined = add(2, sequence(0, 20));
+        tracker.offer(RawBlockDecoder.parseHex(mempool.get(pending)));
+        tracker.offer(RawBlockDecoder.parseHex(mempool.get(mined)));
+        // the block is connected: its transactions and coinbase are pushed, then the mempool is diffed
+        mempool.remove(mined);
+        tracker.offer(transaction(
+                Collections.singletonList(input(new byte[32], -1, new byte[]{1})),
+                Collections.singletonList(output(1000, p2pkh(sequence(0, 20))))
+        ));
+        tracker.resync();
+
+        List<WrapperTransaction> fetched = tracker.fetch();
+        Assert.assertEquals(1, fetched.size());
+        Assert.assertEquals(pending, fetched.get(0).getHash());
+        Assert.assertTrue(requested.isEmpty());
+        Assert.assertEquals(1, tracker.getReceived());
+    }
+
+    private MempoolTracker newTracker(int fetchLimit) {
+        MempoolTracker tracker = new MempoolTracker(NetworkType.BTC_MAINNET, client, decoder, Runnable::run, fetchLimit);
+        tracker.setFilter((networkType, address) -> WATCHED.equals(address));
+        return tracker;
+    }
+
+    /**
+     * Adds the transaction paying to the hash to the mempool.
+     */
+    private String add(int seed, byte[] hash160) {
+        byte[] transaction = transaction(
+                Collections.singletonList(input(seed, new byte[]{1})),
+                Collections.singletonList(output(1000, p2pkh(hash160)))
+        );
+        StringBuilder hex = new StringBuilder();
+        for (byte b : transaction) {
+            hex.append(String.format("%02x", b));
+        }
+        String txid = decoder.decodeTransaction(hex.toString()).getHash();
+        mempool.put(txid, hex.toString());
+        return txid;
+    }
+}
@@ -0,0 +1,114 @@
+package io.mywish.btc.blockchain.helper;
+
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperOutput;
+import io.mywish.blockchain.WrapperTransaction;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.MainNetParams;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static io.mywish.btc.blockchain.helper.RawBlockWriter.*;
+
+/**
+ * Compares the decoder with the previous bitcoinj based path on a block of typical transactions.
+ * Not run by the build, use mvn test -Dtest=RawBlockDecoderBenchmark.
+ */
+public class RawBlockDecoderBenchmark {
+    private final static int TRANSACTIONS = 2500;
+    private final static int WARM_UP = 30;
+    private final static int ITERATIONS = 100;
+    // bitcoinj skips pay to public key outputs with keys which are not on the curve
+    private final static byte[] PUB_KEY = RawBlockDecoder.parseHex("04678afdb0fe5548271967f1a67130b7105cd6a828e03909a67962e0ea1f61deb649f6bc3f4cef38c4f35504e51ec112de5c384df7ba0b8d578a4c702b6bf11d5f");
+
+    private final NetworkParameters parameters = MainNetParams.get();
+
+    @Test
+    public void benchmark() {
+        String hex = toHex(typicalBlock());
+        RawBlockDecoder decoder = new RawBlockDecoder(parameters);
+
+        assertSame(LegacyBlockParser.build(parameters, hex, 1L), decoder.decode(hex, 1L));
+
+        long legacy = measure(() -> LegacyBlockParser.build(parameters, hex, 1L));
+        long decoded = measure(() -> decoder.decode(hex, 1L));
+        System.out.printf("Block of %d transactions, %d KB: bitcoinj %.2f ms, decoder %.2f ms, %.1fx.%n",
+                TRANSACTIONS,
+                hex.length() / 2048,
+                legacy / 1e6 / ITERATIONS,
+                decoded / 1e6 / ITERATIONS,
+                (double) legacy / decoded);
+    }
+
+    private static long measure(Supplier<WrapperBlock> decode) {
+        long blackhole = 0;
+        for (int i = 0; i < WARM_UP; i++) {
+            blackhole += decode.get().getTransactions().size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            blackhole += decode.get().getTransactions().size();
+        }
+        long elapsed = System.nanoTime() - start;
+        Assert.assertEquals((long) TRANSACTIONS * (WARM_UP + ITERATIONS), blackhole);
+        return elapsed;
+    }
+
+    private static void assertSame(WrapperBlock expected, WrapperBlock actual) {
+        Assert.assertEquals(expected.getHash(), actual.getHash());
+        Assert.assertEquals(expected.getParentHash(), actual.getParentHash());
+        Assert.assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        Assert.assertEquals(expected.getTransactions().size(), actual.getTransactions().size());
+        for (int i = 0; i < expected.getTransactions().size(); i++) {
+            WrapperTransaction expectedTransaction = expected.getTransactions().get(i);
+            WrapperTransaction actualTransaction = actual.getTransactions().get(i);
+            Assert.assertEquals(expectedTransaction.getHash(), actualTransaction.getHash());
+            Assert.assertEquals(expectedTransaction.getOutputs().size(), actualTransaction.getOutputs().size());
+            for (int j = 0; j < expectedTransaction.getOutputs().size(); j++) {
+                WrapperOutput expectedOutput = expectedTransaction.getOutputs().get(j);
+                WrapperOutput actualOutput = actualTransaction.getOutputs().get(j);
+                Assert.assertEquals(expectedOutput.getIndex(), actualOutput.getIndex());
+                Assert.assertEquals(expectedOutput.getAddress(), actualOutput.getAddress());
+                Assert.assertEquals(expectedOutput.getValue(), actualOutput.getValue());
+                Assert.assertArrayEquals(expectedOutput.getRawOutputScript(), actualOutput.getRawOutputScript());
+            }
+        }
+    }
+
+    /**
+     * Mix of legacy and segwit transactions with two inputs and three outputs each.
+     */
+    private static byte[] typicalBlock() {
+        byte[] signature = sequence(1, 107);
+        List<byte[]> transactions = new ArrayList<>(TRANSACTIONS);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            List<byte[]> inputs = Arrays.asList(input(i, signature), input(i + 1, signature));
+            List<byte[]> outputs = Arrays.asList(
+                    output(i, p2pkh(sequence(i, 20))),
+                    output(i + 1, i % 2 == 0 ? p2sh(sequence(i + 1, 20)) : witnessProgram(0, sequence(i + 1, 20))),
+                    output(i + 2, p2pk(PUB_KEY))
+            );
+            transactions.add(i % 3 == 0
+                    ? segwitTransaction(
+                            Arrays.asList(input(i, new byte[0]), input(i + 1, new byte[0])),
+                            outputs,
+                            Arrays.asList(witness(sequence(i, 72), sequence(i, 33)), witness(sequence(i, 72), sequence(i, 33)))
+                    )
+                    : transaction(inputs, outputs));
+        }
+        return block(new byte[32], 1600000000, transactions);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >>> 4) & 0x0f, 16)).append(Character.forDigit(b & 0x0f, 16));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package io.mywish.btc.blockchain.helper;
+
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperOutput;
+import io.mywish.blockchain.WrapperTransaction;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.params.TestNet3Params;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static io.mywish.btc.blockchain.helper.RawBlockWriter.*;
+
+public class RawBlockDecoderTest {
+    private final static String GENESIS = "0100000000000000000000000000000000000000000000000000000000000000000000003ba3edfd7a7b12b27ac72c3e67768f617fc81bc3888a51323a9fb8aa4b1e5e4a29ab5f49ffff001d1dac2b7c0101000000010000000000000000000000000000000000000000000000000000000000000000ffffffff4d04ffff001d0104455468652054696d65732030332f4a616e2f32303039204368616e63656c6c6f72206f6e206272696e6b206f66207365636f6e64206261696c6f757420666f722062616e6b73ffffffff0100f2052a01000000434104678afdb0fe5548271967f1a67130b7105cd6a828e03909a67962e0ea1f61deb649f6bc3f4cef38c4f35504e51ec112de5c384df7ba0b8d578a4c702b6bf11d5fac00000000";
+
+    private final static byte[] HASH = sequence(0, 20);
+    private final static byte[] SCRIPT_HASH = sequence(20, 20);
+    private final static byte[] PUB_KEY = concat(new byte[]{2}, sequence(0, 32));
+
+    private final static List<byte[]> SCRIPTS = Arrays.asList(
+            p2pkh(HASH),
+            p2sh(SCRIPT_HASH),
+            new byte[]{0x6a, 4, 'a', 'b', 'c', 'd'},
+            p2pk(PUB_KEY),
+            witnessProgram(0, HASH),
+            witnessProgram(1, new byte[32]),
+            witnessProgram(0, new byte[32])
+    );
+
+    private final RawBlockDecoder decoder = new RawBlockDecoder(MainNetParams.get());
+
+    @Test
+    public void genesisTest() {
+        WrapperBlock block = decoder.decode(GENESIS, 0L);
+        Assert.assertEquals("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f", block.getHash());
+        Assert.assertEquals("0000000000000000000000000000000000000000000000000000000000000000", block.getParentHash());
+        Assert.assertEquals(0L, (long) block.getNumber());
+        Assert.assertEquals(1231006505L, block.getTimestamp().getEpochSecond());
+        Assert.assertEquals(1, block.getTransactions().size());
+
+        WrapperTransaction transaction = block.getTransactions().get(0);
+        Assert.assertEquals("4a5e1e4baab89f3a32518a88c31bc87f618f76673e2cc77ab2127b7afdeda33b", transaction.getHash());
+        Assert.assertEquals(1, transaction.getOutputs().size());
+        WrapperOutput output = transaction.getOutputs().get(0);
+        Assert.assertEquals("1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa", output.getAddress());
+        Assert.assertEquals(BigInteger.valueOf(5000000000L), output.getValue());
+        Assert.assertEquals(transaction.getHash(), output.getParentTransaction());
+        Assert.assertEquals(67, output.getRawOutputScript().length);
+    }
+
+    @Test
+    public void blockTest() {
+        WrapperBlock block = decoder.decode(sampleBlock(), 100L);
+        Assert.assertEquals("c211b523b0d778e8cb9384d54bd7458f43664231c9a749e7796d531dd2c261f2", block.getHash());
+        Assert.assertEquals("1f1e1d1c1b1a191817161514131211100f0e0d0c0b0a09080706050403020100", block.getParentHash());
+        Assert.assertEquals(100L, (long) block.getNumber());
+        Assert.assertEquals(1600000000L, block.getTimestamp().getEpochSecond());
+        Assert.assertEquals(4, block.getTransactions().size());
+
+        WrapperTransaction legacy = block.getTransactions().get(0);
+        Assert.assertEquals("84a6e8de82e8ebced48745cf9e524c74c5f015838457d3997de6a6114e06899d", legacy.getHash());
+        Assert.assertTrue(legacy.getInputs().isEmpty());
+        assertOutputs(legacy,
+                0, "112D2adLM3UKy4Z4giRbReR6gjWuvHUqB", 1000,
+                1, "33XChUsuxcekAfANBtqZ37zK8yPsgyMwSC", 1001,
+                3, "18C637tQaVZY4FCW2KVZ6tBUEFjxPCwRSH", 1003
+        );
+        Assert.assertArrayEquals(SCRIPTS.get(1), legacy.getOutputs().get(1).getRawOutputScript());
+
+        WrapperTransaction bigScript = block.getTransactions().get(1);
+        Assert.assertEquals("1c22306395c68754788c33ff4e2373fbbb03c5920bfafe8bca326213b7e3a8f8", bigScript.getHash());
+        assertOutputs(bigScript,
+                1, "112D2adLM3UKy4Z4giRbReR6gjWuvHUqB", 1000,
+                2, "33XChUsuxcekAfANBtqZ37zK8yPsgyMwSC", 1001
+        );
+
+        WrapperTransaction segwit = block.getTransactions().get(2);
+        Assert.assertEquals("b882c5ebb23c09be9137a7b2055b74f6635f2cbfa81b8913180f3aff408446f9", segwit.getHash());
+        assertOutputs(segwit,
+                0, "18C637tQaVZY4FCW2KVZ6tBUEFjxPCwRSH", 1003,
+                4, "112D2adLM3UKy4Z4giRbReR6gjWuvHUqB", 1000
+        );
+
+        WrapperTransaction many = block.getTransactions().get(3);
+        Assert.assertEquals("ed5af74933b75eedd1eaeb8110c2e0ffe43d461c6c68b9716a30bd6abdb924aa", many.getHash());
+        Assert.assertEquals(300, many.getOutputs().size());
+        Assert.assertEquals(299, (int) many.getOutputs().get(299).getIndex());
+    }
+
+    @Test
+    public void networkHeadersTest() {
+        List<byte[]> outputs = Arrays.asList(output(1, p2pkh(HASH)), output(2, p2sh(SCRIPT_HASH)));
+        byte[] block = block(new byte[32], 0, Collections.singletonList(
+                transaction(Collections.singletonList(input(0, new byte[]{1})), outputs)
+        ));
+        WrapperTransaction transaction = new RawBlockDecoder(TestNet3Params.get())
+                .decode(block, 1L)
+                .getTransactions()
+                .get(0);
+        Assert.assertEquals("mfWyW5fc9NUj75YAnFgoRLrjxgLDn2MMth", transaction.getOutputs().get(0).getAddress());
+        Assert.assertEquals("2Mu5QmDowa5A6NSnus2TRf4yaMKc3TqxMbV", transaction.getOutputs().get(1).getAddress());
+    }
+
+    @Test
+    public void classifyTest() {
+        RawBlockDecoder.ScriptType[] expected = {
+                RawBlockDecoder.ScriptType.P2PKH,
+                RawBlockDecoder.ScriptType.P2SH,
+                RawBlockDecoder.ScriptType.OTHER,
+                RawBlockDecoder.ScriptType.P2PK,
+                RawBlockDecoder.ScriptType.P2WPKH,
+                RawBlockDecoder.ScriptType.WITNESS,
+                RawBlockDecoder.ScriptType.P2WSH,
+        };
+        for (int i = 0; i < expected.length; i++) {
+            byte[] script = SCRIPTS.get(i);
+            Assert.assertEquals(expected[i], RawBlockDecoder.classify(script, 0, script.length));
+        }
+        byte[] uncompressed = p2pk(concat(new byte[]{4}, sequence(0, 64)));
+        Assert.assertEquals(RawBlockDecoder.ScriptType.P2PK, RawBlockDecoder.classify(uncompressed, 0, uncompressed.length));
+        Assert.assertEquals(RawBlockDecoder.ScriptType.OTHER, RawBlockDecoder.classify(new byte[0], 0, 0));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void truncatedTest() {
+        byte[] block = sampleBlock();
+        decoder.decode(Arrays.copyOf(block, block.length - 1), 1L);
+    }
+
+    static byte[] sampleBlock() {
+        List<byte[]> outputs = new ArrayList<>();
+        for (int i = 0; i < SCRIPTS.size(); i++) {
+            outputs.add(output(1000 + i, SCRIPTS.get(i)));
+        }
+        byte[] bigScript = new byte[20001];
+        bigScript[0] = 0x6a;
+        List<byte[]> manyOutputs = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            manyOutputs.add(output(i, SCRIPTS.get(0)));
+        }
+        byte[] defaultScript = {1, 2};
+
+        return block(sequence(0, 32), 1600000000, Arrays.asList(
+                transaction(
+                        Collections.singletonList(input(0, new byte[]{3, 1, 2, 3})),
+                        outputs
+                ),
+                transaction(
+                        Collections.singletonList(input(1, new byte[300])),
+                        Arrays.asList(output(5, bigScript), outputs.get(0), outputs.get(1))
+                ),
+                segwitTransaction(
+                        Arrays.asList(input(2, defaultScript), input(3, defaultScript)),
+                        Arrays.asList(outputs.get(3), outputs.get(4), outputs.get(5), outputs.get(6), outputs.get(0)),
+                        Arrays.asList(witness("abc".getBytes(), new byte[0]), witness(new byte[300]))
+                ),
+                transaction(
+                        Collections.singletonList(input(4, defaultScript)),
+                        manyOutputs
+                )
+        ));
+    }
+
+    /**
+     * @param expected triples of index, address and value.
+     */
+    private static void assertOutputs(WrapperTransaction transaction, Object... expected) {
+        Assert.assertEquals(expected.length / 3, transaction.getOutputs().size());
+        for (int i = 0; i < expected.length / 3; i++) {
+            WrapperOutput output = transaction.getOutputs().get(i);
+            Assert.assertEquals(expected[i * 3], output.getIndex());
+            Assert.assertEquals(expected[i * 3 + 1], output.getAddress());
+            Assert.assertEquals(BigInteger.valueOf((Integer) expected[i * 3 + 2]), output.getValue());
+            Assert.assertEquals(transaction.getHash(), output.getParentTransaction());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package io.mywish.btc.blockchain.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serializes blocks and transactions for the decoder tests.
+ */
+class RawBlockWriter {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    RawBlockWriter int32(long value) {
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (value >>> (i * 8)));
+        }
+        return this;
+    }
+
+    RawBlockWriter int64(long value) {
+        return int32(value).int32(value >>> 32);
+    }
+
+    RawBlockWriter varInt(long value) {
+        if (value < 0xfd) {
+            out.write((int) value);
+        }
+        else if (value <= 0xffff) {
+            out.write(0xfd);
+            out.write((int) value);
+            out.write((int) (value >>> 8));
+        }
+        else {
+            out.write(0xfe);
+            int32(value);
+        }
+        return this;
+    }
+
+    RawBlockWriter bytes(byte[] bytes) {
+        out.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    RawBlockWriter sized(byte[] bytes) {
+        return varInt(bytes.length).bytes(bytes);
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    static byte[] input(int seed, byte[] script) {
+        byte[] hash = new byte[32];
+        Arrays.fill(hash, (byte) seed);
+        return input(hash, seed, script);
+    }
+
+    /**
+     * @param hash transaction hash in the internal byte order.
+     */
+    static byte[] input(byte[] hash, int index, byte[] script) {
+        return new RawBlockWriter()
+                .bytes(hash)
+                .int32(index)
+                .sized(script)
+                .int32(0xffffffffL)
+                .toByteArray();
+    }
+
+    static byte[] output(long value, byte[] script) {
+        return new RawBlockWriter()
+                .int64(value)
+                .sized(script)
+                .toByteArray();
+    }
+
+    static byte[] transaction(List<byte[]> inputs, List<byte[]> outputs) {
+        RawBlockWriter writer = new RawBlockWriter().int32(1);
+        writer.body(inputs, outputs);
+        return writer.int32(0).toByteArray();
+    }
+
+    /**
+     * @param witnesses serialized witness stacks, one per input.
+     */
+    static byte[] segwitTransaction(List<byte[]> inputs, List<byte[]> outputs, List<byte[]> witnesses) {
+        RawBlockWriter writer = new RawBlockWriter().int32(2).bytes(new byte[]{0, 1});
+        writer.body(inputs, outputs);
+        witnesses.forEach(writer::bytes);
+        return writer.int32(0x11).toByteArray();
+    }
+
+    static byte[] witness(byte[]... items) {
+        RawBlockWriter writer = new RawBlockWriter().varInt(items.length);
+        for (byte[] item : items) {
+            writer.sized(item);
+        }
+        return writer.toByteArray();
+    }
+
+    static byte[] block(byte[] parentHash, long timestamp, List<byte[]> transactions) {
+        RawBlockWriter writer = new RawBlockWriter()
+                .int32(0x20000000)
+                .bytes(parentHash)
+                .bytes(new byte[32])
+                .int32(timestamp)
+                .int32(0x1d00ffff)
+                .int32(42)
+                .varInt(transactions.size());
+        transactions.forEach(writer::bytes);
+        return writer.toByteArray();
+    }
+
+    static byte[] p2pkh(byte[] hash160) {
+        return concat(new byte[]{0x76, (byte) 0xa9, 20}, hash160, new byte[]{(byte) 0x88, (byte) 0xac});
+    }
+
+    static byte[] p2sh(byte[] hash160) {
+        return concat(new byte[]{(byte) 0xa9, 20}, hash160, new byte[]{(byte) 0x87});
+    }
+
+    static byte[] p2pk(byte[] pubKey) {
+        return concat(new byte[]{(byte) pubKey.length}, pubKey, new byte[]{(byte) 0xac});
+    }
+
+    static byte[] witnessProgram(int version, byte[] program) {
+        return concat(new byte[]{(byte) (version == 0 ? 0 : 0x50 + version), (byte) program.length}, program);
+    }
+
+    static byte[] sequence(int from, int length) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) (from + i);
+        }
+        return result;
+    }
+
+    static byte[] concat(byte[]... parts) {
+        RawBlockWriter writer = new RawBlockWriter();
+        for (byte[] part : parts) {
+            writer.bytes(part);
+        }
+        return writer.toByteArray();
+    }
+
+    private void body(List<byte[]> inputs, List<byte[]> outputs) {
+        varInt(inputs.size());
+        inputs.forEach(this::bytes);
+        varInt(outputs.size());
+        outputs.forEach(this::bytes);
+    }
+}
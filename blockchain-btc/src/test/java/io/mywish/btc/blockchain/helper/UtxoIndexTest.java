@@ -0,0 +1,223 @@
+package io.mywish.btc.blockchain.helper;
+
+import io.mywish.blockchain.WrapperTransaction;
+import org.bitcoinj.params.MainNetParams;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static io.mywish.btc.blockchain.helper.RawBlockWriter.*;
+
+public class UtxoIndexTest {
+    private final static String HASH_ADDRESS = "112D2adLM3UKy4Z4giRbReR6gjWuvHUqB";
+    private final static String SCRIPT_HASH_ADDRESS = "33XChUsuxcekAfANBtqZ37zK8yPsgyMwSC";
+    private final static byte[] SCRIPT = {1, 2};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RawBlockDecoder decoder = new RawBlockDecoder(MainNetParams.get());
+
+    @Test
+    public void resolveTest() throws IOException {
+        UtxoIndex index = newIndex(10);
+        List<WrapperTransaction> first = firstBlock();
+        index.apply(1, first);
+        Assert.assertTrue(first.get(0).getInputs().isEmpty());
+        Assert.assertEquals(2, index.getSize());
+        Assert.assertEquals(1, index.getUnresolved());
+
+        WrapperTransaction spending = decode(transaction(
+                Arrays.asList(spend(first.get(0), 1), spend(first.get(0), 0), spend(first.get(0), 1)),
+                Collections.singletonList(output(2500, p2pkh(sequence(40, 20))))
+        ));
+        WrapperTransaction sameBlock = decode(transaction(
+                Collections.singletonList(spend(spending, 0)),
+                Collections.singletonList(output(2400, p2sh(sequence(60, 20))))
+        ));
+        index.apply(2, Arrays.asList(spending, sameBlock));
+        Assert.assertEquals(Arrays.asList(SCRIPT_HASH_ADDRESS, HASH_ADDRESS), spending.getInputs());
+        Assert.assertEquals(
+                Collections.singletonList(spending.getOutputs().get(0).getAddress()),
+                sameBlock.getInputs()
+        );
+        Assert.assertEquals(4, index.getSize());
+        Assert.assertEquals(2, index.getLastHeight());
+        Assert.assertEquals(4, index.getResolved());
+    }
+
+    @Test
+    public void reorgTest() throws IOException {
+        UtxoIndex index = newIndex(10);
+        List<WrapperTransaction> first = firstBlock();
+        index.apply(1, first);
+        WrapperTransaction abandoned = decode(transaction(
+                Collections.singletonList(spend(first.get(0), 0)),
+                Collections.singletonList(output(900, p2pkh(sequence(40, 20))))
+        ));
+        index.apply(2, Collections.singletonList(abandoned));
+        Assert.assertEquals(3, index.getSize());
+
+        WrapperTransaction replacement = decode(transaction(
+                Collections.singletonList(spend(first.get(0), 1)),
+                Collections.singletonList(output(1900, p2pkh(sequence(80, 20))))
+        ));
+        index.apply(2, Collections.singletonList(replacement));
+        Assert.assertEquals(Collections.singletonList(SCRIPT_HASH_ADDRESS), replacement.getInputs());
+        Assert.assertEquals(3, index.getSize());
+
+        WrapperTransaction next = decode(transaction(
+                Arrays.asList(spend(abandoned, 0), spend(first.get(0), 0)),
+                Collections.emptyList()
+        ));
+        index.apply(3, Collections.singletonList(next));
+        Assert.assertEquals(Collections.singletonList(HASH_ADDRESS), next.getInputs());
+    }
+
+    @Test
+    public void pruneTest() throws IOException {
+        UtxoIndex index = newIndex(2);
+        List<WrapperTransaction> first = firstBlock();
+        index.apply(1, first);
+        WrapperTransaction spending = decode(transaction(
+                Collections.singletonList(spend(first.get(0), 0)),
+                Collections.emptyList()
+        ));
+        index.apply(2, Collections.singletonList(spending));
+        index.apply(3, Collections.emptyList());
+        Assert.assertEquals(2, index.getSize());
+        index.apply(4, Collections.emptyList());
+        Assert.assertEquals(1, index.getSize());
+
+        WrapperTransaction late = decode(transaction(
+                Arrays.asList(spend(first.get(0), 0), spend(first.get(0), 1)),
+                Collections.emptyList()
+        ));
+        index.resolve(Collections.singletonList(late));
+        Assert.assertEquals(Collections.singletonList(SCRIPT_HASH_ADDRESS), late.getInputs());
+        Assert.assertEquals(1, index.getSize());
+    }
+
+    @Test
+    public void persistenceTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("index").resolve("utxo.dat");
+        UtxoIndex index = new UtxoIndex("test", file, null, 100, 10);
+        List<WrapperTransaction> first = firstBlock();
+        index.apply(1, first);
+        index.close();
+
+        Path copy = folder.getRoot().toPath().resolve("copy").resolve("utxo.dat");
+        for (UtxoIndex reopened : Arrays.asList(
+                new UtxoIndex("test", file, null, 100, 10),
+                new UtxoIndex("test", copy, file, 100, 10)
+        )) {
+            Assert.assertEquals(1, reopened.getLastHeight());
+            Assert.assertEquals(2, reopened.getSize());
+            WrapperTransaction spending = decode(transaction(
+                    Collections.singletonList(spend(first.get(0), 0)),
+                    Collections.emptyList()
+            ));
+            reopened.apply(2, Collections.singletonList(spending));
+            Assert.assertEquals(Collections.singletonList(HASH_ADDRESS), spending.getInputs());
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void reopenTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("utxo.dat");
+        UtxoIndex index = new UtxoIndex("test", file, null, 100, 10);
+        List<WrapperTransaction> first = firstBlock();
+        index.apply(1, first);
+        index.apply(2, Collections.singletonList(decode(transaction(
+                Collections.singletonList(spend(first.get(0), 1)),
+                Collections.singletonList(output(1900, p2pkh(sequence(80, 20))))
+        ))));
+
+        // not closed, as if the process was stopped before the flush
+        UtxoIndex reopened = new UtxoIndex("test", file, null, 100, 10);
+        Assert.assertEquals(2, reopened.getLastHeight());
+        Assert.assertEquals(3, reopened.getSize());
+        WrapperTransaction spending = decode(transaction(
+                Collections.singletonList(spend(first.get(0), 0)),
+                Collections.emptyList()
+        ));
+        reopened.apply(3, Collections.singletonList(spending));
+        Assert.assertEquals(Collections.singletonList(HASH_ADDRESS), spending.getInputs());
+        reopened.close();
+    }
+
+    @Test
+    public void growTest() throws IOException {
+        UtxoIndex index = newIndex(1);
+        List<byte[]> outputs = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            outputs.add(output(i, p2pkh(concat(new byte[]{(byte) i, (byte) (i >>> 8)}, new byte[18]))));
+        }
+        WrapperTransaction funding = decode(transaction(
+                Collections.singletonList(input(1, SCRIPT)),
+                outputs
+        ));
+        index.apply(1, Collections.singletonList(funding));
+        Assert.assertEquals(3000, index.getSize());
+        Assert.assertEquals(4096, index.getCapacity());
+
+        List<byte[]> even = new ArrayList<>();
+        List<byte[]> odd = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            (i % 2 == 0 ? even : odd).add(spend(funding, i));
+        }
+        index.apply(2, Collections.singletonList(decode(transaction(even, Collections.emptyList()))));
+        index.apply(3, Collections.emptyList());
+        Assert.assertEquals(1500, index.getSize());
+
+        WrapperTransaction late = decode(transaction(odd, Collections.emptyList()));
+        index.resolve(Collections.singletonList(late));
+        Assert.assertEquals(1500, late.getInputs().size());
+        for (int i = 0; i < 1500; i++) {
+            Assert.assertEquals(funding.getOutputs().get(i * 2 + 1).getAddress(), late.getInputs().get(i));
+        }
+    }
+
+    private UtxoIndex newIndex(int keepBlocks) throws IOException {
+        return new UtxoIndex("test", folder.newFolder().toPath().resolve("utxo.dat"), null, 1, keepBlocks);
+    }
+
+    /**
+     * Transaction with the unknown input, pay to public key hash and pay to script hash outputs.
+     */
+    private List<WrapperTransaction> firstBlock() {
+        return Collections.singletonList(decode(transaction(
+                Collections.singletonList(input(7, SCRIPT)),
+                Arrays.asList(
+                        output(1000, p2pkh(sequence(0, 20))),
+                        output(2000, p2sh(sequence(20, 20))),
+                        output(0, new byte[]{0x6a})
+                )
+        )));
+    }
+
+    private WrapperTransaction decode(byte[] transaction) {
+        return decoder.decode(block(new byte[32], 0, Collections.singletonList(transaction)), 1L)
+                .getTransactions()
+                .get(0);
+    }
+
+    private static byte[] spend(WrapperTransaction transaction, int index) {
+        byte[] hash = RawBlockDecoder.parseHex(transaction.getHash());
+        for (int i = 0; i < hash.length / 2; i++) {
+            byte b = hash[i];
+            hash[i] = hash[hash.length - 1 - i];
+            hash[hash.length - 1 - i] = b;
+        }
+        return input(hash, index, SCRIPT);
+    }
+}
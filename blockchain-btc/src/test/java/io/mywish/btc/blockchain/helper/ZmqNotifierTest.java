@@ -0,0 +1,183 @@
+package io.mywish.btc.blockchain.helper;
+
+import com.neemre.btcdcli4j.core.client.BtcdClient;
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperTransaction;
+import org.bitcoinj.params.MainNetParams;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static io.mywish.btc.blockchain.helper.RawBlockWriter.*;
+
+public class ZmqNotifierTest {
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+    private final ZmqNotifier.Listener listener = new ZmqNotifier.Listener() {
+        @Override
+        public void onMessage(String topic, byte[] body) {
+            events.add(topic + ":" + RawBlockDecoder.toHex(body));
+        }
+
+        @Override
+        public void onMissed() {
+            events.add("missed");
+        }
+
+        @Override
+        public void onDisconnected() {
+            events.add("disconnected");
+        }
+    };
+    private ZmqPublisherStub publisher;
+    private ZmqNotifier notifier;
+
+    @Before
+    public void setUp() throws Exception {
+        publisher = new ZmqPublisherStub();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (notifier != null) {
+            notifier.close();
+        }
+        publisher.close();
+    }
+
+    @Test
+    public void receiveTest() throws Exception {
+        notifier = newNotifier(10000);
+        awaitSubscriptions();
+        Assert.assertEquals("missed", next());
+
+        publisher.publish("hashblock", new byte[]{1, 2}, 7);
+        publisher.ping();
+        publisher.publish("hashblock", new byte[]{3}, 8);
+        publisher.publish("rawtx", new byte[300], 0);
+        Assert.assertEquals("hashblock:0102", next());
+        Assert.assertEquals("hashblock:03", next());
+        Assert.assertEquals("rawtx:" + RawBlockDecoder.toHex(new byte[300]), next());
+        Assert.assertTrue(notifier.isConnected());
+    }
+
+    @Test
+    public void gapTest() throws Exception {
+        notifier = newNotifier(10000);
+        awaitSubscriptions();
+        Assert.assertEquals("missed", next());
+
+        publisher.publish("hashblock", new byte[]{1}, 1);
+        publisher.publish("rawtx", new byte[]{2}, 1);
+        publisher.publish("hashblock", new byte[]{3}, 3);
+        Assert.assertEquals("hashblock:01", next());
+        Assert.assertEquals("rawtx:02", next());
+        Assert.assertEquals("missed", next());
+        Assert.assertEquals("hashblock:03", next());
+    }
+
+    @Test
+    public void silenceTest() throws Exception {
+        notifier = newNotifier(300);
+        awaitSubscriptions();
+        Assert.assertEquals("missed", next());
+        Assert.assertEquals("disconnected", next());
+        awaitSubscriptions();
+        Assert.assertEquals("missed", next());
+    }
+
+    @Test
+    public void disconnectTest() throws Exception {
+        notifier = newNotifier(10000);
+        awaitSubscriptions();
+        Assert.assertEquals("missed", next());
+
+        publisher.disconnect();
+        Assert.assertEquals("disconnected", next());
+        awaitSubscriptions();
+        Assert.assertEquals("missed", next());
+    }
+
+    @Test
+    public void notificationsTest() throws Exception {
+        RawBlockDecoder decoder = new RawBlockDecoder(MainNetParams.get());
+        byte[] pending = transaction(
+                Collections.singletonList(input(2, new byte[]{1})),
+                Collections.singletonList(output(1000, p2pkh(sequence(0, 20))))
+        );
+        BtcdClient client = (BtcdClient) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{BtcdClient.class},
+                (proxy, method, args) -> {
+                    if ("getRawMemPool".equals(method.getName())) {
+                        return Collections.singletonList(decoder.decodeTransaction(pending).getHash());
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+        );
+        MempoolTracker tracker = new MempoolTracker(NetworkType.BTC_MAINNET, client, decoder, Runnable::run, 10);
+        NodeNotifications notifications = new NodeNotifications(NetworkType.BTC_MAINNET, publisher.getEndpoint(), 10000, true, tracker);
+        Semaphore blocks = new Semaphore(0);
+        notifications.subscribe(blocks::release);
+        try {
+            Assert.assertEquals(Arrays.asList("rawblock", "rawtx"),
+                    Arrays.asList(publisher.awaitSubscription(), publisher.awaitSubscription()));
+            Assert.assertTrue(blocks.tryAcquire(10, TimeUnit.SECONDS));
+            Assert.assertTrue(tracker.isPushing());
+
+            byte[] transaction = transaction(
+                    Collections.singletonList(input(1, new byte[]{1})),
+                    Collections.singletonList(output(1000, p2pkh(sequence(0, 20))))
+            );
+            byte[] block = block(new byte[32], 1, Collections.singletonList(transaction));
+            publisher.publish("rawtx", pending, 0);
+            publisher.publish("rawtx", transaction, 1);
+            publisher.publish("rawblock", block, 0);
+            Assert.assertTrue(blocks.tryAcquire(10, TimeUnit.SECONDS));
+
+            String hash = decoder.decode(block, 1L).getHash();
+            Assert.assertArrayEquals(block, notifications.getRawBlock(hash));
+            // the mined transaction is not pending
+            List<WrapperTransaction> fetched = tracker.fetch();
+            Assert.assertEquals(1, fetched.size());
+            Assert.assertEquals(decoder.decodeTransaction(pending).getHash(), fetched.get(0).getHash());
+            Assert.assertTrue(tracker.fetch().isEmpty());
+        }
+        finally {
+            notifications.close();
+        }
+    }
+
+    private ZmqNotifier newNotifier(int silenceTimeout) {
+        ZmqNotifier notifier = new ZmqNotifier(
+                "test",
+                publisher.getEndpoint(),
+                Arrays.asList("hashblock", "rawtx"),
+                silenceTimeout,
+                10,
+                listener
+        );
+        notifier.start();
+        return notifier;
+    }
+
+    private void awaitSubscriptions() throws InterruptedException {
+        Assert.assertEquals("hashblock", publisher.awaitSubscription());
+        Assert.assertEquals("rawtx", publisher.awaitSubscription());
+    }
+
+    private String next() throws InterruptedException {
+        String event = events.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull("No notification.", event);
+        return event;
+    }
+}
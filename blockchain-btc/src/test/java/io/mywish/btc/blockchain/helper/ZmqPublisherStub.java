@@ -0,0 +1,134 @@
+package io.mywish.btc.blockchain.helper;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PUB side of ZMTP 3.0 for one subscriber at a time, publishes messages like bitcoind does.
+ */
+public class ZmqPublisherStub implements Closeable {
+    private final ServerSocket server = new ServerSocket(0);
+    private final BlockingQueue<String> subscriptions = new LinkedBlockingQueue<>();
+    private volatile Socket socket;
+    private volatile DataOutputStream out;
+
+    public ZmqPublisherStub() throws IOException {
+        Thread thread = new Thread(this::accept, "zmq-publisher-stub");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public URI getEndpoint() {
+        return URI.create("tcp://127.0.0.1:" + server.getLocalPort());
+    }
+
+    /**
+     * Waits for the subscriber and its subscription, returns the topic.
+     */
+    public String awaitSubscription() throws InterruptedException {
+        String topic = subscriptions.poll(10, TimeUnit.SECONDS);
+        if (topic == null) {
+            throw new IllegalStateException("No subscription.");
+        }
+        return topic;
+    }
+
+    public synchronized void publish(String topic, byte[] body, int sequence) throws IOException {
+        byte[] sequenceBytes = {(byte) sequence, (byte) (sequence >>> 8), (byte) (sequence >>> 16), (byte) (sequence >>> 24)};
+        writeFrame(0x01, topic.getBytes(StandardCharsets.US_ASCII));
+        writeFrame(0x01, body);
+        writeFrame(0x00, sequenceBytes);
+        out.flush();
+    }
+
+    public synchronized void ping() throws IOException {
+        byte[] ping = {4, 'P', 'I', 'N', 'G', 0, 0};
+        writeFrame(0x04, ping);
+        out.flush();
+    }
+
+    public void disconnect() throws IOException {
+        socket.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                byte[] greeting = new byte[64];
+                in.readFully(greeting);
+                greeting[32] = 1;
+                out.write(greeting);
+                byte[] ready = readFrame(in);
+                if (!new String(ready, 1, 5, StandardCharsets.US_ASCII).equals("READY")) {
+                    throw new IOException("READY is expected.");
+                }
+                synchronized (this) {
+                    this.socket = socket;
+                    this.out = out;
+                    writeFrame(0x04, readyCommand());
+                    out.flush();
+                }
+                while (!socket.isClosed()) {
+                    byte[] subscription = readFrame(in);
+                    if (subscription.length > 0 && subscription[0] == 1) {
+                        subscriptions.add(new String(subscription, 1, subscription.length - 1, StandardCharsets.US_ASCII));
+                    }
+                }
+            }
+            catch (IOException e) {
+                // the subscriber is disconnected, wait for the next one
+            }
+        }
+    }
+
+    private static byte[] readyCommand() {
+        byte[] command = new byte[1 + 5 + 1 + 11 + 4 + 3];
+        command[0] = 5;
+        System.arraycopy("READY".getBytes(StandardCharsets.US_ASCII), 0, command, 1, 5);
+        command[6] = 11;
+        System.arraycopy("Socket-Type".getBytes(StandardCharsets.US_ASCII), 0, command, 7, 11);
+        command[21] = 3;
+        System.arraycopy("PUB".getBytes(StandardCharsets.US_ASCII), 0, command, 22, 3);
+        return command;
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int flags = in.readUnsignedByte();
+        long size = (flags & 0x02) != 0 ? in.readLong() : in.readUnsignedByte();
+        byte[] body = new byte[(int) size];
+        in.readFully(body);
+        return body;
+    }
+
+    private void writeFrame(int flags, byte[] body) throws IOException {
+        if (body.length > 0xff) {
+            out.writeByte(flags | 0x02);
+            out.writeLong(body.length);
+        }
+        else {
+            out.writeByte(flags);
+            out.writeByte(body.length);
+        }
+        out.write(body);
+    }
+}
@@ -3,12 +3,15 @@ package io.mywish.duc.blockchain;
 import com.neemre.btcdcli4j.core.client.BtcdClientImpl;
 import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.LastBlockRepository;
+import io.mywish.btc.blockchain.helper.UtxoIndex;
 import io.mywish.duc.blockchain.helper.DucatusNetworkParams;
 import io.mywish.duc.blockchain.services.DucNetwork;
 import io.mywish.duc.blockchain.services.DucScanner;
+import io.mywish.scanner.services.LastBlockBatchPersister;
 import io.mywish.scanner.services.LastBlockDbPersister;
 import io.mywish.scanner.services.LastBlockFilePersister;
 import io.mywish.scanner.services.LastBlockPersister;
+import io.mywish.scanner.services.PendingTransactionService;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,7 +21,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Paths;
 
 @ComponentScan
 @Configuration
@@ -28,7 +33,11 @@ public class DucBCModule {
     @Bean(name = NetworkType.DUC_MAINNET_VALUE)
     public DucNetwork ducNetMain(
             final CloseableHttpClient closeableHttpClient,
-            final @Value("${etherscanner.ducatus.rpc-url.mainnet}") URI rpc
+            final @Value("${etherscanner.ducatus.rpc-url.mainnet}") URI rpc,
+            final @Value("${etherscanner.ducatus.mempool-fetch-limit:0}") Integer mempoolFetchLimit,
+            final @Value("${etherscanner.ducatus.zmq-url.mainnet:#{null}}") URI zmq,
+            final @Value("${etherscanner.ducatus.zmq-silence-timeout-ms:1200000}") Integer zmqSilenceTimeout,
+            final @Value("${etherscanner.ducatus.zmq-raw-blocks:true}") Boolean zmqRawBlocks
     ) throws Exception {
         String user = null, password = null;
         if (rpc.getUserInfo() != null) {
@@ -38,7 +47,7 @@ public class DucBCModule {
                 password = credentials[1];
             }
         }
-        return new DucNetwork(
+        DucNetwork network = new DucNetwork(
                 NetworkType.DUC_MAINNET,
                 new BtcdClientImpl(
                         closeableHttpClient,
@@ -49,6 +58,19 @@ public class DucBCModule {
                         password
                 ), new DucatusNetworkParams()
         );
+        if (mempoolFetchLimit > 0) {
+            network.setMempoolTracking(mempoolFetchLimit);
+        }
+        if (zmq != null) {
+            network.setNotifications(zmq, zmqSilenceTimeout, zmqRawBlocks);
+        }
+        return network;
+    }
+
+    @ConditionalOnBean(name = NetworkType.DUC_MAINNET_VALUE)
+    @Bean
+    public PendingTransactionService ducMainnetPendingTransactionService() {
+        return new PendingTransactionService(NetworkType.DUC_MAINNET);
     }
 
     @Configuration
@@ -57,9 +79,15 @@ public class DucBCModule {
         @Bean
         public LastBlockPersister ducMainnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.ducatus.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.ducatus.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.ducatus.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.ducatus.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.DUC_MAINNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.DUC_MAINNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -69,9 +97,15 @@ public class DucBCModule {
         @Bean
         public LastBlockPersister ducMainnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.ducatus.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.ducatus.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.ducatus.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.ducatus.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.DUC_MAINNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.DUC_MAINNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -81,13 +115,41 @@ public class DucBCModule {
             final @Qualifier(NetworkType.DUC_MAINNET_VALUE) DucNetwork network,
             final @Qualifier("ducMainnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.ducatus.polling-interval-ms}") Long pollingInterval,
-            final @Value("${etherscanner.ducatus.commit-chain-length}") Integer commitmentChainLength
-    ) {
-        return new DucScanner(
+            final @Value("${etherscanner.ducatus.commit-chain-length}") Integer commitmentChainLength,
+            final @Value("${etherscanner.ducatus.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.ducatus.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.ducatus.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.ducatus.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.ducatus.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.ducatus.utxo-index.dir:#{null}}") String utxoIndexDir,
+            final @Value("${etherscanner.ducatus.utxo-index.checkpoint.mainnet:#{null}}") String utxoIndexCheckpoint,
+            final @Value("${etherscanner.ducatus.utxo-index.capacity:1048576}") Long utxoIndexCapacity,
+            final @Value("${etherscanner.ducatus.utxo-index.keep-blocks:100}") Integer utxoIndexKeepBlocks
+    ) throws IOException {
+        DucScanner scanner = new DucScanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        if (utxoIndexDir != null) {
+            UtxoIndex utxoIndex = utxoIndex(NetworkType.DUC_MAINNET, utxoIndexDir, utxoIndexCheckpoint, utxoIndexCapacity, utxoIndexKeepBlocks);
+            scanner.setUtxoIndex(utxoIndex);
+            network.setUtxoIndex(utxoIndex);
+        }
+        return scanner;
+    }
+
+    private static UtxoIndex utxoIndex(NetworkType networkType, String dir, String checkpoint, long capacity, int keepBlocks) throws IOException {
+        return new UtxoIndex(
+                networkType.name(),
+                Paths.get(dir, networkType.name() + ".utxo"),
+                checkpoint == null ? null : Paths.get(checkpoint),
+                capacity,
+                keepBlocks
+        );
     }
 }
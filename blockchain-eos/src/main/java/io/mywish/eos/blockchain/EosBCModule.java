@@ -4,10 +4,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.lastwill.eventscan.events.EventModule;
 import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.LastBlockRepository;
+import io.mywish.blockchain.RpcRouter;
 import io.mywish.eos.blockchain.services.EosNetwork;
 import io.mywish.eos.blockchain.services.EosScanner;
 import io.mywish.eos.blockchain.services.EosScannerPolling;
+import io.mywish.eoscli4j.EosClient;
 import io.mywish.eoscli4j.service.EosClientImpl;
+import io.mywish.scanner.services.LastBlockBatchPersister;
 import io.mywish.scanner.services.LastBlockDbPersister;
 import io.mywish.scanner.services.LastBlockFilePersister;
 import io.mywish.scanner.services.LastBlockMemoryPersister;
@@ -21,6 +24,8 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.*;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 @ComponentScan
@@ -32,16 +37,12 @@ public class EosBCModule {
             final CloseableHttpClient closeableHttpClient,
             final ObjectMapper objectMapper,
             final @Value("${etherscanner.eos.tcp-url.testnet}") URI rcpUrl,
-            final @Value("${etherscanner.eos.rpc-url.testnet}") URI rpc
+            final @Value("${etherscanner.eos.rpc-url.testnet}") URI[] rpc,
+            final @Value("${etherscanner.eos.endpoint-max-lag:10}") int maxLag
     ) throws Exception {
         return new EosNetwork(
                 NetworkType.EOS_TESTNET,
-                new EosClientImpl(
-                        rcpUrl,
-                        closeableHttpClient,
-                        rpc,
-                        objectMapper
-                )
+                routeClients(NetworkType.EOS_TESTNET, closeableHttpClient, objectMapper, rcpUrl, rpc, maxLag)
         );
     }
 
@@ -51,16 +52,40 @@ public class EosBCModule {
             final CloseableHttpClient closeableHttpClient,
             final ObjectMapper objectMapper,
             final @Value("${etherscanner.eos.tcp-url.mainnet}") URI tcpUrl,
-            final @Value("${etherscanner.eos.rpc-url.mainnet}") URI rpc
+            final @Value("${etherscanner.eos.rpc-url.mainnet}") URI[] rpc,
+            final @Value("${etherscanner.eos.endpoint-max-lag:10}") int maxLag
     ) throws Exception {
         return new EosNetwork(
                 NetworkType.EOS_MAINNET,
-                new EosClientImpl(
-                        tcpUrl,
-                        closeableHttpClient,
-                        rpc,
-                        objectMapper
-                )
+                routeClients(NetworkType.EOS_MAINNET, closeableHttpClient, objectMapper, tcpUrl, rpc, maxLag)
+        );
+    }
+
+    /**
+     * Requests are routed to the best of the RPC nodes, the subscription goes to the TCP node through the first one.
+     */
+    private static EosClient routeClients(
+            NetworkType networkType,
+            CloseableHttpClient closeableHttpClient,
+            ObjectMapper objectMapper,
+            URI tcpUrl,
+            URI[] rpcUrls,
+            int maxLag
+    ) throws Exception {
+        List<RpcRouter.Endpoint<EosClient>> endpoints = new ArrayList<>(rpcUrls.length);
+        for (URI rpc : rpcUrls) {
+            endpoints.add(new RpcRouter.Endpoint<>(
+                    rpc.getHost() + ":" + rpc.getPort(),
+                    new EosClientImpl(tcpUrl, closeableHttpClient, rpc, objectMapper)
+            ));
+        }
+        return RpcRouter.route(
+                networkType.name(),
+                EosClient.class,
+                endpoints,
+                client -> client.getChainInfo().getHeadBlockNum(),
+                maxLag,
+                "subscribe"
         );
     }
 
@@ -70,17 +95,29 @@ public class EosBCModule {
         @Bean
         public LastBlockPersister eosMainnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.eos.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.eos.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.eos.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.eos.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.EOS_MAINNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.EOS_MAINNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister eosTestnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.eos.last-block.testnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.eos.last-block.testnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.eos.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.eos.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.EOS_TESTNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.EOS_TESTNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -90,17 +127,29 @@ public class EosBCModule {
         @Bean
         public LastBlockPersister eosMainnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.eos.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.eos.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.eos.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.eos.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.EOS_MAINNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.EOS_MAINNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister eosTestnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.eos.last-block.testnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.eos.last-block.testnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.eos.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.eos.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.EOS_TESTNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.EOS_TESTNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -140,15 +189,24 @@ public class EosBCModule {
             final @Qualifier(NetworkType.EOS_MAINNET_VALUE) EosNetwork network,
             final @Qualifier("eosMainnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.eos.polling-interval-ms:500}") Long pollingInterval,
-            final @Value("${etherscanner.eos.commit-chain-length:5}") Integer commitmentChainLength
+            final @Value("${etherscanner.eos.commit-chain-length:5}") Integer commitmentChainLength,
+            final @Value("${etherscanner.eos.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.eos.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.eos.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.eos.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.eos.reorg-tracking-depth:0}") Integer reorgTrackingDepth
     ) {
-        return new EosScannerPolling(
+        EosScannerPolling scanner = new EosScannerPolling(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength,
                 false
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        return scanner;
     }
 
     @ConditionalOnBean(name = NetworkType.EOS_MAINNET_VALUE)
@@ -158,15 +216,22 @@ public class EosBCModule {
             final @Qualifier(NetworkType.EOS_MAINNET_VALUE) EosNetwork network,
             final @Value("${etherscanner.eos.last-block.mainnet:#{null}}") Long lastBlock,
             final @Value("${etherscanner.eos.polling-interval-ms:500}") Long pollingInterval,
-            final @Value("${etherscanner.eos.commit-chain-length:5}") Integer commitmentChainLength
+            final @Value("${etherscanner.eos.commit-chain-length:5}") Integer commitmentChainLength,
+            final @Value("${etherscanner.eos.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.eos.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.eos.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.eos.polling-max-interval-ms:0}") Long pollingMaxInterval
     ) {
-        return new EosScannerPolling(
+        EosScannerPolling scanner = new EosScannerPolling(
                 network,
                 new LastBlockMemoryPersister(lastBlock),
                 pollingInterval,
                 commitmentChainLength,
                 true
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        return scanner;
     }
 
     @ConditionalOnBean(name = NetworkType.EOS_TESTNET_VALUE)
@@ -205,15 +270,24 @@ public class EosBCModule {
             final @Qualifier(NetworkType.EOS_TESTNET_VALUE) EosNetwork network,
             final @Qualifier("eosTestnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.eos.polling-interval-ms:500}") Long pollingInterval,
-            final @Value("${etherscanner.eos.commit-chain-length:5}") Integer commitmentChainLength
+            final @Value("${etherscanner.eos.commit-chain-length:5}") Integer commitmentChainLength,
+            final @Value("${etherscanner.eos.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.eos.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.eos.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.eos.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.eos.reorg-tracking-depth:0}") Integer reorgTrackingDepth
     ) {
-        return new EosScannerPolling(
+        EosScannerPolling scanner = new EosScannerPolling(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength,
                 false
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        return scanner;
     }
 
     @ConditionalOnBean(name = NetworkType.EOS_TESTNET_VALUE)
@@ -223,14 +297,21 @@ public class EosBCModule {
             final @Qualifier(NetworkType.EOS_TESTNET_VALUE) EosNetwork network,
             final @Value("${etherscanner.eos.last-block.testnet:#{null}}") Long lastBlock,
             final @Value("${etherscanner.eos.polling-interval-ms:500}") Long pollingInterval,
-            final @Value("${etherscanner.eos.commit-chain-length:5}") Integer commitmentChainLength
+            final @Value("${etherscanner.eos.commit-chain-length:5}") Integer commitmentChainLength,
+            final @Value("${etherscanner.eos.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.eos.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.eos.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.eos.polling-max-interval-ms:0}") Long pollingMaxInterval
     ) {
-        return new EosScannerPolling(
+        EosScannerPolling scanner = new EosScannerPolling(
                 network,
                 new LastBlockMemoryPersister(lastBlock),
                 pollingInterval,
                 commitmentChainLength,
                 true
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        return scanner;
     }
 }
@@ -1,6 +1,7 @@
 package io.mywish.eos.blockchain.services;
 
 import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.RpcRouter;
 import io.mywish.blockchain.WrapperBlock;
 import io.mywish.blockchain.WrapperNetwork;
 import io.mywish.blockchain.WrapperTransaction;
@@ -87,5 +88,6 @@ public class EosNetwork extends WrapperNetwork {
     public void close() {
         log.info("Terminate {} network.", getType());
         continueSubscription.set(false);
+        RpcRouter.close(eosClient);
     }
 }
@@ -31,7 +31,7 @@ public class EosScanner extends Scanner {
                     getEosNetwork().subscribe(
                             lastBlockPersister.getLastBlock(),
                             block -> {
-                                lastBlockPersister.saveLastBlock(block.getNumber());
+                                saveLastBlock(block.getNumber());
                                 processBlock(block);
                             },
                             isPending ? BlockReliability.REVERSIBLE : BlockReliability.IRREVERSIBLE);
@@ -51,6 +51,14 @@ public class EosScanner extends Scanner {
         });
     }
 
+    /**
+     * Reversible blocks are published as pending transactions, so only the irreversible scanner may backfill.
+     */
+    @Override
+    public boolean isBackfillSupported() {
+        return !isPending;
+    }
+
     @Override
     protected void processBlock(WrapperBlock block) {
         BaseEvent event = isPending
@@ -78,6 +86,8 @@ public class EosScanner extends Scanner {
         synchronized (sync) {
             sync.notifyAll();
         }
+        joinWorker(CLOSE_TIMEOUT);
+        awaitDelivery();
 
         try {
             lastBlockPersister.close();
@@ -21,6 +21,11 @@ public class EosScannerPolling extends ScannerPolling {
         this.isPending = isPending;
     }
 
+    @Override
+    public boolean isBackfillSupported() {
+        return !isPending;
+    }
+
     @Override
     protected void processBlock(WrapperBlock block) {
         if (blockCounter.incrementAndGet() == 10) {
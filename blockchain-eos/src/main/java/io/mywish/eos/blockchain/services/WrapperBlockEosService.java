@@ -20,6 +20,7 @@ public class WrapperBlockEosService implements WrapperBlockService<BlockResponse
     @Override
     public WrapperBlock build(BlockResponse block) {
         String hash = block.getId();
+        String parentHash = block.getPrevious();
         Long number = block.getBlockNum();
         Instant timestamp = block.getTimestamp().toInstant(ZoneOffset.UTC);
         List<WrapperTransaction> transactions = block
@@ -27,6 +28,6 @@ public class WrapperBlockEosService implements WrapperBlockService<BlockResponse
                 .stream()
                 .map(transactionBuilder::build)
                 .collect(Collectors.toList());
-        return new WrapperBlock(hash, number, timestamp, transactions);
+        return new WrapperBlock(hash, parentHash, number, timestamp, transactions);
     }
 }
@@ -3,9 +3,12 @@ package io.mywish.neo.blockchain;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.LastBlockRepository;
+import io.mywish.blockchain.RpcRouter;
 import io.mywish.neo.blockchain.services.NeoNetwork;
 import io.mywish.neo.blockchain.services.NeoScanner;
+import io.mywish.neocli4j.NeoClient;
 import io.mywish.neocli4j.NeoClientImpl;
+import io.mywish.scanner.services.LastBlockBatchPersister;
 import io.mywish.scanner.services.LastBlockDbPersister;
 import io.mywish.scanner.services.LastBlockFilePersister;
 import io.mywish.scanner.services.LastBlockPersister;
@@ -19,6 +22,8 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 @ComponentScan
@@ -28,15 +33,12 @@ public class NeoBCModule {
     public NeoNetwork neoNetMain(
             final CloseableHttpClient closeableHttpClient,
             final ObjectMapper objectMapper,
-            final @Value("${etherscanner.neo.rpc-url.mainnet}") URI rpc
+            final @Value("${etherscanner.neo.rpc-url.mainnet}") URI[] rpc,
+            final @Value("${etherscanner.neo.endpoint-max-lag:3}") int maxLag
     ) {
         return new NeoNetwork(
                 NetworkType.NEO_MAINNET,
-                new NeoClientImpl(
-                        closeableHttpClient,
-                        rpc,
-                        objectMapper
-                )
+                routeClients(NetworkType.NEO_MAINNET, closeableHttpClient, objectMapper, rpc, maxLag)
         );
     }
 
@@ -45,15 +47,38 @@ public class NeoBCModule {
     public NeoNetwork neoNetTest(
             final CloseableHttpClient closeableHttpClient,
             final ObjectMapper objectMapper,
-            final @Value("${etherscanner.neo.rpc-url.testnet}") URI rpc
+            final @Value("${etherscanner.neo.rpc-url.testnet}") URI[] rpc,
+            final @Value("${etherscanner.neo.endpoint-max-lag:3}") int maxLag
     ) {
         return new NeoNetwork(
                 NetworkType.NEO_TESTNET,
-                new NeoClientImpl(
-                        closeableHttpClient,
-                        rpc,
-                        objectMapper
-                )
+                routeClients(NetworkType.NEO_TESTNET, closeableHttpClient, objectMapper, rpc, maxLag)
+        );
+    }
+
+    /**
+     * Requests are routed to the best of the RPC nodes.
+     */
+    private static NeoClient routeClients(
+            NetworkType networkType,
+            CloseableHttpClient closeableHttpClient,
+            ObjectMapper objectMapper,
+            URI[] rpcUrls,
+            int maxLag
+    ) {
+        List<RpcRouter.Endpoint<NeoClient>> endpoints = new ArrayList<>(rpcUrls.length);
+        for (URI rpc : rpcUrls) {
+            endpoints.add(new RpcRouter.Endpoint<>(
+                    rpc.getHost() + ":" + rpc.getPort(),
+                    new NeoClientImpl(closeableHttpClient, rpc, objectMapper)
+            ));
+        }
+        return RpcRouter.route(
+                networkType.name(),
+                NeoClient.class,
+                endpoints,
+                NeoClient::getBlockCount,
+                maxLag
         );
     }
 
@@ -63,17 +88,29 @@ public class NeoBCModule {
         @Bean
         public LastBlockPersister neoMainnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.neo.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.neo.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.neo.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.neo.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.NEO_MAINNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.NEO_MAINNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister neoTestnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.neo.last-block.testnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.neo.last-block.testnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.neo.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.neo.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.NEO_TESTNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.NEO_TESTNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -83,17 +120,29 @@ public class NeoBCModule {
         @Bean
         public LastBlockPersister neoMainnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.neo.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.neo.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.neo.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.neo.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.NEO_MAINNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.NEO_MAINNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister neoTestnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.neo.last-block.testnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.neo.last-block.testnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.neo.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.neo.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.NEO_TESTNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.NEO_TESTNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -103,14 +152,25 @@ public class NeoBCModule {
             final @Qualifier(NetworkType.NEO_MAINNET_VALUE) NeoNetwork network,
             final @Qualifier("neoMainnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.neo.polling-interval-ms}") Long pollingInterval,
-            final @Value("${etherscanner.neo.commit-chain-length}") Integer commitmentChainLength
+            final @Value("${etherscanner.neo.commit-chain-length}") Integer commitmentChainLength,
+            final @Value("${etherscanner.neo.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.neo.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.neo.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.neo.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.neo.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.neo.prefetch-batch-size:1}") Integer prefetchBatchSize
     ) {
-        return new NeoScanner(
+        NeoScanner scanner = new NeoScanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        scanner.setPrefetchBatchSize(prefetchBatchSize);
+        return scanner;
     }
 
     @ConditionalOnBean(name = NetworkType.NEO_TESTNET_VALUE)
@@ -119,13 +179,24 @@ public class NeoBCModule {
             final @Qualifier(NetworkType.NEO_TESTNET_VALUE) NeoNetwork network,
             final @Qualifier("neoTestnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.neo.polling-interval-ms}") Long pollingInterval,
-            final @Value("${etherscanner.neo.commit-chain-length}") Integer commitmentChainLength
+            final @Value("${etherscanner.neo.commit-chain-length}") Integer commitmentChainLength,
+            final @Value("${etherscanner.neo.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.neo.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.neo.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.neo.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.neo.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.neo.prefetch-batch-size:1}") Integer prefetchBatchSize
     ) {
-        return new NeoScanner(
+        NeoScanner scanner = new NeoScanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        scanner.setPrefetchBatchSize(prefetchBatchSize);
+        return scanner;
     }
 }
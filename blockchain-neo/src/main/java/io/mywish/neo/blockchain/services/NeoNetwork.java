@@ -1,5 +1,7 @@
 package io.mywish.neo.blockchain.services;
 
+import io.mywish.neocli4j.Block;
+import io.mywish.neocli4j.Event;
 import io.mywish.neocli4j.NeoClient;
 import io.mywish.blockchain.WrapperNetwork;
 import io.mywish.blockchain.WrapperTransactionReceipt;
@@ -8,7 +10,9 @@ import io.mywish.blockchain.*;
 import io.mywish.neo.blockchain.model.WrapperTransactionNeo;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.annotation.PreDestroy;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.List;
 
 public class NeoNetwork extends WrapperNetwork {
@@ -28,6 +32,11 @@ public class NeoNetwork extends WrapperNetwork {
         this.neoClient = neoClient;
     }
 
+    @PreDestroy
+    public void close() {
+        RpcRouter.close(neoClient);
+    }
+
     @Override
     public Long getLastBlock() throws Exception {
         return (long)neoClient.getBlockCount();
@@ -56,6 +65,36 @@ public class NeoNetwork extends WrapperNetwork {
         );
     }
 
+    @Override
+    public List<WrapperBlock> getBlocks(long fromNumber, long toNumber) throws Exception {
+        List<Long> numbers = new ArrayList<>();
+        for (long number = fromNumber; number <= toNumber; number++) {
+            numbers.add(number);
+        }
+        List<WrapperBlock> result = new ArrayList<>(numbers.size());
+        for (Block block : neoClient.getBlocks(numbers)) {
+            result.add(blockBuilder.build(block));
+        }
+        return result;
+    }
+
+    @Override
+    public List<WrapperTransactionReceipt> getTxReceipts(List<WrapperTransaction> transactions) throws Exception {
+        List<String> hashes = new ArrayList<>(transactions.size());
+        for (WrapperTransaction transaction : transactions) {
+            hashes.add(transaction.getHash());
+        }
+        List<List<Event>> events = neoClient.getEvents(hashes);
+        List<WrapperTransactionReceipt> result = new ArrayList<>(transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            result.add(transactionReceiptBuilder.build(
+                    (WrapperTransactionNeo) transactions.get(i),
+                    events.get(i)
+            ));
+        }
+        return result;
+    }
+
     @Override
     public boolean isPendingTransactionsSupported() {
         return false;
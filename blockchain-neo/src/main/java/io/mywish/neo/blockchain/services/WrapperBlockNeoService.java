@@ -19,6 +19,7 @@ public class WrapperBlockNeoService implements WrapperBlockService<Block> {
     @Override
     public WrapperBlock build(Block block) {
         String hash = block.getHash();
+        String parentHash = block.getPreviousHash();
         Long number = block.getNumber();
         Instant timestamp = Instant.ofEpochSecond(block.getTimestamp());
         List<WrapperTransaction> transactions = block
@@ -26,6 +27,6 @@ public class WrapperBlockNeoService implements WrapperBlockService<Block> {
                 .stream()
                 .map(transactionBuilder::build)
                 .collect(Collectors.toList());
-        return new WrapperBlock(hash, number, timestamp, transactions);
+        return new WrapperBlock(hash, parentHash, number, timestamp, transactions);
     }
 }
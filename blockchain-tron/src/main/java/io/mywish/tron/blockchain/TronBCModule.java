@@ -3,11 +3,15 @@ package io.mywish.tron.blockchain;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.LastBlockRepository;
+import io.mywish.blockchain.RpcRouter;
+import io.mywish.scanner.services.LastBlockBatchPersister;
 import io.mywish.scanner.services.LastBlockDbPersister;
 import io.mywish.scanner.services.LastBlockFilePersister;
 import io.mywish.scanner.services.LastBlockPersister;
 import io.mywish.tron.blockchain.services.TronNetwork;
 import io.mywish.tron.blockchain.services.TronScanner;
+import io.mywish.troncli4j.TronClient;
+import io.mywish.troncli4j.model.response.BlockResponse;
 import io.mywish.troncli4j.service.TronClientImpl;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -19,7 +23,11 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 
+import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 @Configuration
 @ComponentScan
@@ -29,17 +37,13 @@ public class TronBCModule {
     public TronNetwork tronNetTest(
             final CloseableHttpClient closeableHttpClient,
             final ObjectMapper objectMapper,
-            final @Value("${etherscanner.tron.full-rpc-url.testnet}") URI fullNodeRpc,
-            final @Value("${etherscanner.tron.event-rpc-url.testnet}") URI eventNodeRpc
+            final @Value("${etherscanner.tron.full-rpc-url.testnet}") URI[] fullNodeRpc,
+            final @Value("${etherscanner.tron.event-rpc-url.testnet}") URI[] eventNodeRpc,
+            final @Value("${etherscanner.tron.endpoint-max-lag:5}") int maxLag
     ) throws Exception {
         return new TronNetwork(
                 NetworkType.TRON_TESTNET,
-                new TronClientImpl(
-                        closeableHttpClient,
-                        fullNodeRpc,
-                        eventNodeRpc,
-                        objectMapper
-                )
+                routeClients(NetworkType.TRON_TESTNET, closeableHttpClient, objectMapper, fullNodeRpc, eventNodeRpc, maxLag)
         );
     }
 
@@ -48,34 +52,82 @@ public class TronBCModule {
     public TronNetwork tronNetMain(
             final CloseableHttpClient closeableHttpClient,
             final ObjectMapper objectMapper,
-            final @Value("${etherscanner.tron.full-rpc-url.mainnet}") URI fullNodeRpc,
-            final @Value("${etherscanner.tron.event-rpc-url.mainnet}") URI eventNodeRpc
+            final @Value("${etherscanner.tron.full-rpc-url.mainnet}") URI[] fullNodeRpc,
+            final @Value("${etherscanner.tron.event-rpc-url.mainnet}") URI[] eventNodeRpc,
+            final @Value("${etherscanner.tron.endpoint-max-lag:5}") int maxLag
     ) throws Exception {
         return new TronNetwork(
                 NetworkType.TRON_MAINNET,
-                new TronClientImpl(
-                        closeableHttpClient,
-                        fullNodeRpc,
-                        eventNodeRpc,
-                        objectMapper
-                )
+                routeClients(NetworkType.TRON_MAINNET, closeableHttpClient, objectMapper, fullNodeRpc, eventNodeRpc, maxLag)
         );
     }
 
+    /**
+     * Requests are routed to the best of the full nodes, each full node is paired with the event node
+     * of the same position or with the last event node.
+     */
+    private static TronClient routeClients(
+            NetworkType networkType,
+            CloseableHttpClient closeableHttpClient,
+            ObjectMapper objectMapper,
+            URI[] fullNodeRpc,
+            URI[] eventNodeRpc,
+            int maxLag
+    ) throws Exception {
+        List<RpcRouter.Endpoint<TronClient>> endpoints = new ArrayList<>(fullNodeRpc.length);
+        for (int i = 0; i < fullNodeRpc.length; i++) {
+            endpoints.add(new RpcRouter.Endpoint<>(
+                    fullNodeRpc[i].getHost() + ":" + fullNodeRpc[i].getPort(),
+                    new TronClientImpl(
+                            closeableHttpClient,
+                            fullNodeRpc[i],
+                            eventNodeRpc[Math.min(i, eventNodeRpc.length - 1)],
+                            objectMapper
+                    )
+            ));
+        }
+        return RpcRouter.route(
+                networkType.name(),
+                TronClient.class,
+                endpoints,
+                client -> client.getNodeInfo().getBlock().getNum(),
+                maxLag,
+                TronBCModule::isEmpty
+        );
+    }
+
+    /**
+     * The node answers the empty block and the event node answers no events if they do not have the block yet.
+     */
+    private static boolean isEmpty(Method method, Object[] args, Object result) {
+        return result == null
+                || result instanceof BlockResponse && ((BlockResponse) result).getBlockId() == null
+                || "getEventResult".equals(method.getName()) && ((Collection<?>) result).isEmpty();
+    }
+
     @ConditionalOnBean(name = NetworkType.TRON_MAINNET_VALUE)
     @Bean
     public TronScanner tronScannerMain(
             final @Qualifier(NetworkType.TRON_MAINNET_VALUE) TronNetwork network,
             final @Qualifier("tronMainnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.tron.polling-interval-ms}") Long pollingInterval,
-            final @Value("${etherscanner.tron.commit-chain-length}") Integer commitmentChainLength
+            final @Value("${etherscanner.tron.commit-chain-length}") Integer commitmentChainLength,
+            final @Value("${etherscanner.tron.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.tron.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.tron.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.tron.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.tron.reorg-tracking-depth:0}") Integer reorgTrackingDepth
     ) {
-        return new TronScanner(
+        TronScanner scanner = new TronScanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        return scanner;
     }
 
     @ConditionalOnBean(name = NetworkType.TRON_TESTNET_VALUE)
@@ -84,14 +136,23 @@ public class TronBCModule {
             final @Qualifier(NetworkType.TRON_TESTNET_VALUE) TronNetwork network,
             final @Qualifier("tronTestnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.tron.polling-interval-ms}") Long pollingInterval,
-            final @Value("${etherscanner.tron.commit-chain-length}") Integer commitmentChainLength
+            final @Value("${etherscanner.tron.commit-chain-length}") Integer commitmentChainLength,
+            final @Value("${etherscanner.tron.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.tron.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.tron.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.tron.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.tron.reorg-tracking-depth:0}") Integer reorgTrackingDepth
     ) {
-        return new TronScanner(
+        TronScanner scanner = new TronScanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        return scanner;
     }
 
     @Configuration
@@ -100,17 +161,29 @@ public class TronBCModule {
         @Bean
         public LastBlockPersister tronMainnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.tron.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.tron.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.tron.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.tron.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.TRON_MAINNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.TRON_MAINNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister tronTestnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.tron.last-block.testnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.tron.last-block.testnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.tron.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.tron.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.TRON_TESTNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.TRON_TESTNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -120,17 +193,29 @@ public class TronBCModule {
         @Bean
         public LastBlockPersister tronMainnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.tron.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.tron.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.tron.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.tron.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.TRON_MAINNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.TRON_MAINNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister tronTestnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.tron.last-block.testnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.tron.last-block.testnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.tron.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.tron.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.TRON_TESTNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.TRON_TESTNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
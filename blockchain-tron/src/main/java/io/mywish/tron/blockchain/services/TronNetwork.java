@@ -2,6 +2,7 @@ package io.mywish.tron.blockchain.services;
 
 import io.lastwill.eventscan.model.NetworkType;
 import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.RpcRouter;
 import io.mywish.blockchain.WrapperNetwork;
 import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.blockchain.WrapperTransactionReceipt;
@@ -9,6 +10,7 @@ import io.mywish.tron.blockchain.model.WrapperTransactionTron;
 import io.mywish.troncli4j.TronClient;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.annotation.PreDestroy;
 import java.math.BigInteger;
 import java.util.List;
 
@@ -26,6 +28,11 @@ public class TronNetwork extends WrapperNetwork {
         this.tronClient = tronClient;
     }
 
+    @PreDestroy
+    public void close() {
+        RpcRouter.close(tronClient);
+    }
+
     @Override
     public Long getLastBlock() throws Exception {
         return tronClient.getNodeInfo().getBlock().getNum();
@@ -1,15 +1,15 @@
 package io.mywish.tron.blockchain.services;
 
 import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperOutput;
 import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.scanner.model.BlockAddressIndex;
 import io.mywish.scanner.model.NewBlockEvent;
 import io.mywish.scanner.services.LastBlockPersister;
 import io.mywish.scanner.services.ScannerPolling;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.MultiValueMap;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
@@ -27,18 +27,25 @@ public class TronScanner extends ScannerPolling {
             counter.set(0);
         }
 
-        MultiValueMap<String, WrapperTransaction> addressTransactions = CollectionUtils.toMultiValueMap(new HashMap<>());
-
         if (block.getTransactions() == null) {
             log.warn("{}: block {} has no transactions.", network.getType(), block.getNumber());
             return;
         }
-        block.getTransactions()
-                .forEach(transaction -> {
-                    transaction.getInputs().forEach(input -> addressTransactions.add(input, transaction));
-                    transaction.getOutputs().forEach(output -> addressTransactions.add(output.getAddress(), transaction));
-//                    eventPublisher.publish(new NewTransactionEvent(networkType, block, output));
-                });
-        eventPublisher.publish(new NewBlockEvent(network.getType(), block, addressTransactions));
+        List<WrapperTransaction> transactions = block.getTransactions();
+        BlockAddressIndex.Builder addressTransactions = BlockAddressIndex.builder(
+                transactions,
+                BlockAddressIndex.AddressFormat.EXACT
+        );
+        for (int position = 0; position < transactions.size(); position++) {
+            WrapperTransaction transaction = transactions.get(position);
+            for (String input : transaction.getInputs()) {
+                addressTransactions.add(input, position);
+            }
+            for (WrapperOutput output : transaction.getOutputs()) {
+                addressTransactions.add(output.getAddress(), position);
+            }
+//            eventPublisher.publish(new NewTransactionEvent(networkType, block, output));
+        }
+        eventPublisher.publish(new NewBlockEvent(network.getType(), block, addressTransactions.build()));
     }
 }
@@ -20,6 +20,7 @@ public class WrapperBlockTronService implements WrapperBlockService<BlockRespons
     public WrapperBlock build(BlockResponse block) {
         String hash = block.getBlockId();
         BlockResponse.RawData header = block.getBlockHeader();
+        String parentHash = header.getParentHash();
         Long number = header.getNumber();
         Instant timestamp = Instant.ofEpochMilli(header.getTimestamp());
         List<WrapperTransaction> transactions = block
@@ -27,6 +28,6 @@ public class WrapperBlockTronService implements WrapperBlockService<BlockRespons
                 .stream()
                 .map(transactionBuilder::build)
                 .collect(Collectors.toList());
-        return new WrapperBlock(hash, number, timestamp, transactions);
+        return new WrapperBlock(hash, parentHash, number, timestamp, transactions);
     }
 }
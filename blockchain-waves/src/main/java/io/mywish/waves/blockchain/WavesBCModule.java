@@ -3,6 +3,7 @@ package io.mywish.waves.blockchain;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.LastBlockRepository;
+import io.mywish.scanner.services.LastBlockBatchPersister;
 import io.mywish.scanner.services.LastBlockDbPersister;
 import io.mywish.scanner.services.LastBlockFilePersister;
 import io.mywish.scanner.services.LastBlockPersister;
@@ -62,15 +63,26 @@ public class WavesBCModule {
             final @Qualifier("wavesMainnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.waves.polling-interval-ms}") Long pollingInterval,
             final @Value("${etherscanner.waves.commit-chain-length}") Integer commitmentChainLength,
-            final @Value("${etherscanner.waves.reach-interval-ms}") Long reachInterval
+            final @Value("${etherscanner.waves.reach-interval-ms}") Long reachInterval,
+            final @Value("${etherscanner.waves.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.waves.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.waves.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.waves.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.waves.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.waves.prefetch-batch-size:1}") Integer prefetchBatchSize
     ) {
-        return new WavesScanner(
+        WavesScanner scanner = new WavesScanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength,
                 reachInterval
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        scanner.setPrefetchBatchSize(prefetchBatchSize);
+        return scanner;
     }
 
     @ConditionalOnBean(name = NetworkType.WAVES_TESTNET_VALUE)
@@ -79,14 +91,25 @@ public class WavesBCModule {
             final @Qualifier(NetworkType.WAVES_TESTNET_VALUE) WavesNetwork network,
             final @Qualifier("wavesTestnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.waves.polling-interval-ms}") Long pollingInterval,
-            final @Value("${etherscanner.waves.commit-chain-length}") Integer commitmentChainLength
+            final @Value("${etherscanner.waves.commit-chain-length}") Integer commitmentChainLength,
+            final @Value("${etherscanner.waves.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.waves.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.waves.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.waves.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.waves.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.waves.prefetch-batch-size:1}") Integer prefetchBatchSize
     ) {
-        return new WavesScanner(
+        WavesScanner scanner = new WavesScanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        scanner.setPrefetchBatchSize(prefetchBatchSize);
+        return scanner;
     }
 
     @Configuration
@@ -95,17 +118,29 @@ public class WavesBCModule {
         @Bean
         public LastBlockPersister wavesMainnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.waves.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.waves.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.waves.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.waves.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.WAVES_MAINNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.WAVES_MAINNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister wavesTestnetLastBlockPersister(
                 LastBlockRepository lastBlockRepository,
-                final @Value("${etherscanner.waves.last-block.testnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.waves.last-block.testnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.waves.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.waves.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.WAVES_TESTNET, lastBlockRepository, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.WAVES_TESTNET, lastBlockRepository, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -115,17 +150,29 @@ public class WavesBCModule {
         @Bean
         public LastBlockPersister wavesMainnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.waves.last-block.mainnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.waves.last-block.mainnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.waves.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.waves.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.WAVES_MAINNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.WAVES_MAINNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister wavesTestnetLastBlockPersister(
                 final @Value("${etherscanner.start-block-dir}") String dir,
-                final @Value("${etherscanner.waves.last-block.testnet:#{null}}") Long lastBlock
+                final @Value("${etherscanner.waves.last-block.testnet:#{null}}") Long lastBlock,
+                final @Value("${etherscanner.waves.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.waves.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.WAVES_TESTNET, dir, lastBlock);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.WAVES_TESTNET, dir, lastBlock),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 }
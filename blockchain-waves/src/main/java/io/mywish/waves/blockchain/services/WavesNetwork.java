@@ -7,12 +7,15 @@ import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.blockchain.WrapperTransactionReceipt;
 import io.mywish.waves.blockchain.model.WrapperTransactionWaves;
 import io.mywish.wavescli4j.WavesClient;
+import io.mywish.wavescli4j.model.Block;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.List;
 
 public class WavesNetwork extends WrapperNetwork {
+    private final static int MAX_BLOCKS_PER_REQUEST = 100;
     final private WavesClient wavesClient;
 
     @Autowired
@@ -41,6 +44,27 @@ public class WavesNetwork extends WrapperNetwork {
         return blockBuilder.build(wavesClient.getBlock(number));
     }
 
+    @Override
+    public List<WrapperBlock> getBlocks(long fromNumber, long toNumber) throws Exception {
+        List<WrapperBlock> result = new ArrayList<>();
+        for (long from = fromNumber; from <= toNumber; from += MAX_BLOCKS_PER_REQUEST) {
+            long to = Math.min(from + MAX_BLOCKS_PER_REQUEST - 1, toNumber);
+            for (Block block : wavesClient.getBlocks(from, to)) {
+                result.add(blockBuilder.build(block));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<WrapperTransactionReceipt> getTxReceipts(List<WrapperTransaction> transactions) {
+        List<WrapperTransactionReceipt> result = new ArrayList<>(transactions.size());
+        for (WrapperTransaction transaction : transactions) {
+            result.add(getTxReceipt(transaction));
+        }
+        return result;
+    }
+
     @Override
     public BigInteger getBalance(String address, Long blockNo) throws Exception {
         throw new UnsupportedOperationException();
@@ -1,15 +1,15 @@
 package io.mywish.waves.blockchain.services;
 
 import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperOutput;
 import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.scanner.model.BlockAddressIndex;
 import io.mywish.scanner.model.NewBlockEvent;
 import io.mywish.scanner.services.LastBlockPersister;
 import io.mywish.scanner.services.ScannerPolling;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.MultiValueMap;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
@@ -28,18 +28,25 @@ public class WavesScanner extends ScannerPolling {
     protected void processBlock(WrapperBlock block) {
         log.info("{}: new block received {} ({})", network.getType(), block.getNumber(), block.getHash());
 
-        MultiValueMap<String, WrapperTransaction> addressTransactions = CollectionUtils.toMultiValueMap(new HashMap<>());
-
         if (block.getTransactions() == null) {
             log.warn("{}: block {} has no transactions.", network.getType(), block.getNumber());
             return;
         }
-        block.getTransactions()
-                .forEach(transaction -> {
-                    transaction.getInputs().forEach(input -> addressTransactions.add(input.toLowerCase(), transaction));
-                    transaction.getOutputs().forEach(output -> addressTransactions.add(output.getAddress().toLowerCase(), transaction));
-//                    eventPublisher.publish(new NewTransactionEvent(networkType, block, output));
-                });
-        eventPublisher.publish(new NewBlockEvent(network.getType(), block, addressTransactions));
+        List<WrapperTransaction> transactions = block.getTransactions();
+        BlockAddressIndex.Builder addressTransactions = BlockAddressIndex.builder(
+                transactions,
+                BlockAddressIndex.AddressFormat.LOWER_CASE
+        );
+        for (int position = 0; position < transactions.size(); position++) {
+            WrapperTransaction transaction = transactions.get(position);
+            for (String input : transaction.getInputs()) {
+                addressTransactions.add(input, position);
+            }
+            for (WrapperOutput output : transaction.getOutputs()) {
+                addressTransactions.add(output.getAddress(), position);
+            }
+//            eventPublisher.publish(new NewTransactionEvent(networkType, block, output));
+        }
+        eventPublisher.publish(new NewBlockEvent(network.getType(), block, addressTransactions.build()));
     }
 }
@@ -19,6 +19,7 @@ public class WrapperBlockWavesService implements WrapperBlockService<Block> {
     @Override
     public WrapperBlock build(Block block) {
         String hash = block.getSignature();
+        String parentHash = block.getReference();
         Long number = block.getHeight();
         Instant timestamp = Instant.ofEpochMilli(block.getTimestamp());
         List<WrapperTransaction> transactions = block
@@ -26,6 +27,6 @@ public class WrapperBlockWavesService implements WrapperBlockService<Block> {
                 .stream()
                 .map(transactionBuilder::build)
                 .collect(Collectors.toList());
-        return new WrapperBlock(hash, number, timestamp, transactions);
+        return new WrapperBlock(hash, parentHash, number, timestamp, transactions);
     }
 }
@@ -2,10 +2,12 @@ package io.mywish.web3.blockchain;
 
 import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.LastBlockRepository;
+import io.mywish.scanner.services.LastBlockBatchPersister;
 import io.mywish.scanner.services.LastBlockDbPersister;
 import io.mywish.scanner.services.LastBlockFilePersister;
 import io.mywish.scanner.services.LastBlockPersister;
 import io.mywish.web3.blockchain.service.Web3Network;
+import io.mywish.web3.blockchain.service.Web3PendingTransactions;
 import io.mywish.web3.blockchain.service.Web3Scanner;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,7 +16,6 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
-import org.web3j.protocol.websocket.WebSocketClient;
 
 import java.net.ConnectException;
 import java.net.URI;
@@ -24,27 +25,41 @@ public class BinanceSmartChainBCModule {
     @ConditionalOnProperty(name = "io.lastwill.eventscan.binance-smart.mainnet")
     @Bean(name = NetworkType.BINANCE_SMART_MAINNET_VALUE)
     public Web3Network binanceSmartNetMain(
-            @Value("${io.lastwill.eventscan.binance-smart.mainnet}") URI web3Url,
+            @Value("${io.lastwill.eventscan.binance-smart.mainnet}") URI[] web3Urls,
             @Value("${etherscanner.binance-smart.polling-interval-ms:30000}") Long pollingInterval,
-            @Value("${etherscanner.binance-smart.pending-transactions-threshold}") int pendingThreshold) throws ConnectException {
-        return new Web3Network(
+            @Value("${etherscanner.binance-smart.pending-transactions-threshold}") int pendingThreshold,
+            @Value("${etherscanner.binance-smart.block-receipts-threshold:0}") int blockReceiptsThreshold,
+            @Value("${etherscanner.binance-smart.pending-mode:FULL}") Web3PendingTransactions.Mode pendingMode,
+            @Value("${etherscanner.binance-smart.endpoint-max-lag:3}") int maxLag) throws ConnectException {
+        Web3Network network = new Web3Network(
                 NetworkType.BINANCE_SMART_MAINNET,
-                new WebSocketClient(web3Url),
+                Web3Network.toClients(web3Urls),
                 pollingInterval,
-                pendingThreshold);
+                pendingThreshold,
+                maxLag);
+        network.setBlockReceiptsThreshold(blockReceiptsThreshold);
+        network.setPendingMode(pendingMode);
+        return network;
     }
 
     @ConditionalOnProperty(name = "io.lastwill.eventscan.binance-smart.testnet")
     @Bean(name = NetworkType.BINANCE_SMART_TESTNET_VALUE)
     public Web3Network binanceSmartNetTest(
-            @Value("${io.lastwill.eventscan.binance-smart.testnet}") URI web3Url,
+            @Value("${io.lastwill.eventscan.binance-smart.testnet}") URI[] web3Urls,
             @Value("${etherscanner.binance-smart.polling-interval-ms:30000}") Long pollingInterval,
-            @Value("${etherscanner.binance-smart.pending-transactions-threshold}") int pendingThreshold) throws ConnectException {
-        return new Web3Network(
+            @Value("${etherscanner.binance-smart.pending-transactions-threshold}") int pendingThreshold,
+            @Value("${etherscanner.binance-smart.block-receipts-threshold:0}") int blockReceiptsThreshold,
+            @Value("${etherscanner.binance-smart.pending-mode:FULL}") Web3PendingTransactions.Mode pendingMode,
+            @Value("${etherscanner.binance-smart.endpoint-max-lag:3}") int maxLag) throws ConnectException {
+        Web3Network network = new Web3Network(
                 NetworkType.BINANCE_SMART_TESTNET,
-                new WebSocketClient(web3Url),
+                Web3Network.toClients(web3Urls),
                 pollingInterval,
-                pendingThreshold);
+                pendingThreshold,
+                maxLag);
+        network.setBlockReceiptsThreshold(blockReceiptsThreshold);
+        network.setPendingMode(pendingMode);
+        return network;
     }
 
     @Configuration
@@ -52,16 +67,28 @@ public class BinanceSmartChainBCModule {
     public static class BinanceSmartDbPersisterConfiguration {
         @Bean
         public LastBlockPersister binanceSmartMainnetLastBlockPersister(
-                LastBlockRepository lastBlockRepository
+                LastBlockRepository lastBlockRepository,
+                final @Value("${etherscanner.binance-smart.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.binance-smart.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.BINANCE_SMART_MAINNET, lastBlockRepository, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.BINANCE_SMART_MAINNET, lastBlockRepository, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister binanceSmartTestnetLastBlockPersister(
-                LastBlockRepository lastBlockRepository
+                LastBlockRepository lastBlockRepository,
+                final @Value("${etherscanner.binance-smart.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.binance-smart.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.BINANCE_SMART_TESTNET, lastBlockRepository, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.BINANCE_SMART_TESTNET, lastBlockRepository, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -70,16 +97,28 @@ public class BinanceSmartChainBCModule {
     public static class BinanceSmartFilePersisterConfiguration {
         @Bean
         public LastBlockPersister binanceSmartMainnetLastBlockPersister(
-                final @Value("${etherscanner.start-block-dir}") String dir
+                final @Value("${etherscanner.start-block-dir}") String dir,
+                final @Value("${etherscanner.binance-smart.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.binance-smart.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.BINANCE_SMART_MAINNET, dir, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.BINANCE_SMART_MAINNET, dir, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister binanceSmartTestnetLastBlockPersister(
-                final @Value("${etherscanner.start-block-dir}") String dir
+                final @Value("${etherscanner.start-block-dir}") String dir,
+                final @Value("${etherscanner.binance-smart.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.binance-smart.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.BINANCE_SMART_TESTNET, dir, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.BINANCE_SMART_TESTNET, dir, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -89,14 +128,27 @@ public class BinanceSmartChainBCModule {
             final @Qualifier(NetworkType.BINANCE_SMART_MAINNET_VALUE) Web3Network network,
             final @Qualifier("binanceSmartMainnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.binancesc.polling-interval-ms:30000}") Long pollingInterval,
-            final @Value("${etherscanner.commit-chain-length:5}") Integer commitmentChainLength
+            final @Value("${etherscanner.commit-chain-length:5}") Integer commitmentChainLength,
+            final @Value("${etherscanner.binance-smart.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.binance-smart.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.binance-smart.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.binance-smart.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.binance-smart.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.binance-smart.prefetch-batch-size:1}") Integer prefetchBatchSize,
+            final @Value("${etherscanner.binance-smart.new-heads-subscription:false}") Boolean newHeadsSubscription
     ) {
-        return new Web3Scanner(
+        Web3Scanner scanner = new Web3Scanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        scanner.setPrefetchBatchSize(prefetchBatchSize);
+        scanner.setNewHeadsSubscription(newHeadsSubscription);
+        return scanner;
     }
 
     @ConditionalOnBean(name = NetworkType.BINANCE_SMART_TESTNET_VALUE)
@@ -105,13 +157,26 @@ public class BinanceSmartChainBCModule {
             final @Qualifier(NetworkType.BINANCE_SMART_TESTNET_VALUE) Web3Network network,
             final @Qualifier("binanceSmartTestnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.binancesc.polling-interval-ms:30000}") Long pollingInterval,
-            final @Value("${etherscanner.commit-chain-length:5}") Integer commitmentChainLength
+            final @Value("${etherscanner.commit-chain-length:5}") Integer commitmentChainLength,
+            final @Value("${etherscanner.binance-smart.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.binance-smart.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.binance-smart.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.binance-smart.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.binance-smart.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.binance-smart.prefetch-batch-size:1}") Integer prefetchBatchSize,
+            final @Value("${etherscanner.binance-smart.new-heads-subscription:false}") Boolean newHeadsSubscription
     ) {
-        return new Web3Scanner(
+        Web3Scanner scanner = new Web3Scanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        scanner.setPrefetchBatchSize(prefetchBatchSize);
+        scanner.setNewHeadsSubscription(newHeadsSubscription);
+        return scanner;
     }
 }
@@ -2,10 +2,12 @@ package io.mywish.web3.blockchain;
 
 import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.LastBlockRepository;
+import io.mywish.scanner.services.LastBlockBatchPersister;
 import io.mywish.scanner.services.LastBlockDbPersister;
 import io.mywish.scanner.services.LastBlockFilePersister;
 import io.mywish.scanner.services.LastBlockPersister;
 import io.mywish.web3.blockchain.service.Web3Network;
+import io.mywish.web3.blockchain.service.Web3PendingTransactions;
 import io.mywish.web3.blockchain.service.Web3Scanner;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,7 +16,6 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
-import org.web3j.protocol.websocket.WebSocketClient;
 
 import java.net.ConnectException;
 import java.net.URI;
@@ -24,27 +25,41 @@ public class DucXBCModule {
     @ConditionalOnProperty(name = "io.lastwill.eventscan.ducatusx.mainnet")
     @Bean(name = NetworkType.DUCX_MAINNET_VALUE)
     public Web3Network ducXNetMain(
-            @Value("${io.lastwill.eventscan.ducatusx.mainnet}") URI web3Url,
+            @Value("${io.lastwill.eventscan.ducatusx.mainnet}") URI[] web3Urls,
             @Value("${etherscanner.ducatusx.polling-interval-ms:30000}") Long pollingInterval,
-            @Value("${etherscanner.ducatusx.pending-transactions-threshold}") int pendingThreshold) throws ConnectException {
-        return new Web3Network(
+            @Value("${etherscanner.ducatusx.pending-transactions-threshold}") int pendingThreshold,
+            @Value("${etherscanner.ducatusx.block-receipts-threshold:0}") int blockReceiptsThreshold,
+            @Value("${etherscanner.ducatusx.pending-mode:FULL}") Web3PendingTransactions.Mode pendingMode,
+            @Value("${etherscanner.ducatusx.endpoint-max-lag:3}") int maxLag) throws ConnectException {
+        Web3Network network = new Web3Network(
                 NetworkType.DUCX_MAINNET,
-                new WebSocketClient(web3Url),
+                Web3Network.toClients(web3Urls),
                 pollingInterval,
-                pendingThreshold);
+                pendingThreshold,
+                maxLag);
+        network.setBlockReceiptsThreshold(blockReceiptsThreshold);
+        network.setPendingMode(pendingMode);
+        return network;
     }
 
     @ConditionalOnProperty(name = "io.lastwill.eventscan.ducatusx.testnet")
     @Bean(name = NetworkType.DUCX_TESTNET_VALUE)
     public Web3Network ducXNetTest(
-            @Value("${io.lastwill.eventscan.ducatusx.testnet}") URI web3Url,
+            @Value("${io.lastwill.eventscan.ducatusx.testnet}") URI[] web3Urls,
             @Value("${etherscanner.ducatusx.polling-interval-ms:30000}") Long pollingInterval,
-            @Value("${etherscanner.ducatusx.pending-transactions-threshold}") int pendingThreshold) throws ConnectException {
-        return new Web3Network(
+            @Value("${etherscanner.ducatusx.pending-transactions-threshold}") int pendingThreshold,
+            @Value("${etherscanner.ducatusx.block-receipts-threshold:0}") int blockReceiptsThreshold,
+            @Value("${etherscanner.ducatusx.pending-mode:FULL}") Web3PendingTransactions.Mode pendingMode,
+            @Value("${etherscanner.ducatusx.endpoint-max-lag:3}") int maxLag) throws ConnectException {
+        Web3Network network = new Web3Network(
                 NetworkType.DUCX_TESTNET,
-                new WebSocketClient(web3Url),
+                Web3Network.toClients(web3Urls),
                 pollingInterval,
-                pendingThreshold);
+                pendingThreshold,
+                maxLag);
+        network.setBlockReceiptsThreshold(blockReceiptsThreshold);
+        network.setPendingMode(pendingMode);
+        return network;
     }
 
     @Configuration
@@ -52,16 +67,28 @@ public class DucXBCModule {
     public class DucXDbPersisterConfiguration {
         @Bean
         public LastBlockPersister ducXMainnetLastBlockPersister(
-                LastBlockRepository lastBlockRepository
+                LastBlockRepository lastBlockRepository,
+                final @Value("${etherscanner.ducatusx.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.ducatusx.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.DUCX_MAINNET, lastBlockRepository, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.DUCX_MAINNET, lastBlockRepository, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister ducXTestnetLastBlockPersister(
-                LastBlockRepository lastBlockRepository
+                LastBlockRepository lastBlockRepository,
+                final @Value("${etherscanner.ducatusx.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.ducatusx.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.DUCX_TESTNET, lastBlockRepository, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.DUCX_TESTNET, lastBlockRepository, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -70,16 +97,28 @@ public class DucXBCModule {
     public class DucXFilePersisterConfiguration {
         @Bean
         public LastBlockPersister ducXMainnetLastBlockPersister(
-                final @Value("${etherscanner.start-block-dir}") String dir
+                final @Value("${etherscanner.start-block-dir}") String dir,
+                final @Value("${etherscanner.ducatusx.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.ducatusx.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.DUCX_MAINNET, dir, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.DUCX_MAINNET, dir, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister ducXTestnetLastBlockPersister(
-                final @Value("${etherscanner.start-block-dir}") String dir
+                final @Value("${etherscanner.start-block-dir}") String dir,
+                final @Value("${etherscanner.ducatusx.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.ducatusx.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.DUCX_TESTNET, dir, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.DUCX_TESTNET, dir, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -89,14 +128,27 @@ public class DucXBCModule {
             final @Qualifier(NetworkType.DUCX_MAINNET_VALUE) Web3Network network,
             final @Qualifier("ducXMainnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.ducatusx.polling-interval-ms:30000}") Long pollingInterval,
-            final @Value("${etherscanner.commit-chain-length:5}") Integer commitmentChainLength
+            final @Value("${etherscanner.commit-chain-length:5}") Integer commitmentChainLength,
+            final @Value("${etherscanner.ducatusx.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.ducatusx.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.ducatusx.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.ducatusx.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.ducatusx.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.ducatusx.prefetch-batch-size:1}") Integer prefetchBatchSize,
+            final @Value("${etherscanner.ducatusx.new-heads-subscription:false}") Boolean newHeadsSubscription
     ) {
-        return new Web3Scanner(
+        Web3Scanner scanner = new Web3Scanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        scanner.setPrefetchBatchSize(prefetchBatchSize);
+        scanner.setNewHeadsSubscription(newHeadsSubscription);
+        return scanner;
     }
 
     @ConditionalOnBean(name = NetworkType.DUCX_TESTNET_VALUE)
@@ -105,13 +157,26 @@ public class DucXBCModule {
             final @Qualifier(NetworkType.DUCX_TESTNET_VALUE) Web3Network network,
             final @Qualifier("ducXTestnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.ducatusx.polling-interval-ms:30000}") Long pollingInterval,
-            final @Value("${etherscanner.commit-chain-length:5}") Integer commitmentChainLength
+            final @Value("${etherscanner.commit-chain-length:5}") Integer commitmentChainLength,
+            final @Value("${etherscanner.ducatusx.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.ducatusx.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.ducatusx.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.ducatusx.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.ducatusx.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.ducatusx.prefetch-batch-size:1}") Integer prefetchBatchSize,
+            final @Value("${etherscanner.ducatusx.new-heads-subscription:false}") Boolean newHeadsSubscription
     ) {
-        return new Web3Scanner(
+        Web3Scanner scanner = new Web3Scanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        scanner.setPrefetchBatchSize(prefetchBatchSize);
+        scanner.setNewHeadsSubscription(newHeadsSubscription);
+        return scanner;
     }
 }
\ No newline at end of file
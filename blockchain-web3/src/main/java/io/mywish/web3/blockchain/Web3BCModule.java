@@ -2,10 +2,12 @@ package io.mywish.web3.blockchain;
 
 import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.LastBlockRepository;
+import io.mywish.scanner.services.LastBlockBatchPersister;
 import io.mywish.scanner.services.LastBlockDbPersister;
 import io.mywish.scanner.services.LastBlockFilePersister;
 import io.mywish.scanner.services.LastBlockPersister;
 import io.mywish.web3.blockchain.service.Web3Network;
+import io.mywish.web3.blockchain.service.Web3PendingTransactions;
 import io.mywish.web3.blockchain.service.Web3Scanner;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,7 +16,6 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
-import org.web3j.protocol.websocket.WebSocketClient;
 
 import java.net.ConnectException;
 import java.net.URI;
@@ -25,27 +26,41 @@ public class Web3BCModule {
     @ConditionalOnProperty(name = "io.lastwill.eventscan.web3-url.ethereum")
     @Bean(name = NetworkType.ETHEREUM_MAINNET_VALUE)
     public Web3Network ethNetMain(
-            @Value("${io.lastwill.eventscan.web3-url.ethereum}") URI web3Url,
+            @Value("${io.lastwill.eventscan.web3-url.ethereum}") URI[] web3Urls,
             @Value("${etherscanner.polling-interval-ms:5000}") Long pollingInterval,
-            @Value("${etherscanner.eth.pending-transactions-threshold}") int pendingThreshold) throws ConnectException {
-        return new Web3Network(
+            @Value("${etherscanner.eth.pending-transactions-threshold}") int pendingThreshold,
+            @Value("${etherscanner.eth.block-receipts-threshold:0}") int blockReceiptsThreshold,
+            @Value("${etherscanner.eth.pending-mode:FULL}") Web3PendingTransactions.Mode pendingMode,
+            @Value("${etherscanner.eth.endpoint-max-lag:3}") int maxLag) throws ConnectException {
+        Web3Network network = new Web3Network(
                 NetworkType.ETHEREUM_MAINNET,
-                new WebSocketClient(web3Url),
+                Web3Network.toClients(web3Urls),
                 pollingInterval,
-                pendingThreshold);
+                pendingThreshold,
+                maxLag);
+        network.setBlockReceiptsThreshold(blockReceiptsThreshold);
+        network.setPendingMode(pendingMode);
+        return network;
     }
 
     @ConditionalOnProperty(name = "io.lastwill.eventscan.web3-url.ropsten")
     @Bean(name = NetworkType.ETHEREUM_ROPSTEN_VALUE)
     public Web3Network ethNetRopsten(
-            @Value("${io.lastwill.eventscan.web3-url.ropsten}") URI web3Url,
+            @Value("${io.lastwill.eventscan.web3-url.ropsten}") URI[] web3Urls,
             @Value("${etherscanner.polling-interval-ms:5000}") Long pollingInterval,
-            @Value("${etherscanner.eth.pending-transactions-threshold}") int pendingThreshold) throws ConnectException {
-        return new Web3Network(
+            @Value("${etherscanner.eth.pending-transactions-threshold}") int pendingThreshold,
+            @Value("${etherscanner.eth.block-receipts-threshold:0}") int blockReceiptsThreshold,
+            @Value("${etherscanner.eth.pending-mode:FULL}") Web3PendingTransactions.Mode pendingMode,
+            @Value("${etherscanner.eth.endpoint-max-lag:3}") int maxLag) throws ConnectException {
+        Web3Network network = new Web3Network(
                 NetworkType.ETHEREUM_ROPSTEN,
-                new WebSocketClient(web3Url),
+                Web3Network.toClients(web3Urls),
                 pollingInterval,
-                pendingThreshold);
+                pendingThreshold,
+                maxLag);
+        network.setBlockReceiptsThreshold(blockReceiptsThreshold);
+        network.setPendingMode(pendingMode);
+        return network;
     }
 /*
     @ConditionalOnProperty(name = "io.lastwill.eventscan.web3-url.rsk-mainnet")
@@ -71,16 +86,28 @@ public class Web3BCModule {
     public class EthDbPersisterConfiguration {
         @Bean
         public LastBlockPersister ethMainnetLastBlockPersister(
-                LastBlockRepository lastBlockRepository
+                LastBlockRepository lastBlockRepository,
+                final @Value("${etherscanner.ethereum.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.ethereum.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.ETHEREUM_MAINNET, lastBlockRepository, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.ETHEREUM_MAINNET, lastBlockRepository, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister ethRopstenLastBlockPersister(
-                LastBlockRepository lastBlockRepository
+                LastBlockRepository lastBlockRepository,
+                final @Value("${etherscanner.ethereum.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.ethereum.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockDbPersister(NetworkType.ETHEREUM_ROPSTEN, lastBlockRepository, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockDbPersister(NetworkType.ETHEREUM_ROPSTEN, lastBlockRepository, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 
@@ -89,16 +116,28 @@ public class Web3BCModule {
     public class EthFilePersisterConfiguration {
         @Bean
         public LastBlockPersister ethMainnetLastBlockPersister(
-                final @Value("${etherscanner.start-block-dir}") String dir
+                final @Value("${etherscanner.start-block-dir}") String dir,
+                final @Value("${etherscanner.ethereum.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.ethereum.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.ETHEREUM_MAINNET, dir, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.ETHEREUM_MAINNET, dir, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
 
         @Bean
         public LastBlockPersister ethRopstenLastBlockPersister(
-                final @Value("${etherscanner.start-block-dir}") String dir
+                final @Value("${etherscanner.start-block-dir}") String dir,
+                final @Value("${etherscanner.ethereum.last-block.flush-interval-ms:0}") Long flushInterval,
+                final @Value("${etherscanner.ethereum.last-block.max-unsaved-blocks:0}") Integer maxUnsavedBlocks
         ) {
-            return new LastBlockFilePersister(NetworkType.ETHEREUM_ROPSTEN, dir, null);
+            return new LastBlockBatchPersister(
+                    new LastBlockFilePersister(NetworkType.ETHEREUM_ROPSTEN, dir, null),
+                    flushInterval,
+                    maxUnsavedBlocks
+            );
         }
     }
 /*
@@ -145,15 +184,28 @@ public class Web3BCModule {
             final @Qualifier("ethMainnetLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.polling-interval-ms:5000}") Long pollingInterval,
             final @Value("${etherscanner.commit-chain-length:5}") Integer commitmentChainLength,
-            final @Value("${etherscanner.eth.accelerator}") Integer accelerator
+            final @Value("${etherscanner.eth.accelerator}") Integer accelerator,
+            final @Value("${etherscanner.eth.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.eth.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.eth.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.eth.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.eth.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.eth.prefetch-batch-size:1}") Integer prefetchBatchSize,
+            final @Value("${etherscanner.eth.new-heads-subscription:false}") Boolean newHeadsSubscription
     ) {
-        return new Web3Scanner(
+        Web3Scanner scanner = new Web3Scanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength,
                 accelerator
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        scanner.setPrefetchBatchSize(prefetchBatchSize);
+        scanner.setNewHeadsSubscription(newHeadsSubscription);
+        return scanner;
     }
 
     @ConditionalOnBean(name = NetworkType.ETHEREUM_ROPSTEN_VALUE)
@@ -163,15 +215,28 @@ public class Web3BCModule {
             final @Qualifier("ethRopstenLastBlockPersister") LastBlockPersister lastBlockPersister,
             final @Value("${etherscanner.polling-interval-ms:5000}") Long pollingInterval,
             final @Value("${etherscanner.commit-chain-length:5}") Integer commitmentChainLength,
-            final @Value("${etherscanner.eth.accelerator}") Integer accelerator
+            final @Value("${etherscanner.eth.accelerator}") Integer accelerator,
+            final @Value("${etherscanner.eth.prefetch-window:0}") Integer prefetchWindow,
+            final @Value("${etherscanner.eth.prefetch-in-flight:1}") Integer prefetchInFlight,
+            final @Value("${etherscanner.eth.polling-min-interval-ms:0}") Long pollingMinInterval,
+            final @Value("${etherscanner.eth.polling-max-interval-ms:0}") Long pollingMaxInterval,
+            final @Value("${etherscanner.eth.reorg-tracking-depth:0}") Integer reorgTrackingDepth,
+            final @Value("${etherscanner.eth.prefetch-batch-size:1}") Integer prefetchBatchSize,
+            final @Value("${etherscanner.eth.new-heads-subscription:false}") Boolean newHeadsSubscription
     ) {
-        return new Web3Scanner(
+        Web3Scanner scanner = new Web3Scanner(
                 network,
                 lastBlockPersister,
                 pollingInterval,
                 commitmentChainLength,
                 accelerator
         );
+        scanner.setPrefetch(prefetchWindow, prefetchInFlight);
+        scanner.setAdaptivePolling(pollingMinInterval, pollingMaxInterval);
+        scanner.setReorgTracking(reorgTrackingDepth);
+        scanner.setPrefetchBatchSize(prefetchBatchSize);
+        scanner.setNewHeadsSubscription(newHeadsSubscription);
+        return scanner;
     }
 /*
     @ConditionalOnBean(name = NetworkType.RSK_MAINNET_VALUE)
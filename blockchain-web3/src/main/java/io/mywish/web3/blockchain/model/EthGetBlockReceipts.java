@@ -0,0 +1,12 @@
+package io.mywish.web3.blockchain.model;
+
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.util.List;
+
+/**
+ * Response of eth_getBlockReceipts and parity_getBlockReceipts.
+ */
+public class EthGetBlockReceipts extends Response<List<TransactionReceipt>> {
+}
@@ -0,0 +1,11 @@
+package io.mywish.web3.blockchain.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.web3j.protocol.websocket.events.Notification;
+
+/**
+ * Notification of newPendingTransactions subscription with the full transactions flag.
+ * The result is kept as JSON, because nodes which do not support the flag send hashes.
+ */
+public class FullPendingTransactionNotification extends Notification<JsonNode> {
+}
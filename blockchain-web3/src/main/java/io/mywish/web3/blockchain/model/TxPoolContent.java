@@ -0,0 +1,21 @@
+package io.mywish.web3.blockchain.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Getter;
+import lombok.Setter;
+import org.web3j.protocol.core.Response;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Response of txpool_content, transactions are grouped by sender and nonce.
+ */
+public class TxPoolContent extends Response<TxPoolContent.Result> {
+    @Getter
+    @Setter
+    public static class Result {
+        private Map<String, Map<String, JsonNode>> pending = Collections.emptyMap();
+        private Map<String, Map<String, JsonNode>> queued = Collections.emptyMap();
+    }
+}
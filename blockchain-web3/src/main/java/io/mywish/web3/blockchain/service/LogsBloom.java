@@ -0,0 +1,32 @@
+package io.mywish.web3.blockchain.service;
+
+import org.ethereum.crypto.HashUtil;
+
+/**
+ * Checks values against the 2048 bit logs bloom of a block.
+ * Address of each log and each of its topics are added to the bloom, so absence of a value means
+ * there is no log with it in the block.
+ */
+public final class LogsBloom {
+    private final static int BLOOM_BYTES = 256;
+
+    private LogsBloom() {
+    }
+
+    /**
+     * Returns false if the value is definitely absent in the bloom. If the bloom is unknown, returns true.
+     */
+    public static boolean mayContain(byte[] bloom, byte[] value) {
+        if (bloom == null || bloom.length != BLOOM_BYTES) {
+            return true;
+        }
+        byte[] hash = HashUtil.sha3(value);
+        for (int i = 0; i < 6; i += 2) {
+            int bit = (((hash[i] & 0xff) << 8) | (hash[i + 1] & 0xff)) & 2047;
+            if ((bloom[BLOOM_BYTES - 1 - bit / 8] & (1 << (bit % 8))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
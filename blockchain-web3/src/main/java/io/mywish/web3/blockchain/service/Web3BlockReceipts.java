@@ -0,0 +1,214 @@
+package io.mywish.web3.blockchain.service;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.blockchain.WrapperTransactionReceipt;
+import io.mywish.web3.blockchain.model.EthGetBlockReceipts;
+import lombok.extern.slf4j.Slf4j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Loads all the receipts of a block by one request, when more than threshold receipts of the block are requested
+ * by one call. The receipts are built once and kept while the block is one of the recent blocks.
+ * Blocks are tracked by hash: the block replaced at its height or rolled back is forgotten.
+ * If the node supports neither eth_getBlockReceipts nor parity_getBlockReceipts, the receipts are requested one by one.
+ */
+@Slf4j
+class Web3BlockReceipts {
+    private final static int MAX_BLOCKS = 64;
+    private final static int METHOD_NOT_FOUND = -32601;
+    private final static List<String> METHODS = Arrays.asList("eth_getBlockReceipts", "parity_getBlockReceipts");
+
+    private final NetworkType type;
+    private final Web3jService web3jService;
+    private final Function<TransactionReceipt, WrapperTransactionReceipt> receiptBuilder;
+    private final int threshold;
+    private volatile int methodIndex = 0;
+
+    private final Map<String, BlockState> blockByTx = new HashMap<>();
+    private final LinkedHashMap<String, BlockState> blocks = new LinkedHashMap<>();
+    private final Map<Long, BlockState> blockByNumber = new HashMap<>();
+
+    Web3BlockReceipts(
+            NetworkType type,
+            Web3jService web3jService,
+            Function<TransactionReceipt, WrapperTransactionReceipt> receiptBuilder,
+            int threshold
+    ) {
+        this.type = type;
+        this.web3jService = web3jService;
+        this.receiptBuilder = receiptBuilder;
+        this.threshold = threshold;
+    }
+
+    boolean isEnabled() {
+        return threshold > 0 && methodIndex < METHODS.size();
+    }
+
+    /**
+     * Remembers transactions of the fetched block.
+     */
+    synchronized void register(WrapperBlock block) {
+        if (!isEnabled() || block.getHash() == null || blocks.containsKey(block.getHash())) {
+            return;
+        }
+        BlockState replaced = blockByNumber.get(block.getNumber());
+        if (replaced != null) {
+            remove(replaced);
+        }
+        BlockState state = new BlockState(block.getNumber(), block.getHash());
+        blocks.put(state.hash, state);
+        blockByNumber.put(state.number, state);
+        for (WrapperTransaction transaction : block.getTransactions()) {
+            state.hashes.add(transaction.getHash());
+            blockByTx.put(transaction.getHash(), state);
+        }
+        Iterator<BlockState> iterator = blocks.values().iterator();
+        while (blocks.size() > MAX_BLOCKS) {
+            BlockState eldest = iterator.next();
+            iterator.remove();
+            forget(eldest);
+        }
+    }
+
+    /**
+     * Forgets the rolled back blocks, so their receipts are not returned.
+     */
+    synchronized void rollback(List<WrapperBlock> rolledBackBlocks) {
+        for (WrapperBlock block : rolledBackBlocks) {
+            BlockState state = block.getHash() == null ? null : blocks.get(block.getHash());
+            if (state != null) {
+                remove(state);
+            }
+        }
+    }
+
+    private void remove(BlockState state) {
+        blocks.remove(state.hash);
+        forget(state);
+    }
+
+    private void forget(BlockState state) {
+        blockByNumber.remove(state.number, state);
+        state.hashes.forEach(hash -> blockByTx.remove(hash, state));
+    }
+
+    /**
+     * Returns receipts which are got from the whole block responses.
+     * The transactions which are absent in the result must be requested one by one.
+     */
+    Map<String, WrapperTransactionReceipt> find(List<WrapperTransaction> transactions) {
+        if (!isEnabled()) {
+            return Collections.emptyMap();
+        }
+        List<BlockState> toLoad = new ArrayList<>();
+        List<CompletableFuture<Map<String, WrapperTransactionReceipt>>> futures = new ArrayList<>();
+        synchronized (this) {
+            Map<BlockState, Integer> requested = new HashMap<>();
+            for (WrapperTransaction transaction : transactions) {
+                BlockState state = blockByTx.get(transaction.getHash());
+                if (state != null) {
+                    requested.merge(state, 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<BlockState, Integer> entry : requested.entrySet()) {
+                BlockState state = entry.getKey();
+                if (state.receipts == null && entry.getValue() > threshold) {
+                    state.receipts = new CompletableFuture<>();
+                    toLoad.add(state);
+                }
+                if (state.receipts != null) {
+                    futures.add(state.receipts);
+                }
+            }
+        }
+
+        for (BlockState state : toLoad) {
+            try {
+                state.receipts.complete(load(state.number, state.hash));
+            }
+            catch (Exception e) {
+                log.warn("{}: impossible to get receipts of block {}, request them one by one.", type, state.number, e);
+                state.receipts.complete(Collections.emptyMap());
+            }
+        }
+
+        Map<String, WrapperTransactionReceipt> result = new HashMap<>();
+        for (CompletableFuture<Map<String, WrapperTransactionReceipt>> future : futures) {
+            Map<String, WrapperTransactionReceipt> receipts = future.join();
+            for (WrapperTransaction transaction : transactions) {
+                WrapperTransactionReceipt receipt = receipts.get(transaction.getHash());
+                if (receipt != null) {
+                    result.put(transaction.getHash(), receipt);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads receipts of the block by number. Receipts of another block at the height are skipped,
+     * so the transactions are requested one by one if the block was replaced meanwhile.
+     */
+    private Map<String, WrapperTransactionReceipt> load(long blockNo, String blockHash) throws IOException {
+        while (methodIndex < METHODS.size()) {
+            String method = METHODS.get(methodIndex);
+            EthGetBlockReceipts response = new Request<>(
+                    method,
+                    Collections.singletonList(Numeric.encodeQuantity(BigInteger.valueOf(blockNo))),
+                    web3jService,
+                    EthGetBlockReceipts.class
+            ).send();
+            if (response.hasError()) {
+                if (response.getError().getCode() == METHOD_NOT_FOUND) {
+                    log.warn("{}: {} is not supported by node.", type, method);
+                    methodIndex++;
+                    continue;
+                }
+                throw new IOException(method + " failed: " + response.getError().getMessage());
+            }
+            if (response.getResult() == null) {
+                throw new IOException(method + " returned no receipts for block " + blockNo);
+            }
+            Map<String, WrapperTransactionReceipt> receipts = new HashMap<>();
+            for (TransactionReceipt receipt : response.getResult()) {
+                if (receipt.getBlockHash() != null && !blockHash.equalsIgnoreCase(receipt.getBlockHash())) {
+                    continue;
+                }
+                receipts.put(receipt.getTransactionHash(), receiptBuilder.apply(receipt));
+            }
+            log.debug("{}: {} receipts of block {} loaded by {}.", type, receipts.size(), blockNo, method);
+            return receipts;
+        }
+        return Collections.emptyMap();
+    }
+
+    private static class BlockState {
+        private final long number;
+        private final String hash;
+        private final List<String> hashes = new ArrayList<>();
+        private CompletableFuture<Map<String, WrapperTransactionReceipt>> receipts;
+
+        private BlockState(long number, String hash) {
+            this.number = number;
+            this.hash = hash;
+        }
+    }
+}
@@ -2,36 +2,63 @@ package io.mywish.web3.blockchain.service;
 
 import io.lastwill.eventscan.model.NetworkType;
 import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.RpcRouter;
 import io.mywish.blockchain.WrapperNetwork;
 import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.blockchain.WrapperTransactionReceipt;
+import io.mywish.scanner.model.BlockRollbackEvent;
+import io.mywish.scanner.services.WatchedAddressFilter;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.functions.Consumer;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.java_websocket.exceptions.WebsocketNotConnectedException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
 import org.web3j.protocol.core.DefaultBlockParameterNumber;
 import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.response.EthBlock;
-import org.web3j.protocol.core.methods.response.Transaction;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
 import org.web3j.protocol.websocket.WebSocketClient;
 import org.web3j.protocol.websocket.WebSocketService;
 import org.web3j.utils.Async;
+import org.web3j.utils.Numeric;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
 import java.math.BigInteger;
 import java.net.ConnectException;
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 
 @Slf4j
 public class Web3Network extends WrapperNetwork {
+    /**
+     * Methods which answer null result if the node does not have the block yet.
+     */
+    private final static Set<String> BLOCK_METHODS = new HashSet<>(Arrays.asList(
+            "eth_getBlockByNumber",
+            "eth_getBlockByHash",
+            "eth_getTransactionReceipt",
+            "eth_getBlockReceipts",
+            "parity_getBlockReceipts"
+    ));
+
     private final WebSocketClient webSocketClient;
+    private final WebSocketService webSocketService;
+    private final Web3jService requestService;
     private final Web3j web3j;
 
     @Autowired
@@ -43,55 +70,224 @@ public class Web3Network extends WrapperNetwork {
     @Autowired
     private WrapperTransactionReceiptWeb3Service transactionReceiptBuilder;
 
+    @Autowired(required = false)
+    private List<WatchedAddressFilter> watchedAddressFilters = Collections.emptyList();
+
     private final int pendingThreshold;
 
-    private final BlockingQueue<Transaction> pendingTransactions = new LinkedBlockingQueue<>();
-    private Disposable subscription;
+    private Web3PendingTransactions.Mode pendingMode = Web3PendingTransactions.Mode.FULL;
+    @Getter
+    private Web3PendingTransactions pendingTransactions;
+    private volatile LongConsumer newHeadsListener;
+    private Disposable newHeadsSubscription;
+    private int blockReceiptsThreshold = 0;
+    private Web3BlockReceipts blockReceipts;
 
     public Web3Network(NetworkType type, WebSocketClient webSocketClient, long pollingInterval, int pendingThreshold)
             throws ConnectException {
+        this(type, Collections.singletonList(webSocketClient), pollingInterval, pendingThreshold, 0);
+    }
+
+    /**
+     * Requests are routed to the best of the nodes, the nodes which lag behind by more than maxLag blocks are skipped.
+     * Subscriptions go to the first node.
+     */
+    public Web3Network(NetworkType type, List<WebSocketClient> webSocketClients, long pollingInterval, int pendingThreshold, int maxLag)
+            throws ConnectException {
         super(type);
-        this.webSocketClient = webSocketClient;
-        WebSocketService webSocketService = new WebSocketService(webSocketClient, false);
+        this.webSocketClient = webSocketClients.get(0);
+        this.webSocketService = new WebSocketService(webSocketClient, false);
         webSocketService.connect();
-        this.web3j = Web3j.build(webSocketService, pollingInterval, Async.defaultExecutorService());
+
+        Map<Web3jService, WebSocketClient> clients = new IdentityHashMap<>();
+        List<RpcRouter.Endpoint<Web3jService>> endpoints = new ArrayList<>();
+        clients.put(webSocketService, webSocketClient);
+        endpoints.add(new RpcRouter.Endpoint<>(getEndpointName(webSocketClient), webSocketService));
+        for (WebSocketClient client : webSocketClients.subList(1, webSocketClients.size())) {
+            WebSocketService service = new WebSocketService(client, false);
+            try {
+                service.connect();
+            } catch (ConnectException e) {
+                log.warn("{}: impossible to connect to {}, it will be reconnected later.", type, getEndpointName(client), e);
+            }
+            clients.put(service, client);
+            endpoints.add(new RpcRouter.Endpoint<>(getEndpointName(client), service));
+        }
+        this.requestService = RpcRouter.route(
+                type.name(),
+                Web3jService.class,
+                endpoints,
+                service -> getHead(service, clients.get(service)),
+                maxLag,
+                Web3Network::isEmpty,
+                "subscribe",
+                "close"
+        );
+        this.web3j = Web3j.build(requestService, pollingInterval, Async.defaultExecutorService());
         this.pendingThreshold = pendingThreshold;
     }
 
+    /**
+     * If more than threshold receipts of a recent block are requested, all the receipts of the block are loaded
+     * by one eth_getBlockReceipts or parity_getBlockReceipts request. 0 disables it.
+     */
+    public void setBlockReceiptsThreshold(int threshold) {
+        this.blockReceiptsThreshold = threshold;
+    }
+
+    /**
+     * The way pending transactions are received, if the node does not support it, the next mode is used.
+     */
+    public void setPendingMode(Web3PendingTransactions.Mode mode) {
+        this.pendingMode = mode;
+    }
+
     @PostConstruct
     private void init() {
+        blockReceipts = new Web3BlockReceipts(
+                getType(),
+                requestService,
+                transactionReceiptBuilder::build,
+                blockReceiptsThreshold
+        );
         if (pendingThreshold > 0) {
+            pendingTransactions = new Web3PendingTransactions(
+                    getType(),
+                    web3j,
+                    webSocketService,
+                    transactionBuilder::build,
+                    WatchedAddressFilter.anyOf(watchedAddressFilters),
+                    pendingThreshold,
+                    pendingMode
+            );
             log.info("Subscribe to pending transactions.");
             subscribePendingTransactions();
         }
     }
 
+    /**
+     * Clients of the comma separated node URLs.
+     */
+    public static List<WebSocketClient> toClients(URI[] urls) {
+        List<WebSocketClient> clients = new ArrayList<>(urls.length);
+        for (URI url : urls) {
+            clients.add(new WebSocketClient(url));
+        }
+        return clients;
+    }
+
+    private static String getEndpointName(WebSocketClient client) {
+        return client.getURI().getHost() + ":" + client.getURI().getPort();
+    }
+
+    /**
+     * The block or receipt which the node does not know yet is requested from the other nodes.
+     */
+    private static boolean isEmpty(Method method, Object[] args, Object result) {
+        if (result == null) {
+            return true;
+        }
+        return args != null
+                && args.length > 0
+                && args[0] instanceof Request
+                && BLOCK_METHODS.contains(((Request<?, ?>) args[0]).getMethod())
+                && result instanceof Response
+                && ((Response<?>) result).getResult() == null;
+    }
+
+    /**
+     * Head probe of the router, it also restores the dropped connections.
+     */
+    private long getHead(Web3jService service, WebSocketClient client) throws Exception {
+        if (reconnect(client) && client == webSocketClient) {
+            subscribePendingTransactions();
+        }
+        return new Request<>("eth_blockNumber", Collections.<String>emptyList(), service, EthBlockNumber.class)
+                .send()
+                .getBlockNumber()
+                .longValue();
+    }
+
+    /**
+     * @return true if the connection was dropped and is restored.
+     */
+    private static boolean reconnect(WebSocketClient client) throws InterruptedException {
+        synchronized (client) {
+            if (client.isOpen()) {
+                return false;
+            }
+            return client.reconnectBlocking();
+        }
+    }
+
     private void subscribePendingTransactions() {
-        subscription = web3j
-                .pendingTransactionFlowable()
-                .subscribe(pendingTransactions::add);
+        if (pendingTransactions != null) {
+            pendingTransactions.subscribe();
+        }
+    }
+
+    /**
+     * Subscribes to new heads notifications. The listener receives the number of the new head.
+     * If the subscription drops, it is restored on the next call to the node.
+     */
+    public void subscribeNewHeads(LongConsumer listener) {
+        newHeadsListener = listener;
+        resubscribeNewHeads();
+    }
+
+    public boolean isNewHeadsSubscribed() {
+        Disposable current = newHeadsSubscription;
+        return current != null && !current.isDisposed();
+    }
+
+    private synchronized void resubscribeNewHeads() {
+        if (newHeadsListener == null || isNewHeadsSubscribed()) {
+            return;
+        }
+        try {
+            newHeadsSubscription = web3j
+                    .newHeadsNotifications()
+                    .subscribe(
+                            notification -> newHeadsListener.accept(
+                                    Numeric.decodeQuantity(notification.getParams().getResult().getNumber()).longValue()
+                            ),
+                            throwable -> log.warn("{}: new heads subscription dropped, fallback to polling.", getType(), throwable)
+                    );
+            log.info("{}: subscribed to new heads.", getType());
+        }
+        catch (Exception e) {
+            log.warn("{}: impossible to subscribe to new heads, fallback to polling.", getType(), e);
+        }
     }
 
     @PreDestroy
     private void close() {
-        if (subscription == null) {
-            return;
+        newHeadsListener = null;
+        if (newHeadsSubscription != null && !newHeadsSubscription.isDisposed()) {
+            newHeadsSubscription.dispose();
         }
-        if (subscription.isDisposed()) {
-            return;
+        if (pendingTransactions != null) {
+            pendingTransactions.unsubscribe();
+            web3j.shutdown();
+        }
+        RpcRouter.close(requestService);
+    }
+
+    @EventListener
+    private void onBlockRollback(BlockRollbackEvent event) {
+        if (event.getNetworkType() == getType() && blockReceipts != null) {
+            blockReceipts.rollback(event.getRolledBackBlocks());
         }
-        subscription.dispose();
-        subscription = null;
-        web3j.shutdown();
     }
 
     @Override
     public Long getLastBlock() throws Exception {
+        resubscribeNewHeads();
         try {
             return web3j.ethBlockNumber().send().getBlockNumber().longValue();
         } catch (WebsocketNotConnectedException e) {
             log.error("Error in pending tx subscription. Reconnecting");
-            webSocketClient.reconnectBlocking();
+            reconnect(webSocketClient);
             subscribePendingTransactions();
             return getLastBlock();
         }
@@ -103,7 +299,7 @@ public class Web3Network extends WrapperNetwork {
             return blockBuilder.build(web3j.ethGetBlockByHash(hash, false).send().getBlock());
         } catch (WebsocketNotConnectedException e) {
             log.error("Error in pending tx subscription. Reconnecting");
-            webSocketClient.reconnectBlocking();
+            reconnect(webSocketClient);
             subscribePendingTransactions();
             return getBlock(hash);
         }
@@ -114,10 +310,12 @@ public class Web3Network extends WrapperNetwork {
         try {
             Request<?, EthBlock> ethBlockRequest = web3j.ethGetBlockByNumber(
                     new DefaultBlockParameterNumber(number), true);
-            return blockBuilder.build(ethBlockRequest.send().getBlock());
+            WrapperBlock block = blockBuilder.build(ethBlockRequest.send().getBlock());
+            blockReceipts.register(block);
+            return block;
         } catch (WebsocketNotConnectedException e) {
             log.error("Error in pending tx subscription. Reconnecting");
-            webSocketClient.reconnectBlocking();
+            reconnect(webSocketClient);
             subscribePendingTransactions();
             return getBlock(number);
         }
@@ -132,7 +330,7 @@ public class Web3Network extends WrapperNetwork {
                     .getBalance();
         } catch (WebsocketNotConnectedException e) {
             log.error("Error in pending tx subscription. Reconnecting");
-            webSocketClient.reconnectBlocking();
+            reconnect(webSocketClient);
             subscribePendingTransactions();
             return getBalance(address, blockNo);
         }
@@ -140,6 +338,12 @@ public class Web3Network extends WrapperNetwork {
 
     @Override
     public WrapperTransactionReceipt getTxReceipt(WrapperTransaction transaction) throws Exception {
+        WrapperTransactionReceipt blockReceipt = blockReceipts
+                .find(Collections.singletonList(transaction))
+                .get(transaction.getHash());
+        if (blockReceipt != null) {
+            return blockReceipt;
+        }
         try {
             return transactionReceiptBuilder.build(
                     web3j
@@ -149,12 +353,62 @@ public class Web3Network extends WrapperNetwork {
             );
         } catch (WebsocketNotConnectedException e) {
             log.error("Error in pending tx subscription. Reconnecting");
-            webSocketClient.reconnectBlocking();
+            reconnect(webSocketClient);
             subscribePendingTransactions();
             return getTxReceipt(transaction);
         }
     }
 
+    /**
+     * All the requests are sent at once through the websocket connection and the responses are collected
+     * as they come, so the batch costs about one round trip.
+     */
+    @Override
+    public List<WrapperBlock> getBlocks(long fromNumber, long toNumber) throws Exception {
+        try {
+            List<CompletableFuture<WrapperBlock>> futures = new ArrayList<>();
+            for (long number = fromNumber; number <= toNumber; number++) {
+                futures.add(web3j
+                        .ethGetBlockByNumber(new DefaultBlockParameterNumber(number), true)
+                        .sendAsync()
+                        .thenApply(ethBlock -> blockBuilder.build(ethBlock.getBlock())));
+            }
+            List<WrapperBlock> blocks = joinAll(futures);
+            blocks.forEach(blockReceipts::register);
+            return blocks;
+        } catch (WebsocketNotConnectedException e) {
+            log.error("Error in pending tx subscription. Reconnecting");
+            reconnect(webSocketClient);
+            subscribePendingTransactions();
+            return getBlocks(fromNumber, toNumber);
+        }
+    }
+
+    @Override
+    public List<WrapperTransactionReceipt> getTxReceipts(List<WrapperTransaction> transactions) throws Exception {
+        Map<String, WrapperTransactionReceipt> blockReceiptsByHash = blockReceipts.find(transactions);
+        try {
+            List<CompletableFuture<WrapperTransactionReceipt>> futures = new ArrayList<>(transactions.size());
+            for (WrapperTransaction transaction : transactions) {
+                WrapperTransactionReceipt blockReceipt = blockReceiptsByHash.get(transaction.getHash());
+                if (blockReceipt != null) {
+                    futures.add(CompletableFuture.completedFuture(blockReceipt));
+                    continue;
+                }
+                futures.add(web3j
+                        .ethGetTransactionReceipt(transaction.getHash())
+                        .sendAsync()
+                        .thenApply(receipt -> transactionReceiptBuilder.build(receipt.getResult())));
+            }
+            return joinAll(futures);
+        } catch (WebsocketNotConnectedException e) {
+            log.error("Error in pending tx subscription. Reconnecting");
+            reconnect(webSocketClient);
+            subscribePendingTransactions();
+            return getTxReceipts(transactions);
+        }
+    }
+
     @Override
     public boolean isPendingTransactionsSupported() {
         return true;
@@ -162,14 +416,16 @@ public class Web3Network extends WrapperNetwork {
 
     @Override
     public List<WrapperTransaction> fetchPendingTransactions() throws Exception {
-        if (pendingTransactions.isEmpty()) {
+        if (pendingTransactions == null) {
             return Collections.emptyList();
         }
-        ArrayList<WrapperTransaction> result = new ArrayList<>(pendingTransactions.size() + 3);
-        while (!pendingTransactions.isEmpty()) {
-            Transaction transaction = pendingTransactions.remove();
-            result.add(transactionBuilder.build(transaction));
+        try {
+            return pendingTransactions.fetch();
+        } catch (WebsocketNotConnectedException e) {
+            log.error("Error in pending tx subscription. Reconnecting");
+            reconnect(webSocketClient);
+            subscribePendingTransactions();
+            return fetchPendingTransactions();
         }
-        return result;
     }
 }
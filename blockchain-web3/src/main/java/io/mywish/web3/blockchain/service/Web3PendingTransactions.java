@@ -0,0 +1,310 @@
+package io.mywish.web3.blockchain.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.scanner.services.WatchedAddressFilter;
+import io.mywish.web3.blockchain.model.FullPendingTransactionNotification;
+import io.mywish.web3.blockchain.model.TxPoolContent;
+import io.reactivex.disposables.Disposable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthSubscribe;
+import org.web3j.protocol.core.methods.response.Transaction;
+import org.web3j.protocol.websocket.WebSocketService;
+import org.web3j.protocol.websocket.events.PendingTransactionNotification;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Receives pending transactions of the node into the bounded queue.
+ * In FULL mode the transactions come by newPendingTransactions subscription with the full transactions flag,
+ * in TXPOOL mode txpool_content is requested on each fetch and compared with the previous one,
+ * in HASHES mode the transactions are requested one by one by hashes from newPendingTransactions subscription.
+ * If the node does not support the mode, the next one is used.
+ * Transactions which touch none of the watched addresses are skipped before wrappers are built,
+ * transactions which do not fit the queue are dropped and counted.
+ */
+@Slf4j
+public class Web3PendingTransactions {
+    public enum Mode {
+        FULL,
+        TXPOOL,
+        HASHES
+    }
+
+    private final static int METHOD_NOT_FOUND = -32601;
+    private final static ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private final NetworkType type;
+    private final Web3j web3j;
+    private final WebSocketService webSocketService;
+    private final Function<Transaction, WrapperTransaction> transactionBuilder;
+    private final WatchedAddressFilter filter;
+    private final BlockingQueue<Transaction> queue;
+    @Getter
+    private final int capacity;
+    @Getter
+    private volatile Mode mode;
+
+    private Disposable subscription;
+    private volatile boolean delivered;
+    private Set<String> poolHashes = Collections.emptySet();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped;
+
+    Web3PendingTransactions(
+            NetworkType type,
+            Web3j web3j,
+            WebSocketService webSocketService,
+            Function<Transaction, WrapperTransaction> transactionBuilder,
+            WatchedAddressFilter filter,
+            int capacity,
+            Mode mode
+    ) {
+        this.type = type;
+        this.web3j = web3j;
+        this.webSocketService = webSocketService;
+        this.transactionBuilder = transactionBuilder;
+        this.filter = filter;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.mode = mode;
+    }
+
+    /**
+     * Subscribes according to the mode, the previous subscription is disposed.
+     */
+    synchronized void subscribe() {
+        unsubscribe();
+        delivered = false;
+        try {
+            switch (mode) {
+                case FULL:
+                    subscribeFull();
+                    break;
+                case HASHES:
+                    subscribeHashes();
+                    break;
+                default:
+                    // txpool is requested on fetch
+            }
+            log.info("{}: subscribed to pending transactions, mode {}.", type, mode);
+        }
+        catch (Exception e) {
+            log.warn("{}: impossible to subscribe to pending transactions.", type, e);
+        }
+    }
+
+    synchronized void unsubscribe() {
+        if (subscription != null && !subscription.isDisposed()) {
+            subscription.dispose();
+        }
+        subscription = null;
+    }
+
+    /**
+     * Returns wrappers of the transactions received since the previous call.
+     */
+    List<WrapperTransaction> fetch() throws IOException {
+        if (mode == Mode.TXPOOL) {
+            pollPool();
+        }
+        long droppedNow = dropped.get();
+        if (droppedNow > reportedDropped) {
+            log.warn("{}: {} pending transactions dropped, the queue of {} is full.",
+                    type, droppedNow - reportedDropped, capacity);
+            reportedDropped = droppedNow;
+        }
+        if (queue.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Transaction> transactions = new ArrayList<>(queue.size());
+        queue.drainTo(transactions);
+        List<WrapperTransaction> result = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            result.add(transactionBuilder.apply(transaction));
+        }
+        return result;
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    private void subscribeFull() {
+        subscription = webSocketService
+                .subscribe(
+                        new Request<>(
+                                "eth_subscribe",
+                                Arrays.asList("newPendingTransactions", true),
+                                webSocketService,
+                                EthSubscribe.class
+                        ),
+                        "eth_unsubscribe",
+                        FullPendingTransactionNotification.class
+                )
+                .subscribe(
+                        notification -> {
+                            JsonNode result = notification.getParams().getResult();
+                            if (result.isTextual()) {
+                                fallback(Mode.FULL, "node sends hashes only");
+                                return;
+                            }
+                            delivered = true;
+                            offer(result);
+                        },
+                        throwable -> onError(Mode.FULL, throwable)
+                );
+    }
+
+    private void subscribeHashes() {
+        subscription = webSocketService
+                .subscribe(
+                        new Request<>(
+                                "eth_subscribe",
+                                Collections.singletonList("newPendingTransactions"),
+                                webSocketService,
+                                EthSubscribe.class
+                        ),
+                        "eth_unsubscribe",
+                        PendingTransactionNotification.class
+                )
+                .subscribe(
+                        notification -> {
+                            delivered = true;
+                            received.incrementAndGet();
+                            if (queue.remainingCapacity() == 0) {
+                                dropped.incrementAndGet();
+                                return;
+                            }
+                            web3j.ethGetTransactionByHash(notification.getParams().getResult())
+                                    .sendAsync()
+                                    .thenAccept(response -> response.getTransaction().ifPresent(this::offer))
+                                    .exceptionally(e -> {
+                                        log.debug("{}: impossible to get pending transaction.", type, e);
+                                        return null;
+                                    });
+                        },
+                        throwable -> onError(Mode.HASHES, throwable)
+                );
+    }
+
+    private void pollPool() throws IOException {
+        TxPoolContent response = new Request<>(
+                "txpool_content",
+                Collections.emptyList(),
+                webSocketService,
+                TxPoolContent.class
+        ).send();
+        if (response.hasError()) {
+            if (response.getError().getCode() == METHOD_NOT_FOUND) {
+                fallback(Mode.TXPOOL, response.getError().getMessage());
+                return;
+            }
+            throw new IOException("txpool_content failed: " + response.getError().getMessage());
+        }
+        if (response.getResult() == null || response.getResult().getPending() == null) {
+            return;
+        }
+        Set<String> hashes = new HashSet<>(poolHashes.size() + 16);
+        for (Map<String, JsonNode> byNonce : response.getResult().getPending().values()) {
+            for (JsonNode transaction : byNonce.values()) {
+                String hash = transaction.path("hash").asText(null);
+                if (hash == null) {
+                    continue;
+                }
+                hashes.add(hash);
+                if (!poolHashes.contains(hash)) {
+                    offer(transaction);
+                }
+            }
+        }
+        poolHashes = hashes;
+    }
+
+    private void offer(JsonNode transaction) {
+        received.incrementAndGet();
+        if (!isWatched(transaction.path("from").asText(null), transaction.path("to").asText(null))) {
+            skipped.incrementAndGet();
+            return;
+        }
+        try {
+            enqueue(objectMapper.treeToValue(transaction, Transaction.class));
+        }
+        catch (IOException e) {
+            log.warn("{}: wrong pending transaction {}.", type, transaction.path("hash").asText(), e);
+        }
+    }
+
+    private void offer(Transaction transaction) {
+        if (!isWatched(transaction.getFrom(), transaction.getTo())) {
+            skipped.incrementAndGet();
+            return;
+        }
+        enqueue(transaction);
+    }
+
+    private void enqueue(Transaction transaction) {
+        if (!queue.offer(transaction)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private boolean isWatched(String from, String to) {
+        return filter == null
+                || filter.isWatched(type, to)
+                || filter.isWatched(type, from);
+    }
+
+    /**
+     * Subscription which fails before any notification is considered unsupported by the node.
+     * Otherwise the connection is dropped and the subscription is restored on reconnect.
+     */
+    private void onError(Mode failed, Throwable throwable) {
+        if (!delivered && failed != Mode.HASHES) {
+            fallback(failed, throwable.getMessage());
+            return;
+        }
+        log.warn("{}: pending transactions subscription dropped.", type, throwable);
+    }
+
+    private synchronized void fallback(Mode failed, String reason) {
+        if (mode != failed) {
+            return;
+        }
+        mode = failed == Mode.FULL ? Mode.TXPOOL : Mode.HASHES;
+        log.warn("{}: pending transactions mode {} is not supported by node ({}), use {}.", type, failed, reason, mode);
+        subscribe();
+    }
+}
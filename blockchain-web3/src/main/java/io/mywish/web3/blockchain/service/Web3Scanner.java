@@ -4,14 +4,17 @@ import io.mywish.blockchain.WrapperBlock;
 import io.mywish.blockchain.WrapperOutput;
 import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.blockchain.WrapperTransactionReceipt;
+import io.mywish.scanner.model.BlockAddressIndex;
 import io.mywish.scanner.model.NewBlockEvent;
 import io.mywish.scanner.services.LastBlockPersister;
 import io.mywish.scanner.services.ScannerPolling;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.MultiValueMap;
 
-import java.util.HashMap;
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
 
 @Slf4j
 public class Web3Scanner extends ScannerPolling {
@@ -23,49 +26,96 @@ public class Web3Scanner extends ScannerPolling {
         super(network, lastBlockPersister, pollingInterval, commitmentChainLength);
     }
 
+    /**
+     * If true, the scanner does not wait polling interval when the node notifies about new head.
+     * Polling is still used when the subscription is not available.
+     */
+    @Getter
+    @Setter
+    private boolean newHeadsSubscription = false;
+
+    @PostConstruct
+    @Override
+    protected void open() throws Exception {
+        super.open();
+        if (newHeadsSubscription) {
+            ((Web3Network) network).subscribeNewHeads(this::onNewHead);
+        }
+    }
+
+    private void onNewHead(long blockNo) {
+        log.debug("{}: new head {} notified.", network.getType(), blockNo);
+        wakeUp();
+    }
+
     @Override
     protected void processBlock(WrapperBlock block) {
         log.info("{}: new block received {} ({})", network.getType(), block.getNumber(), block.getHash());
 
-        MultiValueMap<String, WrapperTransaction> addressTransactions = CollectionUtils.toMultiValueMap(new HashMap<>());
+        List<WrapperTransaction> transactions = block.getTransactions();
+        BlockAddressIndex.Builder addressTransactions = BlockAddressIndex.builder(
+                transactions,
+                BlockAddressIndex.AddressFormat.EVM
+        );
+        List<Integer> withoutCreates = new ArrayList<>();
+
+        for (int position = 0; position < transactions.size(); position++) {
+            WrapperTransaction transaction = transactions.get(position);
+            String from = transaction.getInputs().get(0);
+            WrapperOutput to = transaction.getOutputs().get(0);
+            if (from != null) {
+                addressTransactions.add(from, position);
+            }
+            else {
+                log.warn("Empty from field for transaction {}. Skip it.", transaction.getHash());
+            }
+            if (to != null && to.getAddress() != null) {
+                addressTransactions.add(to.getAddress(), position);
+            }
+            else {
+                if (transaction.getCreates() != null) {
+                    addressTransactions.add(transaction.getCreates(), position);
+                }
+                else {
+                    withoutCreates.add(position);
+                }
 
-        block.getTransactions()
-                .forEach(transaction -> {
-                    String from = transaction.getInputs().get(0);
-                    WrapperOutput to = transaction.getOutputs().get(0);
-                    if (from != null) {
-                        addressTransactions.add(from.toLowerCase(), transaction);
-                    }
-                    else {
-                        log.warn("Empty from field for transaction {}. Skip it.", transaction.getHash());
-                    }
-                    if (to != null && to.getAddress() != null) {
-                        addressTransactions.add(to.getAddress().toLowerCase(), transaction);
-                    }
-                    else {
-                        if (transaction.getCreates() != null) {
-                            addressTransactions.add(transaction.getCreates().toLowerCase(), transaction);
-                        }
-                        else {
-                            try {
-                                WrapperTransactionReceipt receipt = network.getTxReceipt(transaction);
-                                String contract = receipt.getContracts().get(0);
-                                transaction.setCreates(contract);
-                                addressTransactions.add(
-                                        contract.toLowerCase(),
-                                        transaction
-                                );
-                            }
-                            catch (Exception e) {
-                                log.error("Error on getting transaction {} receipt.", transaction.getHash(), e);
-                                log.warn("Empty to and creates field for transaction {}. Skip it.", transaction.getHash());
-                            }
-                        }
+            }
+//            eventPublisher.publish(new NewTransactionEvent(network.getType(), block, transaction));
+        }
 
-                    }
-//                    eventPublisher.publish(new NewTransactionEvent(network.getType(), block, transaction));
-                });
+        if (!withoutCreates.isEmpty()) {
+            addCreatedContracts(transactions, withoutCreates, addressTransactions);
+        }
+
+        eventPublisher.publish(new NewBlockEvent(network.getType(), block, addressTransactions.build()));
+    }
 
-        eventPublisher.publish(new NewBlockEvent(network.getType(), block, addressTransactions));
+    private void addCreatedContracts(List<WrapperTransaction> blockTransactions, List<Integer> positions, BlockAddressIndex.Builder addressTransactions) {
+        List<WrapperTransaction> transactions = new ArrayList<>(positions.size());
+        positions.forEach(position -> transactions.add(blockTransactions.get(position)));
+        List<WrapperTransactionReceipt> receipts;
+        try {
+            receipts = network.getTxReceipts(transactions);
+        }
+        catch (Exception e) {
+            log.error("Error on getting {} transaction receipts.", transactions.size(), e);
+            transactions.forEach(transaction -> log.warn("Empty to and creates field for transaction {}. Skip it.", transaction.getHash()));
+            return;
+        }
+        for (int i = 0; i < transactions.size(); i++) {
+            WrapperTransaction transaction = transactions.get(i);
+            WrapperTransactionReceipt receipt = receipts.get(i);
+            if (receipt == null || receipt.getContracts() == null || receipt.getContracts().isEmpty()) {
+                log.warn("Empty to and creates field for transaction {}. Skip it.", transaction.getHash());
+                continue;
+            }
+            String contract = receipt.getContracts().get(0);
+            transaction.setCreates(contract);
+            addressTransactions.add(
+                    contract,
+                    positions.get(i)
+            );
+        }
     }
-}
\ No newline at end of file
+}
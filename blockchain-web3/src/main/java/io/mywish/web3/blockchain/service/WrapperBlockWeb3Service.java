@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.web3j.protocol.core.methods.response.EthBlock;
 import org.web3j.protocol.core.methods.response.Transaction;
+import org.web3j.utils.Numeric;
 
 import java.time.Instant;
 import java.util.List;
@@ -20,6 +21,7 @@ public class WrapperBlockWeb3Service implements WrapperBlockService<EthBlock.Blo
     @Override
     public WrapperBlock build(EthBlock.Block block) {
         String hash = block.getHash();
+        String parentHash = block.getParentHash();
         Long number = block.getNumber().longValue();
         Instant timestamp = Instant.ofEpochSecond(block.getTimestamp().longValue());
         List<WrapperTransaction> transactions = block
@@ -29,6 +31,9 @@ public class WrapperBlockWeb3Service implements WrapperBlockService<EthBlock.Blo
                     Transaction transaction = ((EthBlock.TransactionObject) tx).get();
                     return transactionBuilder.build(transaction);
                 }).collect(Collectors.toList());
-        return new WrapperBlock(hash, number, timestamp, transactions);
+        byte[] logsBloom = block.getLogsBloom() == null
+                ? null
+                : Numeric.hexStringToByteArray(block.getLogsBloom());
+        return new WrapperBlock(hash, parentHash, number, timestamp, transactions, logsBloom);
     }
 }
@@ -10,6 +10,7 @@ import org.web3j.abi.FunctionReturnDecoder;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Type;
 import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.utils.Numeric;
 
 import javax.annotation.PostConstruct;
 import java.util.ArrayList;
@@ -24,6 +25,7 @@ public class WrapperLogWeb3Service {
     private List<Web3ContractEventBuilder> builders;
 
     private final Map<String, Web3ContractEventBuilder> buildersBySignature = new HashMap<>();
+    private final List<byte[]> signatures = new ArrayList<>();
 
     @PostConstruct
     protected void init() throws Exception {
@@ -34,9 +36,34 @@ public class WrapperLogWeb3Service {
             }
             log.info("Added builder {} for event with signature {}.", eventBuilder.getClass().getSimpleName(), signature);
             buildersBySignature.put(signature, eventBuilder);
+            signatures.add(Numeric.hexStringToByteArray(signature));
         }
     }
 
+    /**
+     * Returns false if the block definitely has no logs which can be built by the registered builders.
+     */
+    public boolean mayContainEvents(WrapperBlock block) {
+        byte[] bloom = block.getLogsBloom();
+        if (bloom == null) {
+            return true;
+        }
+        for (byte[] signature : signatures) {
+            if (LogsBloom.mayContain(bloom, signature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns false if the block definitely has no logs of the address which can be built by the registered builders.
+     */
+    public boolean mayContainEvents(WrapperBlock block, String address) {
+        return LogsBloom.mayContain(block.getLogsBloom(), Numeric.hexStringToByteArray(address))
+                && mayContainEvents(block);
+    }
+
     public ContractEvent build(Log logParam) {
         String address = logParam.getAddress();
         String signature = logParam.getTopics().get(0);
@@ -0,0 +1,129 @@
+package io.mywish.blockchain;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool for the blocking RPC calls of one network, so slow nodes do not occupy the common pool.
+ * When all the threads are busy and the queue is full, the task either runs on the caller thread
+ * or is rejected, depending on the policy. Idle threads are stopped after keep alive time.
+ */
+@Slf4j
+public class RpcExecutor implements Executor {
+    public enum RejectionPolicy {
+        CALLER_RUNS,
+        ABORT
+    }
+
+    private final static long KEEP_ALIVE = 60000;
+    private final static long WARN_INTERVAL = 10000;
+
+    @Getter
+    private final String name;
+    @Getter
+    private final int threads;
+    @Getter
+    private final int queueCapacity;
+    @Getter
+    private final RejectionPolicy rejectionPolicy;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong saturated = new AtomicLong();
+    private volatile int maxQueued;
+    private volatile long lastWarn;
+
+    public RpcExecutor(String name, int threads, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads count must be positive, but " + threads);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive, but " + queueCapacity);
+        }
+        this.name = name;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                KEEP_ALIVE,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-rpc-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> onSaturated(runnable)
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submitted.incrementAndGet();
+        executor.execute(command);
+        int queued = executor.getQueue().size();
+        if (queued > maxQueued) {
+            maxQueued = queued;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    /**
+     * Tasks which did not fit the queue: executed by the caller or rejected.
+     */
+    public long getSaturated() {
+        return saturated.get();
+    }
+
+    public long getCompleted() {
+        return executor.getCompletedTaskCount();
+    }
+
+    public int getActive() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    private void onSaturated(Runnable runnable) {
+        saturated.incrementAndGet();
+        long now = System.currentTimeMillis();
+        if (now - lastWarn > WARN_INTERVAL) {
+            lastWarn = now;
+            log.warn("{}: RPC executor is saturated, {} threads busy and {} tasks queued, {} tasks are affected so far.",
+                    name, threads, queueCapacity, saturated.get());
+        }
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException(name + ": RPC executor is shut down.");
+        }
+        if (rejectionPolicy == RejectionPolicy.ABORT) {
+            throw new RejectedExecutionException(name + ": RPC executor queue is full.");
+        }
+        runnable.run();
+    }
+}
@@ -0,0 +1,70 @@
+package io.mywish.blockchain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sets up the RPC executor of each network before the network is initialized.
+ * Settings are taken from etherscanner.rpc.NETWORK_TYPE.* and default to etherscanner.rpc.*,
+ * the executor is shut down with the network.
+ */
+@Slf4j
+@Component
+public class RpcExecutorConfigurer implements DestructionAwareBeanPostProcessor, EnvironmentAware {
+    private final static String PREFIX = "etherscanner.rpc.";
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        if (!(bean instanceof WrapperNetwork)) {
+            return bean;
+        }
+        WrapperNetwork network = (WrapperNetwork) bean;
+        String type = network.getType().name();
+        RpcExecutor executor = new RpcExecutor(
+                type,
+                getProperty(type, "threads", Integer.class, 8),
+                getProperty(type, "queue-capacity", Integer.class, 1000),
+                getProperty(type, "rejection-policy", RpcExecutor.RejectionPolicy.class, RpcExecutor.RejectionPolicy.CALLER_RUNS)
+        );
+        network.setRpcExecutor(executor);
+        log.info("{}: RPC executor with {} threads, queue capacity {}, {} on saturation.",
+                type, executor.getThreads(), executor.getQueueCapacity(), executor.getRejectionPolicy());
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        return bean;
+    }
+
+    @Override
+    public void postProcessBeforeDestruction(Object bean, String beanName) throws BeansException {
+        if (bean instanceof WrapperNetwork) {
+            ((WrapperNetwork) bean).getRpcExecutor().shutdown();
+        }
+    }
+
+    @Override
+    public boolean requiresDestruction(Object bean) {
+        return bean instanceof WrapperNetwork;
+    }
+
+    private <T> T getProperty(String type, String key, Class<T> clazz, T defaultValue) {
+        T value = environment.getProperty(PREFIX + type + "." + key, clazz);
+        if (value != null) {
+            return value;
+        }
+        return environment.getProperty(PREFIX + key, clazz, defaultValue);
+    }
+}
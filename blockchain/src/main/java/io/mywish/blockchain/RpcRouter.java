@@ -0,0 +1,477 @@
+package io.mywish.blockchain;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes calls of the node client interface to several endpoints of the same network.
+ * Endpoints are ranked by latency and error rate, the endpoints which heads lag behind the highest head
+ * by more than maxLag blocks are excluded while there is any other endpoint. The call goes to the best
+ * endpoint, if it is not answered in the p95 latency of the endpoint or fails, the next endpoint is called,
+ * and the first successful answer is returned. Calls which return {@link CompletionStage} are routed the same way
+ * without blocking the caller.
+ * An empty answer, such as a block the lagging endpoint does not know yet, is a failure of the endpoint too,
+ * but it is returned if no endpoint gives the non-empty one. By default null is empty.
+ * Pinned methods, such as subscriptions, always go to the first endpoint.
+ */
+@Slf4j
+public class RpcRouter<T> implements InvocationHandler {
+    public interface HeadProbe<T> {
+        long getHead(T client) throws Exception;
+    }
+
+    public interface EmptyCheck {
+        boolean isEmpty(Method method, Object[] args, Object result);
+    }
+
+    public final static EmptyCheck NULL_IS_EMPTY = (method, args, result) -> result == null;
+
+    private final static int LATENCY_SAMPLES = 64;
+    private final static int MIN_LATENCY_SAMPLES = 8;
+    private final static long DEFAULT_HEDGE_DELAY = 1000;
+    private final static long MIN_HEDGE_DELAY = 20;
+    private final static long MAX_HEDGE_DELAY = 5000;
+    private final static long PROBE_INTERVAL = 5000;
+    private final static double ERROR_WEIGHT = 0.1;
+    private final static double ERROR_PENALTY = 1000;
+    private final static int THREADS_PER_ENDPOINT = 16;
+    private final static int QUEUE_PER_ENDPOINT = 1024;
+
+    @Getter
+    private final String name;
+    @Getter
+    private final List<Endpoint<T>> endpoints;
+    private final HeadProbe<T> headProbe;
+    @Getter
+    private final int maxLag;
+    private final Set<String> pinnedMethods;
+    private final EmptyCheck emptyCheck;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor timer;
+    private final AtomicLong lastProbe = new AtomicLong();
+    @Getter
+    private final T proxy;
+
+    public RpcRouter(String name, Class<T> type, List<Endpoint<T>> endpoints, HeadProbe<T> headProbe, int maxLag, String... pinnedMethods) {
+        this(name, type, endpoints, headProbe, maxLag, NULL_IS_EMPTY, pinnedMethods);
+    }
+
+    public RpcRouter(String name, Class<T> type, List<Endpoint<T>> endpoints, HeadProbe<T> headProbe, int maxLag, EmptyCheck emptyCheck, String... pinnedMethods) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("There are no endpoints for " + name);
+        }
+        this.name = name;
+        this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+        this.headProbe = headProbe;
+        this.maxLag = maxLag;
+        this.pinnedMethods = new HashSet<>(Arrays.asList(pinnedMethods));
+        this.emptyCheck = emptyCheck;
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        int threads = endpoints.size() * THREADS_PER_ENDPOINT;
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(endpoints.size() * QUEUE_PER_ENDPOINT),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-router-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, name + "-router-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.proxy = type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, this));
+    }
+
+    /**
+     * Returns the client itself if there is one endpoint, otherwise the routing proxy.
+     */
+    public static <T> T route(String name, Class<T> type, List<Endpoint<T>> endpoints, HeadProbe<T> headProbe, int maxLag, String... pinnedMethods) {
+        return route(name, type, endpoints, headProbe, maxLag, NULL_IS_EMPTY, pinnedMethods);
+    }
+
+    public static <T> T route(String name, Class<T> type, List<Endpoint<T>> endpoints, HeadProbe<T> headProbe, int maxLag, EmptyCheck emptyCheck, String... pinnedMethods) {
+        if (endpoints.size() == 1) {
+            return endpoints.get(0).getClient();
+        }
+        RpcRouter<T> router = new RpcRouter<>(name, type, endpoints, headProbe, maxLag, emptyCheck, pinnedMethods);
+        log.info("{}: requests are routed to {} endpoints.", name, endpoints.size());
+        return router.getProxy();
+    }
+
+    /**
+     * Stops the threads of the router if the client is the routing proxy.
+     */
+    public static void close(Object client) {
+        if (client != null && Proxy.isProxyClass(client.getClass())
+                && Proxy.getInvocationHandler(client) instanceof RpcRouter) {
+            ((RpcRouter<?>) Proxy.getInvocationHandler(client)).close();
+        }
+    }
+
+    public void close() {
+        log.info("{}: router is closed.", name);
+        timer.shutdownNow();
+        executor.shutdown();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return name + " router";
+            }
+        }
+        if (pinnedMethods.contains(method.getName())) {
+            return invokeDirectly(endpoints.get(0).getClient(), method, args);
+        }
+        probeHeadsIfNeeded();
+        Call call = new Call(method, args, rank());
+        call.next();
+        if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+            return call.result;
+        }
+        try {
+            return call.result.get();
+        }
+        catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns the endpoints which are not lagging, the best first. If all the endpoints lag, all of them are returned.
+     */
+    public List<Endpoint<T>> rank() {
+        List<Endpoint<T>> ranked = new ArrayList<>(endpoints.size());
+        for (Endpoint<T> endpoint : endpoints) {
+            if (!endpoint.lagging) {
+                ranked.add(endpoint);
+            }
+        }
+        if (ranked.isEmpty()) {
+            ranked.addAll(endpoints);
+        }
+        Map<Endpoint<T>, Double> scores = new IdentityHashMap<>();
+        ranked.forEach(endpoint -> scores.put(endpoint, endpoint.getScore()));
+        ranked.sort(Comparator.comparingDouble(scores::get));
+        return ranked;
+    }
+
+    /**
+     * Requests heads of all the endpoints and marks the lagging ones.
+     */
+    public CompletableFuture<Void> probeHeads() {
+        if (headProbe == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Void>> probes = new ArrayList<>(endpoints.size());
+        for (Endpoint<T> endpoint : endpoints) {
+            try {
+                probes.add(CompletableFuture.runAsync(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        endpoint.head = headProbe.getHead(endpoint.getClient());
+                        endpoint.recordSuccess(elapsedMillis(start));
+                    }
+                    catch (Exception e) {
+                        endpoint.recordError(elapsedMillis(start));
+                        log.debug("{}: head of {} is unknown.", name, endpoint.getName(), e);
+                    }
+                }, executor));
+            }
+            catch (RejectedExecutionException e) {
+                log.debug("{}: head of {} is not probed, the router is busy or closed.", name, endpoint.getName());
+            }
+        }
+        return CompletableFuture
+                .allOf(probes.toArray(new CompletableFuture[0]))
+                .thenRun(this::markLagging);
+    }
+
+    private void markLagging() {
+        long maxHead = endpoints.stream().mapToLong(Endpoint::getHead).max().orElse(-1);
+        for (Endpoint<T> endpoint : endpoints) {
+            boolean lagging = endpoint.head >= 0 && maxHead - endpoint.head > maxLag;
+            if (lagging != endpoint.lagging) {
+                log.warn("{}: endpoint {} head {}, the highest head {}, it is {}.",
+                        name, endpoint.getName(), endpoint.head, maxHead, lagging ? "excluded" : "included back");
+            }
+            endpoint.lagging = lagging;
+        }
+    }
+
+    private void probeHeadsIfNeeded() {
+        long now = System.currentTimeMillis();
+        long last = lastProbe.get();
+        if (headProbe == null || now - last < PROBE_INTERVAL || !lastProbe.compareAndSet(last, now)) {
+            return;
+        }
+        probeHeads();
+    }
+
+    private static Object invokeDirectly(Object client, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(client, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private class Call {
+        private final Method method;
+        private final Object[] args;
+        private final List<Endpoint<T>> ranked;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private int started;
+        private int failed;
+        private boolean hasEmpty;
+        private Object empty;
+
+        private Call(Method method, Object[] args, List<Endpoint<T>> ranked) {
+            this.method = method;
+            this.args = args;
+            this.ranked = ranked;
+        }
+
+        private synchronized void next() {
+            if (result.isDone() || started >= ranked.size()) {
+                return;
+            }
+            Endpoint<T> endpoint = ranked.get(started++);
+            if (started > 1) {
+                endpoint.hedged.incrementAndGet();
+            }
+            if (!attempt(endpoint) || started >= ranked.size()) {
+                return;
+            }
+            final int expected = started;
+            try {
+                timer.schedule(() -> hedge(expected), endpoint.getHedgeDelay(), TimeUnit.MILLISECONDS);
+            }
+            catch (RejectedExecutionException e) {
+                log.debug("{}: call is not hedged, the router is closed.", name);
+            }
+        }
+
+        private synchronized void hedge(int expected) {
+            if (started == expected) {
+                next();
+            }
+        }
+
+        /**
+         * @return false if the attempt is rejected at once.
+         */
+        private boolean attempt(Endpoint<T> endpoint) {
+            final long start = System.nanoTime();
+            CompletableFuture<Object> attempt;
+            try {
+                attempt = CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return method.invoke(endpoint.getClient(), args);
+                        }
+                        catch (InvocationTargetException e) {
+                            throw new AttemptException(e.getCause());
+                        }
+                        catch (IllegalAccessException e) {
+                            throw new AttemptException(e);
+                        }
+                    }, executor);
+            }
+            catch (RejectedExecutionException e) {
+                onFailure(e);
+                return false;
+            }
+            attempt
+                    .thenCompose(value -> value instanceof CompletionStage
+                            ? ((CompletionStage<?>) value).thenApply(Object.class::cast)
+                            : CompletableFuture.completedFuture(value))
+                    .whenComplete((value, error) -> {
+                        if (error != null) {
+                            endpoint.recordError(elapsedMillis(start));
+                            onFailure(unwrap(error));
+                        }
+                        else if (method.getReturnType() != void.class && emptyCheck.isEmpty(method, args, value)) {
+                            endpoint.recordError(elapsedMillis(start));
+                            onEmpty(value);
+                        }
+                        else {
+                            endpoint.recordSuccess(elapsedMillis(start));
+                            result.complete(value);
+                        }
+                    });
+            return true;
+        }
+
+        private synchronized void onEmpty(Object value) {
+            if (!hasEmpty) {
+                hasEmpty = true;
+                empty = value;
+            }
+            onFailure(null);
+        }
+
+        private synchronized void onFailure(Throwable error) {
+            failed++;
+            if (failed == ranked.size()) {
+                if (hasEmpty) {
+                    result.complete(empty);
+                }
+                else {
+                    result.completeExceptionally(error);
+                }
+                return;
+            }
+            if (failed == started) {
+                next();
+            }
+        }
+
+        private Throwable unwrap(Throwable error) {
+            while ((error instanceof CompletionException || error instanceof AttemptException)
+                    && error.getCause() != null) {
+                error = error.getCause();
+            }
+            return error;
+        }
+    }
+
+    private static class AttemptException extends RuntimeException {
+        private AttemptException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    public static class Endpoint<T> {
+        @Getter
+        private final String name;
+        @Getter
+        private final T client;
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private int latencyCount;
+        private int latencyIndex;
+        private double meanLatency;
+        @Getter
+        private volatile double errorRate;
+        @Getter
+        private volatile long head = -1;
+        @Getter
+        private volatile boolean lagging;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong hedged = new AtomicLong();
+
+        public Endpoint(String name, T client) {
+            this.name = name;
+            this.client = client;
+        }
+
+        public long getCalls() {
+            return calls.get();
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * Calls which were sent to the endpoint because the better one was slow or failed.
+         */
+        public long getHedged() {
+            return hedged.get();
+        }
+
+        public synchronized double getMeanLatency() {
+            return meanLatency;
+        }
+
+        /**
+         * Mean latency in ms plus the error penalty, lower is better. Endpoints without samples are tried first.
+         */
+        public synchronized double getScore() {
+            return meanLatency + ERROR_PENALTY * errorRate;
+        }
+
+        public synchronized long getP95Latency() {
+            if (latencyCount == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+        }
+
+        private long getHedgeDelay() {
+            synchronized (this) {
+                if (latencyCount < MIN_LATENCY_SAMPLES) {
+                    return DEFAULT_HEDGE_DELAY;
+                }
+            }
+            return Math.max(MIN_HEDGE_DELAY, Math.min(MAX_HEDGE_DELAY, getP95Latency()));
+        }
+
+        private synchronized void recordSuccess(long latency) {
+            calls.incrementAndGet();
+            addLatency(latency);
+            errorRate = errorRate * (1 - ERROR_WEIGHT);
+        }
+
+        private synchronized void recordError(long latency) {
+            calls.incrementAndGet();
+            errors.incrementAndGet();
+            addLatency(latency);
+            errorRate = errorRate * (1 - ERROR_WEIGHT) + ERROR_WEIGHT;
+        }
+
+        private void addLatency(long latency) {
+            latencies[latencyIndex] = latency;
+            latencyIndex = (latencyIndex + 1) % LATENCY_SAMPLES;
+            if (latencyCount < LATENCY_SAMPLES) {
+                latencyCount++;
+            }
+            meanLatency = latencyCount == 1 ? latency : meanLatency * 0.8 + latency * 0.2;
+        }
+    }
+}
@@ -8,14 +8,36 @@ import java.util.List;
 @Getter
 public class WrapperBlock {
     private final String hash;
+    /**
+     * Hash of the previous block, null if the network does not provide it.
+     */
+    private final String parentHash;
     private final Long number;
     private final Instant timestamp;
     private final List<WrapperTransaction> transactions;
+    /**
+     * Bloom filter of the block logs, null if the network does not provide it.
+     */
+    private final byte[] logsBloom;
 
     public WrapperBlock(String hash, Long number, Instant timestamp, List<WrapperTransaction> transactions) {
+        this(hash, null, number, timestamp, transactions, null);
+    }
+
+    public WrapperBlock(String hash, Long number, Instant timestamp, List<WrapperTransaction> transactions, byte[] logsBloom) {
+        this(hash, null, number, timestamp, transactions, logsBloom);
+    }
+
+    public WrapperBlock(String hash, String parentHash, Long number, Instant timestamp, List<WrapperTransaction> transactions) {
+        this(hash, parentHash, number, timestamp, transactions, null);
+    }
+
+    public WrapperBlock(String hash, String parentHash, Long number, Instant timestamp, List<WrapperTransaction> transactions, byte[] logsBloom) {
         this.hash = hash;
+        this.parentHash = parentHash;
         this.number = number;
         this.timestamp = timestamp;
         this.transactions = transactions;
+        this.logsBloom = logsBloom;
     }
 }
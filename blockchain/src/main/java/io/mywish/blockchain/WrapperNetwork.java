@@ -3,11 +3,19 @@ package io.mywish.blockchain;
 import io.lastwill.eventscan.model.NetworkType;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 public abstract class WrapperNetwork {
+    private final static int DEFAULT_RPC_THREADS = 8;
+    private final static int DEFAULT_RPC_QUEUE_CAPACITY = 1000;
+
     private final NetworkType type;
+    private volatile RpcExecutor rpcExecutor;
 
     public WrapperNetwork(NetworkType type) {
         this.type = type;
@@ -17,30 +25,117 @@ public abstract class WrapperNetwork {
         return type;
     }
 
+    /**
+     * Executor of the async calls. If it is not set, the default one is created on the first call.
+     */
+    public RpcExecutor getRpcExecutor() {
+        RpcExecutor executor = rpcExecutor;
+        if (executor != null) {
+            return executor;
+        }
+        synchronized (this) {
+            if (rpcExecutor == null) {
+                rpcExecutor = new RpcExecutor(
+                        type.name(),
+                        DEFAULT_RPC_THREADS,
+                        DEFAULT_RPC_QUEUE_CAPACITY,
+                        RpcExecutor.RejectionPolicy.CALLER_RUNS
+                );
+            }
+            return rpcExecutor;
+        }
+    }
+
+    public synchronized void setRpcExecutor(RpcExecutor rpcExecutor) {
+        this.rpcExecutor = rpcExecutor;
+    }
+
     abstract public Long getLastBlock() throws Exception;
     abstract public BigInteger getBalance(String address, Long blockNo) throws Exception;
     abstract public WrapperBlock getBlock(String hash) throws Exception;
     abstract public WrapperBlock getBlock(Long number) throws Exception;
     abstract public WrapperTransactionReceipt getTxReceipt(WrapperTransaction transaction) throws Exception;
 
+    /**
+     * Returns blocks from fromNumber to toNumber inclusive, ordered by number.
+     * Default implementation requests blocks one by one concurrently, override it if the node supports ranges.
+     */
+    public List<WrapperBlock> getBlocks(long fromNumber, long toNumber) throws Exception {
+        List<CompletableFuture<WrapperBlock>> futures = new ArrayList<>();
+        for (long number = fromNumber; number <= toNumber; number++) {
+            futures.add(getBlockAsync(number));
+        }
+        return joinAll(futures);
+    }
+
+    /**
+     * Returns receipts in the order of the transactions.
+     * Default implementation requests receipts one by one concurrently, override it if the node supports batches.
+     */
+    public List<WrapperTransactionReceipt> getTxReceipts(List<WrapperTransaction> transactions) throws Exception {
+        List<CompletableFuture<WrapperTransactionReceipt>> futures = new ArrayList<>(transactions.size());
+        for (WrapperTransaction transaction : transactions) {
+            futures.add(getTxReceiptAsync(transaction));
+        }
+        return joinAll(futures);
+    }
+
+    public CompletableFuture<WrapperBlock> getBlockAsync(Long number) {
+        return supplyAsync(() -> getBlock(number));
+    }
+
     public CompletableFuture<BigInteger> getBalanceAsync(String address, Long blockNo) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return getBalance(address, blockNo);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+        return supplyAsync(() -> getBalance(address, blockNo));
     }
 
     public CompletableFuture<WrapperTransactionReceipt> getTxReceiptAsync(WrapperTransaction transaction) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return getTxReceipt(transaction);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+        return supplyAsync(() -> getTxReceipt(transaction));
+    }
+
+    /**
+     * Runs the call on the RPC executor of the network. If the executor rejects the call,
+     * the future is completed exceptionally.
+     */
+    protected <T> CompletableFuture<T> supplyAsync(Callable<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call.call();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }, getRpcExecutor());
+        }
+        catch (RejectedExecutionException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Waits all the futures and returns their results in the same order.
+     * Rethrows the original exception of the first failed future.
+     */
+    protected static <T> List<T> joinAll(List<CompletableFuture<T>> futures) throws Exception {
+        List<T> result = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                result.add(future.join());
+            }
+        }
+        catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException && cause.getCause() instanceof Exception) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
             }
-        });
+            throw e;
+        }
+        return result;
     }
 
     public abstract boolean isPendingTransactionsSupported();
@@ -0,0 +1,227 @@
+package io.mywish.blockchain;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RpcRouterTest {
+    public interface StubClient {
+        long getHead() throws IOException;
+
+        String call(String argument) throws IOException;
+
+        CompletableFuture<String> callAsync(String argument);
+
+        String subscribe();
+    }
+
+    /**
+     * Local node stub which answers with its name after the delay, or fails.
+     */
+    private static class StubNode implements StubClient {
+        private final String name;
+        private volatile long delay;
+        private volatile boolean failing;
+        private volatile boolean empty;
+        private volatile long head;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private StubNode(String name, long delay, long head) {
+            this.name = name;
+            this.delay = delay;
+            this.head = head;
+        }
+
+        @Override
+        public long getHead() throws IOException {
+            if (failing) {
+                throw new IOException(name + " is down");
+            }
+            return head;
+        }
+
+        @Override
+        public String call(String argument) throws IOException {
+            calls.incrementAndGet();
+            sleep(delay);
+            if (failing) {
+                throw new IOException(name + " is down");
+            }
+            return empty ? null : name + ":" + argument;
+        }
+
+        @Override
+        public CompletableFuture<String> callAsync(String argument) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call(argument);
+                }
+                catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+
+        @Override
+        public String subscribe() {
+            return name;
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private RpcRouter<StubClient> router(int maxLag, StubNode... nodes) {
+        List<RpcRouter.Endpoint<StubClient>> endpoints = new ArrayList<>();
+        for (StubNode node : nodes) {
+            endpoints.add(new RpcRouter.Endpoint<>(node.name, node));
+        }
+        return new RpcRouter<>("TEST", StubClient.class, endpoints, StubClient::getHead, maxLag, "subscribe");
+    }
+
+    @Test
+    public void singleEndpointIsNotProxied() {
+        StubNode node = new StubNode("a", 0, 1);
+        StubClient client = RpcRouter.route(
+                "TEST",
+                StubClient.class,
+                Arrays.asList(new RpcRouter.Endpoint<>("a", node)),
+                StubClient::getHead,
+                0
+        );
+        Assert.assertSame(node, client);
+    }
+
+    @Test
+    public void fastestEndpointTest() throws Exception {
+        StubNode slow = new StubNode("slow", 50, 10);
+        StubNode fast = new StubNode("fast", 1, 10);
+        RpcRouter<StubClient> router = router(3, slow, fast);
+        for (int i = 0; i < 20; i++) {
+            router.getProxy().call("x");
+        }
+        Assert.assertEquals("fast", router.rank().get(0).getName());
+        int slowCalls = slow.calls.get();
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals("fast:x", router.getProxy().call("x"));
+        }
+        Assert.assertEquals("The slow endpoint must not be called.", slowCalls, slow.calls.get());
+    }
+
+    @Test
+    public void hedgeTest() throws Exception {
+        StubNode stuck = new StubNode("stuck", 4000, 10);
+        StubNode fast = new StubNode("fast", 1, 10);
+        RpcRouter<StubClient> router = router(3, stuck, fast);
+
+        long start = System.currentTimeMillis();
+        Assert.assertEquals("fast:x", router.getProxy().call("x"));
+        long elapsed = System.currentTimeMillis() - start;
+        Assert.assertTrue("Hedged call must not wait the stuck endpoint, but " + elapsed, elapsed < 3000);
+        Assert.assertEquals(1, router.getEndpoints().get(1).getHedged());
+    }
+
+    @Test
+    public void asyncHedgeTest() throws Exception {
+        StubNode stuck = new StubNode("stuck", 4000, 10);
+        StubNode fast = new StubNode("fast", 1, 10);
+        RpcRouter<StubClient> router = router(3, stuck, fast);
+
+        long start = System.currentTimeMillis();
+        CompletableFuture<String> future = router.getProxy().callAsync("x");
+        Assert.assertTrue("Async call must not block.", System.currentTimeMillis() - start < 500);
+        Assert.assertEquals("fast:x", future.get());
+        Assert.assertTrue(System.currentTimeMillis() - start < 3000);
+    }
+
+    @Test
+    public void failoverTest() throws Exception {
+        StubNode down = new StubNode("down", 0, 10);
+        down.failing = true;
+        StubNode up = new StubNode("up", 0, 10);
+        RpcRouter<StubClient> router = router(3, down, up);
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("up:x", router.getProxy().call("x"));
+        }
+        Assert.assertEquals("up", router.rank().get(0).getName());
+        Assert.assertTrue(router.getEndpoints().get(0).getErrorRate() > 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void allFailedTest() throws Exception {
+        StubNode first = new StubNode("first", 0, 10);
+        first.failing = true;
+        StubNode second = new StubNode("second", 0, 10);
+        second.failing = true;
+        router(3, first, second).getProxy().call("x");
+    }
+
+    @Test
+    public void emptyTest() throws Exception {
+        StubNode behind = new StubNode("behind", 0, 10);
+        behind.empty = true;
+        StubNode ahead = new StubNode("ahead", 0, 10);
+        RpcRouter<StubClient> router = router(3, behind, ahead);
+
+        Assert.assertEquals("ahead:x", router.getProxy().call("x"));
+        Assert.assertEquals("ahead:x", router.getProxy().callAsync("x").get());
+        Assert.assertTrue(router.getEndpoints().get(0).getErrorRate() > 0);
+
+        ahead.empty = true;
+        Assert.assertNull(router.getProxy().call("x"));
+        ahead.failing = true;
+        Assert.assertNull(router.getProxy().call("x"));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void closeTest() throws Exception {
+        StubNode first = new StubNode("first", 0, 10);
+        StubNode second = new StubNode("second", 0, 10);
+        RpcRouter<StubClient> router = router(3, first, second);
+        Assert.assertEquals("first:x", router.getProxy().call("x"));
+        RpcRouter.close(router.getProxy());
+        router.getProxy().call("x");
+    }
+
+    @Test
+    public void laggingTest() throws Exception {
+        StubNode behind = new StubNode("behind", 0, 90);
+        StubNode ahead = new StubNode("ahead", 0, 100);
+        RpcRouter<StubClient> router = router(3, behind, ahead);
+
+        router.probeHeads().join();
+        Assert.assertTrue(router.getEndpoints().get(0).isLagging());
+        Assert.assertEquals(1, router.rank().size());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("ahead:x", router.getProxy().call("x"));
+        }
+        Assert.assertEquals(0, behind.calls.get());
+
+        behind.head = 99;
+        router.probeHeads().join();
+        Assert.assertFalse(router.getEndpoints().get(0).isLagging());
+        Assert.assertEquals(2, router.rank().size());
+    }
+
+    @Test
+    public void pinnedTest() {
+        StubNode primary = new StubNode("primary", 100, 10);
+        StubNode secondary = new StubNode("secondary", 0, 10);
+        RpcRouter<StubClient> router = router(3, primary, secondary);
+        Assert.assertEquals("primary", router.getProxy().subscribe());
+    }
+}
@@ -20,5 +20,6 @@ public class BlockResponse extends Response {
     @JsonProperty("block_num")
     private Long blockNum;
     private String id;
+    private String previous;
     private List<Transaction> transactions;
 }
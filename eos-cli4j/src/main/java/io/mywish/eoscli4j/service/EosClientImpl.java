@@ -22,7 +22,6 @@ import org.apache.http.entity.StringEntity;
 import org.apache.http.util.EntityUtils;
 
 import java.math.BigInteger;
-import java.net.SocketException;
 import java.net.URI;
 import java.nio.charset.Charset;
 
@@ -30,6 +29,11 @@ import java.nio.charset.Charset;
 public class EosClientImpl implements EosClient {
     private final static String IRREVERSIBLE_PREFIX = "s";
     private final static String REVERSIBLE_PREFIX = "n";
+    /**
+     * Blocks received while the previous one is decoded and handled.
+     */
+    private final static int FRAME_BUFFERS = 4;
+    private final static int FRAME_BUFFER_SIZE = 256 * 1024;
     private final HttpClient client;
     private final URI rpc;
     private final ObjectMapper objectMapper;
@@ -117,30 +121,39 @@ public class EosClientImpl implements EosClient {
         tcpClient.write(prefix + lastBlockNo + "\n");
         log.info("Subscribed from {} block.", lastBlockNo);
 
-        while (true) {
-            try {
-                log.debug("Reading length.");
-                int length = tcpClient.readInt();
-                log.debug("Reading string {} bytes.", length);
-                String blockJSON = tcpClient.readString(length);
-                log.debug("Parsing block.");
-                BlockResponse block = parseBlock(objectMapper.readTree(blockJSON));
-                log.debug("Handle block.");
-                if (!callback.callback(block)) {
-                    log.info("Subscription terminated by consumer.");
+        // blocks are parsed from the reused frame buffers straight into the model, while the next frame is read
+        FrameReader frameReader = new FrameReader("eos-" + prefix + "-frames", tcpClient, FRAME_BUFFERS, FRAME_BUFFER_SIZE);
+        frameReader.start();
+        try {
+            while (true) {
+                FrameReader.Frame frame = frameReader.take();
+                if (frame == null) {
+                    log.error("Socket failed. Terminate subscription.", frameReader.getFailure());
                     break;
                 }
-                log.debug("Last block was {}.", block.getBlockNum());
-                lastBlock = block.getBlockNum();
-            }
-            catch (java.io.EOFException | SocketException | java.net.SocketTimeoutException e) {
-                log.error("Socket failed. Terminate subscription.", e);
-                break;
-            }
-            catch (Exception e) {
-                log.warn("Error getting block {}. Get next.", lastBlock, e);
+                try {
+                    BlockResponse block;
+                    try {
+                        block = objectMapper.readValue(frame.getData(), 0, frame.getLength(), BlockResponse.class);
+                    }
+                    finally {
+                        frameReader.release(frame);
+                    }
+                    log.debug("Handle block.");
+                    if (!callback.callback(block)) {
+                        log.info("Subscription terminated by consumer.");
+                        break;
+                    }
+                    log.debug("Last block was {}.", block.getBlockNum());
+                    lastBlock = block.getBlockNum();
+                }
+                catch (Exception e) {
+                    log.warn("Error getting block {}. Get next.", lastBlock, e);
+                }
             }
         }
-        tcpClient.close();
+        finally {
+            frameReader.close();
+        }
     }
 }
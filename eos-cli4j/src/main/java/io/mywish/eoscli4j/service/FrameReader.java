@@ -0,0 +1,126 @@
+package io.mywish.eoscli4j.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads length-prefixed frames of the block subscription on the own thread, so the next block is received
+ * while the previous one is decoded. Frames are read into the few reused buffers: when all of them wait
+ * for decoding, the socket is not read till some frame is released.
+ */
+@Slf4j
+public class FrameReader implements Closeable {
+    private final static int MAX_FRAME_SIZE = 256 * 1024 * 1024;
+    private final static Frame END = new Frame(0);
+
+    public static class Frame {
+        private byte[] data;
+        private int length;
+
+        private Frame(int size) {
+            this.data = new byte[size];
+        }
+
+        /**
+         * Buffer with the frame at the beginning, it is longer than the frame.
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        private void read(TcpClient tcpClient) throws Exception {
+            int length = tcpClient.readInt();
+            if (length < 0 || length > MAX_FRAME_SIZE) {
+                throw new IOException("Wrong frame length " + Integer.toUnsignedString(length) + ".");
+            }
+            if (data.length < length) {
+                data = new byte[Math.max(length, Math.min(data.length * 2, MAX_FRAME_SIZE))];
+            }
+            tcpClient.readFully(data, length);
+            this.length = length;
+        }
+    }
+
+    private final TcpClient tcpClient;
+    private final BlockingQueue<Frame> free;
+    private final BlockingQueue<Frame> filled;
+    private final Thread thread;
+    private volatile Exception failure;
+    private volatile boolean closed;
+
+    /**
+     * @param buffers    how many frames may wait for decoding.
+     * @param bufferSize initial size of each buffer, it grows to the largest frame.
+     */
+    public FrameReader(String name, TcpClient tcpClient, int buffers, int bufferSize) {
+        this.tcpClient = tcpClient;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.filled = new ArrayBlockingQueue<>(buffers + 1);
+        for (int i = 0; i < buffers; i++) {
+            free.add(new Frame(bufferSize));
+        }
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Waits for the next frame, it must be released after decoding.
+     *
+     * @return null if the socket failed or is closed, see {@link #getFailure()}.
+     */
+    public Frame take() throws InterruptedException {
+        Frame frame = filled.take();
+        if (frame == END) {
+            // for the next calls
+            filled.add(END);
+            return null;
+        }
+        return frame;
+    }
+
+    public void release(Frame frame) {
+        free.add(frame);
+    }
+
+    public Exception getFailure() {
+        return failure;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        tcpClient.close();
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                Frame frame = free.take();
+                frame.read(tcpClient);
+                filled.add(frame);
+            }
+        }
+        catch (InterruptedException e) {
+            log.debug("Frame reading is interrupted.");
+        }
+        catch (Exception e) {
+            if (!closed) {
+                failure = e;
+            }
+        }
+        filled.add(END);
+    }
+}
@@ -1,11 +1,13 @@
 package io.mywish.eoscli4j.service;
 
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
 
 public class TcpClient {
+    private final static int READ_BUFFER_SIZE = 64 * 1024;
     private final Socket socket;
     private final DataInputStream dataInputStream;
     private final DataOutputStream dataOutputStream;
@@ -15,7 +17,7 @@ public class TcpClient {
         socket.setKeepAlive(false);
         socket.setReuseAddress(false);
         socket.setSoTimeout(timeout);
-        this.dataInputStream = new DataInputStream(socket.getInputStream());
+        this.dataInputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream(), READ_BUFFER_SIZE));
         this.dataOutputStream = new DataOutputStream(socket.getOutputStream());
     }
 
@@ -32,6 +34,13 @@ public class TcpClient {
         return res;
     }
 
+    /**
+     * Reads exactly length bytes to the beginning of the buffer.
+     */
+    public void readFully(byte[] buffer, int length) throws Exception {
+        dataInputStream.readFully(buffer, 0, length);
+    }
+
     public String readString(int length) throws Exception {
         byte[] res = new byte[length];
         dataInputStream.readFully(res);
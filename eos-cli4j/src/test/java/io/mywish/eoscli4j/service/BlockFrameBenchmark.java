@@ -0,0 +1,137 @@
+package io.mywish.eoscli4j.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.mywish.eoscli4j.model.response.BlockResponse;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the subscription path on the recorded blocks sent over the loopback socket: the previous one reads
+ * the frame to String, then to JsonNode and then to the block, the current one parses the reused frame buffer
+ * on the other thread than the socket is read.
+ * Not run by the build, use mvn test -Dtest=BlockFrameBenchmark.
+ */
+public class BlockFrameBenchmark {
+    private final static String[] RECORDED = {"block.json", "no-trx-block.json"};
+    private final static int FRAMES = 20000;
+    private final static int WARM_UP = 3;
+    private final static int ITERATIONS = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    public void benchmark() throws Exception {
+        List<byte[]> recorded = new ArrayList<>();
+        long bytes = 0;
+        for (String name : RECORDED) {
+            byte[] frame = Files.readAllBytes(Paths.get(getClass().getClassLoader().getResource("eos/responses/" + name).toURI()));
+            recorded.add(frame);
+            bytes += frame.length;
+        }
+        bytes = bytes * FRAMES / recorded.size();
+
+        long legacy = measure(recorded, this::readLegacy);
+        long streaming = measure(recorded, this::readStreaming);
+        System.out.printf("%d blocks, %d MB: String and JsonNode %.1f ms, streaming %.1f ms, %.1fx.%n",
+                FRAMES,
+                bytes / 1024 / 1024,
+                legacy / 1e6 / ITERATIONS,
+                streaming / 1e6 / ITERATIONS,
+                (double) legacy / streaming);
+    }
+
+    private interface Subscription {
+        /**
+         * Returns the sum of transactions, actions and hash lengths to check that all the blocks are parsed.
+         */
+        long read(TcpClient tcpClient) throws Exception;
+    }
+
+    private long readLegacy(TcpClient tcpClient) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < FRAMES; i++) {
+            int length = tcpClient.readInt();
+            String json = tcpClient.readString(length);
+            BlockResponse block = objectMapper.treeToValue(objectMapper.readTree(json), BlockResponse.class);
+            checksum += checksum(block);
+        }
+        return checksum;
+    }
+
+    private long readStreaming(TcpClient tcpClient) throws Exception {
+        long checksum = 0;
+        FrameReader reader = new FrameReader("benchmark", tcpClient, 4, 16 * 1024);
+        reader.start();
+        for (int i = 0; i < FRAMES; i++) {
+            FrameReader.Frame frame = reader.take();
+            BlockResponse block;
+            try {
+                block = objectMapper.readValue(frame.getData(), 0, frame.getLength(), BlockResponse.class);
+            }
+            finally {
+                reader.release(frame);
+            }
+            checksum += checksum(block);
+        }
+        reader.close();
+        return checksum;
+    }
+
+    private long measure(List<byte[]> recorded, Subscription subscription) throws Exception {
+        long expected = 0;
+        for (int i = 0; i < FRAMES; i++) {
+            BlockResponse block = objectMapper.readValue(recorded.get(i % recorded.size()), BlockResponse.class);
+            expected += checksum(block);
+        }
+        long elapsed = 0;
+        try (ServerSocket server = new ServerSocket(0)) {
+            for (int i = 0; i < WARM_UP + ITERATIONS; i++) {
+                Thread publisher = publish(server, recorded);
+                long start = System.nanoTime();
+                TcpClient tcpClient = new TcpClient("127.0.0.1", server.getLocalPort(), 10000);
+                assertEquals(expected, subscription.read(tcpClient));
+                if (i >= WARM_UP) {
+                    elapsed += System.nanoTime() - start;
+                }
+                tcpClient.close();
+                publisher.join();
+            }
+        }
+        return elapsed;
+    }
+
+    private static long checksum(BlockResponse block) {
+        return block.getTransactions().size() + block.getTransactions().get(0).getActions().size()
+                + (block.getPrevious() == null ? 0 : block.getPrevious().length());
+    }
+
+    private static Thread publish(ServerSocket server, List<byte[]> recorded) {
+        Thread thread = new Thread(() -> {
+            try (Socket socket = server.accept()) {
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                for (int i = 0; i < FRAMES; i++) {
+                    byte[] frame = recorded.get(i % recorded.size());
+                    out.writeInt(Integer.reverseBytes(frame.length));
+                    out.write(frame);
+                }
+                out.flush();
+            }
+            catch (IOException e) {
+                // the subscriber closed the connection
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,84 @@
+package io.mywish.eoscli4j.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameReaderTest {
+    private final ServerSocket server = new ServerSocket(0);
+
+    public FrameReaderTest() throws IOException {
+    }
+
+    @After
+    public void close() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void framesTest() throws Exception {
+        List<byte[]> frames = Arrays.asList(frame(10, 1), frame(1000, 2), frame(0, 3), frame(20, 4));
+        Thread publisher = publish(frames);
+        FrameReader reader = new FrameReader("test", new TcpClient("127.0.0.1", server.getLocalPort(), 10000), 2, 16);
+        reader.start();
+        for (byte[] expected : frames) {
+            FrameReader.Frame frame = reader.take();
+            assertNotNull(frame);
+            assertArrayEquals(expected, Arrays.copyOf(frame.getData(), frame.getLength()));
+            reader.release(frame);
+        }
+        assertNull(reader.take());
+        assertTrue(reader.getFailure() instanceof EOFException);
+        assertNull(reader.take());
+        reader.close();
+        publisher.join();
+    }
+
+    @Test
+    public void closeTest() throws Exception {
+        publish(Arrays.asList(frame(10, 1), frame(10, 2)));
+        FrameReader reader = new FrameReader("test", new TcpClient("127.0.0.1", server.getLocalPort(), 10000), 1, 16);
+        reader.start();
+        FrameReader.Frame frame = reader.take();
+        assertEquals(10, frame.getLength());
+        // the second frame waits for the buffer
+        reader.close();
+        assertNull(reader.take());
+        assertNull(reader.getFailure());
+    }
+
+    private Thread publish(List<byte[]> frames) {
+        Thread thread = new Thread(() -> {
+            try (Socket socket = server.accept()) {
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                for (byte[] frame : frames) {
+                    out.writeInt(Integer.reverseBytes(frame.length));
+                    out.write(frame);
+                }
+                out.flush();
+            }
+            catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static byte[] frame(int length, int seed) {
+        byte[] frame = new byte[length];
+        for (int i = 0; i < length; i++) {
+            frame[i] = (byte) (seed + i);
+        }
+        return frame;
+    }
+}
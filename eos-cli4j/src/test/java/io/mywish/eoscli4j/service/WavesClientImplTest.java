@@ -40,6 +40,7 @@ public class WavesClientImplTest {
         String json = readJson("block.json");
         BlockResponse response = objectMapper.readValue(json, BlockResponse.class);
         assertNotNull(response);
+        assertEquals("00818e5b4f914a310f1a885ef886c374f775e7aff627458bf584f16c77e7dff1", response.getPrevious());
         assertNotNull(response.getTransactions().get(0).getId());
         assertEquals(3, response.getTransactions().get(0).getActions().size());
 //
@@ -1,6 +1,7 @@
 package io.lastwill.eventscan.services;
 
 import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.scanner.services.BackfillContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -14,6 +15,17 @@ public class BalanceProvider {
     private NetworkProvider networkProvider;
 
     public CompletableFuture<BigInteger> getBalanceAsync(NetworkType networkType, String address, long blockNo) {
+        // callbacks must see the backfill mark of the worker thread, so the balance is got synchronously
+        if (BackfillContext.isActive()) {
+            CompletableFuture<BigInteger> result = new CompletableFuture<>();
+            try {
+                result.complete(getBalance(networkType, address, blockNo));
+            }
+            catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
         return networkProvider.get(networkType).getBalanceAsync(address, blockNo);
     }
 
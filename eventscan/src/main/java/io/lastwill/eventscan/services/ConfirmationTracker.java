@@ -0,0 +1,256 @@
+package io.lastwill.eventscan.services;
+
+import io.mywish.blockchain.WrapperBlock;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Tracks confirmations of blocks of one network.
+ * The recent heights are kept in a ring of requiredChainLength + 1 slots, each slot has all blocks seen
+ * on the height and the one of them which is in the chain of the last added block. When the block is added,
+ * its ancestors are linked iteratively by parent hashes, then the heights which got requiredChainLength blocks
+ * above them are resolved one by one.
+ * Waiters are kept in a wheel of buckets by block number, so resolving the height touches only its bucket.
+ */
+@Slf4j
+public class ConfirmationTracker {
+    public enum Status {
+        NO_PARENT,
+        DUPLICATE,
+        OK
+    }
+
+    private final static int MIN_WHEEL_SIZE = 64;
+
+    @Getter
+    private final int requiredChainLength;
+    private final Slot[] slots;
+    private final List<Holder<?>>[] wheel;
+    private final int wheelMask;
+    private long tipNumber = -1;
+    private long confirmedNumber = -1;
+    @Getter
+    private int waiterCount;
+
+    @SuppressWarnings("unchecked")
+    public ConfirmationTracker(int requiredChainLength) {
+        if (requiredChainLength < 1) {
+            throw new IllegalArgumentException("Required chain length must be positive, but " + requiredChainLength);
+        }
+        this.requiredChainLength = requiredChainLength;
+        this.slots = new Slot[requiredChainLength + 1];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+        int wheelSize = Integer.highestOneBit(Math.max(MIN_WHEEL_SIZE, slots.length * 2) - 1) << 1;
+        this.wheel = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.wheelMask = wheelSize - 1;
+    }
+
+    /**
+     * Adds block to blockchain, the block becomes the top of the chain.
+     *
+     * @param block New block.
+     * @return OK if parent of this block was found in blockchain, or it is the first block.
+     */
+    public Status addBlock(WrapperBlock block) {
+        List<Resolution> resolutions = new ArrayList<>();
+        Status status;
+        synchronized (this) {
+            long number = block.getNumber();
+            if (tipNumber >= 0 && number <= tipNumber - slots.length) {
+                log.warn("Block {} is older than the tracked chain {}-{}, skip it.", number, tipNumber - slots.length + 1, tipNumber);
+                return Status.NO_PARENT;
+            }
+            Slot slot = getSlotForWrite(number);
+            if (slot.find(block.getHash()) != null) {
+                return Status.DUPLICATE;
+            }
+            boolean isFirst = tipNumber < 0;
+            slot.blocks.add(block);
+
+            for (long height = number + 1; height <= tipNumber; height++) {
+                Slot above = getSlot(height);
+                if (above != null) {
+                    above.canonical = null;
+                }
+            }
+            slot.canonical = block;
+            tipNumber = number;
+            if (isFirst) {
+                confirmedNumber = number - 1;
+            }
+            status = linkAncestors(block) || isFirst ? Status.OK : Status.NO_PARENT;
+
+            while (confirmedNumber < tipNumber - requiredChainLength) {
+                long height = ++confirmedNumber;
+                Slot confirmed = getSlot(height);
+                takeWaiters(height, confirmed == null ? null : confirmed.canonical, resolutions);
+            }
+        }
+        resolutions.forEach(Resolution::run);
+        return status;
+    }
+
+    /**
+     * Waits till the block gets requiredChainLength blocks above it. The waiter for the height which has left
+     * the tracked chain is committed at once, the block is deeper than required and can not be checked any more.
+     */
+    public <T> void waitCommitment(String blockHash, long blockNumber, T payload, Handler<T> handler) {
+        Holder<T> holder = new Holder<>(blockHash, blockNumber, payload, handler);
+        Resolution resolution = null;
+        int chainLength;
+        synchronized (this) {
+            if (tipNumber < 0 || blockNumber > confirmedNumber) {
+                wheel[(int) (blockNumber & wheelMask)].add(holder);
+                waiterCount++;
+                return;
+            }
+            chainLength = (int) (tipNumber - blockNumber);
+            Slot confirmed = getSlot(blockNumber);
+            if (confirmed != null) {
+                resolution = new Resolution(holder, confirmed.canonical, chainLength);
+            }
+        }
+        if (resolution == null) {
+            handler.committed(blockNumber, payload, chainLength);
+            return;
+        }
+        resolution.run();
+    }
+
+    public <T> CompletionStage<Boolean> waitCommitment(String blockHash, long blockNumber) {
+        final CompletableFuture<Boolean> completableFuture = new CompletableFuture<>();
+        waitCommitment(blockHash, blockNumber, null, new Handler<T>() {
+            @Override
+            public void committed(long blockNumber, T payload, int chainLength) {
+                completableFuture.complete(true);
+            }
+
+            @Override
+            public void rejected(long blockNumber, T payload, int chainLength) {
+                completableFuture.complete(false);
+            }
+        });
+        return completableFuture;
+    }
+
+    /**
+     * Marks ancestors of the block as the chain ones, till the block which is already in the chain.
+     *
+     * @return true if the parent of the block is known.
+     */
+    private boolean linkAncestors(WrapperBlock block) {
+        boolean hasParent = false;
+        String parentHash = block.getParentHash();
+        for (long height = block.getNumber() - 1; parentHash != null && height > tipNumber - slots.length; height--) {
+            Slot slot = getSlot(height);
+            WrapperBlock parent = slot == null ? null : slot.find(parentHash);
+            if (parent == null) {
+                break;
+            }
+            hasParent = true;
+            if (slot.canonical == parent) {
+                break;
+            }
+            slot.canonical = parent;
+            parentHash = parent.getParentHash();
+        }
+        return hasParent;
+    }
+
+    private void takeWaiters(long height, WrapperBlock canonical, List<Resolution> resolutions) {
+        List<Holder<?>> bucket = wheel[(int) (height & wheelMask)];
+        if (bucket.isEmpty()) {
+            return;
+        }
+        int chainLength = (int) (tipNumber - height);
+        int kept = 0;
+        for (Holder<?> holder : bucket) {
+            if (holder.blockNumber == height) {
+                resolutions.add(new Resolution(holder, canonical, chainLength));
+            }
+            else {
+                bucket.set(kept++, holder);
+            }
+        }
+        waiterCount -= bucket.size() - kept;
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    private Slot getSlot(long number) {
+        Slot slot = slots[(int) (number % slots.length)];
+        return slot.number == number ? slot : null;
+    }
+
+    private Slot getSlotForWrite(long number) {
+        Slot slot = slots[(int) (number % slots.length)];
+        if (slot.number != number) {
+            slot.number = number;
+            slot.blocks.clear();
+            slot.canonical = null;
+        }
+        return slot;
+    }
+
+    public interface Handler<T> {
+        void committed(long blockNumber, T payload, int chainLength);
+
+        void rejected(long blockNumber, T payload, int chainLength);
+    }
+
+    private static class Slot {
+        private long number = -1;
+        private final List<WrapperBlock> blocks = new ArrayList<>(1);
+        private WrapperBlock canonical;
+
+        private WrapperBlock find(String hash) {
+            for (WrapperBlock block : blocks) {
+                if (block.getHash().equals(hash)) {
+                    return block;
+                }
+            }
+            return null;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Holder<T> {
+        private final String blockHash;
+        private final long blockNumber;
+        private final T payload;
+        private final Handler<T> handler;
+    }
+
+    @RequiredArgsConstructor
+    private static class Resolution {
+        private final Holder<?> holder;
+        private final WrapperBlock canonical;
+        private final int chainLength;
+
+        private void run() {
+            if (canonical == null) {
+                log.error("Chain is broken on level {}, the waiter is rejected.", holder.blockNumber);
+            }
+            resolve(holder);
+        }
+
+        private <T> void resolve(Holder<T> waiter) {
+            if (canonical != null && canonical.getHash().equals(waiter.blockHash)) {
+                waiter.handler.committed(waiter.blockNumber, waiter.payload, chainLength);
+            }
+            else {
+                waiter.handler.rejected(waiter.blockNumber, waiter.payload, chainLength);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.lastwill.eventscan.services;
+
+import io.lastwill.eventscan.messages.BaseNotify;
+import io.lastwill.eventscan.messages.PaymentStatus;
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperTransaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks notifications about transactions of the network blocks which are processed before they are committed.
+ * The committed notification about such transaction is sent as pending at once and is held back till the block
+ * is committed or rolled back. If the block is processed again after the restart, the pending notification
+ * was sent before, so it is not sent again.
+ */
+public class TentativeNotifications {
+    private final static int REJECTED_CACHE_SIZE = 10000;
+
+    private final Map<String, String> blockHashByTxHash = new HashMap<>();
+    private final Map<String, List<BaseNotify>> heldByBlockHash = new HashMap<>();
+    private final Set<String> replayedBlockHashes = new HashSet<>();
+    private final Set<String> rejectedTxHashes = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > REJECTED_CACHE_SIZE;
+        }
+    });
+
+    /**
+     * Remembers transactions of the processed but not committed block.
+     *
+     * @param replayed true if the block was processed before the restart.
+     */
+    public synchronized void onBlock(WrapperBlock block, boolean replayed) {
+        if (replayed) {
+            replayedBlockHashes.add(block.getHash());
+        }
+        for (WrapperTransaction transaction : block.getTransactions()) {
+            blockHashByTxHash.put(transaction.getHash(), block.getHash());
+            rejectedTxHashes.remove(transaction.getHash());
+        }
+    }
+
+    /**
+     * Returns the status which the notification must be sent with right now.
+     * If the transaction is in the not committed block, the notification is held back.
+     *
+     * @return null if nothing must be sent right now.
+     */
+    public synchronized PaymentStatus hold(BaseNotify notify) {
+        if (notify.getStatus() != PaymentStatus.COMMITTED || notify.getTransactionHash() == null) {
+            return notify.getStatus();
+        }
+        String blockHash = blockHashByTxHash.get(notify.getTransactionHash());
+        if (blockHash != null) {
+            heldByBlockHash.computeIfAbsent(blockHash, hash -> new ArrayList<>()).add(notify);
+            return replayedBlockHashes.contains(blockHash) ? null : PaymentStatus.PENDING;
+        }
+        if (rejectedTxHashes.contains(notify.getTransactionHash())) {
+            return PaymentStatus.REJECTED;
+        }
+        return notify.getStatus();
+    }
+
+    /**
+     * Forgets the committed block.
+     *
+     * @return notifications which were held back by the block.
+     */
+    public synchronized List<BaseNotify> commit(WrapperBlock block) {
+        for (WrapperTransaction transaction : block.getTransactions()) {
+            blockHashByTxHash.remove(transaction.getHash(), block.getHash());
+        }
+        replayedBlockHashes.remove(block.getHash());
+        List<BaseNotify> held = heldByBlockHash.remove(block.getHash());
+        return held == null ? Collections.emptyList() : held;
+    }
+
+    /**
+     * Forgets the rolled back blocks. Transactions which are in the replacement blocks are not rejected,
+     * they are notified again when the replacement blocks are processed.
+     *
+     * @return notifications which were held back by the blocks and must be rejected.
+     */
+    public synchronized List<BaseNotify> rollback(List<WrapperBlock> rolledBackBlocks, List<WrapperBlock> replacementBlocks) {
+        Set<String> replacementTxHashes = new HashSet<>();
+        for (WrapperBlock block : replacementBlocks) {
+            for (WrapperTransaction transaction : block.getTransactions()) {
+                replacementTxHashes.add(transaction.getHash());
+            }
+        }
+        List<BaseNotify> rejected = new ArrayList<>();
+        for (WrapperBlock block : rolledBackBlocks) {
+            for (WrapperTransaction transaction : block.getTransactions()) {
+                blockHashByTxHash.remove(transaction.getHash(), block.getHash());
+                if (!replacementTxHashes.contains(transaction.getHash())) {
+                    rejectedTxHashes.add(transaction.getHash());
+                }
+            }
+            replayedBlockHashes.remove(block.getHash());
+            List<BaseNotify> held = heldByBlockHash.remove(block.getHash());
+            if (held == null) {
+                continue;
+            }
+            for (BaseNotify notify : held) {
+                if (!replacementTxHashes.contains(notify.getTransactionHash())) {
+                    rejected.add(notify);
+                }
+            }
+        }
+        return rejected;
+    }
+}
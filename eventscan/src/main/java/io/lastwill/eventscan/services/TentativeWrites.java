@@ -0,0 +1,115 @@
+package io.lastwill.eventscan.services;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.scanner.model.BlockCommittedEvent;
+import io.mywish.scanner.model.BlockRollbackEvent;
+import io.mywish.scanner.services.BackfillContext;
+import io.mywish.scanner.services.ScannerPolling;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Database writes made on the blocks of the networks which are scanned at the tip of the chain.
+ * They are deferred till the block is committed and dropped if it is rolled back, the replacement blocks
+ * make their own writes. Writes on the other networks and on the committed blocks are run at once.
+ */
+@Slf4j
+@Component
+public class TentativeWrites {
+    @Autowired(required = false)
+    private List<ScannerPolling> scanners = Collections.emptyList();
+
+    private final Map<NetworkType, Long> committedByNetwork = new EnumMap<>(NetworkType.class);
+    private final Map<String, Deferred> deferredByBlockHash = new HashMap<>();
+
+    @PostConstruct
+    protected void init() {
+        for (ScannerPolling scanner : scanners) {
+            if (scanner.isReorgTracking()) {
+                committedByNetwork.put(scanner.getNetwork().getType(), -1L);
+            }
+        }
+    }
+
+    /**
+     * Runs the write when the block is committed.
+     */
+    public void run(NetworkType networkType, WrapperBlock block, Runnable write) {
+        synchronized (this) {
+            Long committed = committedByNetwork.get(networkType);
+            if (committed != null && !BackfillContext.isActive() && block.getNumber() > committed) {
+                deferredByBlockHash.computeIfAbsent(block.getHash(), hash -> new Deferred(networkType, block.getNumber()))
+                        .writes
+                        .add(write);
+                return;
+            }
+        }
+        write.run();
+    }
+
+    @EventListener
+    private void onBlockCommitted(final BlockCommittedEvent event) {
+        List<Runnable> writes = Collections.emptyList();
+        synchronized (this) {
+            if (!committedByNetwork.containsKey(event.getNetworkType())) {
+                return;
+            }
+            long number = event.getBlock().getNumber();
+            committedByNetwork.put(event.getNetworkType(), number);
+            Deferred deferred = deferredByBlockHash.remove(event.getBlock().getHash());
+            if (deferred != null) {
+                writes = deferred.writes;
+            }
+            // writes of the abandoned blocks which came after the rollback
+            Iterator<Deferred> iterator = deferredByBlockHash.values().iterator();
+            while (iterator.hasNext()) {
+                Deferred abandoned = iterator.next();
+                if (abandoned.networkType == event.getNetworkType() && abandoned.number <= number) {
+                    iterator.remove();
+                }
+            }
+        }
+        for (Runnable write : writes) {
+            try {
+                write.run();
+            }
+            catch (Throwable e) {
+                log.error("{}: deferred write of block {} failed.", event.getNetworkType(), event.getBlock().getNumber(), e);
+            }
+        }
+    }
+
+    @EventListener
+    private synchronized void onBlockRollback(final BlockRollbackEvent event) {
+        for (WrapperBlock block : event.getRolledBackBlocks()) {
+            Deferred deferred = deferredByBlockHash.remove(block.getHash());
+            if (deferred != null) {
+                log.warn("{}: block {} is rolled back, {} deferred writes are dropped.",
+                        event.getNetworkType(), block.getNumber(), deferred.writes.size());
+            }
+        }
+    }
+
+    private static class Deferred {
+        private final NetworkType networkType;
+        private final long number;
+        private final List<Runnable> writes = new ArrayList<>();
+
+        private Deferred(NetworkType networkType, long number) {
+            this.networkType = networkType;
+            this.number = number;
+        }
+    }
+}
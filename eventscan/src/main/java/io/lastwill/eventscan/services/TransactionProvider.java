@@ -3,12 +3,15 @@ package io.lastwill.eventscan.services;
 import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.blockchain.WrapperTransactionReceipt;
 import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.scanner.services.BackfillContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 
@@ -17,8 +20,64 @@ public class TransactionProvider {
     @Autowired
     private NetworkProvider networkProvider;
 
+    @Autowired
+    private TransactionReceiptCache receiptCache;
+
     public WrapperTransactionReceipt getTransactionReceipt(final NetworkType networkType, final WrapperTransaction transaction) throws Exception {
-        return networkProvider.get(networkType).getTxReceipt(transaction);
+        CompletableFuture<WrapperTransactionReceipt> future = new CompletableFuture<>();
+        CompletableFuture<WrapperTransactionReceipt> existing = receiptCache.putIfAbsent(networkType, transaction.getHash(), future);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            WrapperTransactionReceipt receipt = networkProvider.get(networkType).getTxReceipt(transaction);
+            future.complete(receipt);
+            return receipt;
+        }
+        catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns receipts in the order of the transactions, using batch request if the network supports it.
+     */
+    public List<WrapperTransactionReceipt> getTransactionReceipts(final NetworkType networkType, final List<WrapperTransaction> transactions) throws Exception {
+        List<CompletableFuture<WrapperTransactionReceipt>> futures = new ArrayList<>(transactions.size());
+        List<WrapperTransaction> missed = new ArrayList<>();
+        List<CompletableFuture<WrapperTransactionReceipt>> missedFutures = new ArrayList<>();
+        for (WrapperTransaction transaction : transactions) {
+            CompletableFuture<WrapperTransactionReceipt> future = new CompletableFuture<>();
+            CompletableFuture<WrapperTransactionReceipt> existing = receiptCache.putIfAbsent(networkType, transaction.getHash(), future);
+            if (existing != null) {
+                futures.add(existing);
+            }
+            else {
+                futures.add(future);
+                missed.add(transaction);
+                missedFutures.add(future);
+            }
+        }
+
+        if (!missed.isEmpty()) {
+            try {
+                List<WrapperTransactionReceipt> receipts = networkProvider.get(networkType).getTxReceipts(missed);
+                for (int i = 0; i < missedFutures.size(); i++) {
+                    missedFutures.get(i).complete(receipts.get(i));
+                }
+            }
+            catch (Exception e) {
+                missedFutures.forEach(future -> future.completeExceptionally(e));
+                throw e;
+            }
+        }
+
+        List<WrapperTransactionReceipt> result = new ArrayList<>(futures.size());
+        for (CompletableFuture<WrapperTransactionReceipt> future : futures) {
+            result.add(join(future));
+        }
+        return result;
     }
 
     private static <T> CompletableFuture<List<T>> sequence(List<CompletableFuture<T>> futures) {
@@ -33,7 +92,45 @@ public class TransactionProvider {
     }
 
     public CompletionStage<WrapperTransactionReceipt> getTransactionReceiptAsync(NetworkType networkType, WrapperTransaction transaction) {
-        return networkProvider.get(networkType).getTxReceiptAsync(transaction);
+        // backfill workers run the callbacks on their own threads, so the receipt is got synchronously
+        if (BackfillContext.isActive()) {
+            CompletableFuture<WrapperTransactionReceipt> result = new CompletableFuture<>();
+            try {
+                result.complete(getTransactionReceipt(networkType, transaction));
+            }
+            catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+        CompletableFuture<WrapperTransactionReceipt> future = new CompletableFuture<>();
+        CompletableFuture<WrapperTransactionReceipt> existing = receiptCache.putIfAbsent(networkType, transaction.getHash(), future);
+        if (existing != null) {
+            return existing;
+        }
+        networkProvider.get(networkType)
+                .getTxReceiptAsync(transaction)
+                .whenComplete((receipt, throwable) -> {
+                    if (throwable != null) {
+                        future.completeExceptionally(throwable);
+                    }
+                    else {
+                        future.complete(receipt);
+                    }
+                });
+        return future;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
     }
 //
 //    public CompletionStage<List<TransactionReceipt>> getTransactionReceiptsAsync(Collection<String> hashes) {
@@ -0,0 +1,141 @@
+package io.lastwill.eventscan.services;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.blockchain.WrapperTransactionReceipt;
+import io.mywish.scanner.model.BlockRollbackEvent;
+import io.mywish.scanner.model.NewBlockEvent;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps receipts of the recent transactions, so monitors handling the same block do not request them again.
+ * Concurrent requests of the same receipt share one future. Entries are evicted in insertion order when the network
+ * moves more than keepBlocks blocks ahead, when ttl is expired, or when there are more than maxSize entries.
+ * Receipts of the transactions of the rolled back blocks are evicted at once, they belong to the abandoned chain.
+ */
+@Slf4j
+@Component
+public class TransactionReceiptCache {
+    @Getter
+    @Value("${io.lastwill.eventscan.receipt-cache.max-size:10000}")
+    private int maxSize;
+
+    @Getter
+    @Value("${io.lastwill.eventscan.receipt-cache.ttl-ms:600000}")
+    private long ttl;
+
+    @Getter
+    @Value("${io.lastwill.eventscan.receipt-cache.keep-blocks:12}")
+    private long keepBlocks;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final Map<NetworkType, Long> lastBlocks = new ConcurrentHashMap<>();
+
+    @Getter
+    private final AtomicLong hits = new AtomicLong();
+    @Getter
+    private final AtomicLong misses = new AtomicLong();
+    @Getter
+    private final AtomicLong evictions = new AtomicLong();
+
+    @EventListener
+    private void onNewBlock(final NewBlockEvent event) {
+        lastBlocks.merge(event.getNetworkType(), event.getBlock().getNumber(), Math::max);
+        evict();
+    }
+
+    @EventListener
+    private void onBlockRollback(final BlockRollbackEvent event) {
+        for (WrapperBlock block : event.getRolledBackBlocks()) {
+            for (WrapperTransaction transaction : block.getTransactions()) {
+                if (entries.remove(new Key(event.getNetworkType(), transaction.getHash())) != null) {
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Registers the future for the receipt if there is no one yet.
+     * If null is returned, the caller must fetch the receipt and complete the passed future.
+     *
+     * @return the existing future, or null if the passed future was registered.
+     */
+    public CompletableFuture<WrapperTransactionReceipt> putIfAbsent(
+            NetworkType networkType,
+            String hash,
+            CompletableFuture<WrapperTransactionReceipt> future
+    ) {
+        Key key = new Key(networkType, hash);
+        Entry entry = new Entry(key, future, lastBlocks.getOrDefault(networkType, 0L), System.currentTimeMillis());
+        Entry existing = entries.putIfAbsent(key, entry);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return existing.future;
+        }
+        misses.incrementAndGet();
+        insertionOrder.add(entry);
+        // do not keep failures and missed receipts, the next request should try again
+        future.whenComplete((receipt, throwable) -> {
+            if (throwable != null || receipt == null) {
+                entries.remove(key, entry);
+            }
+        });
+        if (entries.size() > maxSize) {
+            evict();
+        }
+        return null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Entry head;
+        while ((head = insertionOrder.peek()) != null) {
+            boolean isRemoved = entries.get(head.key) != head;
+            long lastBlock = lastBlocks.getOrDefault(head.key.networkType, head.blockNo);
+            if (!isRemoved
+                    && entries.size() <= maxSize
+                    && head.createdAt + ttl > now
+                    && head.blockNo + keepBlocks >= lastBlock) {
+                break;
+            }
+            if (insertionOrder.remove(head) && entries.remove(head.key, head)) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final NetworkType networkType;
+        private final String hash;
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final Key key;
+        private final CompletableFuture<WrapperTransactionReceipt> future;
+        private final long blockNo;
+        private final long createdAt;
+    }
+}
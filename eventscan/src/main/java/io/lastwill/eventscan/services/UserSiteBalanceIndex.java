@@ -0,0 +1,159 @@
+package io.lastwill.eventscan.services;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.lastwill.eventscan.repositories.UserSiteBalanceRepository;
+import io.mywish.scanner.services.WatchedAddressFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of the user deposit addresses, so payment monitors query DB only for blocks with deposits.
+ * Addresses are compared exactly as they are stored. The index is loaded on start and then extended
+ * by the balances created since the last refresh and by the balances which had some address missing.
+ * Changed addresses are picked up by the full reload, it also forgets the addresses which are not used anymore.
+ * It also filters the pending transactions of the networks which the payment monitors scan.
+ */
+@Slf4j
+@Component
+public class UserSiteBalanceIndex implements WatchedAddressFilter {
+    public enum AddressType {
+        ETH,
+        TRON,
+        BTC
+    }
+
+    private final static int IDS_PER_QUERY = 1000;
+
+    @Autowired
+    private UserSiteBalanceRepository userSiteBalanceRepository;
+
+    @Value("${io.lastwill.eventscan.balance-index.full-reload-interval-ms:3600000}")
+    private long fullReloadInterval;
+
+    private volatile Map<AddressType, Set<String>> addresses = newAddresses();
+    private final Set<Integer> incomplete = ConcurrentHashMap.newKeySet();
+    private int lastId = 0;
+    private long lastFullReload;
+
+    @PostConstruct
+    protected void init() {
+        refresh();
+        addresses.forEach((type, set) -> log.info("User balance index loaded: {} {} addresses.", set.size(), type));
+    }
+
+    @Scheduled(fixedDelayString = "${io.lastwill.eventscan.balance-index.refresh-interval-ms:10000}",
+            initialDelayString = "${io.lastwill.eventscan.balance-index.refresh-interval-ms:10000}")
+    public synchronized void refresh() {
+        try {
+            long now = System.currentTimeMillis();
+            if (lastFullReload == 0 || now - lastFullReload >= fullReloadInterval) {
+                reload();
+                lastFullReload = now;
+                return;
+            }
+            List<Object[]> rows = userSiteBalanceRepository.findAddressesAfterId(lastId);
+            add(addresses, rows);
+
+            List<Integer> ids = new ArrayList<>(incomplete);
+            for (int i = 0; i < ids.size(); i += IDS_PER_QUERY) {
+                add(addresses, userSiteBalanceRepository.findAddressesByIds(ids.subList(i, Math.min(i + IDS_PER_QUERY, ids.size()))));
+            }
+        }
+        catch (Exception e) {
+            log.error("Error on refreshing user balance index.", e);
+        }
+    }
+
+    /**
+     * Loads all the balances to the new sets, so the addresses which were changed are dropped.
+     */
+    private void reload() {
+        Map<AddressType, Set<String>> reloaded = newAddresses();
+        incomplete.clear();
+        lastId = 0;
+        add(reloaded, userSiteBalanceRepository.findAddressesAfterId(lastId));
+        addresses = reloaded;
+    }
+
+    public boolean contains(AddressType type, String address) {
+        return address != null && addresses.get(type).contains(address);
+    }
+
+    @Override
+    public boolean isWatched(NetworkType networkType, String address) {
+        switch (networkType) {
+            case ETHEREUM_MAINNET:
+                return contains(AddressType.ETH, address);
+            case TRON_MAINNET:
+                return contains(AddressType.TRON, address);
+            case BTC_MAINNET:
+                return contains(AddressType.BTC, address);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the addresses which belong to user balances.
+     */
+    public Set<String> filter(AddressType type, Collection<String> candidates) {
+        Set<String> known = addresses.get(type);
+        if (known.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> result = new HashSet<>();
+        for (String candidate : candidates) {
+            if (candidate != null && known.contains(candidate)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    private void add(Map<AddressType, Set<String>> target, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            Integer id = (Integer) row[0];
+            lastId = Math.max(lastId, id);
+            boolean complete = add(target, AddressType.ETH, (String) row[1]);
+            complete &= add(target, AddressType.TRON, (String) row[2]);
+            complete &= add(target, AddressType.BTC, (String) row[3]);
+            if (complete) {
+                incomplete.remove(id);
+            }
+            else {
+                // the missing address may be generated later
+                incomplete.add(id);
+            }
+        }
+    }
+
+    private static boolean add(Map<AddressType, Set<String>> target, AddressType type, String address) {
+        if (address == null || address.isEmpty()) {
+            return false;
+        }
+        target.get(type).add(address);
+        return true;
+    }
+
+    private static Map<AddressType, Set<String>> newAddresses() {
+        Map<AddressType, Set<String>> result = new EnumMap<>(AddressType.class);
+        for (AddressType type : AddressType.values()) {
+            result.put(type, ConcurrentHashMap.newKeySet());
+        }
+        return result;
+    }
+}
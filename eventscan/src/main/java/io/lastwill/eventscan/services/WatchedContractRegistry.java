@@ -0,0 +1,211 @@
+package io.lastwill.eventscan.services;
+
+import io.lastwill.eventscan.events.model.ContractCreatedEvent;
+import io.lastwill.eventscan.model.NetworkType;
+import io.lastwill.eventscan.repositories.ContractRepository;
+import io.mywish.scanner.services.WatchedAddressFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of contract addresses by network, so blocks without contract addresses do not hit the DB.
+ * It is loaded on start, updated by {@link ContractCreatedEvent} and refreshed periodically by the contracts
+ * created since the last refresh and by the contracts which had no address yet. A contract is checked for
+ * the address for max-address-wait-ms after it is found, and is not checked anymore when it is deleted.
+ * The full reload drops the addresses of the deleted contracts, the addresses got from the events are kept
+ * until the contract has the address in DB.
+ * It also filters the pending transactions of the networks which receive the whole mempool.
+ */
+@Slf4j
+@Component
+public class WatchedContractRegistry implements WatchedAddressFilter {
+    private final static int IDS_PER_QUERY = 1000;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Value("${io.lastwill.eventscan.contract-registry.full-reload-interval-ms:3600000}")
+    private long fullReloadInterval;
+
+    @Value("${io.lastwill.eventscan.contract-registry.max-address-wait-ms:604800000}")
+    private long maxAddressWait;
+
+    private volatile Map<NetworkType, Set<String>> addressesByNetwork = new ConcurrentHashMap<>();
+    /**
+     * Time when the contract without address was found, by contract id.
+     */
+    private final Map<Integer, Long> withoutAddress = new ConcurrentHashMap<>();
+    /**
+     * Addresses from {@link ContractCreatedEvent} of the contracts which have no address in DB yet.
+     */
+    private final Map<Integer, CreatedAddress> createdAddresses = new ConcurrentHashMap<>();
+    private int lastId = 0;
+    private long lastFullReload;
+
+    @PostConstruct
+    protected void init() {
+        refresh();
+        log.info("Contract registry loaded: {} addresses, {} contracts without address.",
+                size(), withoutAddress.size());
+    }
+
+    @Scheduled(fixedDelayString = "${io.lastwill.eventscan.contract-registry.refresh-interval-ms:60000}",
+            initialDelayString = "${io.lastwill.eventscan.contract-registry.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        try {
+            long now = System.currentTimeMillis();
+            if (lastFullReload == 0 || now - lastFullReload >= fullReloadInterval) {
+                reload(now);
+                lastFullReload = now;
+                return;
+            }
+            add(addressesByNetwork, contractRepository.findAddressesAfterId(lastId), now);
+
+            List<Integer> ids = new ArrayList<>();
+            withoutAddress.forEach((id, since) -> {
+                if (now - since < maxAddressWait) {
+                    ids.add(id);
+                }
+                else {
+                    log.info("Contract {} has no address for {} ms, it is not checked anymore.", id, now - since);
+                    forget(id);
+                }
+            });
+            for (int i = 0; i < ids.size(); i += IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(i, Math.min(i + IDS_PER_QUERY, ids.size()));
+                List<Object[]> rows = contractRepository.findAddressesByIds(chunk);
+                add(addressesByNetwork, rows, now);
+                Set<Integer> deleted = new HashSet<>(chunk);
+                rows.forEach(row -> deleted.remove((Integer) row[0]));
+                deleted.forEach(this::forget);
+            }
+        }
+        catch (Exception e) {
+            log.error("Error on refreshing contract registry.", e);
+        }
+    }
+
+    /**
+     * Loads all the contracts to the new sets, so the addresses of the deleted contracts are dropped.
+     * Contracts which had no address before the reload keep their waiting time, the contracts which were
+     * not checked anymore are not checked again.
+     */
+    private void reload(long now) {
+        Map<NetworkType, Set<String>> reloaded = new ConcurrentHashMap<>();
+        Map<Integer, Long> waiting = new HashMap<>();
+        int previousLastId = lastId;
+        for (Object[] row : contractRepository.findAddressesAfterId(0)) {
+            Integer id = (Integer) row[0];
+            String address = (String) row[1];
+            lastId = Math.max(lastId, id);
+            if (address != null && !address.isEmpty()) {
+                createdAddresses.remove(id);
+                add(reloaded, (NetworkType) row[2], address);
+                continue;
+            }
+            Long since = withoutAddress.get(id);
+            if (since != null || id > previousLastId) {
+                waiting.put(id, since == null ? now : since);
+            }
+        }
+        // the contracts created after the query are found by the next refresh
+        int loadedId = lastId;
+        withoutAddress.keySet().removeIf(id -> id <= loadedId && !waiting.containsKey(id));
+        waiting.forEach(withoutAddress::putIfAbsent);
+        createdAddresses.keySet().removeIf(id -> id <= loadedId && !withoutAddress.containsKey(id));
+        addressesByNetwork = reloaded;
+        // the events handled during the reload are added to the previous sets
+        createdAddresses.values().forEach(created -> add(addressesByNetwork, created.networkType, created.address));
+    }
+
+    @EventListener
+    private void onContractCreated(final ContractCreatedEvent event) {
+        if (event.getAddress() == null) {
+            return;
+        }
+        String address = event.getAddress().toLowerCase();
+        // the address is kept through the reload until the contract has it in DB
+        withoutAddress.putIfAbsent(event.getContract().getId(), System.currentTimeMillis());
+        createdAddresses.put(event.getContract().getId(), new CreatedAddress(event.getNetworkType(), address));
+        add(addressesByNetwork, event.getNetworkType(), address);
+    }
+
+    /**
+     * Returns the lower cased addresses which belong to contracts in the network.
+     */
+    public Set<String> filterWatched(NetworkType networkType, Collection<String> addresses) {
+        Set<String> watched = addressesByNetwork.get(networkType);
+        if (watched == null || watched.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> result = new HashSet<>();
+        for (String address : addresses) {
+            if (address != null && watched.contains(address.toLowerCase())) {
+                result.add(address.toLowerCase());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isWatched(NetworkType networkType, String address) {
+        Set<String> watched = addressesByNetwork.get(networkType);
+        return watched != null && address != null && watched.contains(address.toLowerCase());
+    }
+
+    public int size() {
+        return addressesByNetwork.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void add(Map<NetworkType, Set<String>> target, List<Object[]> rows, long now) {
+        for (Object[] row : rows) {
+            Integer id = (Integer) row[0];
+            String address = (String) row[1];
+            lastId = Math.max(lastId, id);
+            if (address == null || address.isEmpty()) {
+                withoutAddress.putIfAbsent(id, now);
+                continue;
+            }
+            withoutAddress.remove(id);
+            createdAddresses.remove(id);
+            add(target, (NetworkType) row[2], address);
+        }
+    }
+
+    /**
+     * Stops checking the contract, the address got from the event is dropped by the next full reload.
+     */
+    private void forget(Integer id) {
+        withoutAddress.remove(id);
+        createdAddresses.remove(id);
+    }
+
+    private static void add(Map<NetworkType, Set<String>> target, NetworkType networkType, String address) {
+        target.computeIfAbsent(networkType, type -> ConcurrentHashMap.newKeySet()).add(address);
+    }
+
+    private static class CreatedAddress {
+        private final NetworkType networkType;
+        private final String address;
+
+        private CreatedAddress(NetworkType networkType, String address) {
+            this.networkType = networkType;
+            this.address = address;
+        }
+    }
+}
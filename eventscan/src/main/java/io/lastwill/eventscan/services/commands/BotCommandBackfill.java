@@ -0,0 +1,75 @@
+package io.lastwill.eventscan.services.commands;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.bot.service.BotCommand;
+import io.mywish.bot.service.ChatContext;
+import io.mywish.scanner.services.BackfillService;
+import io.mywish.scanner.services.ScannerBackfill;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class BotCommandBackfill implements BotCommand {
+    @Getter
+    private final String name = "/backfill";
+    @Getter
+    private final String usage = "[<network> <from> <to> [workers] [notify] | cancel <network>]";
+    @Getter
+    private final String description = "Rescan blocks of the network in background";
+
+    @Autowired
+    private BackfillService backfillService;
+
+    @Override
+    public void execute(ChatContext context, List<String> args) {
+        try {
+            if (args.isEmpty()) {
+                printJobs(context);
+            }
+            else if (args.size() == 2 && args.get(0).equals("cancel")) {
+                NetworkType networkType = NetworkType.valueOf(args.get(1).toUpperCase());
+                context.sendMessage(backfillService.cancel(networkType)
+                        ? "Backfill for " + networkType + " is cancelled."
+                        : "There is no running backfill for " + networkType + ".");
+            }
+            else if (args.size() >= 3 && args.size() <= 5) {
+                NetworkType networkType = NetworkType.valueOf(args.get(0).toUpperCase());
+                long from = Long.parseLong(args.get(1));
+                long to = Long.parseLong(args.get(2));
+                int workers = args.size() > 3 ? Integer.parseInt(args.get(3)) : 1;
+                boolean notify = args.size() > 4 && Boolean.parseBoolean(args.get(4));
+                ScannerBackfill backfill = backfillService.start(networkType, from, to, workers, notify);
+                context.sendMessage("Backfill " + from + "-" + to + " for " + networkType + " is " + backfill.getState() + ".");
+            }
+            else {
+                context.sendMessage("Usage: " + name + " " + usage);
+            }
+        }
+        catch (IllegalArgumentException | IllegalStateException e) {
+            context.sendMessage(e.getMessage());
+        }
+    }
+
+    private void printJobs(ChatContext context) {
+        List<ScannerBackfill> jobs = backfillService.getJobs();
+        if (jobs.isEmpty()) {
+            context.sendMessage("There are no backfills.");
+            return;
+        }
+        List<String> messages = new ArrayList<>();
+        for (ScannerBackfill backfill : jobs) {
+            messages.add(backfill.getNetworkType() + " " + backfill.getFromBlock() + "-" + backfill.getToBlock() +
+                    "\n\tState: " + backfill.getState() +
+                    "\n\tCompleted up to: " + backfill.getCompletedBlock() +
+                    "\n\tProcessed blocks: " + backfill.getProcessedBlocks().get() +
+                    "\n\tWorkers: " + backfill.getWorkers() +
+                    "\n\tNotifications: " + (backfill.isNotificationsEnabled() ? "on" : "off")
+            );
+        }
+        context.sendMessage(String.join("\n\n", messages));
+    }
+}
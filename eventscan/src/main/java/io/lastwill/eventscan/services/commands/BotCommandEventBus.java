@@ -0,0 +1,50 @@
+package io.lastwill.eventscan.services.commands;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.bot.service.BotCommand;
+import io.mywish.bot.service.ChatContext;
+import io.mywish.scanner.services.EventPublisher;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class BotCommandEventBus implements BotCommand {
+    @Getter
+    private final String name = "/eventbus";
+    @Getter
+    private final String usage = "";
+    @Getter
+    private final String description = "Event bus queues state";
+
+    @Autowired
+    private EventPublisher eventPublisher;
+
+    @Override
+    public void execute(ChatContext context, List<String> args) {
+        if (eventPublisher.getConsumerList().isEmpty()) {
+            context.sendMessage("Event bus is synchronous.");
+            return;
+        }
+        List<String> messages = new ArrayList<>();
+        for (EventPublisher.Consumer consumer : eventPublisher.getConsumerList()) {
+            List<String> networks = new ArrayList<>();
+            for (NetworkType network : NetworkType.values()) {
+                if (network.ordinal() % eventPublisher.getConsumers() == consumer.getIndex()) {
+                    networks.add(network.name());
+                }
+            }
+            messages.add("Consumer " + consumer.getIndex() +
+                    "\n\tQueue: " + consumer.getQueueDepth() + "/" + eventPublisher.getQueueCapacity() +
+                    "\n\tMax queue: " + consumer.getMaxQueueDepth().get() +
+                    "\n\tDelivered: " + consumer.getDelivered().get() +
+                    "\n\tBlocked publishes: " + consumer.getBlockedPublishes().get() +
+                    "\n\tNetworks: " + String.join(", ", networks)
+            );
+        }
+        context.sendMessage(String.join("\n\n", messages));
+    }
+}
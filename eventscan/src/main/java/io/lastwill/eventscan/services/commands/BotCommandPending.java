@@ -0,0 +1,91 @@
+package io.lastwill.eventscan.services.commands;
+
+import io.mywish.bot.service.BotCommand;
+import io.mywish.btc.blockchain.helper.MempoolTracker;
+import io.mywish.btc.blockchain.services.BtcNetwork;
+import io.mywish.bot.service.ChatContext;
+import io.mywish.duc.blockchain.services.DucNetwork;
+import io.mywish.scanner.services.PendingTransactionService;
+import io.mywish.scanner.services.PendingTransactionStore;
+import io.mywish.web3.blockchain.service.Web3Network;
+import io.mywish.web3.blockchain.service.Web3PendingTransactions;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Component
+public class BotCommandPending implements BotCommand {
+    @Getter
+    private final String name = "/pending";
+    @Getter
+    private final String usage = "";
+    @Getter
+    private final String description = "Pending transactions kept in memory";
+
+    @Autowired(required = false)
+    private List<PendingTransactionService> pendingTransactionServices = Collections.emptyList();
+
+    @Autowired(required = false)
+    private List<Web3Network> web3Networks = Collections.emptyList();
+
+    @Autowired(required = false)
+    private List<BtcNetwork> btcNetworks = Collections.emptyList();
+
+    @Autowired(required = false)
+    private List<DucNetwork> ducNetworks = Collections.emptyList();
+
+    @Override
+    public void execute(ChatContext context, List<String> args) {
+        List<String> messages = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (PendingTransactionService service : pendingTransactionServices) {
+            PendingTransactionStore.Stats stats = service.getStore().getStats(now);
+            messages.add(service.getNetworkType() +
+                    "\n\tPending: " + stats.getSize() + "/" + stats.getCapacity() +
+                    "\n\tArrivals: " + String.format("%.2f", stats.getArrivalRate()) + " tx/s" +
+                    "\n\tConfirmations: " + String.format("%.2f", stats.getConfirmationRate()) + " tx/s" +
+                    "\n\tOldest pending: " + stats.getOldestAge() / 1000 + " s" +
+                    "\n\tMean time to confirm: " + stats.getMeanConfirmationAge() / 1000 + " s" +
+                    "\n\tTotal added/confirmed/expired/evicted: " + stats.getAdded() + "/" + stats.getConfirmed() +
+                    "/" + stats.getExpired() + "/" + stats.getEvicted() +
+                    describeIngestion(service)
+            );
+        }
+        context.sendMessage(messages.isEmpty() ? "There are no pending transaction stores." : String.join("\n\n", messages));
+    }
+
+    private String describeIngestion(PendingTransactionService service) {
+        for (Web3Network network : web3Networks) {
+            Web3PendingTransactions ingestion = network.getPendingTransactions();
+            if (network.getType() != service.getNetworkType() || ingestion == null) {
+                continue;
+            }
+            return "\n\tIngestion mode: " + ingestion.getMode() +
+                    "\n\tQueued: " + ingestion.getQueued() + "/" + ingestion.getCapacity() +
+                    "\n\tTotal received/skipped/dropped: " + ingestion.getReceived() + "/" + ingestion.getSkipped() +
+                    "/" + ingestion.getDropped();
+        }
+        for (BtcNetwork network : btcNetworks) {
+            if (network.getType() == service.getNetworkType() && network.getMempoolTracker() != null) {
+                return describeMempool(network.getMempoolTracker());
+            }
+        }
+        for (DucNetwork network : ducNetworks) {
+            if (network.getType() == service.getNetworkType() && network.getMempoolTracker() != null) {
+                return describeMempool(network.getMempoolTracker());
+            }
+        }
+        return "";
+    }
+
+    private static String describeMempool(MempoolTracker tracker) {
+        return "\n\tIngestion mode: " + (tracker.isPushing() ? "ZMQ" : "MEMPOOL") +
+                "\n\tMempool size: " + tracker.getMempoolSize() +
+                "\n\tTotal received/skipped/failed/deferred/dropped: " + tracker.getReceived() + "/" + tracker.getSkipped() +
+                "/" + tracker.getFailed() + "/" + tracker.getDeferred() + "/" + tracker.getDropped();
+    }
+}
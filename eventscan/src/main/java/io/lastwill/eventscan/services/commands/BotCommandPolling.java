@@ -0,0 +1,53 @@
+package io.lastwill.eventscan.services.commands;
+
+import io.mywish.bot.service.BotCommand;
+import io.mywish.bot.service.ChatContext;
+import io.mywish.scanner.services.AdaptivePollingInterval;
+import io.mywish.scanner.services.ScannerPolling;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Component
+public class BotCommandPolling implements BotCommand {
+    @Getter
+    private final String name = "/polling";
+    @Getter
+    private final String usage = "";
+    @Getter
+    private final String description = "Learned block cadence of the polled networks";
+
+    @Autowired(required = false)
+    private List<ScannerPolling> scanners = Collections.emptyList();
+
+    @Override
+    public void execute(ChatContext context, List<String> args) {
+        List<String> messages = new ArrayList<>();
+        for (ScannerPolling scanner : scanners) {
+            AdaptivePollingInterval adaptivePolling = scanner.getAdaptivePolling();
+            String reorgs = scanner.isReorgTracking()
+                    ? "\n\tReorganizations: " + scanner.getReorgCount() + ", deepest " + scanner.getDeepestReorg() + " blocks"
+                    : "";
+            if (adaptivePolling == null) {
+                messages.add(scanner.getNetwork().getType() +
+                        "\n\tFixed interval: " + scanner.getPollingInterval() + " ms" +
+                        reorgs);
+                continue;
+            }
+            long now = System.currentTimeMillis();
+            messages.add(scanner.getNetwork().getType() +
+                    "\n\tBlock interval: " + adaptivePolling.getMeanInterval() + " ± " + adaptivePolling.getDeviation() + " ms" +
+                    "\n\tNext poll in: " + adaptivePolling.nextDelay(now) + " ms" +
+                    "\n\tBounds: " + adaptivePolling.getMinInterval() + "-" + adaptivePolling.getMaxInterval() + " ms" +
+                    "\n\tPolls with new head: " + adaptivePolling.getHits() +
+                    "\n\tEmpty polls: " + adaptivePolling.getMisses() +
+                    reorgs
+            );
+        }
+        context.sendMessage(messages.isEmpty() ? "There are no polled networks." : String.join("\n\n", messages));
+    }
+}
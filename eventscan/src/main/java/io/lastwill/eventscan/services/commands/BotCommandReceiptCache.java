@@ -0,0 +1,37 @@
+package io.lastwill.eventscan.services.commands;
+
+import io.lastwill.eventscan.services.TransactionReceiptCache;
+import io.mywish.bot.service.BotCommand;
+import io.mywish.bot.service.ChatContext;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class BotCommandReceiptCache implements BotCommand {
+    @Getter
+    private final String name = "/receiptcache";
+    @Getter
+    private final String usage = "";
+    @Getter
+    private final String description = "Transaction receipt cache statistics";
+
+    @Autowired
+    private TransactionReceiptCache receiptCache;
+
+    @Override
+    public void execute(ChatContext context, List<String> args) {
+        long hits = receiptCache.getHits().get();
+        long misses = receiptCache.getMisses().get();
+        long total = hits + misses;
+        context.sendMessage("Receipt cache" +
+                "\n\tSize: " + receiptCache.size() + "/" + receiptCache.getMaxSize() +
+                "\n\tHits: " + hits +
+                "\n\tMisses: " + misses +
+                String.format("\n\tHit rate: %.2f%%", total == 0 ? 0.0 : 100.0 * hits / total) +
+                "\n\tEvictions: " + receiptCache.getEvictions().get()
+        );
+    }
+}
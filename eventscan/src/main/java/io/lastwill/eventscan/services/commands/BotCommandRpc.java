@@ -0,0 +1,43 @@
+package io.lastwill.eventscan.services.commands;
+
+import io.lastwill.eventscan.services.NetworkProvider;
+import io.mywish.blockchain.RpcExecutor;
+import io.mywish.bot.service.BotCommand;
+import io.mywish.bot.service.ChatContext;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class BotCommandRpc implements BotCommand {
+    @Getter
+    private final String name = "/rpc";
+    @Getter
+    private final String usage = "";
+    @Getter
+    private final String description = "Load of the network RPC executors";
+
+    @Autowired
+    private NetworkProvider networkProvider;
+
+    @Override
+    public void execute(ChatContext context, List<String> args) {
+        String message = networkProvider.getAvailableNetworkTypes()
+                .stream()
+                .sorted()
+                .map(type -> {
+                    RpcExecutor executor = networkProvider.get(type).getRpcExecutor();
+                    return type +
+                            "\n\tThreads busy: " + executor.getActive() + "/" + executor.getThreads() +
+                            "\n\tQueued: " + executor.getQueued() + "/" + executor.getQueueCapacity() +
+                            ", max " + executor.getMaxQueued() +
+                            "\n\tSubmitted/completed: " + executor.getSubmitted() + "/" + executor.getCompleted() +
+                            "\n\tSaturated (" + executor.getRejectionPolicy() + "): " + executor.getSaturated();
+                })
+                .collect(Collectors.joining("\n\n"));
+        context.sendMessage(message.isEmpty() ? "There are no networks." : message);
+    }
+}
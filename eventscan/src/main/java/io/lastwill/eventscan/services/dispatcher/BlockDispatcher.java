@@ -0,0 +1,164 @@
+package io.lastwill.eventscan.services.dispatcher;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.scanner.model.NewBlockEvent;
+import io.mywish.web3.blockchain.service.LogsBloom;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.web3j.utils.Numeric;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes new blocks to the registered interests.
+ * The transactions of the block are walked once: each address is looked up in the index of the fixed addresses
+ * and checked by the registry filters, so a monitor is invoked only if the block has its addresses, and
+ * it receives only the matched transactions. Handlers are invoked in the registration order.
+ */
+@Slf4j
+@Component
+public class BlockDispatcher {
+    private final List<BlockInterest> interests = new ArrayList<>();
+    private volatile Map<NetworkType, NetworkInterests> interestsByNetwork = Collections.emptyMap();
+
+    @Getter
+    private final AtomicLong invocations = new AtomicLong();
+    @Getter
+    private final AtomicLong skips = new AtomicLong();
+
+    public synchronized void register(BlockInterest interest) {
+        interests.add(interest);
+        Map<NetworkType, NetworkInterests> result = new EnumMap<>(NetworkType.class);
+        for (BlockInterest each : interests) {
+            for (NetworkType networkType : each.getNetworks()) {
+                result.computeIfAbsent(networkType, type -> new NetworkInterests()).add(each);
+            }
+        }
+        interestsByNetwork = result;
+        log.info("Interest {} registered for {}.", interest.getName(), interest.getNetworks());
+    }
+
+    public synchronized List<BlockInterest> getInterests() {
+        return new ArrayList<>(interests);
+    }
+
+    @EventListener
+    private void onNewBlock(final NewBlockEvent event) {
+        NetworkInterests networkInterests = interestsByNetwork.get(event.getNetworkType());
+        if (networkInterests == null) {
+            return;
+        }
+        List<BlockInterest> list = networkInterests.list;
+        byte[] bloom = event.getBlock().getLogsBloom();
+        boolean[] isSkipped = new boolean[list.size()];
+        boolean isAnyActive = false;
+        for (int i = 0; i < list.size(); i++) {
+            isSkipped[i] = !mayContainAny(bloom, list.get(i).getEventSignatures());
+            isAnyActive |= !isSkipped[i];
+        }
+        if (!isAnyActive) {
+            skips.addAndGet(list.size());
+            return;
+        }
+
+        List<MultiValueMap<String, WrapperTransaction>> matches = new ArrayList<>(Collections.nCopies(list.size(), null));
+        for (Map.Entry<String, List<WrapperTransaction>> entry : event.getTransactionsByAddress().entrySet()) {
+            String address = entry.getKey();
+            List<Integer> byAddress = networkInterests.byAddress.get(address);
+            if (byAddress != null) {
+                for (int index : byAddress) {
+                    if (!isSkipped[index]
+                            && (list.get(index).getEventSignatures().isEmpty() || mayContainAddress(bloom, address))) {
+                        match(matches, index, entry);
+                    }
+                }
+            }
+            for (int index : networkInterests.filtered) {
+                if (!isSkipped[index] && list.get(index).getAddressFilter().test(event.getNetworkType(), address)) {
+                    match(matches, index, entry);
+                }
+            }
+        }
+        for (int index : networkInterests.everything) {
+            matches.set(index, event.getTransactionsByAddress());
+        }
+
+        for (int i = 0; i < list.size(); i++) {
+            MultiValueMap<String, WrapperTransaction> matched = matches.get(i);
+            if (isSkipped[i] || matched == null) {
+                skips.incrementAndGet();
+                continue;
+            }
+            invocations.incrementAndGet();
+            try {
+                list.get(i).getHandler().onBlock(event, matched);
+            }
+            catch (Exception e) {
+                log.error("{}: interest {} failed on block {}.",
+                        event.getNetworkType(), list.get(i).getName(), event.getBlock().getNumber(), e);
+            }
+        }
+    }
+
+    private static void match(
+            List<MultiValueMap<String, WrapperTransaction>> matches,
+            int index,
+            Map.Entry<String, List<WrapperTransaction>> entry
+    ) {
+        MultiValueMap<String, WrapperTransaction> matched = matches.get(index);
+        if (matched == null) {
+            matched = new LinkedMultiValueMap<>();
+            matches.set(index, matched);
+        }
+        matched.put(entry.getKey(), entry.getValue());
+    }
+
+    private static boolean mayContainAny(byte[] bloom, List<byte[]> signatures) {
+        if (bloom == null || signatures.isEmpty()) {
+            return true;
+        }
+        for (byte[] signature : signatures) {
+            if (LogsBloom.mayContain(bloom, signature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean mayContainAddress(byte[] bloom, String address) {
+        return bloom == null || LogsBloom.mayContain(bloom, Numeric.hexStringToByteArray(address));
+    }
+
+    private static class NetworkInterests {
+        private final List<BlockInterest> list = new ArrayList<>();
+        private final Map<String, List<Integer>> byAddress = new HashMap<>();
+        private final List<Integer> filtered = new ArrayList<>();
+        private final List<Integer> everything = new ArrayList<>();
+
+        private void add(BlockInterest interest) {
+            int index = list.size();
+            list.add(interest);
+            if (interest.getAddresses() != null) {
+                interest.getAddresses().forEach(address ->
+                        byAddress.computeIfAbsent(address, key -> new ArrayList<>()).add(index));
+            }
+            else if (interest.getAddressFilter() != null) {
+                filtered.add(index);
+            }
+            else {
+                everything.add(index);
+            }
+        }
+    }
+}
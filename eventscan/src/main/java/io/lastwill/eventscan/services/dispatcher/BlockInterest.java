@@ -0,0 +1,86 @@
+package io.lastwill.eventscan.services.dispatcher;
+
+import io.lastwill.eventscan.model.NetworkType;
+import lombok.Getter;
+import org.web3j.utils.Numeric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+/**
+ * Declares which blocks and which addresses the monitor is interested in.
+ * Addresses are either the fixed set, or the filter backed by a live registry, or all addresses of the block.
+ * Addresses are compared exactly as they are in {@link io.mywish.scanner.model.NewBlockEvent#getTransactionsByAddress()}.
+ * If event signatures are specified, the block is skipped when its logs bloom has none of them, and a fixed
+ * address is skipped when it is absent in the bloom, as the monitor needs logs emitted by the address.
+ */
+@Getter
+public class BlockInterest {
+    private final String name;
+    private final Set<NetworkType> networks;
+    private final Set<String> addresses;
+    private final BiPredicate<NetworkType, String> addressFilter;
+    private final BlockInterestHandler handler;
+    private final List<byte[]> eventSignatures = new ArrayList<>();
+
+    private BlockInterest(
+            String name,
+            Collection<NetworkType> networks,
+            Set<String> addresses,
+            BiPredicate<NetworkType, String> addressFilter,
+            BlockInterestHandler handler
+    ) {
+        if (networks.isEmpty()) {
+            throw new IllegalArgumentException("Interest " + name + " has no networks.");
+        }
+        this.name = name;
+        this.networks = Collections.unmodifiableSet(EnumSet.copyOf(networks));
+        this.addresses = addresses;
+        this.addressFilter = addressFilter;
+        this.handler = handler;
+    }
+
+    public static BlockInterest forAddresses(
+            String name,
+            Collection<NetworkType> networks,
+            Collection<String> addresses,
+            BlockInterestHandler handler
+    ) {
+        return new BlockInterest(name, networks, Collections.unmodifiableSet(new HashSet<>(addresses)), null, handler);
+    }
+
+    public static BlockInterest forAddressFilter(
+            String name,
+            Collection<NetworkType> networks,
+            BiPredicate<NetworkType, String> addressFilter,
+            BlockInterestHandler handler
+    ) {
+        return new BlockInterest(name, networks, null, addressFilter, handler);
+    }
+
+    public static BlockInterest forAllAddresses(
+            String name,
+            Collection<NetworkType> networks,
+            BlockInterestHandler handler
+    ) {
+        return new BlockInterest(name, networks, null, null, handler);
+    }
+
+    /**
+     * @param signatures hex encoded topics of the events, which the monitor handles.
+     */
+    public BlockInterest withEventSignatures(Collection<String> signatures) {
+        signatures.forEach(signature -> eventSignatures.add(Numeric.hexStringToByteArray(signature)));
+        return this;
+    }
+
+    public boolean isForAllAddresses() {
+        return addresses == null && addressFilter == null;
+    }
+}
@@ -0,0 +1,13 @@
+package io.lastwill.eventscan.services.dispatcher;
+
+import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.scanner.model.NewBlockEvent;
+import org.springframework.util.MultiValueMap;
+
+public interface BlockInterestHandler {
+    /**
+     * @param event                 the new block.
+     * @param transactionsByAddress transactions of the block only for the addresses matched by the interest.
+     */
+    void onBlock(NewBlockEvent event, MultiValueMap<String, WrapperTransaction> transactionsByAddress);
+}
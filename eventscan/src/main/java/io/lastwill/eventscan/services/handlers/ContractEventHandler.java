@@ -23,6 +23,7 @@ import io.lastwill.eventscan.model.*;
 import io.lastwill.eventscan.repositories.ProductRepository;
 import io.lastwill.eventscan.services.BalanceProvider;
 import io.lastwill.eventscan.services.ExternalNotifier;
+import io.lastwill.eventscan.services.TentativeWrites;
 import io.lastwill.eventscan.services.handlers.events.TransferOwnershipHandler;
 import io.mywish.blockchain.ContractEvent;
 import io.mywish.scanner.services.EventPublisher;
@@ -52,6 +53,9 @@ public class ContractEventHandler {
     @Autowired
     private BalanceProvider balanceProvider;
 
+    @Autowired
+    private TentativeWrites tentativeWrites;
+
     @Autowired
     private TransferOwnershipHandler transferOwnershipHandler;
 
@@ -138,13 +142,15 @@ public class ContractEventHandler {
                                 log.error("Sending notification failed.", e);
                             }
 
-                            log.debug("Update balance in db for contract {} to {}.", event.getContract().getId(), balance);
-                            try {
-                                productRepository.updateBalance(event.getContract().getProduct().getId(), balance);
-                            }
-                            catch (Throwable e) {
-                                log.error("Updating balance for contract {} failed.", event.getContract().getId(), e);
-                            }
+                            tentativeWrites.run(event.getNetworkType(), event.getBlock(), () -> {
+                                log.debug("Update balance in db for contract {} to {}.", event.getContract().getId(), balance);
+                                try {
+                                    productRepository.updateBalance(event.getContract().getProduct().getId(), balance);
+                                }
+                                catch (Throwable e) {
+                                    log.error("Updating balance for contract {} failed.", event.getContract().getId(), e);
+                                }
+                            });
                         })
                         .exceptionally(throwable -> {
                             log.error("Getting balance for handling FundsAddedEvent failed.", throwable);
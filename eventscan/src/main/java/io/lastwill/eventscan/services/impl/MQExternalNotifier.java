@@ -2,23 +2,37 @@ package io.lastwill.eventscan.services.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 import io.lastwill.eventscan.messages.BaseNotify;
+import io.lastwill.eventscan.messages.PaymentStatus;
 import io.lastwill.eventscan.messages.Ping;
 import io.lastwill.eventscan.services.ExternalNotifier;
 import io.lastwill.eventscan.model.NetworkType;
+import io.lastwill.eventscan.services.TentativeNotifications;
+import io.mywish.scanner.model.BlockCommittedEvent;
+import io.mywish.scanner.model.BlockRollbackEvent;
+import io.mywish.scanner.model.NewBlockEvent;
+import io.mywish.scanner.services.BackfillContext;
+import io.mywish.scanner.services.ScannerPolling;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeoutException;
 
@@ -75,6 +89,15 @@ public class MQExternalNotifier implements ExternalNotifier {
 
     private Map<NetworkType, String> queueByNetwork = new HashMap<>();
 
+    @Autowired(required = false)
+    private List<ScannerPolling> scanners = Collections.emptyList();
+
+    /**
+     * Notifications of the networks which are scanned at the tip of the chain.
+     */
+    private final Map<NetworkType, TentativeNotifications> tentativeByNetwork = new EnumMap<>(NetworkType.class);
+    private final Map<NetworkType, ScannerPolling> scannerByNetwork = new EnumMap<>(NetworkType.class);
+
     @Value("${io.lastwill.eventscan.backend-mq.ttl-ms}")
     private long messageTTL;
 
@@ -116,6 +139,13 @@ public class MQExternalNotifier implements ExternalNotifier {
         queueByNetwork.put(NetworkType.BINANCE_SMART_MAINNET, queueNameBinanceSmartMainnet);
         queueByNetwork.put(NetworkType.BINANCE_SMART_TESTNET, queueNameBinanceSmartTestnet);
 
+        for (ScannerPolling scanner : scanners) {
+            if (scanner.isReorgTracking()) {
+                tentativeByNetwork.put(scanner.getNetwork().getType(), new TentativeNotifications());
+                scannerByNetwork.put(scanner.getNetwork().getType(), scanner);
+            }
+        }
+
         connection = factory.newConnection();
         channel = connection.createChannel();
 
@@ -166,16 +196,78 @@ public class MQExternalNotifier implements ExternalNotifier {
     }
 
     public void send(final NetworkType networkType, final BaseNotify notify) {
+        if (BackfillContext.isNotificationSuppressed()) {
+            log.debug("Backfill notification type '{}' for {} is not sent.", notify.getType(), networkType);
+            return;
+        }
+        TentativeNotifications tentative = tentativeByNetwork.get(networkType);
+        PaymentStatus status = tentative == null ? notify.getStatus() : tentative.hold(notify);
+        if (status == null) {
+            log.debug("Notification type '{}' for {} was sent before the restart, it is held back.", notify.getType(), networkType);
+            return;
+        }
+        send(networkType, notify, status);
+    }
+
+    /**
+     * Remembers transactions of the block before the monitors handle it.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    private void onNewBlock(final NewBlockEvent event) {
+        TentativeNotifications tentative = tentativeByNetwork.get(event.getNetworkType());
+        if (tentative != null && !event.isBackfill()) {
+            ScannerPolling scanner = scannerByNetwork.get(event.getNetworkType());
+            tentative.onBlock(event.getBlock(), scanner.isReplayed(event.getBlock().getNumber()));
+        }
+    }
+
+    @EventListener
+    private void onBlockCommitted(final BlockCommittedEvent event) {
+        TentativeNotifications tentative = tentativeByNetwork.get(event.getNetworkType());
+        if (tentative == null) {
+            return;
+        }
+        for (BaseNotify notify : tentative.commit(event.getBlock())) {
+            send(event.getNetworkType(), notify, PaymentStatus.COMMITTED);
+        }
+    }
+
+    @EventListener
+    private void onBlockRollback(final BlockRollbackEvent event) {
+        TentativeNotifications tentative = tentativeByNetwork.get(event.getNetworkType());
+        if (tentative == null) {
+            return;
+        }
+        for (BaseNotify notify : tentative.rollback(event.getRolledBackBlocks(), event.getReplacementBlocks())) {
+            log.warn("Transaction {} on {} is rolled back, reject notification type '{}'.",
+                    notify.getTransactionHash(), event.getNetworkType(), notify.getType());
+            send(event.getNetworkType(), notify, PaymentStatus.REJECTED);
+        }
+    }
+
+    private void send(final NetworkType networkType, final BaseNotify notify, final PaymentStatus status) {
         final String queueName = queueByNetwork.get(networkType);
         if (queueName == null) {
             throw new UnsupportedOperationException("Notifier does not support network " + networkType);
         }
-        send(queueName, notify);
+        send(queueName, notify, status);
     }
 
-    protected synchronized void send(String queueName, BaseNotify notify) {
+    /**
+     * @param status status to send instead of the notification one.
+     */
+    protected synchronized void send(String queueName, BaseNotify notify, PaymentStatus status) {
         try {
-            byte[] json = objectMapper.writeValueAsBytes(notify);
+            byte[] json;
+            if (status == notify.getStatus()) {
+                json = objectMapper.writeValueAsBytes(notify);
+            }
+            else {
+                ObjectNode node = objectMapper.valueToTree(notify);
+                node.set("status", objectMapper.valueToTree(status));
+                json = objectMapper.writeValueAsBytes(node);
+            }
 
             channel.basicPublish(
                     queueName,
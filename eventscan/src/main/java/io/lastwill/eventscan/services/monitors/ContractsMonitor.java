@@ -9,12 +9,14 @@ import io.lastwill.eventscan.model.Contract;
 import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.ContractRepository;
 import io.lastwill.eventscan.services.TransactionProvider;
+import io.lastwill.eventscan.services.WatchedContractRegistry;
 import io.mywish.scanner.model.NewBlockEvent;
 import io.mywish.scanner.services.EventPublisher;
 import io.mywish.blockchain.ContractEvent;
 import io.mywish.blockchain.WrapperBlock;
 import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.blockchain.WrapperTransactionReceipt;
+import io.mywish.web3.blockchain.service.WrapperLogWeb3Service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -38,6 +40,10 @@ public class ContractsMonitor {
     private EventPublisher eventPublisher;
     @Autowired
     private TransactionProvider transactionProvider;
+    @Autowired
+    private WrapperLogWeb3Service web3LogBuilder;
+    @Autowired
+    private WatchedContractRegistry contractRegistry;
     @Value("${io.lastwill.eventscan.contract.proxy-address.ethereum}")
     private String proxyAddressEthereum;
     @Value("${io.lastwill.eventscan.contract.proxy-address.ropsten}")
@@ -77,13 +83,19 @@ public class ContractsMonitor {
         if (proxyByNetwork.containsKey(event.getNetworkType())) {
             final String proxyAddress = proxyByNetwork.get(event.getNetworkType());
 
-            if (addresses.contains(proxyAddress)) {
+            // proxy transactions are interesting only by the events of other contracts
+            if (addresses.contains(proxyAddress) && web3LogBuilder.mayContainEvents(event.getBlock())) {
                 final List<WrapperTransaction> transactions = event.getTransactionsByAddress().get(proxyAddress);
                 grabProxyEvents(event.getNetworkType(), transactions, event.getBlock());
             }
         }
 
-        List<Contract> contracts = contractRepository.findByAddressesList(addresses, event.getNetworkType());
+        Set<String> contractAddresses = contractRegistry.filterWatched(event.getNetworkType(), addresses);
+        if (contractAddresses.isEmpty()) {
+            return;
+        }
+
+        List<Contract> contracts = contractRepository.findByAddressesList(contractAddresses, event.getNetworkType());
         for (final Contract contract : contracts) {
             if (contract.getAddress() == null || !addresses.contains(contract.getAddress().toLowerCase())) {
                 continue;
@@ -108,15 +120,32 @@ public class ContractsMonitor {
             final List<WrapperTransaction> transactions,
             final WrapperBlock block
     ) {
-        for (WrapperTransaction transaction : transactions) {
+        List<WrapperTransactionReceipt> transactionReceipts;
+        try {
+            transactionReceipts = transactionProvider.getTransactionReceipts(networkType, transactions);
+        }
+        catch (Exception e) {
+            log.warn("{}: receipts of {} proxy transactions in block {} are not got at once, request them one by one.",
+                    networkType, transactions.size(), block.getNumber(), e);
+            transactionReceipts = null;
+        }
+        for (int i = 0; i < transactions.size(); i++) {
+            final WrapperTransaction transaction = transactions.get(i);
             try {
-                WrapperTransactionReceipt transactionReceipt = transactionProvider.getTransactionReceipt(networkType, transaction);
+                // a failed receipt skips only its transaction
+                WrapperTransactionReceipt transactionReceipt = transactionReceipts != null
+                        ? transactionReceipts.get(i)
+                        : transactionProvider.getTransactionReceipt(networkType, transaction);
                 MultiValueMap<String, ContractEvent> logsByAddress = CollectionUtils.toMultiValueMap(new HashMap<>());
                 for (ContractEvent contractEvent : transactionReceipt.getLogs()) {
                     logsByAddress.add(contractEvent.getAddress(), contractEvent);
                 }
 
-                for (Contract contract : contractRepository.findByAddressesList(logsByAddress.keySet(), networkType)) {
+                Set<String> contractAddresses = contractRegistry.filterWatched(networkType, logsByAddress.keySet());
+                if (contractAddresses.isEmpty()) {
+                    continue;
+                }
+                for (Contract contract : contractRepository.findByAddressesList(contractAddresses, networkType)) {
                     handleReceiptAndContract(
                             networkType,
                             contract,
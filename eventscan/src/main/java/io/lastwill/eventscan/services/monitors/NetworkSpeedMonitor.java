@@ -39,6 +39,9 @@ public class NetworkSpeedMonitor {
 
     @EventListener
     protected void onNewBlock(NewBlockEvent event) {
+        if (event.isBackfill()) {
+            return;
+        }
         NetworkType networkType = event.getNetworkType();
         Instant now = Instant.now();
         blocks.computeIfPresent(networkType, (networkType1, blocks) -> {
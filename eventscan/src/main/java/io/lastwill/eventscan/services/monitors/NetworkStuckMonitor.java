@@ -92,6 +92,9 @@ public class NetworkStuckMonitor {
 
     @EventListener
     private void newBlockEvent(NewBlockEvent event) {
+        if (event.isBackfill()) {
+            return;
+        }
         lastBlockEvents.put(
                 event.getNetworkType(),
                 new LastEvent(
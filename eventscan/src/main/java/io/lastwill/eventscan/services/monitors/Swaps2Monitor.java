@@ -9,16 +9,21 @@ import io.lastwill.eventscan.repositories.Swaps2OrderRepository;
 import io.lastwill.eventscan.repositories.UserRepository;
 import io.lastwill.eventscan.services.ExternalNotifier;
 import io.lastwill.eventscan.services.TransactionProvider;
+import io.lastwill.eventscan.services.dispatcher.BlockDispatcher;
+import io.lastwill.eventscan.services.dispatcher.BlockInterest;
+import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.scanner.model.NewBlockEvent;
 import io.mywish.scanner.services.EventPublisher;
+import io.mywish.web3.blockchain.service.WrapperLogWeb3Service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 
 import javax.annotation.PostConstruct;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -42,6 +47,12 @@ public class Swaps2Monitor {
     @Autowired
     private TransactionProvider transactionProvider;
 
+    @Autowired
+    private WrapperLogWeb3Service web3LogBuilder;
+
+    @Autowired
+    private BlockDispatcher blockDispatcher;
+
     @Value("${io.lastwill.eventscan.eth.swaps2-address.mainnet}")
     private String swaps2AddressMainnet;
 
@@ -54,19 +65,23 @@ public class Swaps2Monitor {
     protected void init() {
         networkToSwapsAddresses.put(NetworkType.ETHEREUM_MAINNET, swaps2AddressMainnet);
         networkToSwapsAddresses.put(NetworkType.ETHEREUM_ROPSTEN, swaps2AddressRopsten);
+
+        networkToSwapsAddresses.forEach((networkType, address) -> blockDispatcher.register(BlockInterest.forAddresses(
+                getClass().getSimpleName(),
+                Collections.singleton(networkType),
+                Collections.singleton(address),
+                this::onNewBlockEvent
+        )));
     }
 
-    @EventListener
-    private void onNewBlockEvent(NewBlockEvent event) {
-        if (!networkToSwapsAddresses.keySet().contains(event.getNetworkType())) {
+    private void onNewBlockEvent(NewBlockEvent event, MultiValueMap<String, WrapperTransaction> transactionsByAddress) {
+        if (!web3LogBuilder.mayContainEvents(event.getBlock(), networkToSwapsAddresses.get(event.getNetworkType()))) {
             return;
         }
 
-        event.getTransactionsByAddress()
-                .entrySet()
+        transactionsByAddress
+                .values()
                 .stream()
-                .filter(entry -> Objects.equals(entry.getKey(), networkToSwapsAddresses.get(event.getNetworkType())))
-                .map(Map.Entry::getValue)
                 .flatMap(Collection::stream)
                 .forEach(tx -> transactionProvider.getTransactionReceiptAsync(event.getNetworkType(), tx)
                         .thenAccept(receipt -> receipt.getLogs()
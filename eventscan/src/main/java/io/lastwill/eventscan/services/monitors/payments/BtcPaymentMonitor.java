@@ -7,18 +7,21 @@ import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.repositories.ProductRepository;
 import io.lastwill.eventscan.repositories.UserSiteBalanceRepository;
 import io.lastwill.eventscan.services.Btc2RskNetworkConverter;
+import io.lastwill.eventscan.services.UserSiteBalanceIndex;
+import io.lastwill.eventscan.services.dispatcher.BlockDispatcher;
+import io.lastwill.eventscan.services.dispatcher.BlockInterest;
 import io.mywish.blockchain.WrapperOutput;
 import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.scanner.model.NewBlockEvent;
 import io.mywish.scanner.services.EventPublisher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 
+import javax.annotation.PostConstruct;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.IntStream;
 
 @Slf4j
 @Component
@@ -27,19 +30,26 @@ public class BtcPaymentMonitor {
     private UserSiteBalanceRepository userSiteBalanceRepository;
     @Autowired
     private EventPublisher eventPublisher;
+    @Autowired
+    private UserSiteBalanceIndex userSiteBalanceIndex;
+
+    @Autowired
+    private BlockDispatcher blockDispatcher;
+
+    @PostConstruct
+    protected void init() {
+        blockDispatcher.register(BlockInterest.forAddressFilter(
+                getClass().getSimpleName(),
+                Collections.singleton(NetworkType.BTC_MAINNET),
+                (networkType, address) -> userSiteBalanceIndex.contains(UserSiteBalanceIndex.AddressType.BTC, address),
+                this::handleBtcBlock
+        ));
+    }
 
-    @EventListener
-    private void handleBtcBlock(NewBlockEvent event) {
-        if (event.getNetworkType() != NetworkType.BTC_MAINNET) {
-            return;
-        }
-        Set<String> addresses = event.getTransactionsByAddress().keySet();
-        if (addresses.isEmpty()) {
-            return;
-        }
-        userSiteBalanceRepository.findByBtcAddressesList(addresses)
+    private void handleBtcBlock(NewBlockEvent event, MultiValueMap<String, WrapperTransaction> transactionsByAddress) {
+        userSiteBalanceRepository.findByBtcAddressesList(transactionsByAddress.keySet())
                 .forEach(userSiteBalance -> {
-                    List<WrapperTransaction> txes = event.getTransactionsByAddress().get(userSiteBalance.getBtcAddress());
+                    List<WrapperTransaction> txes = transactionsByAddress.get(userSiteBalance.getBtcAddress());
                     if (txes == null) {
                         log.warn("There is no UserSiteBalance entity found for BTC address {}.", userSiteBalance.getBtcAddress());
                         return;
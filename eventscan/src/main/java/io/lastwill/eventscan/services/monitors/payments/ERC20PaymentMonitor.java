@@ -8,21 +8,25 @@ import io.lastwill.eventscan.model.UserSiteBalance;
 import io.lastwill.eventscan.repositories.UserProfileRepository;
 import io.lastwill.eventscan.repositories.UserSiteBalanceRepository;
 import io.lastwill.eventscan.services.TransactionProvider;
+import io.lastwill.eventscan.services.UserSiteBalanceIndex;
+import io.lastwill.eventscan.services.dispatcher.BlockDispatcher;
+import io.lastwill.eventscan.services.dispatcher.BlockInterest;
 import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.scanner.model.NewBlockEvent;
 import io.mywish.scanner.services.EventPublisher;
+import io.mywish.web3.blockchain.builders.erc20.TransferERC20EventBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 
 import javax.annotation.PostConstruct;
 import java.math.BigInteger;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 @Slf4j
 @Component
@@ -34,6 +38,15 @@ public class ERC20PaymentMonitor {
     @Autowired
     private TransactionProvider transactionProvider;
 
+    @Autowired
+    private TransferERC20EventBuilder transferEventBuilder;
+
+    @Autowired
+    private BlockDispatcher blockDispatcher;
+
+    @Autowired
+    private UserSiteBalanceIndex userSiteBalanceIndex;
+
     @Value("${io.lastwill.eventscan.contract.token-address.wish}")
     private String tokenAddressWish;
 
@@ -54,29 +67,19 @@ public class ERC20PaymentMonitor {
         addressToCurrency.forEach(
                 (address, cryptoCurrency) -> log.info("Payment waiting {} - {}.", cryptoCurrency, address)
         );
-    }
 
-    @EventListener
-    public void onNewBlock(final NewBlockEvent event) {
         // wish only in mainnet works
-        if (event.getNetworkType() != NetworkType.ETHEREUM_MAINNET) {
-            return;
-        }
-        Set<String> addresses = event.getTransactionsByAddress().keySet();
-        if (addresses.isEmpty()) {
-            return;
-        }
-
-        addressToCurrency.forEach((tokenAddress, currency) -> {
-            if (!addresses.contains(tokenAddress)) {
-                return;
-            }
-
-            List<WrapperTransaction> transactions = event.getTransactionsByAddress().get(tokenAddress);
-
-            handle(tokenAddress, transactions, currency, event.getNetworkType());
-        });
+        blockDispatcher.register(BlockInterest.forAddresses(
+                getClass().getSimpleName(),
+                Collections.singleton(NetworkType.ETHEREUM_MAINNET),
+                addressToCurrency.keySet(),
+                this::onNewBlock
+        ).withEventSignatures(Collections.singletonList(transferEventBuilder.getDefinition().getSignature())));
+    }
 
+    private void onNewBlock(final NewBlockEvent event, final MultiValueMap<String, WrapperTransaction> transactionsByAddress) {
+        transactionsByAddress.forEach((tokenAddress, transactions) ->
+                handle(tokenAddress, transactions, addressToCurrency.get(tokenAddress), event.getNetworkType()));
     }
 
     private void handle(final String tokenAddress, final List<WrapperTransaction> transactions, final CryptoCurrency currency, NetworkType networkType) {
@@ -92,6 +95,9 @@ public class ERC20PaymentMonitor {
                             .forEach(eventValue -> {
                                 String transferTo = eventValue.getTo();
                                 BigInteger amount = eventValue.getTokens();
+                                if (!userSiteBalanceIndex.contains(UserSiteBalanceIndex.AddressType.ETH, transferTo)) {
+                                    return;
+                                }
 
                                 UserSiteBalance userSiteBalance = userSiteBalanceRepository.findByEthAddress(transferTo);
                                 if (userSiteBalance == null) {
@@ -6,17 +6,21 @@ import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.model.UserSiteBalance;
 import io.lastwill.eventscan.repositories.UserSiteBalanceRepository;
 import io.lastwill.eventscan.services.TransactionProvider;
+import io.lastwill.eventscan.services.UserSiteBalanceIndex;
+import io.lastwill.eventscan.services.dispatcher.BlockDispatcher;
+import io.lastwill.eventscan.services.dispatcher.BlockInterest;
 import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.scanner.model.NewBlockEvent;
 import io.mywish.scanner.services.EventPublisher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 
+import javax.annotation.PostConstruct;
 import java.math.BigInteger;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 @Slf4j
 @Component
@@ -30,21 +34,27 @@ public class TronPaymentMonitor {
     @Autowired
     private TransactionProvider transactionProvider;
 
-    @EventListener
-    private void onNewBlockEvent(NewBlockEvent event) {
-        // payments only in mainnet works
-        if (event.getNetworkType() != NetworkType.TRON_MAINNET) {
-            return;
-        }
+    @Autowired
+    private UserSiteBalanceIndex userSiteBalanceIndex;
 
-        Set<String> addresses = event.getTransactionsByAddress().keySet();
-        if (addresses.isEmpty()) {
-            return;
-        }
+    @Autowired
+    private BlockDispatcher blockDispatcher;
+
+    @PostConstruct
+    protected void init() {
+        // payments only in mainnet works
+        blockDispatcher.register(BlockInterest.forAddressFilter(
+                getClass().getSimpleName(),
+                Collections.singleton(NetworkType.TRON_MAINNET),
+                (networkType, address) -> userSiteBalanceIndex.contains(UserSiteBalanceIndex.AddressType.TRON, address),
+                this::onNewBlockEvent
+        ));
+    }
 
-        List<UserSiteBalance> userSiteBalances = userSiteBalanceRepository.findByTronAddressesList(addresses);
+    private void onNewBlockEvent(NewBlockEvent event, MultiValueMap<String, WrapperTransaction> transactionsByAddress) {
+        List<UserSiteBalance> userSiteBalances = userSiteBalanceRepository.findByTronAddressesList(transactionsByAddress.keySet());
         for (UserSiteBalance userSiteBalance : userSiteBalances) {
-            final List<WrapperTransaction> transactions = event.getTransactionsByAddress().get(
+            final List<WrapperTransaction> transactions = transactionsByAddress.get(
                     userSiteBalance.getTronAddress().toLowerCase()
             );
 
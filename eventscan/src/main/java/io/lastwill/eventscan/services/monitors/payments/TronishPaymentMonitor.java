@@ -7,18 +7,22 @@ import io.lastwill.eventscan.model.NetworkType;
 import io.lastwill.eventscan.model.UserSiteBalance;
 import io.lastwill.eventscan.repositories.UserSiteBalanceRepository;
 import io.lastwill.eventscan.services.TransactionProvider;
+import io.lastwill.eventscan.services.UserSiteBalanceIndex;
+import io.lastwill.eventscan.services.dispatcher.BlockDispatcher;
+import io.lastwill.eventscan.services.dispatcher.BlockInterest;
 import io.mywish.blockchain.WrapperTransaction;
 import io.mywish.scanner.model.NewBlockEvent;
 import io.mywish.scanner.services.EventPublisher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 
+import javax.annotation.PostConstruct;
 import java.math.BigInteger;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 @Slf4j
 @Component
@@ -29,26 +33,27 @@ public class TronishPaymentMonitor {
     private EventPublisher eventPublisher;
     @Autowired
     private TransactionProvider transactionProvider;
+    @Autowired
+    private UserSiteBalanceIndex userSiteBalanceIndex;
+    @Autowired
+    private BlockDispatcher blockDispatcher;
 
     @Value("${io.lastwill.eventscan.tronish.token-contract}")
     private String tokenAddressTronish;
 
-    @EventListener
-    public void onNewBlock(final NewBlockEvent event) {
+    @PostConstruct
+    protected void init() {
         // tronish only in mainnet works
-        if (event.getNetworkType() != NetworkType.TRON_MAINNET) {
-            return;
-        }
-        Set<String> addresses = event.getTransactionsByAddress().keySet();
-        if (addresses.isEmpty()) {
-            return;
-        }
-
-        if (!addresses.contains(tokenAddressTronish)) {
-            return;
-        }
+        blockDispatcher.register(BlockInterest.forAddresses(
+                getClass().getSimpleName(),
+                Collections.singleton(NetworkType.TRON_MAINNET),
+                Collections.singleton(tokenAddressTronish),
+                this::onNewBlock
+        ));
+    }
 
-        List<WrapperTransaction> transactions = event.getTransactionsByAddress().get(tokenAddressTronish);
+    private void onNewBlock(final NewBlockEvent event, final MultiValueMap<String, WrapperTransaction> transactionsByAddress) {
+        List<WrapperTransaction> transactions = transactionsByAddress.get(tokenAddressTronish);
         handle(tokenAddressTronish, transactions, event.getNetworkType());
     }
 
@@ -65,6 +70,9 @@ public class TronishPaymentMonitor {
                             .forEach(eventValue -> {
                                 String transferTo = eventValue.getTo().replaceFirst("^0x", "41");
                                 BigInteger amount = eventValue.getTokens();
+                                if (!userSiteBalanceIndex.contains(UserSiteBalanceIndex.AddressType.TRON, transferTo)) {
+                                    return;
+                                }
 
                                 UserSiteBalance userSiteBalance = userSiteBalanceRepository.findByTronAddress(transferTo);
                                 if (userSiteBalance == null) {
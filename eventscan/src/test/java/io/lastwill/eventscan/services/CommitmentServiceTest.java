@@ -1,19 +1,23 @@
 package io.lastwill.eventscan.services;
 
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperBlock;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
-import org.web3j.protocol.core.methods.response.EthBlock;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class CommitmentServiceTest {
-    private class BlockStub extends EthBlock.Block {
+    private final static NetworkType NETWORK = NetworkType.ETHEREUM_MAINNET;
+
+    private class BlockStub extends WrapperBlock {
         BlockStub(String hash, String blockNo, String parent) {
-            setHash(hash);
-            setNumber(blockNo);
-            setParentHash(parent);
+            super(hash, parent, Long.decode(blockNo), Instant.now(), Collections.emptyList());
         }
     }
 
@@ -23,7 +27,7 @@ public class CommitmentServiceTest {
     final AtomicInteger rejectedCount = new AtomicInteger(0);
     final CommitmentService target = new CommitmentService(5);
 
-    final CommitmentService.Handler<Integer> handler = new CommitmentService.Handler<Integer>() {
+    final ConfirmationTracker.Handler<Integer> handler = new ConfirmationTracker.Handler<Integer>() {
         @Override
         public void committed(long blockNumber, Integer payload, int chainLength) {
             committedBlockNo.set(blockNumber);
@@ -39,28 +43,28 @@ public class CommitmentServiceTest {
 
     @Before
     public void init() {
-        target.waitCommitment("0x1", 1, 1, handler);
-        target.waitCommitment("0x2", 1, 2, handler);
-        target.waitCommitment("0x3", 2, 3, handler);
-        target.waitCommitment("0x4", 2, 4, handler);
+        target.waitCommitment(NETWORK, "0x1", 1, 1, handler);
+        target.waitCommitment(NETWORK, "0x2", 1, 2, handler);
+        target.waitCommitment(NETWORK, "0x3", 2, 3, handler);
+        target.waitCommitment(NETWORK, "0x4", 2, 4, handler);
     }
 
     @Test
     public void commonLogicTest() {
-        target.waitCommitment("0x1", 1, 7, handler);
-        target.addBlock(new BlockStub("0x1", "0x1", "0x0"));
+        target.waitCommitment(NETWORK, "0x1", 1, 7, handler);
+        target.addBlock(NETWORK, new BlockStub("0x1", "0x1", "0x0"));
         Assert.assertEquals("no committed",0, committedBlockNo.get());
         Assert.assertEquals("no rejected",0, rejectedBlockNo.get());
 
-        target.addBlock(new BlockStub("0x2", "0x2", "0x1"));
+        target.addBlock(NETWORK, new BlockStub("0x2", "0x2", "0x1"));
         Assert.assertEquals("no committed",0, committedBlockNo.get());
         Assert.assertEquals("no rejected",0, rejectedBlockNo.get());
 
 
-        target.addBlock(new BlockStub("0x3", "0x3", "0x2"));
-        target.addBlock(new BlockStub("0x4", "0x4", "0x3"));
-        target.addBlock(new BlockStub("0x5", "0x5", "0x4"));
-        target.addBlock(new BlockStub("0x6", "0x6", "0x5"));
+        target.addBlock(NETWORK, new BlockStub("0x3", "0x3", "0x2"));
+        target.addBlock(NETWORK, new BlockStub("0x4", "0x4", "0x3"));
+        target.addBlock(NETWORK, new BlockStub("0x5", "0x5", "0x4"));
+        target.addBlock(NETWORK, new BlockStub("0x6", "0x6", "0x5"));
 
         Assert.assertEquals("1 must be committed",1, committedBlockNo.get());
         Assert.assertEquals("1 must be rejected",1, rejectedBlockNo.get());
@@ -70,16 +74,16 @@ public class CommitmentServiceTest {
 
     @Test
     public void forkTest() {
-        target.waitCommitment("0x10", 1, 7, handler);
-        target.addBlock(new BlockStub("0x1", "0x1", "0x0"));
-        target.addBlock(new BlockStub("0x2", "0x2", "0x1"));
+        target.waitCommitment(NETWORK, "0x10", 1, 7, handler);
+        target.addBlock(NETWORK, new BlockStub("0x1", "0x1", "0x0"));
+        target.addBlock(NETWORK, new BlockStub("0x2", "0x2", "0x1"));
         // parallel
-        target.addBlock(new BlockStub("0x10", "0x1", "0x0"));
-        target.addBlock(new BlockStub("0x20", "0x2", "0x10"));
-        target.addBlock(new BlockStub("0x3", "0x3", "0x20"));
-        target.addBlock(new BlockStub("0x4", "0x4", "0x3"));
-        target.addBlock(new BlockStub("0x5", "0x5", "0x4"));
-        target.addBlock(new BlockStub("0x6", "0x6", "0x5"));
+        target.addBlock(NETWORK, new BlockStub("0x10", "0x1", "0x0"));
+        target.addBlock(NETWORK, new BlockStub("0x20", "0x2", "0x10"));
+        target.addBlock(NETWORK, new BlockStub("0x3", "0x3", "0x20"));
+        target.addBlock(NETWORK, new BlockStub("0x4", "0x4", "0x3"));
+        target.addBlock(NETWORK, new BlockStub("0x5", "0x5", "0x4"));
+        target.addBlock(NETWORK, new BlockStub("0x6", "0x6", "0x5"));
 
         Assert.assertEquals("1 must be rejected",1, rejectedBlockNo.get());
         Assert.assertEquals("committed count", 2, rejectedCount.get());
@@ -88,4 +92,48 @@ public class CommitmentServiceTest {
         Assert.assertEquals("committed count", 1, committedCount.get());
 
     }
+
+    @Test
+    public void lateWaiterTest() {
+        target.addBlock(NETWORK, new BlockStub("0x1", "0x1", "0x0"));
+        for (int i = 2; i <= 7; i++) {
+            target.addBlock(NETWORK, new BlockStub("0x" + i, "0x" + i, "0x" + (i - 1)));
+        }
+        Assert.assertEquals("waiters of 1 and 2 are resolved", 0, target.getTracker(NETWORK).getWaiterCount());
+
+        CompletionStage<Boolean> committed = target.waitCommitment(NETWORK, "0x2", 2);
+        CompletionStage<Boolean> rejected = target.waitCommitment(NETWORK, "0x20", 2);
+        Assert.assertTrue("already committed", committed.toCompletableFuture().getNow(false));
+        Assert.assertFalse("already rejected", rejected.toCompletableFuture().getNow(true));
+
+        CompletionStage<Boolean> pending = target.waitCommitment(NETWORK, "0x3", 3);
+        Assert.assertFalse("3 is not committed yet", pending.toCompletableFuture().isDone());
+        target.addBlock(NETWORK, new BlockStub("0x8", "0x8", "0x7"));
+        Assert.assertTrue("3 must be committed", pending.toCompletableFuture().getNow(false));
+    }
+
+    @Test
+    public void forgottenWaiterTest() {
+        target.addBlock(NETWORK, new BlockStub("0x5", "0x5", "0x4"));
+        for (int i = 6; i <= 20; i++) {
+            target.addBlock(NETWORK, new BlockStub("0x" + Integer.toHexString(i), "0x" + Integer.toHexString(i), "0x" + Integer.toHexString(i - 1)));
+        }
+
+        Assert.assertTrue("left the tracked chain", target.waitCommitment(NETWORK, "0x7", 7).toCompletableFuture().getNow(false));
+        Assert.assertTrue("before the first block", target.waitCommitment(NETWORK, "0x3", 3).toCompletableFuture().getNow(false));
+        Assert.assertFalse("still tracked", target.waitCommitment(NETWORK, "0x100", 0xf).toCompletableFuture().getNow(true));
+    }
+
+    @Test
+    public void manyWaitersTest() {
+        target.addBlock(NETWORK, new BlockStub("0x1", "0x1", "0x0"));
+        for (int i = 0; i < 10000; i++) {
+            target.waitCommitment(NETWORK, "0x" + Integer.toHexString(2 + i % 200), 2 + i % 200, i, handler);
+        }
+        for (int i = 2; i <= 206; i++) {
+            target.addBlock(NETWORK, new BlockStub("0x" + Integer.toHexString(i), "0x" + Integer.toHexString(i), "0x" + Integer.toHexString(i - 1)));
+        }
+        Assert.assertEquals("all waiters are committed", 10000 + 1, committedCount.get());
+        Assert.assertEquals("no waiters left", 0, target.getTracker(NETWORK).getWaiterCount());
+    }
 }
\ No newline at end of file
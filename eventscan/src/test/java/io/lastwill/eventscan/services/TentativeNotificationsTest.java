@@ -0,0 +1,82 @@
+package io.lastwill.eventscan.services;
+
+import io.lastwill.eventscan.messages.BaseNotify;
+import io.lastwill.eventscan.messages.PaymentStatus;
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperTransaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TentativeNotificationsTest {
+    private final TentativeNotifications tentative = new TentativeNotifications();
+
+    @Test
+    public void commitTest() {
+        WrapperBlock block = block("0x1", "tx1");
+        tentative.onBlock(block, false);
+        BaseNotify held = notify(PaymentStatus.COMMITTED, "tx1");
+        Assert.assertEquals(PaymentStatus.PENDING, tentative.hold(held));
+        Assert.assertEquals(PaymentStatus.COMMITTED, tentative.hold(notify(PaymentStatus.COMMITTED, "tx2")));
+        Assert.assertEquals(PaymentStatus.PENDING, tentative.hold(notify(PaymentStatus.PENDING, "tx1")));
+
+        Assert.assertEquals(Collections.singletonList(held), tentative.commit(block));
+        Assert.assertTrue(tentative.commit(block).isEmpty());
+        Assert.assertEquals(PaymentStatus.COMMITTED, tentative.hold(notify(PaymentStatus.COMMITTED, "tx1")));
+    }
+
+    @Test
+    public void rollbackTest() {
+        WrapperBlock block = block("0x1", "tx1", "tx2");
+        tentative.onBlock(block, false);
+        BaseNotify rejected = notify(PaymentStatus.COMMITTED, "tx1");
+        tentative.hold(rejected);
+        tentative.hold(notify(PaymentStatus.COMMITTED, "tx2"));
+
+        WrapperBlock replacement = block("0x2", "tx2");
+        Assert.assertEquals(
+                Collections.singletonList(rejected),
+                tentative.rollback(Collections.singletonList(block), Collections.singletonList(replacement))
+        );
+        Assert.assertEquals(PaymentStatus.REJECTED, tentative.hold(notify(PaymentStatus.COMMITTED, "tx1")));
+
+        // the replacement block is processed after the rollback, its transactions are notified again
+        tentative.onBlock(replacement, false);
+        Assert.assertEquals(PaymentStatus.PENDING, tentative.hold(notify(PaymentStatus.COMMITTED, "tx2")));
+        Assert.assertEquals(1, tentative.commit(replacement).size());
+        Assert.assertTrue(tentative.commit(block).isEmpty());
+    }
+
+    @Test
+    public void replayTest() {
+        WrapperBlock replayed = block("0x1", "tx1");
+        WrapperBlock next = block("0x2", "tx2");
+        tentative.onBlock(replayed, true);
+        tentative.onBlock(next, false);
+        BaseNotify held = notify(PaymentStatus.COMMITTED, "tx1");
+        Assert.assertNull(tentative.hold(held));
+        Assert.assertEquals(PaymentStatus.PENDING, tentative.hold(notify(PaymentStatus.COMMITTED, "tx2")));
+        Assert.assertEquals(Collections.singletonList(held), tentative.commit(replayed));
+    }
+
+    private static WrapperBlock block(String hash, String... txHashes) {
+        List<WrapperTransaction> transactions = new ArrayList<>();
+        for (String txHash : txHashes) {
+            transactions.add(new WrapperTransaction(txHash, Collections.emptyList(), Collections.emptyList(), false));
+        }
+        return new WrapperBlock(hash, Long.decode(hash), Instant.now(), transactions);
+    }
+
+    private static BaseNotify notify(PaymentStatus status, String txHash) {
+        return new BaseNotify(status, txHash) {
+            @Override
+            public String getType() {
+                return "test";
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package io.lastwill.eventscan.services;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.blockchain.WrapperTransactionReceipt;
+import io.mywish.scanner.model.BlockRollbackEvent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+public class TransactionReceiptCacheTest {
+    private final TransactionReceiptCache cache = new TransactionReceiptCache();
+
+    @Before
+    public void init() throws Exception {
+        set("maxSize", 100);
+        set("ttl", 600000L);
+        set("keepBlocks", 12L);
+    }
+
+    @Test
+    public void rollbackTest() throws Exception {
+        CompletableFuture<WrapperTransactionReceipt> rolledBack = CompletableFuture.completedFuture(receipt("tx1"));
+        CompletableFuture<WrapperTransactionReceipt> kept = CompletableFuture.completedFuture(receipt("tx2"));
+        Assert.assertNull(cache.putIfAbsent(NetworkType.ETHEREUM_MAINNET, "tx1", rolledBack));
+        Assert.assertNull(cache.putIfAbsent(NetworkType.ETHEREUM_MAINNET, "tx2", kept));
+        Assert.assertNull(cache.putIfAbsent(NetworkType.ETHEREUM_ROPSTEN, "tx1", kept));
+
+        WrapperBlock block = new WrapperBlock("0x1", 1L, Instant.now(), Collections.singletonList(
+                new WrapperTransaction("tx1", Collections.emptyList(), Collections.emptyList(), false)
+        ));
+        Method onBlockRollback = TransactionReceiptCache.class.getDeclaredMethod("onBlockRollback", BlockRollbackEvent.class);
+        onBlockRollback.setAccessible(true);
+        onBlockRollback.invoke(cache, new BlockRollbackEvent(
+                NetworkType.ETHEREUM_MAINNET,
+                Collections.singletonList(block),
+                Collections.emptyList()
+        ));
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictions().get());
+        CompletableFuture<WrapperTransactionReceipt> refetched = new CompletableFuture<>();
+        Assert.assertNull(cache.putIfAbsent(NetworkType.ETHEREUM_MAINNET, "tx1", refetched));
+        Assert.assertSame(kept, cache.putIfAbsent(NetworkType.ETHEREUM_MAINNET, "tx2", new CompletableFuture<>()));
+        Assert.assertSame(kept, cache.putIfAbsent(NetworkType.ETHEREUM_ROPSTEN, "tx1", new CompletableFuture<>()));
+    }
+
+    private void set(String name, Object value) throws Exception {
+        Field field = TransactionReceiptCache.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(cache, value);
+    }
+
+    private static WrapperTransactionReceipt receipt(String hash) {
+        return new WrapperTransactionReceipt(hash, Collections.emptyList(), Collections.emptyList(), true);
+    }
+}
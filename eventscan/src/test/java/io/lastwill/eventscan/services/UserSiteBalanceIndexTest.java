@@ -0,0 +1,96 @@
+package io.lastwill.eventscan.services;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.lastwill.eventscan.repositories.UserSiteBalanceRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class UserSiteBalanceIndexTest {
+    private final Map<Integer, String[]> rows = new TreeMap<>();
+    private final UserSiteBalanceRepository repository = (UserSiteBalanceRepository) Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[]{UserSiteBalanceRepository.class},
+            (proxy, method, args) -> {
+                List<Object[]> result = new ArrayList<>();
+                switch (method.getName()) {
+                    case "findAddressesAfterId":
+                        rows.forEach((id, addresses) -> {
+                            if (id > (Integer) args[0]) {
+                                result.add(row(id, addresses));
+                            }
+                        });
+                        return result;
+                    case "findAddressesByIds":
+                        for (Object id : (Collection<?>) args[0]) {
+                            if (rows.containsKey(id)) {
+                                result.add(row((Integer) id, rows.get(id)));
+                            }
+                        }
+                        return result;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+    );
+    private final UserSiteBalanceIndex index = new UserSiteBalanceIndex();
+
+    @Before
+    public void init() throws Exception {
+        set("userSiteBalanceRepository", repository);
+        set("fullReloadInterval", 3600000L);
+        rows.put(1, new String[]{"0xeth1", "Tron1", "btc1"});
+        rows.put(2, new String[]{"0xeth2", null, null});
+        index.init();
+    }
+
+    @Test
+    public void newBalanceTest() {
+        rows.put(3, new String[]{"0xeth3", "Tron3", "btc3"});
+        Assert.assertFalse(index.isWatched(NetworkType.ETHEREUM_MAINNET, "0xeth3"));
+        index.refresh();
+        Assert.assertTrue(index.isWatched(NetworkType.ETHEREUM_MAINNET, "0xeth3"));
+        Assert.assertTrue(index.isWatched(NetworkType.TRON_MAINNET, "Tron3"));
+        Assert.assertTrue(index.isWatched(NetworkType.BTC_MAINNET, "btc3"));
+    }
+
+    @Test
+    public void addressSetLaterTest() {
+        Assert.assertTrue(index.isWatched(NetworkType.ETHEREUM_MAINNET, "0xeth2"));
+        rows.put(2, new String[]{"0xeth2", "Tron2", "btc2"});
+        index.refresh();
+        Assert.assertTrue(index.isWatched(NetworkType.TRON_MAINNET, "Tron2"));
+        Assert.assertTrue(index.isWatched(NetworkType.BTC_MAINNET, "btc2"));
+    }
+
+    @Test
+    public void changedAddressTest() throws Exception {
+        rows.put(1, new String[]{"0xeth1", "Tron1", "btc1-new"});
+        index.refresh();
+        Assert.assertTrue(index.isWatched(NetworkType.BTC_MAINNET, "btc1"));
+
+        set("fullReloadInterval", 0L);
+        index.refresh();
+        Assert.assertTrue(index.isWatched(NetworkType.BTC_MAINNET, "btc1-new"));
+        Assert.assertFalse(index.isWatched(NetworkType.BTC_MAINNET, "btc1"));
+        Assert.assertTrue(index.isWatched(NetworkType.ETHEREUM_MAINNET, "0xeth2"));
+    }
+
+    private void set(String name, Object value) throws Exception {
+        Field field = UserSiteBalanceIndex.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(index, value);
+    }
+
+    private static Object[] row(int id, String[] addresses) {
+        return new Object[]{id, addresses[0], addresses[1], addresses[2]};
+    }
+}
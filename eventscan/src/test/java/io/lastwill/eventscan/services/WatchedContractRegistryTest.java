@@ -0,0 +1,151 @@
+package io.lastwill.eventscan.services;
+
+import io.lastwill.eventscan.events.model.ContractCreatedEvent;
+import io.lastwill.eventscan.model.Contract;
+import io.lastwill.eventscan.model.NetworkType;
+import io.lastwill.eventscan.repositories.ContractRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class WatchedContractRegistryTest {
+    private final static long MAX_ADDRESS_WAIT = 100000;
+
+    private final WatchedContractRegistry registry = new WatchedContractRegistry();
+    /**
+     * Contract rows by id: lower cased address and network type.
+     */
+    private final Map<Integer, Object[]> contracts = new TreeMap<>();
+    private final List<Collection<Integer>> requestedIds = new ArrayList<>();
+
+    @Before
+    public void init() throws Exception {
+        set("contractRepository", Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{ContractRepository.class},
+                (proxy, method, args) -> {
+                    List<Object[]> result = new ArrayList<>();
+                    if (method.getName().equals("findAddressesAfterId")) {
+                        contracts.forEach((id, row) -> {
+                            if (id > (Integer) args[0]) {
+                                result.add(new Object[]{id, row[0], row[1]});
+                            }
+                        });
+                    }
+                    else if (method.getName().equals("findAddressesByIds")) {
+                        @SuppressWarnings("unchecked")
+                        Collection<Integer> ids = (Collection<Integer>) args[0];
+                        requestedIds.add(new ArrayList<>(ids));
+                        ids.stream()
+                                .filter(contracts::containsKey)
+                                .forEach(id -> result.add(new Object[]{id, contracts.get(id)[0], contracts.get(id)[1]}));
+                    }
+                    return result;
+                }
+        ));
+        set("fullReloadInterval", 3600000L);
+        set("maxAddressWait", MAX_ADDRESS_WAIT);
+        contracts.put(1, new Object[]{"0x1", NetworkType.ETHEREUM_MAINNET});
+        contracts.put(2, new Object[]{null, NetworkType.ETHEREUM_MAINNET});
+        contracts.put(3, new Object[]{null, NetworkType.ETHEREUM_MAINNET});
+        registry.refresh();
+    }
+
+    @Test
+    public void refreshTest() {
+        Assert.assertTrue(registry.isWatched(NetworkType.ETHEREUM_MAINNET, "0X1"));
+        contracts.put(2, new Object[]{"0x2", NetworkType.ETHEREUM_MAINNET});
+        contracts.put(4, new Object[]{"0x4", NetworkType.ETHEREUM_ROPSTEN});
+        registry.refresh();
+        Assert.assertTrue(registry.isWatched(NetworkType.ETHEREUM_MAINNET, "0x2"));
+        Assert.assertTrue(registry.isWatched(NetworkType.ETHEREUM_ROPSTEN, "0x4"));
+        Assert.assertFalse(registry.isWatched(NetworkType.ETHEREUM_MAINNET, "0x4"));
+
+        // the contract which got the address is not requested anymore
+        requestedIds.clear();
+        registry.refresh();
+        Assert.assertEquals(1, requestedIds.size());
+        Assert.assertEquals(3, (int) requestedIds.get(0).iterator().next());
+        Assert.assertEquals(1, requestedIds.get(0).size());
+    }
+
+    @Test
+    public void deletedTest() throws Exception {
+        contracts.remove(1);
+        contracts.remove(3);
+        registry.refresh();
+        // the deleted contract is not requested anymore
+        requestedIds.clear();
+        registry.refresh();
+        Assert.assertEquals(1, requestedIds.get(0).size());
+        Assert.assertEquals(2, (int) requestedIds.get(0).iterator().next());
+
+        Assert.assertTrue(registry.isWatched(NetworkType.ETHEREUM_MAINNET, "0x1"));
+        set("lastFullReload", 1L);
+        registry.refresh();
+        Assert.assertFalse(registry.isWatched(NetworkType.ETHEREUM_MAINNET, "0x1"));
+        Assert.assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void maxAddressWaitTest() throws Exception {
+        @SuppressWarnings("unchecked")
+        Map<Integer, Long> withoutAddress = (Map<Integer, Long>) get("withoutAddress");
+        withoutAddress.put(2, System.currentTimeMillis() - MAX_ADDRESS_WAIT);
+        registry.refresh();
+        Assert.assertFalse(withoutAddress.containsKey(2));
+        Assert.assertTrue(withoutAddress.containsKey(3));
+
+        // the reload does not return the contract to the checked ones, but keeps the waiting time of the others
+        long since = withoutAddress.get(3);
+        set("lastFullReload", 1L);
+        registry.refresh();
+        Assert.assertFalse(withoutAddress.containsKey(2));
+        Assert.assertEquals(since, (long) withoutAddress.get(3));
+    }
+
+    @Test
+    public void createdTest() throws Exception {
+        onContractCreated(2, "0xAB");
+        Assert.assertTrue(registry.isWatched(NetworkType.ETHEREUM_MAINNET, "0xab"));
+        // the address is not in DB yet, so the reload keeps it
+        set("lastFullReload", 1L);
+        registry.refresh();
+        Assert.assertTrue(registry.isWatched(NetworkType.ETHEREUM_MAINNET, "0xab"));
+
+        contracts.remove(2);
+        registry.refresh();
+        set("lastFullReload", 1L);
+        registry.refresh();
+        Assert.assertFalse(registry.isWatched(NetworkType.ETHEREUM_MAINNET, "0xab"));
+    }
+
+    private void onContractCreated(int id, String address) throws Exception {
+        Contract contract = new Contract();
+        contract.setId(id);
+        Method method = WatchedContractRegistry.class.getDeclaredMethod("onContractCreated", ContractCreatedEvent.class);
+        method.setAccessible(true);
+        method.invoke(registry, new ContractCreatedEvent(NetworkType.ETHEREUM_MAINNET, contract, null, null, address, true));
+    }
+
+    private void set(String name, Object value) throws Exception {
+        Field field = WatchedContractRegistry.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(registry, value);
+    }
+
+    private Object get(String name) throws Exception {
+        Field field = WatchedContractRegistry.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(registry);
+    }
+}
@@ -24,5 +24,17 @@ public interface ContractRepository extends CrudRepository<Contract, Integer> {
     @Query("select c from Contract c where c.product.network.type = :network and lower(c.txHash) in :hashes")
     List<Contract> findByTxHashes(@Param("hashes") Collection<String> hashes, @Param("network") NetworkType network);
 
+    /**
+     * Returns id, lower cased address and network type of contracts created after the specified id.
+     */
+    @Query("select c.id, lower(c.address), c.product.network.type from Contract c where c.id > :id")
+    List<Object[]> findAddressesAfterId(@Param("id") Integer id);
+
+    /**
+     * Returns id, lower cased address and network type of the specified contracts.
+     */
+    @Query("select c.id, lower(c.address), c.product.network.type from Contract c where c.id in :ids")
+    List<Object[]> findAddressesByIds(@Param("ids") Collection<Integer> ids);
+
     Contract findFirstById(Integer id);
 }
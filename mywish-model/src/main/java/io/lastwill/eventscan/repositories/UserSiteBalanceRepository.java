@@ -29,4 +29,16 @@ public interface UserSiteBalanceRepository extends CrudRepository<UserSiteBalanc
     UserSiteBalance findByMemo(@Param("memo") String memo);
 
     List<UserSiteBalance> findAllByUser(@Param("user") User user);
+
+    /**
+     * Returns id, ETH, TRON and BTC addresses of balances created after the specified id.
+     */
+    @Query("select c.id, c.ethAddress, c.tronAddress, c.btcAddress from UserSiteBalance c where c.id > :id")
+    List<Object[]> findAddressesAfterId(@Param("id") int id);
+
+    /**
+     * Returns id, ETH, TRON and BTC addresses of the specified balances.
+     */
+    @Query("select c.id, c.ethAddress, c.tronAddress, c.btcAddress from UserSiteBalance c where c.id in :ids")
+    List<Object[]> findAddressesByIds(@Param("ids") Collection<Integer> ids);
 }
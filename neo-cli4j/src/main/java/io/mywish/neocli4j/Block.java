@@ -13,4 +13,6 @@ public class Block {
     private List<Transaction> transactions;
     @JsonProperty("index")
     private Long number;
+    @JsonProperty("previousblockhash")
+    private String previousHash;
 }
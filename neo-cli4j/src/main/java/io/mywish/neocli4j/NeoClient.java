@@ -7,7 +7,9 @@ public interface NeoClient {
     Integer getBlockCount() throws java.io.IOException;
     Block getBlock(String blockHash) throws java.io.IOException;
     Block getBlock(Long blockNumber) throws java.io.IOException;
+    List<Block> getBlocks(List<Long> blockNumbers) throws java.io.IOException;
     Transaction getTransaction(String txHash, boolean getInputs) throws java.io.IOException;
     List<Event> getEvents(String txHash) throws java.io.IOException;
+    List<List<Event>> getEvents(List<String> txHashes) throws java.io.IOException;
     BigInteger getBalance(String address) throws java.io.IOException;
 }
@@ -15,9 +15,12 @@ import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 public class NeoClientImpl implements NeoClient {
@@ -60,6 +63,59 @@ public class NeoClientImpl implements NeoClient {
         return response;
     }
 
+    /**
+     * Sends the same method with different params as one JSON-RPC batch.
+     * Responses are returned in the order of the params.
+     */
+    private <T extends JsonRpcResponse> List<T> doBatchRequest(final Class<T> clazz, final String method, final List<List<Object>> paramsList) throws java.io.IOException {
+        if (paramsList.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<JsonRpcRequest> jsonRpcRequests = new ArrayList<>(paramsList.size());
+        for (int i = 0; i < paramsList.size(); i++) {
+            jsonRpcRequests.add(new JsonRpcRequest("2.0", String.valueOf(i), method, paramsList.get(i)));
+        }
+        String json = objectMapper.writeValueAsString(jsonRpcRequests);
+        HttpPost httpPost = new HttpPost(rpc);
+        httpPost.setHeader("Accept", "application/json");
+        httpPost.setHeader("Content-type", "application/json");
+        httpPost.setEntity(new StringEntity(json));
+        HttpResponse httpResponse = httpClient.execute(httpPost);
+        HttpEntity entity = httpResponse.getEntity();
+        String responseBody = EntityUtils.toString(entity, UTF8);
+        List<T> responses = objectMapper.readValue(
+                responseBody,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, clazz)
+        );
+        Map<String, T> responsesById = new HashMap<>();
+        for (T response : responses) {
+            responsesById.put(response.getId(), response);
+        }
+
+        List<T> result = new ArrayList<>(paramsList.size());
+        for (int i = 0; i < paramsList.size(); i++) {
+            T response = responsesById.get(String.valueOf(i));
+            if (response == null) {
+                throw new IOException("No response in batch for method '" + method + "'"
+                        + " with arguments "
+                        + objectMapper.writeValueAsString(paramsList.get(i))
+                );
+            }
+            if (response.getError() != null) {
+                throw new IOException("Exception in method '" + method + "'"
+                        + " with arguments "
+                        + objectMapper.writeValueAsString(paramsList.get(i))
+                        + ". Error code: "
+                        + response.getError().getCode()
+                        + ". Error message: "
+                        + response.getError().getMessage()
+                );
+            }
+            result.add(response);
+        }
+        return result;
+    }
+
     private <T extends JsonRpcResponse> T doRequest(final Class<T> clazz, final String method) throws java.io.IOException {
         return doRequest(clazz, method, new Object[]{});
     }
@@ -76,6 +132,19 @@ public class NeoClientImpl implements NeoClient {
         return response.getResult();
     }
 
+    @Override
+    public List<Block> getBlocks(List<Long> blockNumbers) throws java.io.IOException {
+        List<List<Object>> paramsList = new ArrayList<>(blockNumbers.size());
+        for (Long blockNumber : blockNumbers) {
+            paramsList.add(Arrays.<Object>asList(blockNumber, "1"));
+        }
+        List<Block> blocks = new ArrayList<>(blockNumbers.size());
+        for (GetBlockResponse response : doBatchRequest(GetBlockResponse.class, "getblock", paramsList)) {
+            blocks.add(response.getResult());
+        }
+        return blocks;
+    }
+
     @Override
     public Block getBlock(String blockHash) throws java.io.IOException {
         GetBlockResponse response = doRequest(GetBlockResponse.class, "getblock", blockHash, "1");
@@ -103,6 +172,24 @@ public class NeoClientImpl implements NeoClient {
         return response.getResult();
     }
 
+    @Override
+    public List<List<Event>> getEvents(List<String> txHashes) throws java.io.IOException {
+        List<List<Object>> paramsList = new ArrayList<>(txHashes.size());
+        for (String txHash : txHashes) {
+            paramsList.add(Collections.<Object>singletonList(txHash));
+        }
+        List<List<Event>> events = new ArrayList<>(txHashes.size());
+        for (GetApplicationLogResponse response : doBatchRequest(GetApplicationLogResponse.class, "getapplicationlog", paramsList)) {
+            if (response.getResult() == null || response.getResult().isEmpty()) {
+                events.add(Collections.emptyList());
+            }
+            else {
+                events.add(response.getResult());
+            }
+        }
+        return events;
+    }
+
     @Override
     public BigInteger getBalance(String address) throws java.io.IOException {
         GetAccountStateResponse response = doRequest(GetAccountStateResponse.class, "getaccountstate", address);
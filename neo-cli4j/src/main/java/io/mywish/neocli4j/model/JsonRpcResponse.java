@@ -4,6 +4,7 @@ import lombok.Getter;
 
 @Getter
 public class JsonRpcResponse<T> {
+    private String id;
     private T result;
     private Error error;
 }
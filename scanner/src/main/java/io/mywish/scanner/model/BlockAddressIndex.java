@@ -0,0 +1,398 @@
+package io.mywish.scanner.model;
+
+import io.mywish.blockchain.WrapperTransaction;
+import lombok.Getter;
+import org.springframework.util.MultiValueMap;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Immutable index of the block transactions by address.
+ * Addresses are normalized once, when the index is built: EVM addresses are kept as 20 bytes and are compared
+ * ignoring case, other addresses are kept as strings. Each address refers to the sorted array of transaction
+ * positions in the block, a transaction is listed once per address. The index is available as a read-only
+ * {@link MultiValueMap}, lookups by address do not depend on the address case for EVM networks.
+ */
+public final class BlockAddressIndex extends AbstractMap<String, List<WrapperTransaction>>
+        implements MultiValueMap<String, WrapperTransaction> {
+    private final static int[] NO_POSITIONS = new int[0];
+
+    public enum AddressFormat {
+        /**
+         * Hex addresses of 20 bytes, the case is ignored. Addresses of other form are compared in lower case.
+         */
+        EVM,
+        /**
+         * Addresses are compared in lower case.
+         */
+        LOWER_CASE,
+        /**
+         * Addresses are compared exactly.
+         */
+        EXACT;
+
+        private Object canonical(String address) {
+            switch (this) {
+                case EVM:
+                    EvmAddress evmAddress = EvmAddress.parse(address);
+                    return evmAddress != null ? evmAddress : address.toLowerCase();
+                case LOWER_CASE:
+                    return address.toLowerCase();
+                default:
+                    return address;
+            }
+        }
+    }
+
+    @Getter
+    private final AddressFormat format;
+    private final List<WrapperTransaction> transactions;
+    private final Object[] keys;
+    private final int[][] positions;
+    private final int size;
+    private Set<Map.Entry<String, List<WrapperTransaction>>> entrySet;
+
+    private BlockAddressIndex(Builder builder) {
+        this.format = builder.format;
+        this.transactions = builder.transactions;
+        this.keys = builder.keys.clone();
+        this.positions = new int[keys.length][];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                positions[slot] = sortedUnique(builder.positions[slot], builder.counts[slot]);
+            }
+        }
+        this.size = builder.size;
+    }
+
+    public static Builder builder(List<WrapperTransaction> transactions, AddressFormat format) {
+        return new Builder(transactions, format);
+    }
+
+    /**
+     * Returns positions of the address transactions in the block, or empty array if the address is absent.
+     */
+    public int[] getPositions(String address) {
+        int slot = address == null ? -1 : find(keys, format.canonical(address));
+        return slot < 0 ? NO_POSITIONS : positions[slot].clone();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && find(keys, format.canonical((String) key)) >= 0;
+    }
+
+    @Override
+    public List<WrapperTransaction> get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int slot = find(keys, format.canonical((String) key));
+        return slot < 0 ? null : new Transactions(positions[slot]);
+    }
+
+    @Override
+    public WrapperTransaction getFirst(String key) {
+        List<WrapperTransaction> list = get(key);
+        return list == null ? null : list.get(0);
+    }
+
+    @Override
+    public void add(String key, WrapperTransaction value) {
+        throw new UnsupportedOperationException("Block address index is immutable.");
+    }
+
+    @Override
+    public void set(String key, WrapperTransaction value) {
+        throw new UnsupportedOperationException("Block address index is immutable.");
+    }
+
+    @Override
+    public void setAll(Map<String, WrapperTransaction> values) {
+        throw new UnsupportedOperationException("Block address index is immutable.");
+    }
+
+    @Override
+    public Map<String, WrapperTransaction> toSingleValueMap() {
+        Map<String, WrapperTransaction> result = new LinkedHashMap<>(size * 2);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                result.put(keys[slot].toString(), transactions.get(positions[slot][0]));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Map.Entry<String, List<WrapperTransaction>>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private static int find(Object[] keys, Object key) {
+        int mask = keys.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -(slot + 1);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int[] sortedUnique(int[] values, int count) {
+        int[] result = Arrays.copyOf(values, count);
+        Arrays.sort(result);
+        int unique = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[unique++] = result[i];
+            }
+        }
+        return unique == result.length ? result : Arrays.copyOf(result, unique);
+    }
+
+    private class Transactions extends AbstractList<WrapperTransaction> {
+        private final int[] slotPositions;
+
+        private Transactions(int[] slotPositions) {
+            this.slotPositions = slotPositions;
+        }
+
+        @Override
+        public WrapperTransaction get(int index) {
+            return transactions.get(slotPositions[index]);
+        }
+
+        @Override
+        public int size() {
+            return slotPositions.length;
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<String, List<WrapperTransaction>>> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, List<WrapperTransaction>>> iterator() {
+            return new Iterator<Map.Entry<String, List<WrapperTransaction>>>() {
+                private int slot = advance(0);
+
+                private int advance(int from) {
+                    while (from < keys.length && keys[from] == null) {
+                        from++;
+                    }
+                    return from;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return slot < keys.length;
+                }
+
+                @Override
+                public Map.Entry<String, List<WrapperTransaction>> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Map.Entry<String, List<WrapperTransaction>> entry = new SimpleImmutableEntry<>(
+                            keys[slot].toString(),
+                            new Transactions(positions[slot])
+                    );
+                    slot = advance(slot + 1);
+                    return entry;
+                }
+            };
+        }
+    }
+
+    /**
+     * Collects addresses of the block transactions. Must be used from one thread.
+     */
+    public static class Builder {
+        private final static int INITIAL_POSITIONS = 2;
+
+        private final List<WrapperTransaction> transactions;
+        private final AddressFormat format;
+        private Object[] keys;
+        private int[][] positions;
+        private int[] counts;
+        private int size;
+
+        private Builder(List<WrapperTransaction> transactions, AddressFormat format) {
+            // positions are resolved by index, so the list must be random access
+            this.transactions = transactions instanceof RandomAccess ? transactions : new ArrayList<>(transactions);
+            this.format = format;
+            int capacity = Integer.highestOneBit(Math.max(4, transactions.size() * 4) - 1) << 1;
+            this.keys = new Object[capacity];
+            this.positions = new int[capacity][];
+            this.counts = new int[capacity];
+        }
+
+        /**
+         * Adds the transaction at the position to the address. Null addresses are skipped.
+         */
+        public Builder add(String address, int position) {
+            if (address == null) {
+                return this;
+            }
+            if (position < 0 || position >= transactions.size()) {
+                throw new IndexOutOfBoundsException("Transaction position " + position + " of " + transactions.size());
+            }
+            Object key = format.canonical(address);
+            int slot = find(keys, key);
+            if (slot < 0) {
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                    slot = find(keys, key);
+                }
+                slot = -(slot + 1);
+                keys[slot] = key;
+                positions[slot] = new int[INITIAL_POSITIONS];
+                size++;
+            }
+            int[] slotPositions = positions[slot];
+            int count = counts[slot];
+            // a transaction is usually added to the address right after the previous addition
+            if (count > 0 && slotPositions[count - 1] == position) {
+                return this;
+            }
+            if (count == slotPositions.length) {
+                slotPositions = Arrays.copyOf(slotPositions, count * 2);
+                positions[slot] = slotPositions;
+            }
+            slotPositions[count] = position;
+            counts[slot] = count + 1;
+            return this;
+        }
+
+        public BlockAddressIndex build() {
+            return new BlockAddressIndex(this);
+        }
+
+        private void grow() {
+            Object[] oldKeys = keys;
+            int[][] oldPositions = positions;
+            int[] oldCounts = counts;
+            keys = new Object[oldKeys.length * 2];
+            positions = new int[keys.length][];
+            counts = new int[keys.length];
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != null) {
+                    int newSlot = -(find(keys, oldKeys[slot]) + 1);
+                    keys[newSlot] = oldKeys[slot];
+                    positions[newSlot] = oldPositions[slot];
+                    counts[newSlot] = oldCounts[slot];
+                }
+            }
+        }
+    }
+
+    /**
+     * 20 bytes address with the precomputed hash, rendered as 0x prefixed lower case hex.
+     */
+    private static final class EvmAddress {
+        private final static int HEX_LENGTH = 40;
+        private final static char[] HEX = "0123456789abcdef".toCharArray();
+
+        private final long high;
+        private final long middle;
+        private final int low;
+        private final int hash;
+        private String text;
+
+        private EvmAddress(long high, long middle, int low) {
+            this.high = high;
+            this.middle = middle;
+            this.low = low;
+            this.hash = 31 * (31 * Long.hashCode(high) + Long.hashCode(middle)) + low;
+        }
+
+        private static EvmAddress parse(String address) {
+            int offset = address.startsWith("0x") || address.startsWith("0X") ? 2 : 0;
+            if (address.length() - offset != HEX_LENGTH) {
+                return null;
+            }
+            long high = 0;
+            long middle = 0;
+            int low = 0;
+            for (int i = 0; i < HEX_LENGTH; i++) {
+                int digit = Character.digit(address.charAt(offset + i), 16);
+                if (digit < 0) {
+                    return null;
+                }
+                if (i < 16) {
+                    high = (high << 4) | digit;
+                }
+                else if (i < 32) {
+                    middle = (middle << 4) | digit;
+                }
+                else {
+                    low = (low << 4) | digit;
+                }
+            }
+            return new EvmAddress(high, middle, low);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EvmAddress)) {
+                return false;
+            }
+            EvmAddress other = (EvmAddress) o;
+            return high == other.high && middle == other.middle && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            if (text == null) {
+                char[] chars = new char[HEX_LENGTH + 2];
+                chars[0] = '0';
+                chars[1] = 'x';
+                for (int i = 0; i < 16; i++) {
+                    chars[2 + i] = HEX[(int) (high >>> (60 - i * 4)) & 0xf];
+                    chars[18 + i] = HEX[(int) (middle >>> (60 - i * 4)) & 0xf];
+                }
+                for (int i = 0; i < 8; i++) {
+                    chars[34 + i] = HEX[(low >>> (28 - i * 4)) & 0xf];
+                }
+                text = new String(chars);
+            }
+            return text;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.mywish.scanner.model;
+
+import io.lastwill.eventscan.events.model.BaseEvent;
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperBlock;
+import lombok.Getter;
+
+/**
+ * Published by the scanner which tracks reorganizations, when the processed block got commitment chain length
+ * blocks above it, so it is not expected to be rolled back.
+ */
+@Getter
+public class BlockCommittedEvent extends BaseEvent {
+    private final WrapperBlock block;
+
+    public BlockCommittedEvent(NetworkType networkType, WrapperBlock block) {
+        super(networkType);
+        this.block = block;
+    }
+}
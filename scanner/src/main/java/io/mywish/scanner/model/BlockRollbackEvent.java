@@ -0,0 +1,30 @@
+package io.mywish.scanner.model;
+
+import io.lastwill.eventscan.events.model.BaseEvent;
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperBlock;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published by the scanner which tracks reorganizations, when the processed blocks left the main chain.
+ * It is published before the replacement blocks are processed, they come by {@link NewBlockEvent} right after it.
+ */
+@Getter
+public class BlockRollbackEvent extends BaseEvent {
+    /**
+     * Blocks which are not in the main chain anymore, in ascending order.
+     */
+    private final List<WrapperBlock> rolledBackBlocks;
+    /**
+     * Blocks of the main chain from the fork point up to the received block, in ascending order.
+     */
+    private final List<WrapperBlock> replacementBlocks;
+
+    public BlockRollbackEvent(NetworkType networkType, List<WrapperBlock> rolledBackBlocks, List<WrapperBlock> replacementBlocks) {
+        super(networkType);
+        this.rolledBackBlocks = rolledBackBlocks;
+        this.replacementBlocks = replacementBlocks;
+    }
+}
@@ -4,6 +4,7 @@ import io.lastwill.eventscan.events.model.BaseEvent;
 import io.lastwill.eventscan.model.NetworkType;
 import io.mywish.blockchain.WrapperBlock;
 import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.scanner.services.BackfillContext;
 import lombok.Getter;
 import org.springframework.util.MultiValueMap;
 
@@ -11,10 +12,15 @@ import org.springframework.util.MultiValueMap;
 public class NewBlockEvent extends BaseEvent {
     private final WrapperBlock block;
     private final MultiValueMap<String, WrapperTransaction> transactionsByAddress;
+    /**
+     * True if the block is processed again by backfill, not received by the live scanner.
+     */
+    private final boolean isBackfill;
 
     public NewBlockEvent(NetworkType networkType, WrapperBlock block, MultiValueMap<String, WrapperTransaction> transactionsByAddress) {
         super(networkType);
         this.block = block;
         this.transactionsByAddress = transactionsByAddress;
+        this.isBackfill = BackfillContext.isActive();
     }
 }
\ No newline at end of file
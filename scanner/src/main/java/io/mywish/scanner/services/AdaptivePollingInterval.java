@@ -0,0 +1,118 @@
+package io.mywish.scanner.services;
+
+import io.mywish.blockchain.WrapperBlock;
+import lombok.Getter;
+
+/**
+ * Chooses how long the scanner waits before the next poll of the network head.
+ * The block cadence is learned by moving averages of the interval between block timestamps and of its deviation.
+ * The scanner sleeps until the next block is expected minus the deviation, then polls every minInterval ms,
+ * doubling the interval for each empty poll, so late blocks do not cause a burst of requests.
+ * All the delays are kept within minInterval and maxInterval.
+ */
+public class AdaptivePollingInterval {
+    private final static double ALPHA = 0.1;
+    private final static int MAX_BACKOFF_SHIFT = 16;
+
+    @Getter
+    private final long minInterval;
+    @Getter
+    private final long maxInterval;
+    private final long defaultInterval;
+
+    private double meanInterval = -1;
+    private double deviation = 0;
+    private Long lastBlockNo;
+    private long lastBlockTimestamp;
+    private Long lastHeadNo;
+    private long lastHeadArrival;
+    private int emptyPolls;
+
+    @Getter
+    private long hits;
+    @Getter
+    private long misses;
+
+    /**
+     * @param defaultInterval delay until the cadence is learned.
+     */
+    public AdaptivePollingInterval(long minInterval, long maxInterval, long defaultInterval) {
+        if (minInterval <= 0 || maxInterval < minInterval) {
+            throw new IllegalArgumentException("Wrong polling bounds " + minInterval + "-" + maxInterval);
+        }
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.defaultInterval = defaultInterval;
+    }
+
+    /**
+     * Takes into account timestamp of the received block.
+     */
+    public synchronized void onBlock(WrapperBlock block) {
+        if (block.getTimestamp() == null || block.getNumber() == null) {
+            return;
+        }
+        long number = block.getNumber();
+        long timestamp = block.getTimestamp().toEpochMilli();
+        if (lastBlockNo != null && number > lastBlockNo && timestamp > lastBlockTimestamp) {
+            double interval = (double) (timestamp - lastBlockTimestamp) / (number - lastBlockNo);
+            if (meanInterval < 0) {
+                meanInterval = interval;
+            }
+            else {
+                deviation += ALPHA * (Math.abs(interval - meanInterval) - deviation);
+                meanInterval += ALPHA * (interval - meanInterval);
+            }
+        }
+        lastBlockNo = number;
+        lastBlockTimestamp = timestamp;
+    }
+
+    /**
+     * Takes into account result of the head poll.
+     */
+    public synchronized void onHead(long headNo, long now) {
+        if (lastHeadNo == null || headNo > lastHeadNo) {
+            if (lastHeadNo != null) {
+                hits++;
+            }
+            lastHeadNo = headNo;
+            lastHeadArrival = now;
+            emptyPolls = 0;
+        }
+        else {
+            misses++;
+            emptyPolls++;
+        }
+    }
+
+    /**
+     * Returns how long to wait before the next poll in ms.
+     */
+    public synchronized long nextDelay(long now) {
+        if (meanInterval < 0 || lastHeadNo == null) {
+            return clamp(defaultInterval);
+        }
+        long windowStart = lastHeadArrival + (long) Math.max(0, meanInterval - deviation);
+        if (now < windowStart) {
+            return clamp(windowStart - now);
+        }
+        // the poll at the window start is the first empty one
+        return clamp(minInterval << Math.min(Math.max(0, emptyPolls - 1), MAX_BACKOFF_SHIFT));
+    }
+
+    /**
+     * Returns learned mean interval between blocks in ms, or -1 if it is not known yet.
+     */
+    public synchronized long getMeanInterval() {
+        return (long) meanInterval;
+    }
+
+    public synchronized long getDeviation() {
+        return (long) deviation;
+    }
+
+    private long clamp(long delay) {
+        return Math.max(minInterval, Math.min(maxInterval, delay));
+    }
+}
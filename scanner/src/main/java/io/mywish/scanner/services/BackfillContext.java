@@ -0,0 +1,49 @@
+package io.mywish.scanner.services;
+
+import io.lastwill.eventscan.model.NetworkType;
+import lombok.Getter;
+
+/**
+ * Marks the threads which process historical blocks for {@link ScannerBackfill}.
+ * Events published on such thread are delivered synchronously, so listeners see the mark as well.
+ */
+public final class BackfillContext {
+    private final static ThreadLocal<BackfillContext> current = new ThreadLocal<>();
+
+    @Getter
+    private final NetworkType networkType;
+    @Getter
+    private final boolean notificationsEnabled;
+
+    BackfillContext(NetworkType networkType, boolean notificationsEnabled) {
+        this.networkType = networkType;
+        this.notificationsEnabled = notificationsEnabled;
+    }
+
+    /**
+     * Returns the backfill of the current thread, or null if the thread is not a backfill worker.
+     */
+    public static BackfillContext current() {
+        return current.get();
+    }
+
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Returns true if the current thread is a backfill worker and external notifications must not be sent.
+     */
+    public static boolean isNotificationSuppressed() {
+        BackfillContext context = current.get();
+        return context != null && !context.notificationsEnabled;
+    }
+
+    void enter() {
+        current.set(this);
+    }
+
+    static void exit() {
+        current.remove();
+    }
+}
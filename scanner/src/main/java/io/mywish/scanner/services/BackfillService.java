@@ -0,0 +1,98 @@
+package io.mywish.scanner.services;
+
+import io.lastwill.eventscan.model.NetworkType;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts historical backfills, at most one job per network at once.
+ * Progress of each job is stored in the file of the checkpoint dir, which is named after the range.
+ */
+@Slf4j
+@Component
+public class BackfillService {
+    @Autowired(required = false)
+    private List<Scanner> scanners = Collections.emptyList();
+
+    @Getter
+    @Value("${etherscanner.backfill.checkpoint-dir:backfill}")
+    private String checkpointDir;
+
+    @Getter
+    @Value("${etherscanner.backfill.range-size:10}")
+    private int rangeSize;
+
+    @Getter
+    @Value("${etherscanner.backfill.max-workers:8}")
+    private int maxWorkers;
+
+    private final Map<NetworkType, ScannerBackfill> jobs = new EnumMap<>(NetworkType.class);
+
+    public synchronized ScannerBackfill start(
+            NetworkType networkType,
+            long fromBlock,
+            long toBlock,
+            int workers,
+            boolean notificationsEnabled
+    ) {
+        ScannerBackfill existing = jobs.get(networkType);
+        if (existing != null && existing.getState() == ScannerBackfill.State.RUNNING) {
+            throw new IllegalStateException("Backfill " + existing.getFromBlock() + "-" + existing.getToBlock()
+                    + " is already running for " + networkType + ".");
+        }
+        if (workers > maxWorkers) {
+            throw new IllegalArgumentException("Workers count must not be greater than " + maxWorkers + ".");
+        }
+        Scanner scanner = scanners.stream()
+                .filter(each -> each.getNetwork().getType() == networkType && each.isBackfillSupported())
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("There is no scanner for " + networkType + "."));
+
+        LastBlockPersister checkpoint = new LastBlockFilePersister(
+                networkType,
+                Paths.get(checkpointDir, fromBlock + "-" + toBlock).toString(),
+                null
+        );
+        ScannerBackfill backfill = new ScannerBackfill(
+                scanner,
+                checkpoint,
+                fromBlock,
+                toBlock,
+                workers,
+                rangeSize,
+                notificationsEnabled
+        );
+        backfill.start();
+        jobs.put(networkType, backfill);
+        return backfill;
+    }
+
+    public synchronized boolean cancel(NetworkType networkType) {
+        ScannerBackfill backfill = jobs.get(networkType);
+        if (backfill == null || backfill.getState() != ScannerBackfill.State.RUNNING) {
+            return false;
+        }
+        backfill.cancel();
+        return true;
+    }
+
+    public synchronized List<ScannerBackfill> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    @PreDestroy
+    protected synchronized void close() {
+        jobs.values().forEach(ScannerBackfill::cancel);
+    }
+}
@@ -0,0 +1,173 @@
+package io.mywish.scanner.services;
+
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperNetwork;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches blocks ahead of the scanner cursor.
+ * Up to windowSize blocks are requested in advance, maxInFlight requests at once, and are handed out strictly
+ * by number. If batchSize is greater than 1, blocks are requested by ranges of batchSize blocks through
+ * {@link WrapperNetwork#getBlocks(long, long)}. Must be used from the single scanner thread.
+ */
+@Slf4j
+public class BlockPrefetcher {
+    private final WrapperNetwork network;
+    @Getter
+    private final int windowSize;
+    @Getter
+    private final int maxInFlight;
+    @Getter
+    private final int batchSize;
+    private final ExecutorService executor;
+    private final TreeMap<Long, CompletableFuture<WrapperBlock>> blocks = new TreeMap<>();
+
+    public BlockPrefetcher(WrapperNetwork network, int windowSize, int maxInFlight) {
+        this(network, windowSize, maxInFlight, 1);
+    }
+
+    public BlockPrefetcher(WrapperNetwork network, int windowSize, int maxInFlight, int batchSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be positive, but " + windowSize);
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("In flight limit must be positive, but " + maxInFlight);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive, but " + batchSize);
+        }
+        this.network = network;
+        this.windowSize = windowSize;
+        this.maxInFlight = maxInFlight;
+        this.batchSize = batchSize;
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        this.executor = new ThreadPoolExecutor(
+                maxInFlight,
+                maxInFlight,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, network.getType() + "-prefetch-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    /**
+     * Returns the block with the specified number, scheduling the next blocks of the window.
+     *
+     * @param blockNo   block to return.
+     * @param lastBlock the highest block number which is allowed to be requested.
+     */
+    public WrapperBlock take(long blockNo, long lastBlock) throws Exception {
+        dropBefore(blockNo);
+        long windowEnd = Math.min(blockNo + windowSize - 1, lastBlock);
+        List<Long> missing = new ArrayList<>();
+        for (long number = blockNo; number <= windowEnd; number++) {
+            if (!blocks.containsKey(number)) {
+                missing.add(number);
+            }
+        }
+        // wait until a whole batch is missing, unless the cursor block itself is not requested yet
+        if (!missing.isEmpty() && (missing.get(0) == blockNo || missing.size() >= batchSize)) {
+            schedule(missing);
+        }
+
+        CompletableFuture<WrapperBlock> future = blocks.remove(blockNo);
+        if (future == null) {
+            return network.getBlock(blockNo);
+        }
+        try {
+            return future.get();
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    public int getBufferedCount() {
+        return blocks.size();
+    }
+
+    public void close() {
+        dropBefore(Long.MAX_VALUE);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Splits numbers to contiguous ranges of up to batchSize blocks and requests each range by one task.
+     */
+    private void schedule(List<Long> numbers) {
+        int start = 0;
+        for (int i = 1; i <= numbers.size(); i++) {
+            if (i == numbers.size()
+                    || i - start == batchSize
+                    || numbers.get(i) != numbers.get(i - 1) + 1) {
+                long from = numbers.get(start);
+                long to = numbers.get(i - 1);
+                List<CompletableFuture<WrapperBlock>> futures = new ArrayList<>();
+                for (long number = from; number <= to; number++) {
+                    CompletableFuture<WrapperBlock> future = new CompletableFuture<>();
+                    blocks.put(number, future);
+                    futures.add(future);
+                }
+                executor.execute(() -> fetch(from, to, futures));
+                start = i;
+            }
+        }
+    }
+
+    private void fetch(long from, long to, List<CompletableFuture<WrapperBlock>> futures) {
+        try {
+            List<WrapperBlock> result = from == to
+                    ? Collections.singletonList(network.getBlock(from))
+                    : network.getBlocks(from, to);
+            for (int i = 0; i < futures.size(); i++) {
+                if (i < result.size()) {
+                    futures.get(i).complete(result.get(i));
+                }
+                else {
+                    futures.get(i).completeExceptionally(new IllegalStateException(
+                            "Block " + (from + i) + " is missed in the range response."));
+                }
+            }
+        }
+        catch (Throwable e) {
+            futures.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Cancels blocks which are behind the cursor, it happens when the cursor was moved back.
+     */
+    private void dropBefore(long blockNo) {
+        Iterator<Map.Entry<Long, CompletableFuture<WrapperBlock>>> iterator = blocks.headMap(blockNo).entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, CompletableFuture<WrapperBlock>> entry = iterator.next();
+            log.debug("{}: drop prefetched block {}.", network.getType(), entry.getKey());
+            entry.getValue().cancel(true);
+            iterator.remove();
+        }
+    }
+}
@@ -1,16 +1,255 @@
 package io.mywish.scanner.services;
 
 import io.lastwill.eventscan.events.model.BaseEvent;
+import io.lastwill.eventscan.model.NetworkType;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers events to the application listeners.
+ * If consumers are configured, events are dispatched asynchronously: each network is bound to one consumer,
+ * so events of the network are delivered in the publishing order. When the consumer queue is full, publisher
+ * waits for a free slot, so a slow listener holds back only the scanners sharing the consumer.
+ * Events published by listeners are delivered synchronously on the consumer thread, as before.
+ * Events published by backfill workers are delivered synchronously, so they do not hold back the live scanners.
+ * Scanners save the next block number by {@link #afterDelivered(NetworkType, Runnable)}, so the saved number
+ * does not pass the events waiting in the queue, and wait for the queue on closing by
+ * {@link #awaitDelivery(NetworkType, long)}.
+ */
+@Slf4j
 @Component
 public class EventPublisher {
+    private final static long CLOSE_TIMEOUT = 10000;
+
     @Autowired
     private ApplicationEventPublisher applicationEventPublisher;
 
+    @Getter
+    @Value("${etherscanner.event-bus.consumers:0}")
+    private int consumers;
+
+    @Getter
+    @Value("${etherscanner.event-bus.queue-capacity:1024}")
+    private int queueCapacity;
+
+    private final ThreadLocal<Boolean> isConsumerThread = ThreadLocal.withInitial(() -> false);
+    private List<Consumer> consumerList = Collections.emptyList();
+
+    @PostConstruct
+    protected void open() {
+        if (consumers <= 0) {
+            return;
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Event bus queue capacity must be positive, but " + queueCapacity);
+        }
+        List<Consumer> list = new ArrayList<>(consumers);
+        for (int i = 0; i < consumers; i++) {
+            list.add(new Consumer(i));
+        }
+        consumerList = list;
+        consumerList.forEach(Consumer::start);
+        log.info("Event bus started with {} consumers, queue capacity {}.", consumers, queueCapacity);
+    }
+
+    @PreDestroy
+    protected void close() {
+        consumerList.forEach(Consumer::stop);
+    }
+
     public void publish(BaseEvent event) {
+        NetworkType networkType = event.getNetworkType();
+        if (consumerList.isEmpty() || networkType == null || isConsumerThread.get() || BackfillContext.isActive()) {
+            dispatch(event);
+            return;
+        }
+        try {
+            getConsumer(networkType).put(new Delivery(event, null));
+        }
+        catch (InterruptedException e) {
+            log.warn("Interrupted on publishing {}, deliver it synchronously.", event.getClass().getSimpleName());
+            dispatch(event);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the action when all events of the network published before are delivered.
+     * The action runs on the consumer thread, or immediately if the delivery is synchronous.
+     */
+    public void afterDelivered(NetworkType networkType, Runnable action) {
+        if (consumerList.isEmpty() || isConsumerThread.get() || BackfillContext.isActive()) {
+            action.run();
+            return;
+        }
+        try {
+            getConsumer(networkType).put(new Delivery(null, action));
+        }
+        catch (InterruptedException e) {
+            log.warn("Interrupted on waiting for delivery of {} events, the action is skipped.", networkType);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until all events of the network published before are delivered.
+     *
+     * @return false if the events are not delivered in the timeout.
+     */
+    public boolean awaitDelivery(NetworkType networkType, long timeout) {
+        CountDownLatch latch = new CountDownLatch(1);
+        afterDelivered(networkType, latch::countDown);
+        try {
+            return latch.await(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns count of events which are waiting for delivery in the consumer of the network.
+     */
+    public int getQueueDepth(NetworkType networkType) {
+        if (consumerList.isEmpty()) {
+            return 0;
+        }
+        return getConsumer(networkType).getQueueDepth();
+    }
+
+    public List<Consumer> getConsumerList() {
+        return Collections.unmodifiableList(consumerList);
+    }
+
+    private Consumer getConsumer(NetworkType networkType) {
+        return consumerList.get(networkType.ordinal() % consumerList.size());
+    }
+
+    private void dispatch(BaseEvent event) {
         applicationEventPublisher.publishEvent(event);
     }
+
+    private static class Delivery {
+        private final BaseEvent event;
+        private final Runnable action;
+
+        private Delivery(BaseEvent event, Runnable action) {
+            this.event = event;
+            this.action = action;
+        }
+    }
+
+    public class Consumer implements Runnable {
+        @Getter
+        private final int index;
+        private final BlockingQueue<Delivery> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final Thread thread;
+        private volatile boolean isRunning = true;
+        @Getter
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        @Getter
+        private final AtomicLong delivered = new AtomicLong();
+        @Getter
+        private final AtomicLong blockedPublishes = new AtomicLong();
+
+        private Consumer(int index) {
+            this.index = index;
+            this.thread = new Thread(this, "event-bus-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        public int getQueueDepth() {
+            return queue.size();
+        }
+
+        private void put(Delivery delivery) throws InterruptedException {
+            // the consumer is stopped, nothing takes the queue anymore
+            if (!thread.isAlive()) {
+                deliver(delivery);
+                return;
+            }
+            if (!queue.offer(delivery)) {
+                blockedPublishes.incrementAndGet();
+                queue.put(delivery);
+            }
+            if (!thread.isAlive() && queue.remove(delivery)) {
+                deliver(delivery);
+                return;
+            }
+            maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        private void stop() {
+            isRunning = false;
+            try {
+                thread.join(CLOSE_TIMEOUT);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                log.warn("Event bus consumer {} was not stopped in time, {} events are not delivered.", index, queue.size());
+                thread.interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            isConsumerThread.set(true);
+            while (isRunning || !queue.isEmpty()) {
+                Delivery delivery;
+                try {
+                    delivery = queue.poll(1, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    log.info("Event bus consumer {} interrupted.", index);
+                    break;
+                }
+                if (delivery != null) {
+                    deliver(delivery);
+                }
+            }
+        }
+
+        private void deliver(Delivery delivery) {
+            if (delivery.action != null) {
+                try {
+                    delivery.action.run();
+                }
+                catch (Throwable e) {
+                    log.error("Error on running action after delivery.", e);
+                }
+                return;
+            }
+            BaseEvent event = delivery.event;
+            try {
+                dispatch(event);
+            }
+            catch (Throwable e) {
+                log.error("Error on handling {} for {}.", event.getClass().getSimpleName(), event.getNetworkType(), e);
+            }
+            delivered.incrementAndGet();
+        }
+    }
 }
@@ -0,0 +1,106 @@
+package io.mywish.scanner.services;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces last block updates and passes them to the underlying persister in batches.
+ * The update is flushed by timer every flushInterval ms, or immediately when maxUnsavedBlocks blocks are not saved,
+ * so at most maxUnsavedBlocks blocks will be processed again after crash.
+ */
+@Slf4j
+public class LastBlockBatchPersister implements LastBlockPersister {
+    private final static long NO_BLOCK = -1;
+
+    private final LastBlockPersister persister;
+    @Getter
+    private final long flushInterval;
+    @Getter
+    private final int maxUnsavedBlocks;
+
+    private final AtomicLong lastBlock = new AtomicLong(NO_BLOCK);
+    private long savedBlock = NO_BLOCK;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param persister        persister to store batched updates.
+     * @param flushInterval    how often pending update is flushed in ms, 0 disables the timer.
+     * @param maxUnsavedBlocks how many blocks may be not saved, 0 means each block is saved immediately.
+     */
+    public LastBlockBatchPersister(@NonNull LastBlockPersister persister, long flushInterval, int maxUnsavedBlocks) {
+        this.persister = persister;
+        this.flushInterval = flushInterval;
+        this.maxUnsavedBlocks = maxUnsavedBlocks;
+    }
+
+    @Override
+    public void open() {
+        persister.open();
+        Long stored = persister.getLastBlock();
+        if (stored != null) {
+            synchronized (this) {
+                lastBlock.set(stored);
+                savedBlock = stored;
+            }
+        }
+        if (flushInterval > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "last-block-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        flush();
+        persister.close();
+    }
+
+    @Override
+    public Long getLastBlock() {
+        long block = lastBlock.get();
+        return block == NO_BLOCK ? persister.getLastBlock() : block;
+    }
+
+    @Override
+    public void saveLastBlock(long blockNumber) {
+        lastBlock.set(blockNumber);
+        long unsaved;
+        synchronized (this) {
+            unsaved = savedBlock == NO_BLOCK ? Long.MAX_VALUE : Math.abs(blockNumber - savedBlock);
+        }
+        if (unsaved >= maxUnsavedBlocks) {
+            flush();
+        }
+    }
+
+    /**
+     * Saves the latest block to the underlying persister if it was changed.
+     */
+    public synchronized void flush() {
+        long block = lastBlock.get();
+        if (block == NO_BLOCK || block == savedBlock) {
+            return;
+        }
+        try {
+            persister.saveLastBlock(block);
+            savedBlock = block;
+        }
+        catch (Exception e) {
+            log.warn("Error on flushing last block {}.", block, e);
+        }
+    }
+}
@@ -11,6 +11,7 @@ public class LastBlockDbPersister implements LastBlockPersister {
     private final NetworkType networkType;
     private final LastBlockRepository lastBlockRepository;
     private Long lastBlockNumber;
+    private boolean isStored = false;
 
     public LastBlockDbPersister(
             @NonNull NetworkType networkType,
@@ -42,11 +43,12 @@ public class LastBlockDbPersister implements LastBlockPersister {
 
     @Override
     public synchronized void saveLastBlock(long blockNumber) {
-        if (lastBlockRepository.getLastBlockForNetwork(networkType) == null) {
+        if (!isStored && lastBlockRepository.getLastBlockForNetwork(networkType) == null) {
             lastBlockRepository.save(new LastBlock(networkType, blockNumber));
         } else {
             lastBlockRepository.updateLastBlock(networkType, blockNumber);
         }
+        isStored = true;
         lastBlockNumber = blockNumber;
     }
 }
@@ -7,17 +7,15 @@ import io.mywish.scanner.model.NewBlockEvent;
 import io.mywish.scanner.model.NewPendingTransactionsEvent;
 import io.mywish.blockchain.WrapperBlock;
 import io.mywish.blockchain.WrapperTransaction;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import javax.annotation.PostConstruct;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.TreeMap;
 
 @Slf4j
 public class PendingTransactionService {
@@ -25,33 +23,44 @@ public class PendingTransactionService {
     private EventPublisher eventPublisher;
     @Value("${etherscanner.pending-transactions-threshold:0}")
     private int transactionsThreshold;
+    @Value("${etherscanner.pending-transactions-max-age-ms:600000}")
+    private long maxAge;
+    @Value("${etherscanner.pending-transactions-buckets:60}")
+    private int buckets;
 
+    @Getter
     private final NetworkType networkType;
-    private final TreeMap<LocalDateTime, List<String>> transactionsByTime = new TreeMap<>();
-    private final HashMap<String, WrapperTransaction> transactionsByHash = new HashMap<>();
+    @Getter
+    private PendingTransactionStore store;
 
     public PendingTransactionService(NetworkType networkType) {
         this.networkType = networkType;
     }
 
+    @PostConstruct
+    protected void init() {
+        long bucketInterval = buckets > 0 ? Math.max(1, maxAge / buckets) : maxAge;
+        store = new PendingTransactionStore(transactionsThreshold, bucketInterval, buckets);
+    }
+
     @EventListener
     public void updatePending(NewPendingTransactionsEvent event) {
         if (networkType != event.getNetworkType()) {
             return;
         }
 
-        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
         List<WrapperTransaction> transactions = event.getPendingTransactions();
         if (transactions.isEmpty()) {
             return;
         }
-        List<String> hashes = transactionsByTime.getOrDefault(now, new ArrayList<>());
+        long now = System.currentTimeMillis();
+        List<WrapperTransaction> removed = new ArrayList<>();
+        int added = 0;
         for (WrapperTransaction wrapperTransaction : transactions) {
-            if (transactionsByHash.containsKey(wrapperTransaction.getHash())) {
+            if (!store.add(wrapperTransaction, now, removed)) {
                 continue;
             }
-            transactionsByHash.put(wrapperTransaction.getHash(), wrapperTransaction);
-            hashes.add(wrapperTransaction.getHash());
+            added++;
             try {
                 eventPublisher.publish(new PendingTransactionAddedEvent(
                         networkType,
@@ -62,52 +71,32 @@ public class PendingTransactionService {
                 log.warn("{}: Exception occurs on handling new pending transaction.", networkType, e);
             }
         }
-        transactionsByTime.put(now, hashes);
+        publishTimeouts(removed);
 
-        log.info("{}: {} new transactions, now list has {} transactions, threshold is {}.",
+        log.debug("{}: {} new transactions of {}, now store has {} transactions, threshold is {}.",
                 networkType,
+                added,
                 transactions.size(),
-                transactionsByHash.size(),
+                store.size(),
                 transactionsThreshold
         );
-        while (transactionsByHash.size() > transactionsThreshold) {
-            LocalDateTime firstKey = transactionsByTime.firstKey();
-            log.debug("{}: removing pending transaction at {}.", networkType, firstKey);
-            List<String> oldHashes = transactionsByTime.remove(firstKey);
-            for (String hash : oldHashes) {
-                WrapperTransaction transaction = transactionsByHash.remove(hash);
-                if (transaction == null) {
-                    continue;
-                }
-                try {
-                    eventPublisher.publish(new PendingTransactionRemovedEvent(
-                            networkType,
-                            transaction,
-                            PendingTransactionRemovedEvent.Reason.TIMEOUT,
-                            null
-                    ));
-                }
-                catch (Exception e) {
-                    log.warn("{}: Exception occurs on removing outdated transaction.", networkType, e);
-                }
-            }
-        }
-        if (!transactionsByHash.isEmpty()) {
-            log.info("{}: most early pending transaction is at {}.", networkType, transactionsByTime.firstKey());
-        }
     }
 
-
     @EventListener
     public void newBlock(NewBlockEvent event) {
         if (networkType != event.getNetworkType()) {
             return;
         }
 
+        long now = System.currentTimeMillis();
+        List<WrapperTransaction> expired = new ArrayList<>();
+        store.expire(now, expired);
+        publishTimeouts(expired);
+
         WrapperBlock block = event.getBlock();
         int counter = 0;
         for (WrapperTransaction transaction : block.getTransactions()) {
-            WrapperTransaction removedTransaction = transactionsByHash.remove(transaction.getHash());
+            WrapperTransaction removedTransaction = store.confirm(transaction.getHash(), now);
             if (removedTransaction == null) {
                 continue;
             }
@@ -120,7 +109,23 @@ public class PendingTransactionService {
             ));
         }
         if (counter > 0) {
-            log.info("{}: remove transactions {} because of block {}.", networkType, counter, block.getNumber());
+            log.debug("{}: remove transactions {} because of block {}.", networkType, counter, block.getNumber());
+        }
+    }
+
+    private void publishTimeouts(List<WrapperTransaction> transactions) {
+        for (WrapperTransaction transaction : transactions) {
+            try {
+                eventPublisher.publish(new PendingTransactionRemovedEvent(
+                        networkType,
+                        transaction,
+                        PendingTransactionRemovedEvent.Reason.TIMEOUT,
+                        null
+                ));
+            }
+            catch (Exception e) {
+                log.warn("{}: Exception occurs on removing outdated transaction.", networkType, e);
+            }
         }
     }
 }
@@ -0,0 +1,411 @@
+package io.mywish.scanner.services;
+
+import io.mywish.blockchain.WrapperTransaction;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed capacity store of pending transactions of one network.
+ * Transactions are keyed by 32-byte hash kept as four longs in the open addressing table, entries live in
+ * preallocated arrays. Each entry is linked into the bucket of the time wheel by its arrival time,
+ * so insert, confirm and expire are O(1). Transactions older than bucketCount * bucketInterval ms expire,
+ * when the store is full the oldest transaction is evicted.
+ * All the methods are thread-safe, the lock is held only for the work on the touched entries.
+ */
+public class PendingTransactionStore {
+    private final static int NONE = -1;
+    private final static int KEY_LONGS = 4;
+
+    @Getter
+    private final int capacity;
+    @Getter
+    private final long bucketInterval;
+    @Getter
+    private final int bucketCount;
+
+    private final long[] keys;
+    private final boolean[] isHexKey;
+    private final int[] keyHashes;
+    private final WrapperTransaction[] transactions;
+    private final long[] arrivals;
+    private final int[] prev;
+    private final int[] next;
+    private final int[] entryBuckets;
+    private int freeHead;
+    private int size;
+
+    /**
+     * Entry index + 1, 0 is the empty cell.
+     */
+    private final int[] table;
+    private final int tableMask;
+
+    private final long[] bucketSlots;
+    private final int[] bucketHeads;
+    private final int[] bucketTails;
+    private final int[] bucketArrivals;
+    private final int[] bucketConfirmations;
+    private long lastSlot = Long.MIN_VALUE;
+    private long aliveSlot = Long.MIN_VALUE;
+
+    private final long[] key = new long[KEY_LONGS];
+    private long added;
+    private long confirmed;
+    private long confirmedAgeSum;
+    private long expired;
+    private long evicted;
+
+    /**
+     * @param capacity       how many transactions are kept at most.
+     * @param bucketInterval time span of one wheel bucket in ms.
+     * @param bucketCount    how many buckets are in the wheel.
+     */
+    public PendingTransactionStore(int capacity, long bucketInterval, int bucketCount) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative, but " + capacity);
+        }
+        if (bucketInterval < 1 || bucketCount < 1) {
+            throw new IllegalArgumentException("Wrong wheel " + bucketCount + " x " + bucketInterval + " ms");
+        }
+        this.capacity = capacity;
+        this.bucketInterval = bucketInterval;
+        this.bucketCount = bucketCount;
+
+        keys = new long[capacity * KEY_LONGS];
+        isHexKey = new boolean[capacity];
+        keyHashes = new int[capacity];
+        transactions = new WrapperTransaction[capacity];
+        arrivals = new long[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        entryBuckets = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            next[i] = i + 1 < capacity ? i + 1 : NONE;
+        }
+        freeHead = capacity > 0 ? 0 : NONE;
+
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2) - 1) << 1;
+        table = new int[tableSize];
+        tableMask = tableSize - 1;
+
+        bucketSlots = new long[bucketCount];
+        Arrays.fill(bucketSlots, Long.MIN_VALUE);
+        bucketHeads = new int[bucketCount];
+        Arrays.fill(bucketHeads, NONE);
+        bucketTails = new int[bucketCount];
+        Arrays.fill(bucketTails, NONE);
+        bucketArrivals = new int[bucketCount];
+        bucketConfirmations = new int[bucketCount];
+    }
+
+    /**
+     * Adds the transaction if it is not in the store yet.
+     *
+     * @param removed receives expired and evicted transactions.
+     * @return true if the transaction is added.
+     */
+    public synchronized boolean add(WrapperTransaction transaction, long now, List<WrapperTransaction> removed) {
+        expire(now, removed);
+        String hash = transaction.getHash();
+        boolean isHex = parseKey(hash);
+        int keyHash = hashKey();
+        if (find(hash, isHex, keyHash) != NONE) {
+            return false;
+        }
+        added++;
+        int bucket = touchBucket(lastSlot);
+        bucketArrivals[bucket]++;
+        if (capacity == 0) {
+            evicted++;
+            removed.add(transaction);
+            return true;
+        }
+        if (size == capacity) {
+            int oldest = findOldest();
+            evicted++;
+            removed.add(transactions[oldest]);
+            remove(oldest);
+        }
+
+        int entry = freeHead;
+        freeHead = next[entry];
+        System.arraycopy(key, 0, keys, entry * KEY_LONGS, KEY_LONGS);
+        isHexKey[entry] = isHex;
+        keyHashes[entry] = keyHash;
+        transactions[entry] = transaction;
+        arrivals[entry] = now;
+        index(entry);
+        link(entry, bucket);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the transaction which is included in the block.
+     *
+     * @return removed transaction, or null if it is not in the store.
+     */
+    public synchronized WrapperTransaction confirm(String hash, long now) {
+        boolean isHex = parseKey(hash);
+        int entry = find(hash, isHex, hashKey());
+        if (entry == NONE) {
+            return null;
+        }
+        WrapperTransaction transaction = transactions[entry];
+        confirmed++;
+        confirmedAgeSum += Math.max(0, now - arrivals[entry]);
+        remove(entry);
+        if (lastSlot != Long.MIN_VALUE) {
+            bucketConfirmations[touchBucket(lastSlot)]++;
+        }
+        return transaction;
+    }
+
+    /**
+     * Removes transactions which arrived earlier than the wheel span.
+     *
+     * @param removed receives expired transactions.
+     */
+    public synchronized void expire(long now, List<WrapperTransaction> removed) {
+        long slot = now / bucketInterval;
+        if (slot <= lastSlot) {
+            return;
+        }
+        lastSlot = slot;
+        long firstAlive = slot - bucketCount + 1;
+        if (aliveSlot == Long.MIN_VALUE || firstAlive <= aliveSlot) {
+            aliveSlot = Math.max(aliveSlot, firstAlive);
+            return;
+        }
+        // buckets hold slots from aliveSlot up to aliveSlot + bucketCount - 1 only
+        long to = Math.min(firstAlive, aliveSlot + bucketCount);
+        for (long each = aliveSlot; each < to; each++) {
+            int bucket = bucketIndex(each);
+            if (bucketSlots[bucket] != each) {
+                continue;
+            }
+            while (bucketHeads[bucket] != NONE) {
+                int entry = bucketHeads[bucket];
+                expired++;
+                removed.add(transactions[entry]);
+                remove(entry);
+            }
+            bucketSlots[bucket] = Long.MIN_VALUE;
+        }
+        aliveSlot = firstAlive;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized Stats getStats(long now) {
+        long arrivalsInWheel = 0;
+        long confirmationsInWheel = 0;
+        long oldestArrival = now;
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            if (bucketSlots[bucket] == Long.MIN_VALUE || bucketSlots[bucket] < aliveSlot) {
+                continue;
+            }
+            arrivalsInWheel += bucketArrivals[bucket];
+            confirmationsInWheel += bucketConfirmations[bucket];
+            if (bucketHeads[bucket] != NONE) {
+                oldestArrival = Math.min(oldestArrival, arrivals[bucketHeads[bucket]]);
+            }
+        }
+        double span = bucketCount * bucketInterval / 1000.0;
+        return new Stats(
+                size,
+                capacity,
+                added,
+                confirmed,
+                expired,
+                evicted,
+                arrivalsInWheel / span,
+                confirmationsInWheel / span,
+                size == 0 ? 0 : now - oldestArrival,
+                confirmed == 0 ? 0 : confirmedAgeSum / confirmed
+        );
+    }
+
+    /**
+     * Returns the bucket of the slot, it is cleared if it held the older slot.
+     */
+    private int touchBucket(long slot) {
+        int bucket = bucketIndex(slot);
+        if (bucketSlots[bucket] != slot) {
+            bucketSlots[bucket] = slot;
+            bucketHeads[bucket] = NONE;
+            bucketTails[bucket] = NONE;
+            bucketArrivals[bucket] = 0;
+            bucketConfirmations[bucket] = 0;
+        }
+        return bucket;
+    }
+
+    private int bucketIndex(long slot) {
+        return (int) Math.floorMod(slot, (long) bucketCount);
+    }
+
+    private int findOldest() {
+        for (long slot = Math.max(aliveSlot, lastSlot - bucketCount + 1); slot <= lastSlot; slot++) {
+            int bucket = bucketIndex(slot);
+            if (bucketSlots[bucket] == slot && bucketHeads[bucket] != NONE) {
+                return bucketHeads[bucket];
+            }
+        }
+        throw new IllegalStateException("Store is full, but the wheel is empty.");
+    }
+
+    private void remove(int entry) {
+        unindex(entry);
+        unlink(entry);
+        transactions[entry] = null;
+        next[entry] = freeHead;
+        freeHead = entry;
+        size--;
+    }
+
+    private void link(int entry, int bucket) {
+        entryBuckets[entry] = bucket;
+        prev[entry] = bucketTails[bucket];
+        next[entry] = NONE;
+        if (bucketTails[bucket] == NONE) {
+            bucketHeads[bucket] = entry;
+        }
+        else {
+            next[bucketTails[bucket]] = entry;
+        }
+        bucketTails[bucket] = entry;
+    }
+
+    private void unlink(int entry) {
+        int bucket = entryBuckets[entry];
+        if (prev[entry] == NONE) {
+            bucketHeads[bucket] = next[entry];
+        }
+        else {
+            next[prev[entry]] = next[entry];
+        }
+        if (next[entry] == NONE) {
+            bucketTails[bucket] = prev[entry];
+        }
+        else {
+            prev[next[entry]] = prev[entry];
+        }
+    }
+
+    private int find(String hash, boolean isHex, int keyHash) {
+        for (int cell = keyHash & tableMask; table[cell] != 0; cell = (cell + 1) & tableMask) {
+            int entry = table[cell] - 1;
+            if (keyHashes[entry] == keyHash && isHexKey[entry] == isHex && matches(entry)
+                    && (isHex || transactions[entry].getHash().equals(hash))) {
+                return entry;
+            }
+        }
+        return NONE;
+    }
+
+    private void index(int entry) {
+        int cell = keyHashes[entry] & tableMask;
+        while (table[cell] != 0) {
+            cell = (cell + 1) & tableMask;
+        }
+        table[cell] = entry + 1;
+    }
+
+    /**
+     * Removes the entry from the table, shifting back the following entries of the probe sequence.
+     */
+    private void unindex(int entry) {
+        int cell = keyHashes[entry] & tableMask;
+        while (table[cell] != entry + 1) {
+            cell = (cell + 1) & tableMask;
+        }
+        int hole = cell;
+        for (cell = (cell + 1) & tableMask; table[cell] != 0; cell = (cell + 1) & tableMask) {
+            int home = keyHashes[table[cell] - 1] & tableMask;
+            boolean isBetween = hole <= cell
+                    ? home > hole && home <= cell
+                    : home > hole || home <= cell;
+            if (!isBetween) {
+                table[hole] = table[cell];
+                hole = cell;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private boolean matches(int entry) {
+        int offset = entry * KEY_LONGS;
+        for (int i = 0; i < KEY_LONGS; i++) {
+            if (keys[offset + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Puts the 32-byte hash to the key longs. Hashes of another format are keyed by the string hash code.
+     *
+     * @return true if the hash is 64 hex digits.
+     */
+    private boolean parseKey(String hash) {
+        int start = hash.startsWith("0x") || hash.startsWith("0X") ? 2 : 0;
+        if (hash.length() - start == KEY_LONGS * 16) {
+            boolean isHex = true;
+            for (int i = 0; i < KEY_LONGS && isHex; i++) {
+                long value = 0;
+                for (int j = 0; j < 16; j++) {
+                    int digit = Character.digit(hash.charAt(start + i * 16 + j), 16);
+                    if (digit < 0) {
+                        isHex = false;
+                        break;
+                    }
+                    value = (value << 4) | digit;
+                }
+                key[i] = value;
+            }
+            if (isHex) {
+                return true;
+            }
+        }
+        Arrays.fill(key, 0);
+        key[0] = hash.hashCode();
+        key[1] = hash.length();
+        return false;
+    }
+
+    private int hashKey() {
+        long hash = key[0] ^ Long.rotateLeft(key[1], 16) ^ Long.rotateLeft(key[2], 32) ^ Long.rotateLeft(key[3], 48);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Stats {
+        private final int size;
+        private final int capacity;
+        private final long added;
+        private final long confirmed;
+        private final long expired;
+        private final long evicted;
+        /**
+         * Transactions per second over the wheel span.
+         */
+        private final double arrivalRate;
+        /**
+         * Transactions per second over the wheel span.
+         */
+        private final double confirmationRate;
+        private final long oldestAge;
+        private final long meanConfirmationAge;
+    }
+}
@@ -0,0 +1,73 @@
+package io.mywish.scanner.services;
+
+import io.mywish.blockchain.WrapperBlock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the last processed blocks of the main chain in a ring, they are contiguous by number.
+ * Must be used from the single scanner thread.
+ */
+class RecentBlockChain {
+    private final WrapperBlock[] blocks;
+    private long tipNumber = -1;
+    private int size;
+
+    RecentBlockChain(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, but " + capacity);
+        }
+        this.blocks = new WrapperBlock[capacity];
+    }
+
+    int getCapacity() {
+        return blocks.length;
+    }
+
+    /**
+     * Returns the kept block with the specified number, or null if it is out of the ring.
+     */
+    WrapperBlock get(long number) {
+        if (size == 0 || number > tipNumber || number <= tipNumber - size) {
+            return null;
+        }
+        return blocks[index(number)];
+    }
+
+    /**
+     * Adds the block on top of the chain, the oldest block is dropped if the ring is full.
+     * If the block does not follow the tip by number, the chain starts over from it.
+     */
+    void append(WrapperBlock block) {
+        long number = block.getNumber();
+        if (size > 0 && number != tipNumber + 1) {
+            rollback(tipNumber - size + 1);
+        }
+        blocks[index(number)] = block;
+        tipNumber = number;
+        size = Math.min(size + 1, blocks.length);
+    }
+
+    /**
+     * Removes blocks from the specified number up to the tip.
+     *
+     * @return removed blocks in ascending order.
+     */
+    List<WrapperBlock> rollback(long fromNumber) {
+        List<WrapperBlock> removed = new ArrayList<>();
+        long lowest = tipNumber - size + 1;
+        for (long number = Math.max(fromNumber, lowest); number <= tipNumber; number++) {
+            int index = index(number);
+            removed.add(blocks[index]);
+            blocks[index] = null;
+        }
+        size -= removed.size();
+        tipNumber = size == 0 ? -1 : tipNumber - removed.size();
+        return removed;
+    }
+
+    private int index(long number) {
+        return (int) (number % blocks.length);
+    }
+}
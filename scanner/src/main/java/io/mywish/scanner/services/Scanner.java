@@ -2,6 +2,7 @@ package io.mywish.scanner.services;
 
 import io.mywish.blockchain.WrapperBlock;
 import io.mywish.blockchain.WrapperNetwork;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.ContextClosedEvent;
@@ -12,7 +13,9 @@ import org.springframework.context.event.EventListener;
 public abstract class Scanner {
     protected static final long INFO_INTERVAL = 60000;
     protected static final long WARN_INTERVAL = 120000;
+    protected static final long CLOSE_TIMEOUT = 30000;
 
+    @Getter
     protected final WrapperNetwork network;
     protected final LastBlockPersister lastBlockPersister;
 
@@ -35,6 +38,41 @@ public abstract class Scanner {
         this.workerThread = new Thread(worker);
     }
 
+    /**
+     * Saves the next block number when the events published before are delivered,
+     * so the events waiting in the event bus are published again after the restart.
+     */
+    protected void saveLastBlock(long blockNo) {
+        eventPublisher.afterDelivered(network.getType(), () -> lastBlockPersister.saveLastBlock(blockNo));
+    }
+
+    /**
+     * Waits until the published events are delivered, so the persister saves the last block number on closing.
+     */
+    protected void awaitDelivery() {
+        if (!eventPublisher.awaitDelivery(network.getType(), CLOSE_TIMEOUT)) {
+            log.warn("Events of {} were not delivered in {} ms.", network.getType(), CLOSE_TIMEOUT);
+        }
+    }
+
+    /**
+     * Waits until the worker completes the current cycle, so nothing is processed after the scanner is closed.
+     */
+    protected void joinWorker(long timeout) {
+        if (workerThread == null || workerThread == Thread.currentThread()) {
+            return;
+        }
+        try {
+            workerThread.join(timeout);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (workerThread.isAlive()) {
+            log.warn("Worker of {} was not stopped in {} ms.", network.getType(), timeout);
+        }
+    }
+
 	@EventListener
 	private void onApplicationLoaded(ContextRefreshedEvent event) {
 		workerThread.start();
@@ -47,6 +85,13 @@ public abstract class Scanner {
         close();
     }
 
+    /**
+     * Returns true if blocks of the scanner may be processed by {@link ScannerBackfill}.
+     */
+    public boolean isBackfillSupported() {
+        return true;
+    }
+
     protected abstract void open() throws Exception;
     protected abstract void close();
 }
@@ -0,0 +1,212 @@
+package io.mywish.scanner.services;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperNetwork;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rescans the block range of the network in parallel with the live scanner.
+ * Workers take ranges of rangeSize blocks and pass them to the scanner, so the events go through the same monitors.
+ * Blocks are processed and the events are delivered on the worker threads, they do not wait in the event bus
+ * queues of the live scanner. The highest block, below which all blocks are processed, is saved to the checkpoint,
+ * so the job started again for the same range continues from it.
+ */
+@Slf4j
+public class ScannerBackfill {
+    private final static int MAX_ATTEMPTS = 3;
+    private final static long RETRY_INTERVAL = 5000;
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    private final Scanner scanner;
+    private final WrapperNetwork network;
+    private final LastBlockPersister checkpoint;
+    @Getter
+    private final long fromBlock;
+    @Getter
+    private final long toBlock;
+    @Getter
+    private final int workers;
+    @Getter
+    private final int rangeSize;
+    @Getter
+    private final boolean notificationsEnabled;
+
+    @Getter
+    private volatile State state = State.RUNNING;
+    @Getter
+    private final AtomicLong processedBlocks = new AtomicLong();
+    private final AtomicLong nextRangeStart = new AtomicLong();
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final TreeMap<Long, Long> completedRanges = new TreeMap<>();
+    private long watermark;
+    private ExecutorService executor;
+
+    /**
+     * @param scanner              live scanner of the network, its block processing is reused.
+     * @param checkpoint           persister to store progress of the job.
+     * @param workers              how many ranges are processed at once.
+     * @param rangeSize            how many blocks are requested and processed by one worker at once.
+     * @param notificationsEnabled if false, the external notifications are not sent for the events of the job.
+     */
+    public ScannerBackfill(
+            Scanner scanner,
+            LastBlockPersister checkpoint,
+            long fromBlock,
+            long toBlock,
+            int workers,
+            int rangeSize,
+            boolean notificationsEnabled
+    ) {
+        if (fromBlock > toBlock) {
+            throw new IllegalArgumentException("Backfill range is empty: " + fromBlock + "-" + toBlock);
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers count must be positive, but " + workers);
+        }
+        if (rangeSize < 1) {
+            throw new IllegalArgumentException("Range size must be positive, but " + rangeSize);
+        }
+        this.scanner = scanner;
+        this.network = scanner.getNetwork();
+        this.checkpoint = checkpoint;
+        this.fromBlock = fromBlock;
+        this.toBlock = toBlock;
+        this.workers = workers;
+        this.rangeSize = rangeSize;
+        this.notificationsEnabled = notificationsEnabled;
+    }
+
+    public NetworkType getNetworkType() {
+        return network.getType();
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            throw new IllegalStateException("Backfill is already started.");
+        }
+        checkpoint.open();
+        Long saved = checkpoint.getLastBlock();
+        watermark = saved != null && saved >= fromBlock && saved <= toBlock ? saved + 1 : fromBlock;
+        nextRangeStart.set(watermark);
+        if (watermark > toBlock) {
+            finish();
+            return;
+        }
+        log.info("{}: backfill {}-{} started from {} by {} workers.", network.getType(), fromBlock, toBlock, watermark, workers);
+
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, network.getType() + "-backfill-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        activeWorkers.set(workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Stops the job after the ranges in progress, the job may be started again from the checkpoint.
+     */
+    public void cancel() {
+        if (state == State.RUNNING) {
+            state = State.CANCELLED;
+        }
+    }
+
+    /**
+     * Returns the highest block below which all blocks are processed.
+     */
+    public synchronized long getCompletedBlock() {
+        return watermark - 1;
+    }
+
+    private void work() {
+        new BackfillContext(network.getType(), notificationsEnabled).enter();
+        try {
+            while (state == State.RUNNING) {
+                long from = nextRangeStart.getAndAdd(rangeSize);
+                if (from > toBlock) {
+                    break;
+                }
+                long to = Math.min(from + rangeSize - 1, toBlock);
+                for (WrapperBlock block : fetch(from, to)) {
+                    scanner.processBlock(block);
+                    processedBlocks.incrementAndGet();
+                }
+                complete(from, to);
+            }
+        }
+        catch (InterruptedException e) {
+            log.warn("{}: backfill worker interrupted.", network.getType());
+            state = State.CANCELLED;
+        }
+        catch (Throwable e) {
+            log.error("{}: backfill {}-{} failed.", network.getType(), fromBlock, toBlock, e);
+            state = State.FAILED;
+        }
+        finally {
+            BackfillContext.exit();
+            if (activeWorkers.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+    }
+
+    private List<WrapperBlock> fetch(long from, long to) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return from == to
+                        ? Collections.singletonList(network.getBlock(from))
+                        : network.getBlocks(from, to);
+            }
+            catch (Exception e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("{}: impossible to get blocks {}-{}, try again.", network.getType(), from, to, e);
+                Thread.sleep(RETRY_INTERVAL);
+            }
+        }
+    }
+
+    private synchronized void complete(long from, long to) {
+        completedRanges.put(from, to);
+        Long rangeEnd;
+        boolean isMoved = false;
+        while ((rangeEnd = completedRanges.remove(watermark)) != null) {
+            watermark = rangeEnd + 1;
+            isMoved = true;
+        }
+        if (isMoved) {
+            checkpoint.saveLastBlock(watermark - 1);
+        }
+    }
+
+    private synchronized void finish() {
+        if (state == State.RUNNING) {
+            state = watermark > toBlock ? State.COMPLETED : State.FAILED;
+        }
+        checkpoint.close();
+        log.info("{}: backfill {}-{} {}, {} blocks processed, completed up to {}.",
+                network.getType(), fromBlock, toBlock, state, processedBlocks.get(), watermark - 1);
+    }
+}
@@ -1,5 +1,7 @@
 package io.mywish.scanner.services;
 
+import io.mywish.scanner.model.BlockCommittedEvent;
+import io.mywish.scanner.model.BlockRollbackEvent;
 import io.mywish.scanner.model.NewPendingTransactionsEvent;
 import io.mywish.blockchain.WrapperBlock;
 import io.mywish.blockchain.WrapperNetwork;
@@ -9,12 +11,15 @@ import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 public abstract class ScannerPolling extends Scanner {
     private final Object sync = new Object();
+    private boolean isWakeUpRequested = false;
 
     private Long lastBlockNo;
 
@@ -27,6 +32,24 @@ public abstract class ScannerPolling extends Scanner {
     @Getter
     private final int accelerator;
     private int acceleratorCounter = 0;
+    @Getter
+    private int prefetchWindow = 0;
+    @Getter
+    private int prefetchInFlight = 1;
+    @Getter
+    private int prefetchBatchSize = 1;
+    private BlockPrefetcher prefetcher;
+    @Getter
+    private AdaptivePollingInterval adaptivePolling;
+    @Getter
+    private int reorgTrackingDepth = 0;
+    private RecentBlockChain recentChain;
+    private long lastCommittedBlockNo;
+    private volatile long replayedBlockNo = -1;
+    @Getter
+    private volatile long reorgCount;
+    @Getter
+    private volatile int deepestReorg;
 
     protected final AtomicBoolean isTerminated = new AtomicBoolean(false);
 
@@ -48,16 +71,19 @@ public abstract class ScannerPolling extends Scanner {
             if (log.isDebugEnabled()) {
                 log.debug("Get actual block no: {} ms.", System.currentTimeMillis() - start);
             }
+            if (adaptivePolling != null) {
+                adaptivePolling.onHead(lastBlockNo, System.currentTimeMillis());
+            }
 
             loadNextBlock();
 
-            if (lastBlockNo - nextBlockNo > commitmentChainLength) {
+            if (lastBlockNo - nextBlockNo > getProcessingLag()) {
                 if (reachInterval > 0) {
                     Thread.sleep(reachInterval);
                 }
                 log.debug("Process next block {}/{} immediately.", nextBlockNo, lastBlockNo);
 
-                if (accelerator != 0 && (lastBlockNo - nextBlockNo) > (commitmentChainLength + accelerator)) {
+                if (accelerator != 0 && (lastBlockNo - nextBlockNo) > (getProcessingLag() + accelerator)) {
                     while (acceleratorCounter < accelerator) {
                         this.loadNextBlock();
                         acceleratorCounter++;
@@ -86,37 +112,150 @@ public abstract class ScannerPolling extends Scanner {
             }
 
             log.debug("All blocks processed, wait new one.");
+            long delay = adaptivePolling == null
+                    ? pollingInterval
+                    : adaptivePolling.nextDelay(System.currentTimeMillis());
             synchronized (sync) {
-                sync.wait(pollingInterval);
+                if (!isWakeUpRequested && !isTerminated.get()) {
+                    sync.wait(delay);
+                }
+                isWakeUpRequested = false;
             }
         } catch (InterruptedException e) {
             throw e;
         } catch (Throwable e) {
             log.error("{}: exception handled in polling cycle. Continue.", network.getType(), e);
-            Thread.sleep(pollingInterval);
+            synchronized (sync) {
+                if (!isTerminated.get()) {
+                    sync.wait(pollingInterval);
+                }
+            }
         }
     }
 
     private void loadNextBlock() throws Exception {
         long delta = lastBlockNo - nextBlockNo;
-        if (delta <= getCommitmentChainLength()) {
+        if (delta <= getProcessingLag()) {
             return;
         }
 
         long start = System.currentTimeMillis();
-        WrapperBlock block = network.getBlock(nextBlockNo);
+        WrapperBlock block = prefetcher == null
+                ? network.getBlock(nextBlockNo)
+                : prefetcher.take(nextBlockNo, lastBlockNo - getProcessingLag() - 1);
         if (log.isDebugEnabled()) {
             log.debug("Get next block: {} ms.", System.currentTimeMillis() - start);
         }
+        List<WrapperBlock> replacementBlocks = recentChain == null
+                ? Collections.emptyList()
+                : findReplacementBlocks(block);
+        if (adaptivePolling != null) {
+            adaptivePolling.onBlock(block);
+        }
 
         lastBlockIncrementTimestamp = System.currentTimeMillis();
 
-        lastBlockPersister.saveLastBlock(nextBlockNo);
+        if (recentChain == null) {
+            saveLastBlock(nextBlockNo);
+            nextBlockNo++;
+
+            processBlock(block);
+            return;
+        }
         nextBlockNo++;
 
+        if (replacementBlocks.isEmpty()) {
+            processTipBlock(block);
+            return;
+        }
+        long forkBlockNo = replacementBlocks.get(0).getNumber() - 1;
+        List<WrapperBlock> rolledBackBlocks = recentChain.rollback(forkBlockNo + 1);
+        reorgCount++;
+        deepestReorg = Math.max(deepestReorg, rolledBackBlocks.size());
+        log.warn("{}: chain is reorganized after block {}, {} blocks are rolled back.",
+                network.getType(), forkBlockNo, rolledBackBlocks.size());
+        if (forkBlockNo < lastCommittedBlockNo) {
+            log.error("{}: committed blocks {}-{} are rolled back, commitment chain length is too short.",
+                    network.getType(), forkBlockNo + 1, lastCommittedBlockNo);
+            lastCommittedBlockNo = forkBlockNo;
+        }
+        eventPublisher.publish(new BlockRollbackEvent(network.getType(), rolledBackBlocks, replacementBlocks));
+        for (WrapperBlock replacementBlock : replacementBlocks) {
+            processTipBlock(replacementBlock);
+        }
+    }
+
+    /**
+     * Walks back from the received block by parent hashes until the tracked chain is met.
+     * Nothing is changed here, so if the node switches the chain once more, the block may be just taken again.
+     *
+     * @return blocks of the main chain from the fork point up to the received one,
+     * or empty list if the block continues the tracked chain.
+     */
+    private List<WrapperBlock> findReplacementBlocks(WrapperBlock block) throws Exception {
+        LinkedList<WrapperBlock> replacementBlocks = new LinkedList<>();
+        WrapperBlock child = block;
+        while (true) {
+            long parentNo = child.getNumber() - 1;
+            WrapperBlock known = recentChain.get(parentNo);
+            if (known == null) {
+                if (!replacementBlocks.isEmpty()) {
+                    log.error("{}: fork point is deeper than {} tracked blocks.", network.getType(), recentChain.getCapacity());
+                }
+                break;
+            }
+            if (child.getParentHash() == null || child.getParentHash().equals(known.getHash())) {
+                break;
+            }
+            WrapperBlock parent = network.getBlock(parentNo);
+            if (!child.getParentHash().equals(parent.getHash())) {
+                throw new IllegalStateException("Block " + parentNo + " was changed while the reorganization is handled.");
+            }
+            if (replacementBlocks.isEmpty()) {
+                replacementBlocks.addFirst(child);
+            }
+            // the parent differs from the tracked block, even if its own parent is the tracked one
+            replacementBlocks.addFirst(parent);
+            child = parent;
+        }
+        return replacementBlocks;
+    }
+
+    /**
+     * Processes the block on top of the tracked chain and commits the block which got enough blocks above it.
+     */
+    private void processTipBlock(WrapperBlock block) {
         processBlock(block);
+        recentChain.append(block);
+
+        long committedBlockNo = block.getNumber() - commitmentChainLength - 1;
+        WrapperBlock committedBlock = recentChain.get(committedBlockNo);
+        if (committedBlock == null || committedBlockNo <= lastCommittedBlockNo) {
+            return;
+        }
+        lastCommittedBlockNo = committedBlockNo;
+        eventPublisher.publish(new BlockCommittedEvent(network.getType(), committedBlock));
+        saveLastBlock(committedBlockNo + 1);
     }
 
+    /**
+     * Returns how many blocks must be above the block to process it.
+     */
+    private int getProcessingLag() {
+        return reorgTrackingDepth > 0 ? -1 : commitmentChainLength;
+    }
+
+
+    /**
+     * Interrupts waiting for the next polling cycle, e.g. when the node notified about a new block.
+     * If the scanner is busy, the next cycle starts without waiting.
+     */
+    protected void wakeUp() {
+        synchronized (sync) {
+            isWakeUpRequested = true;
+            sync.notifyAll();
+        }
+    }
 
     public ScannerPolling(WrapperNetwork network, LastBlockPersister lastBlockPersister, Long pollingInterval, Integer commitmentChainLength) {
         super(network, lastBlockPersister);
@@ -145,10 +284,71 @@ public abstract class ScannerPolling extends Scanner {
         this.accelerator = accelerator;
     }
 
+    /**
+     * Enables fetching of blocks ahead of the cursor. Blocks are still processed one by one in order.
+     *
+     * @param windowSize how many blocks are requested in advance, 0 disables prefetching.
+     * @param maxInFlight how many requests are sent to the node at once.
+     */
+    public void setPrefetch(int windowSize, int maxInFlight) {
+        this.prefetchWindow = windowSize;
+        this.prefetchInFlight = maxInFlight;
+    }
+
+    /**
+     * @param batchSize how many prefetched blocks are requested by one range request.
+     */
+    public void setPrefetchBatchSize(int batchSize) {
+        this.prefetchBatchSize = batchSize;
+    }
+
+    /**
+     * Enables waiting for the next poll according to the learned block cadence instead of the fixed interval.
+     *
+     * @param minInterval the shortest wait in ms, 0 disables adaptive polling.
+     * @param maxInterval the longest wait in ms.
+     */
+    public void setAdaptivePolling(long minInterval, long maxInterval) {
+        this.adaptivePolling = minInterval > 0
+                ? new AdaptivePollingInterval(minInterval, Math.max(minInterval, maxInterval), pollingInterval)
+                : null;
+    }
+
+    /**
+     * Enables processing of blocks as soon as they appear on top of the chain, instead of waiting for commitment
+     * chain length blocks above them. Reorganizations are detected by parent hashes: the rolled back blocks
+     * are published by {@link BlockRollbackEvent} and the replacement blocks are processed again.
+     * When commitment chain length blocks are above the processed block, {@link BlockCommittedEvent} is published.
+     * Only the committed block is persisted, so after the restart the blocks above it are processed again,
+     * see {@link #isReplayed(long)}.
+     *
+     * @param depth how many recent blocks are kept to find the fork point, 0 disables tracking.
+     */
+    public void setReorgTracking(int depth) {
+        this.reorgTrackingDepth = depth;
+    }
+
+    public boolean isReorgTracking() {
+        return reorgTrackingDepth > 0;
+    }
+
+    /**
+     * Returns true if the block is processed again after the restart: only the committed block is persisted,
+     * so the blocks above it were processed before the restart.
+     */
+    public boolean isReplayed(long blockNo) {
+        return blockNo <= replayedBlockNo;
+    }
+
     @PostConstruct
     @Override
     protected void open() throws Exception {
         lastBlockPersister.open();
+        if (prefetchWindow > 0) {
+            prefetcher = new BlockPrefetcher(network, prefetchWindow, Math.max(1, prefetchInFlight), Math.max(1, prefetchBatchSize));
+            log.info("{}: prefetch {} blocks, {} requests in flight, {} blocks per request.",
+                    network.getType(), prefetchWindow, prefetcher.getMaxInFlight(), prefetcher.getBatchSize());
+        }
         nextBlockNo = lastBlockPersister.getLastBlock();
         try {
             lastBlockNo = network.getLastBlock();
@@ -156,25 +356,53 @@ public abstract class ScannerPolling extends Scanner {
             if (nextBlockNo == null) {
                 nextBlockNo = lastBlockNo - commitmentChainLength;
             }
+            else if (reorgTrackingDepth > 0) {
+                replayedBlockNo = nextBlockNo + commitmentChainLength;
+            }
             log.info("{} RPC: latest block is {} but next is {}.", network.getType(), lastBlockNo, nextBlockNo);
+            if (reorgTrackingDepth > 0) {
+                recentChain = new RecentBlockChain(Math.max(reorgTrackingDepth, commitmentChainLength + 2));
+                lastCommittedBlockNo = nextBlockNo - 1;
+                loadCommittedBlocks();
+                log.info("{}: process blocks at the tip, track {} recent blocks.", network.getType(), recentChain.getCapacity());
+            }
         } catch (Exception e) {
             log.error("{} sending failed.", network.getType());
             throw e;
         }
     }
 
+    /**
+     * Puts the committed blocks below the next one to the tracked chain, as they were before the restart,
+     * so the fork of the first processed blocks is found.
+     */
+    private void loadCommittedBlocks() throws Exception {
+        long fromBlockNo = Math.max(0, nextBlockNo - (recentChain.getCapacity() - commitmentChainLength - 1));
+        if (fromBlockNo >= nextBlockNo) {
+            return;
+        }
+        for (WrapperBlock block : network.getBlocks(fromBlockNo, nextBlockNo - 1)) {
+            recentChain.append(block);
+        }
+    }
+
     @PreDestroy
     @Override
     protected void close() {
+        isTerminated.set(true);
+        synchronized (sync) {
+            sync.notifyAll();
+        }
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
+        log.info("Wait up to {} ms till cycle is completed for {}.", CLOSE_TIMEOUT, network.getType());
+        joinWorker(CLOSE_TIMEOUT);
+        awaitDelivery();
         try {
             lastBlockPersister.close();
         } catch (Exception e) {
             log.warn("Persister for {} closing failed.", network.getType(), e);
         }
-        isTerminated.set(true);
-        log.info("Wait {} ms till cycle is completed for {}.", pollingInterval + 1, network.getType());
-        synchronized (sync) {
-            sync.notifyAll();
-        }
     }
 }
@@ -0,0 +1,35 @@
+package io.mywish.scanner.services;
+
+import io.lastwill.eventscan.model.NetworkType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Addresses which pending transactions are interesting for. Networks which receive the whole mempool skip
+ * transactions which touch none of the watched addresses. If there is no such bean, all transactions are kept.
+ */
+public interface WatchedAddressFilter {
+    boolean isWatched(NetworkType networkType, String address);
+
+    /**
+     * Returns the filter which watches the addresses of all the filters, or null if there are no filters.
+     */
+    static WatchedAddressFilter anyOf(List<WatchedAddressFilter> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return null;
+        }
+        if (filters.size() == 1) {
+            return filters.get(0);
+        }
+        List<WatchedAddressFilter> copy = new ArrayList<>(filters);
+        return (networkType, address) -> {
+            for (WatchedAddressFilter filter : copy) {
+                if (filter.isWatched(networkType, address)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
@@ -0,0 +1,156 @@
+package io.mywish.scanner.model;
+
+import io.mywish.blockchain.WrapperTransaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+public class BlockAddressIndexTest {
+    private final static String EVM_ADDRESS = "0x52908400098527886E0F7030069857D2E4169EE7";
+
+    @Test
+    public void exactTest() {
+        List<WrapperTransaction> transactions = transactions(2);
+        BlockAddressIndex index = BlockAddressIndex.builder(transactions, BlockAddressIndex.AddressFormat.EXACT)
+                .add("Addr", 0)
+                .add("addr", 1)
+                .build();
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals(Collections.singletonList(transactions.get(0)), index.get("Addr"));
+        Assert.assertEquals(Collections.singletonList(transactions.get(1)), index.get("addr"));
+        Assert.assertNull(index.get("ADDR"));
+        Assert.assertFalse(index.containsKey("ADDR"));
+        Assert.assertEquals(0, index.getPositions("ADDR").length);
+    }
+
+    @Test
+    public void lowerCaseTest() {
+        List<WrapperTransaction> transactions = transactions(2);
+        BlockAddressIndex index = BlockAddressIndex.builder(transactions, BlockAddressIndex.AddressFormat.LOWER_CASE)
+                .add("Addr", 0)
+                .add("ADDR", 1)
+                .build();
+        Assert.assertEquals(1, index.size());
+        Assert.assertEquals(transactions, index.get("aDdR"));
+        Assert.assertEquals(Collections.singleton("addr"), index.keySet());
+    }
+
+    @Test
+    public void evmTest() {
+        List<WrapperTransaction> transactions = transactions(3);
+        BlockAddressIndex index = BlockAddressIndex.builder(transactions, BlockAddressIndex.AddressFormat.EVM)
+                .add(EVM_ADDRESS, 0)
+                .add(EVM_ADDRESS.toLowerCase(), 1)
+                .add(EVM_ADDRESS.substring(2), 2)
+                // not an EVM address, compared in lower case
+                .add("Contract", 2)
+                .build();
+        Assert.assertEquals(2, index.size());
+        Assert.assertArrayEquals(new int[]{0, 1, 2}, index.getPositions("0X" + EVM_ADDRESS.substring(2).toLowerCase()));
+        Assert.assertEquals(transactions, index.get(EVM_ADDRESS.toUpperCase().replace("0X", "0x")));
+        Assert.assertTrue(index.containsKey(EVM_ADDRESS.substring(2)));
+        Assert.assertEquals(Collections.singletonList(transactions.get(2)), index.get("CONTRACT"));
+        Assert.assertEquals(
+                new HashSet<>(Arrays.asList(EVM_ADDRESS.toLowerCase(), "contract")),
+                index.keySet()
+        );
+        // one hex digit less is not an EVM address
+        Assert.assertNull(index.get(EVM_ADDRESS.substring(0, 41)));
+    }
+
+    @Test
+    public void duplicateAndNullTest() {
+        List<WrapperTransaction> transactions = transactions(3);
+        BlockAddressIndex index = BlockAddressIndex.builder(transactions, BlockAddressIndex.AddressFormat.EXACT)
+                .add("a", 2)
+                .add("a", 2)
+                .add(null, 1)
+                .add("a", 0)
+                .add("a", 2)
+                .build();
+        Assert.assertEquals(1, index.size());
+        Assert.assertArrayEquals(new int[]{0, 2}, index.getPositions("a"));
+        Assert.assertEquals(Arrays.asList(transactions.get(0), transactions.get(2)), index.get("a"));
+        Assert.assertEquals(0, index.getPositions(null).length);
+        Assert.assertNull(index.get(null));
+        Assert.assertFalse(index.containsKey(null));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void wrongPositionTest() {
+        BlockAddressIndex.builder(transactions(1), BlockAddressIndex.AddressFormat.EXACT).add("a", 1);
+    }
+
+    @Test
+    public void growTest() {
+        // the linked list is copied, the initial capacity is for one transaction
+        List<WrapperTransaction> transactions = new LinkedList<>(transactions(1));
+        BlockAddressIndex.Builder builder = BlockAddressIndex.builder(transactions, BlockAddressIndex.AddressFormat.EXACT);
+        Map<String, List<WrapperTransaction>> expected = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            builder.add("address" + i, 0);
+            expected.put("address" + i, Collections.singletonList(transactions.get(0)));
+        }
+        BlockAddressIndex index = builder.build();
+        Assert.assertEquals(1000, index.size());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertArrayEquals(new int[]{0}, index.getPositions("address" + i));
+        }
+        Assert.assertEquals(expected, index);
+        Assert.assertEquals(1000, index.entrySet().size());
+        Assert.assertEquals(1000, index.toSingleValueMap().size());
+    }
+
+    @Test
+    public void multiValueMapTest() {
+        List<WrapperTransaction> transactions = transactions(2);
+        BlockAddressIndex index = BlockAddressIndex.builder(transactions, BlockAddressIndex.AddressFormat.EXACT)
+                .add("a", 1)
+                .add("a", 0)
+                .add("b", 1)
+                .build();
+        Assert.assertSame(transactions.get(0), index.getFirst("a"));
+        Assert.assertSame(transactions.get(1), index.getFirst("b"));
+        Assert.assertNull(index.getFirst("c"));
+        Map<String, WrapperTransaction> single = index.toSingleValueMap();
+        Assert.assertEquals(2, single.size());
+        Assert.assertSame(transactions.get(0), single.get("a"));
+        Assert.assertSame(transactions.get(1), single.get("b"));
+
+        assertImmutable(() -> index.add("c", transactions.get(0)));
+        assertImmutable(() -> index.set("a", transactions.get(0)));
+        assertImmutable(() -> index.setAll(Collections.singletonMap("a", transactions.get(0))));
+        assertImmutable(() -> index.put("c", new ArrayList<>()));
+        assertImmutable(() -> index.remove("a"));
+        assertImmutable(() -> index.get("a").set(0, transactions.get(1)));
+        assertImmutable(() -> index.entrySet().iterator().next().setValue(new ArrayList<>()));
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals(Arrays.asList(transactions.get(0), transactions.get(1)), index.get("a"));
+    }
+
+    private static void assertImmutable(Runnable change) {
+        try {
+            change.run();
+            Assert.fail("Index is changed.");
+        }
+        catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    private static List<WrapperTransaction> transactions(int count) {
+        List<WrapperTransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            transactions.add(new WrapperTransaction("tx" + i, Collections.emptyList(), Collections.emptyList(), false));
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,213 @@
+package io.mywish.scanner.services;
+
+import io.mywish.blockchain.WrapperTransaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class PendingTransactionStoreTest {
+    private final List<WrapperTransaction> removed = new ArrayList<>();
+
+    @Test
+    public void addConfirmTest() {
+        PendingTransactionStore store = new PendingTransactionStore(10, 1000, 10);
+        Assert.assertTrue(store.add(tx(hex(1)), 0, removed));
+        Assert.assertFalse(store.add(tx(hex(1)), 0, removed));
+        // the same hash in upper case and without the prefix has the same key
+        Assert.assertFalse(store.add(tx(hex(1).substring(2).toUpperCase()), 0, removed));
+        Assert.assertTrue(store.add(tx("abc"), 0, removed));
+        Assert.assertTrue(store.add(tx("0xabc"), 0, removed));
+        Assert.assertEquals(3, store.size());
+
+        Assert.assertNull(store.confirm(hex(2), 0));
+        Assert.assertNull(store.confirm("ab", 0));
+        Assert.assertEquals("abc", store.confirm("abc", 0).getHash());
+        Assert.assertEquals(hex(1), store.confirm("0X" + hex(1).substring(2), 0).getHash());
+        Assert.assertNull(store.confirm(hex(1), 0));
+        Assert.assertEquals(1, store.size());
+        Assert.assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    public void collisionTest() throws Exception {
+        // 16 cells in the table
+        PendingTransactionStore store = new PendingTransactionStore(8, 1000, 10);
+        // three hashes with the same home cell and one with the next cell, which is taken by the probe chain
+        List<String> colliding = new ArrayList<>();
+        String neighbour = null;
+        int home = homeCell(store, hex(0));
+        for (int i = 1; colliding.size() < 2 || neighbour == null; i++) {
+            int cell = homeCell(store, hex(i));
+            if (cell == home && colliding.size() < 2) {
+                colliding.add(hex(i));
+            }
+            else if (cell == ((home + 1) & 15) && neighbour == null) {
+                neighbour = hex(i);
+            }
+        }
+        List<String> hashes = Arrays.asList(hex(0), colliding.get(0), colliding.get(1), neighbour);
+        for (String hash : hashes) {
+            Assert.assertTrue(store.add(tx(hash), 0, removed));
+        }
+
+        // deletion inside the probe chain shifts back the following entries
+        Assert.assertNotNull(store.confirm(colliding.get(0), 0));
+        Assert.assertNotNull(store.confirm(neighbour, 0));
+        Assert.assertNotNull(store.confirm(colliding.get(1), 0));
+        Assert.assertNotNull(store.confirm(hex(0), 0));
+        Assert.assertEquals(0, store.size());
+
+        for (String hash : hashes) {
+            Assert.assertTrue(store.add(tx(hash), 0, removed));
+        }
+        Assert.assertNotNull(store.confirm(hex(0), 0));
+        for (String hash : hashes.subList(1, 4)) {
+            Assert.assertFalse(store.add(tx(hash), 0, removed));
+        }
+        Assert.assertTrue(store.add(tx(hex(0)), 0, removed));
+        Assert.assertEquals(4, store.size());
+    }
+
+    @Test
+    public void randomTest() {
+        PendingTransactionStore store = new PendingTransactionStore(64, 1000, 10);
+        Set<String> expected = new HashSet<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            int number = random.nextInt(200);
+            String hash = number % 3 == 0 ? "tx" + number : hex(number);
+            if (random.nextBoolean() && expected.size() < 64) {
+                Assert.assertEquals(expected.add(hash), store.add(tx(hash), 0, removed));
+            }
+            else {
+                Assert.assertEquals(expected.remove(hash), store.confirm(hash, 0) != null);
+            }
+            Assert.assertEquals(expected.size(), store.size());
+        }
+        Assert.assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    public void expireTest() {
+        PendingTransactionStore store = new PendingTransactionStore(10, 1000, 3);
+        store.add(tx(hex(1)), 0, removed);
+        store.add(tx(hex(2)), 999, removed);
+        store.add(tx(hex(3)), 1000, removed);
+        store.add(tx(hex(4)), 2999, removed);
+
+        store.expire(2999, removed);
+        Assert.assertTrue(removed.isEmpty());
+        store.expire(3000, removed);
+        Assert.assertEquals(Arrays.asList(hex(1), hex(2)), hashes(removed));
+        store.expire(3999, removed);
+        Assert.assertEquals(2, removed.size());
+        // the time going back does not expire anything
+        store.expire(1000, removed);
+        Assert.assertEquals(2, removed.size());
+        store.expire(4000, removed);
+        Assert.assertEquals(Arrays.asList(hex(1), hex(2), hex(3)), hashes(removed));
+        Assert.assertEquals(1, store.size());
+
+        // the jump over the whole wheel expires everything
+        removed.clear();
+        store.add(tx(hex(5)), 4500, removed);
+        store.expire(100000, removed);
+        Assert.assertEquals(Arrays.asList(hex(4), hex(5)), hashes(removed));
+        Assert.assertEquals(0, store.size());
+        Assert.assertEquals(5, store.getStats(100000).getExpired());
+
+        // the store works after the jump
+        removed.clear();
+        store.add(tx(hex(6)), 100000, removed);
+        store.expire(102999, removed);
+        Assert.assertTrue(removed.isEmpty());
+        store.expire(103000, removed);
+        Assert.assertEquals(Collections.singletonList(hex(6)), hashes(removed));
+    }
+
+    @Test
+    public void evictTest() {
+        PendingTransactionStore store = new PendingTransactionStore(2, 1000, 10);
+        store.add(tx(hex(1)), 0, removed);
+        store.add(tx(hex(2)), 1000, removed);
+        store.add(tx(hex(3)), 2000, removed);
+        Assert.assertEquals(Collections.singletonList(hex(1)), hashes(removed));
+
+        store.confirm(hex(2), 2000);
+        store.add(tx(hex(4)), 2000, removed);
+        store.add(tx(hex(5)), 2000, removed);
+        Assert.assertEquals(Arrays.asList(hex(1), hex(3)), hashes(removed));
+        Assert.assertNotNull(store.confirm(hex(4), 2000));
+        Assert.assertNotNull(store.confirm(hex(5), 2000));
+        Assert.assertEquals(2, store.getStats(2000).getEvicted());
+
+        PendingTransactionStore empty = new PendingTransactionStore(0, 1000, 10);
+        removed.clear();
+        Assert.assertTrue(empty.add(tx(hex(1)), 0, removed));
+        Assert.assertEquals(Collections.singletonList(hex(1)), hashes(removed));
+        Assert.assertEquals(0, empty.size());
+    }
+
+    @Test
+    public void statsTest() {
+        PendingTransactionStore store = new PendingTransactionStore(10, 1000, 10);
+        store.add(tx(hex(1)), 0, removed);
+        store.add(tx(hex(2)), 1000, removed);
+        store.add(tx(hex(3)), 2000, removed);
+        store.add(tx(hex(4)), 2000, removed);
+        store.confirm(hex(1), 4000);
+        store.confirm(hex(2), 5000);
+
+        PendingTransactionStore.Stats stats = store.getStats(6000);
+        Assert.assertEquals(2, stats.getSize());
+        Assert.assertEquals(10, stats.getCapacity());
+        Assert.assertEquals(4, stats.getAdded());
+        Assert.assertEquals(2, stats.getConfirmed());
+        Assert.assertEquals(0, stats.getExpired());
+        Assert.assertEquals(0, stats.getEvicted());
+        Assert.assertEquals(0.4, stats.getArrivalRate(), 1e-9);
+        Assert.assertEquals(0.2, stats.getConfirmationRate(), 1e-9);
+        Assert.assertEquals(4000, stats.getOldestAge());
+        Assert.assertEquals(4000, stats.getMeanConfirmationAge());
+
+        store.expire(12000, removed);
+        stats = store.getStats(12000);
+        Assert.assertEquals(0, stats.getSize());
+        Assert.assertEquals(2, stats.getExpired());
+        Assert.assertEquals(0, stats.getArrivalRate(), 1e-9);
+        Assert.assertEquals(0, stats.getOldestAge());
+    }
+
+    private static int homeCell(PendingTransactionStore store, String hash) throws Exception {
+        Method parseKey = PendingTransactionStore.class.getDeclaredMethod("parseKey", String.class);
+        parseKey.setAccessible(true);
+        parseKey.invoke(store, hash);
+        Method hashKey = PendingTransactionStore.class.getDeclaredMethod("hashKey");
+        hashKey.setAccessible(true);
+        Field tableMask = PendingTransactionStore.class.getDeclaredField("tableMask");
+        tableMask.setAccessible(true);
+        return (int) hashKey.invoke(store) & tableMask.getInt(store);
+    }
+
+    private static String hex(long number) {
+        return String.format("0x%064x", number);
+    }
+
+    private static WrapperTransaction tx(String hash) {
+        return new WrapperTransaction(hash, Collections.emptyList(), Collections.emptyList(), false);
+    }
+
+    private static List<String> hashes(List<WrapperTransaction> transactions) {
+        return transactions.stream().map(WrapperTransaction::getHash).collect(Collectors.toList());
+    }
+}
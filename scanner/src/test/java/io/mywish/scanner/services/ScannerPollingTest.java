@@ -0,0 +1,283 @@
+package io.mywish.scanner.services;
+
+import io.lastwill.eventscan.model.NetworkType;
+import io.mywish.blockchain.WrapperBlock;
+import io.mywish.blockchain.WrapperNetwork;
+import io.mywish.blockchain.WrapperTransaction;
+import io.mywish.blockchain.WrapperTransactionReceipt;
+import io.mywish.scanner.model.BlockCommittedEvent;
+import io.mywish.scanner.model.BlockRollbackEvent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+public class ScannerPollingTest {
+    private final static int COMMITMENT_CHAIN_LENGTH = 2;
+    private final static int REORG_TRACKING_DEPTH = 5;
+
+    private final TestNetwork network = new TestNetwork();
+    private final TestPersister persister = new TestPersister();
+    private final List<Object> events = new ArrayList<>();
+    private final EventPublisher eventPublisher = new EventPublisher();
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    @Before
+    public void init() throws Exception {
+        Field field = EventPublisher.class.getDeclaredField("applicationEventPublisher");
+        field.setAccessible(true);
+        field.set(eventPublisher, Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{ApplicationEventPublisher.class},
+                (proxy, method, args) -> {
+                    gate.await();
+                    return events.add(args[0]);
+                }
+        ));
+        network.build("a", 0, 5);
+    }
+
+    @Test
+    public void commitTest() throws Exception {
+        TestScanner scanner = open();
+        scan(scanner);
+        Assert.assertEquals(Arrays.asList("a1", "a2", "a3", "a4", "a5"), scanner.processed);
+        Assert.assertEquals(Arrays.asList("a1", "a2"), committed());
+        Assert.assertEquals(3L, (long) persister.getLastBlock());
+        Assert.assertTrue(rollbacks().isEmpty());
+    }
+
+    @Test
+    public void forkTest() throws Exception {
+        TestScanner scanner = open();
+        scan(scanner);
+        network.build("b", 4, 6);
+        scan(scanner);
+
+        Assert.assertEquals(1, rollbacks().size());
+        BlockRollbackEvent rollback = rollbacks().get(0);
+        Assert.assertEquals(Arrays.asList("a4", "a5"), hashes(rollback.getRolledBackBlocks()));
+        Assert.assertEquals(Arrays.asList("b4", "b5", "b6"), hashes(rollback.getReplacementBlocks()));
+        Assert.assertEquals(Arrays.asList("b4", "b5", "b6"), scanner.processed.subList(5, 8));
+        Assert.assertEquals(Arrays.asList("a1", "a2", "a3"), committed());
+        Assert.assertEquals(1, scanner.getReorgCount());
+        Assert.assertEquals(2, scanner.getDeepestReorg());
+    }
+
+    @Test
+    public void overDepthForkTest() throws Exception {
+        TestScanner scanner = open();
+        scan(scanner);
+        // block 0 has left the tracked chain, so the fork point is not found
+        network.build("c", 1, 6);
+        scan(scanner);
+
+        BlockRollbackEvent rollback = rollbacks().get(0);
+        Assert.assertEquals(Arrays.asList("a1", "a2", "a3", "a4", "a5"), hashes(rollback.getRolledBackBlocks()));
+        Assert.assertEquals(Arrays.asList("c1", "c2", "c3", "c4", "c5", "c6"), hashes(rollback.getReplacementBlocks()));
+        Assert.assertEquals(Arrays.asList("a1", "a2", "c1", "c2", "c3"), committed());
+        Assert.assertEquals(5, scanner.getDeepestReorg());
+    }
+
+    @Test
+    public void asyncCommitTest() throws Exception {
+        setPublisherField("consumers", 1);
+        setPublisherField("queueCapacity", 64);
+        eventPublisher.open();
+        gate = new CountDownLatch(1);
+        try {
+            TestScanner scanner = open();
+            scan(scanner);
+            // the committed events are waiting in the queue, so the saved block does not pass them
+            Assert.assertEquals(1L, (long) persister.getLastBlock());
+            gate.countDown();
+            scanner.close();
+            Assert.assertEquals(Arrays.asList("a1", "a2"), committed());
+            Assert.assertEquals(3L, (long) persister.getLastBlock());
+        }
+        finally {
+            gate.countDown();
+            eventPublisher.close();
+        }
+    }
+
+    @Test
+    public void restartTest() throws Exception {
+        scan(open());
+        events.clear();
+        network.build("a", 6, 6);
+
+        TestScanner restarted = open();
+        Assert.assertTrue(restarted.isReplayed(5));
+        Assert.assertFalse(restarted.isReplayed(6));
+        scan(restarted);
+        Assert.assertEquals(Arrays.asList("a3", "a4", "a5", "a6"), restarted.processed);
+        Assert.assertEquals(Collections.singletonList("a3"), committed());
+        Assert.assertTrue(rollbacks().isEmpty());
+    }
+
+    @Test
+    public void restartForkTest() throws Exception {
+        scan(open());
+        events.clear();
+
+        TestScanner restarted = open();
+        // the committed block is replaced after the restart
+        network.build("d", 2, 6);
+        scan(restarted);
+        BlockRollbackEvent rollback = rollbacks().get(0);
+        Assert.assertEquals(Collections.singletonList("a2"), hashes(rollback.getRolledBackBlocks()));
+        Assert.assertEquals(Arrays.asList("d2", "d3"), hashes(rollback.getReplacementBlocks()));
+        Assert.assertEquals(Arrays.asList("d2", "d3", "d4", "d5", "d6"), restarted.processed);
+    }
+
+    private TestScanner open() throws Exception {
+        TestScanner scanner = new TestScanner(network, persister);
+        scanner.eventPublisher = eventPublisher;
+        scanner.setReorgTracking(REORG_TRACKING_DEPTH);
+        scanner.open();
+        return scanner;
+    }
+
+    private void setPublisherField(String name, Object value) throws Exception {
+        Field field = EventPublisher.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(eventPublisher, value);
+    }
+
+    /**
+     * Runs polling cycles till the last block of the network is processed.
+     */
+    private void scan(TestScanner scanner) throws Exception {
+        Method polling = ScannerPolling.class.getDeclaredMethod("polling");
+        polling.setAccessible(true);
+        for (int i = 0; i < 100 && scanner.nextBlockNo <= network.getLastBlock(); i++) {
+            polling.invoke(scanner);
+        }
+        Assert.assertEquals(network.getLastBlock() + 1, (long) scanner.nextBlockNo);
+    }
+
+    private List<String> committed() {
+        return events.stream()
+                .filter(event -> event instanceof BlockCommittedEvent)
+                .map(event -> ((BlockCommittedEvent) event).getBlock().getHash())
+                .collect(Collectors.toList());
+    }
+
+    private List<BlockRollbackEvent> rollbacks() {
+        return events.stream()
+                .filter(event -> event instanceof BlockRollbackEvent)
+                .map(event -> (BlockRollbackEvent) event)
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> hashes(List<WrapperBlock> blocks) {
+        return blocks.stream().map(WrapperBlock::getHash).collect(Collectors.toList());
+    }
+
+    private static class TestPersister implements LastBlockPersister {
+        private Long lastBlock = 1L;
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public Long getLastBlock() {
+            return lastBlock;
+        }
+
+        @Override
+        public void saveLastBlock(long blockNumber) {
+            lastBlock = blockNumber;
+        }
+    }
+
+    private static class TestScanner extends ScannerPolling {
+        private final List<String> processed = new ArrayList<>();
+
+        private TestScanner(WrapperNetwork network, LastBlockPersister lastBlockPersister) {
+            super(network, lastBlockPersister, 1L, COMMITMENT_CHAIN_LENGTH);
+        }
+
+        @Override
+        protected void processBlock(WrapperBlock block) {
+            processed.add(block.getHash());
+        }
+    }
+
+    private static class TestNetwork extends WrapperNetwork {
+        private final List<WrapperBlock> chain = new ArrayList<>();
+
+        private TestNetwork() {
+            super(NetworkType.ETHEREUM_MAINNET);
+        }
+
+        /**
+         * Replaces the blocks from the number by the blocks of the branch.
+         */
+        private void build(String branch, int fromNumber, int toNumber) {
+            chain.subList(Math.min(fromNumber, chain.size()), chain.size()).clear();
+            for (int number = fromNumber; number <= toNumber; number++) {
+                String parentHash = number == 0 ? null : chain.get(number - 1).getHash();
+                chain.add(new WrapperBlock(branch + number, parentHash, (long) number, Instant.EPOCH, Collections.emptyList()));
+            }
+        }
+
+        @Override
+        public Long getLastBlock() {
+            return (long) chain.size() - 1;
+        }
+
+        @Override
+        public WrapperBlock getBlock(Long number) {
+            return chain.get(number.intValue());
+        }
+
+        @Override
+        public List<WrapperBlock> getBlocks(long fromNumber, long toNumber) {
+            return new ArrayList<>(chain.subList((int) fromNumber, (int) toNumber + 1));
+        }
+
+        @Override
+        public WrapperBlock getBlock(String hash) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BigInteger getBalance(String address, Long blockNo) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WrapperTransactionReceipt getTxReceipt(WrapperTransaction transaction) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isPendingTransactionsSupported() {
+            return false;
+        }
+
+        @Override
+        public List<WrapperTransaction> fetchPendingTransactions() {
+            return Collections.emptyList();
+        }
+    }
+}
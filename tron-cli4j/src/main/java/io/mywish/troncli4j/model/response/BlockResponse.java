@@ -44,5 +44,6 @@ public class BlockResponse extends Response {
     public static class RawData {
         private final Long number;
         private final Long timestamp;
+        private final String parentHash;
     }
 }
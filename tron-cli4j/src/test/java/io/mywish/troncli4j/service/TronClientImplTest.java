@@ -51,6 +51,8 @@ public class TronClientImplTest {
         String json = readJson("block.json");
         BlockResponse response = objectMapper.readValue(json, BlockResponse.class);
         assertNotNull(response);
+        assertEquals("00000000004db946efa205f6415b8c445d701f2e4a75158b8f8b9e4ada63eaaf",
+                response.getBlockHeader().getParentHash());
 //        assertNotNull(response.getTransactions().get(0).getId());
 //        assertEquals(3, response.getTransactions().get(0).getActions().size());
 //
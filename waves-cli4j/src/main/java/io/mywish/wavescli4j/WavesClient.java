@@ -3,7 +3,10 @@ package io.mywish.wavescli4j;
 import io.mywish.wavescli4j.model.Block;
 import io.mywish.wavescli4j.model.Height;
 
+import java.util.List;
+
 public interface WavesClient {
     Height getHeight() throws Exception;
     Block getBlock(Long number) throws Exception;
+    List<Block> getBlocks(Long fromNumber, Long toNumber) throws Exception;
 }
@@ -13,6 +13,7 @@ public class Block implements Response {
     private Long height;
     private Long timestamp;
     private String signature;
+    private String reference;
     private BigInteger fee;
     private List<JsonNode> transactions;
 }
@@ -15,6 +15,7 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.util.EntityUtils;
 
 import java.nio.charset.Charset;
+import java.util.List;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -34,6 +35,17 @@ public class WavesClientImpl implements WavesClient {
         return get("/blocks/at/" + number, Block.class);
     }
 
+    /**
+     * Node returns at most 100 blocks per request.
+     */
+    @Override
+    public List<Block> getBlocks(Long fromNumber, Long toNumber) throws Exception {
+        return objectMapper.convertValue(
+                doRequest("/blocks/seq/" + fromNumber + "/" + toNumber),
+                objectMapper.getTypeFactory().constructCollectionType(List.class, Block.class)
+        );
+    }
+
     private <T extends Response> T get(String request, Class<T> tClass) throws Exception {
         return objectMapper.treeToValue(doRequest(request), tClass);
     }